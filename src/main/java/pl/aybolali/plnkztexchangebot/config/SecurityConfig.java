@@ -42,10 +42,17 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.GET, "/api/exchange-requests/*").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/deals/*").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/rates/current").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/stats", "/api/stats/summary").permitAll()
+
+                        // Telegram webhook - authenticated by secret token header inside the controller
+                        .requestMatchers(HttpMethod.POST, "/telegram/webhook").permitAll()
 
                         // PUBLIC rating endpoints - anyone can view ratings
                         .requestMatchers(HttpMethod.GET, "/api/ratings/**").permitAll()
 
+                        // ADMIN endpoints - exports, broadcasts, batch jobs, rate limits (app.security.admin-usernames)
+                        .requestMatchers("/api/v1/admin/**").hasRole("ADMIN")
+
                         // PROTECTED endpoints - require authentication
                         .anyRequest().authenticated()
                 )
@@ -0,0 +1,55 @@
+package pl.aybolali.plnkztexchangebot.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.aybolali.plnkztexchangebot.dto.ApiResponseDTO;
+import pl.aybolali.plnkztexchangebot.dto.BatchCheckpointDTO;
+import pl.aybolali.plnkztexchangebot.service.batch.BatchJobRunner;
+import pl.aybolali.plnkztexchangebot.service.batch.MaintenanceJobs;
+
+import java.util.List;
+
+/**
+ * 🧮 Прогресс и ручной запуск пакетных задач. Только ROLE_ADMIN (SecurityConfig, app.security.admin-usernames)
+ */
+@RestController
+@RequestMapping("/api/v1/admin/batch-jobs")
+@RequiredArgsConstructor
+@Slf4j
+public class BatchJobAdminController {
+
+    private final MaintenanceJobs maintenanceJobs;
+    private final BatchJobRunner batchJobRunner;
+
+    /**
+     * Прогресс задачи по секциям: last_key, обработано, изменено, статус
+     * GET /api/v1/admin/batch-jobs/user-stats-rebuild
+     */
+    @GetMapping("/{name}")
+    public ApiResponseDTO<List<BatchCheckpointDTO>> getProgress(@PathVariable String name) {
+        List<BatchCheckpointDTO> checkpoints = batchJobRunner.checkpoints(name).stream()
+                .map(BatchCheckpointDTO::from)
+                .toList();
+        return ApiResponseDTO.success(checkpoints);
+    }
+
+    /**
+     * Запустить задачу (или продолжить прерванный запуск)
+     * POST /api/v1/admin/batch-jobs/request-reconciliation/run
+     */
+    @PostMapping("/{name}/run")
+    public ResponseEntity<ApiResponseDTO<String>> run(@PathVariable String name) {
+        if (!maintenanceJobs.start(name)) {
+            return ResponseEntity
+                    .status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponseDTO.error("Задача не найдена. Доступны: " + String.join(", ", maintenanceJobs.jobNames())));
+        }
+        log.info("🧮 Batch {} started by admin", name);
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(ApiResponseDTO.success(name, "Задача запущена"));
+    }
+}
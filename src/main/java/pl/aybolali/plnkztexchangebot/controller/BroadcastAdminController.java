@@ -0,0 +1,62 @@
+package pl.aybolali.plnkztexchangebot.controller;
+
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import pl.aybolali.plnkztexchangebot.dto.ApiResponseDTO;
+import pl.aybolali.plnkztexchangebot.dto.BroadcastJobDTO;
+import pl.aybolali.plnkztexchangebot.dto.CreateBroadcastDTO;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastJob;
+import pl.aybolali.plnkztexchangebot.service.broadcast.BroadcastService;
+
+/**
+ * 📣 Рассылки всем пользователям бота. Только ROLE_ADMIN (SecurityConfig, app.security.admin-usernames)
+ */
+@RestController
+@RequestMapping("/api/v1/admin/broadcasts")
+@RequiredArgsConstructor
+@Slf4j
+public class BroadcastAdminController {
+
+    private final BroadcastService broadcastService;
+
+    /**
+     * Запустить рассылку всем активным пользователям
+     * POST /api/v1/admin/broadcasts {"text": "..."}
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponseDTO<BroadcastJobDTO>> createBroadcast(
+            @Valid @RequestBody CreateBroadcastDTO dto) {
+
+        BroadcastJob job = broadcastService.createBroadcast(dto.text());
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(ApiResponseDTO.success(BroadcastJobDTO.from(job), "Рассылка поставлена в очередь"));
+    }
+
+    /**
+     * Прогресс рассылки: delivered / failed / blocked
+     * GET /api/v1/admin/broadcasts/5
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<ApiResponseDTO<BroadcastJobDTO>> getBroadcast(@PathVariable Long id) {
+        return broadcastService.findBroadcast(id)
+                .map(job -> ResponseEntity.ok(ApiResponseDTO.success(BroadcastJobDTO.from(job))))
+                .orElseGet(() -> ResponseEntity
+                        .status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponseDTO.error("Рассылка не найдена")));
+    }
+
+    /**
+     * Остановить рассылку
+     * POST /api/v1/admin/broadcasts/5/cancel
+     */
+    @PostMapping("/{id}/cancel")
+    public ApiResponseDTO<BroadcastJobDTO> cancelBroadcast(@PathVariable Long id) {
+        BroadcastJob job = broadcastService.cancelBroadcast(id);
+        return ApiResponseDTO.success(BroadcastJobDTO.from(job), "Рассылка остановлена");
+    }
+}
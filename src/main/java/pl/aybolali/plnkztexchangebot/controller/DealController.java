@@ -5,8 +5,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import pl.aybolali.plnkztexchangebot.dto.*;
 import pl.aybolali.plnkztexchangebot.entity.Deal;
 import pl.aybolali.plnkztexchangebot.entity.DealStatus;
@@ -15,6 +17,8 @@ import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.mapper.DealMapper;
 import pl.aybolali.plnkztexchangebot.service.DealService;
 import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.export.ExportFormat;
+import pl.aybolali.plnkztexchangebot.service.export.ExportService;
 
 import jakarta.validation.Valid;
 
@@ -27,6 +31,7 @@ public class DealController {
 
     private final DealService dealService;
     private final UserService userService;
+    private final ExportService exportService;
 
     @GetMapping("/{id}")
     public ApiResponseDTO<DealDTO> getDealById(@PathVariable Long id) {
@@ -95,6 +100,21 @@ public class DealController {
         }
     }
 
+    /**
+     * Вся история своих сделок одним потоком (без постраничной выдачи)
+     * GET /api/deals/my/export?format=csv|ndjson
+     */
+    @GetMapping("/my/export")
+    public ResponseEntity<StreamingResponseBody> exportMyDeals(
+            @RequestParam(defaultValue = "csv") String format,
+            Authentication auth) {
+
+        User currentUser = getCurrentUser(auth);
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        return ExportAdminController.attachment("deals_" + currentUser.getTelegramUsername(), exportFormat,
+                out -> exportService.exportUserDeals(currentUser.getId(), exportFormat, out));
+    }
+
     private String buildDealMessage(Deal deal) {
         // Форматируем суммы и валюты с жирным шрифтом
         String providerGave = String.format("**%.2f %s**",
@@ -11,10 +11,16 @@ import org.springframework.web.bind.annotation.*;
 import pl.aybolali.plnkztexchangebot.dto.*;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
 import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.mapper.ExchangeRequestMapper;
 import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
 import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferSearchCriteria;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/exchange-requests")
@@ -25,6 +31,7 @@ public class ExchangeRequestController {
 
     private final ExchangeRequestService exchangeRequestService;
     private final UserService userService;
+    private final ActiveOfferBook activeOfferBook;
 
     @GetMapping
     public ApiResponseDTO<PagedResponseDTO<ExchangeRequestDTO>> getAllRequests(
@@ -51,6 +58,40 @@ public class ExchangeRequestController {
         }
     }
 
+    /**
+     * Фасетный поиск по ACTIVE заявкам из in-memory индекса (без SQL)
+     * keywords — слова из комментария, через запятую или пробел (AND)
+     */
+    @GetMapping("/search")
+    public ApiResponseDTO<PagedResponseDTO<ExchangeRequestDTO>> searchRequests(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) ExchangeRequest.Currency currency,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) TransferMethod transferMethod,
+            @RequestParam(required = false) BigDecimal minRating,
+            @RequestParam(required = false) Integer minDeals,
+            @RequestParam(required = false) Integer maxAgeHours,
+            @RequestParam(required = false) String keywords) {
+
+        try {
+            OfferSearchCriteria criteria = new OfferSearchCriteria(
+                    currency, minAmount, maxAmount, transferMethod, minRating, minDeals, maxAgeHours,
+                    keywords != null ? List.of(keywords.split("[,\\s]+")) : null, null);
+
+            Page<ExchangeRequestDTO> requestDTOs = activeOfferBook.search(criteria, PageRequest.of(page, size))
+                    .map(entry -> ExchangeRequestMapper.toDTO(entry.offer(), entry.user()));
+
+            return ApiResponseDTO.success(PagedResponseDTO.of(requestDTOs),
+                    String.format("Найдено запросов: %d", requestDTOs.getTotalElements()));
+
+        } catch (Exception e) {
+            log.error("Error searching exchange requests", e);
+            return ApiResponseDTO.error("Ошибка поиска запросов обмена");
+        }
+    }
+
     @GetMapping("/{id}")
     public ApiResponseDTO<ExchangeRequestDTO> getRequestById(@PathVariable Long id) {
         try {
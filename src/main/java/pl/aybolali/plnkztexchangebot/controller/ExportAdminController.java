@@ -0,0 +1,69 @@
+package pl.aybolali.plnkztexchangebot.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+import pl.aybolali.plnkztexchangebot.service.export.ExportFormat;
+import pl.aybolali.plnkztexchangebot.service.export.ExportService;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/v1/admin/exports")
+@RequiredArgsConstructor
+@Slf4j
+public class ExportAdminController {
+
+    private final ExportService exportService;
+
+    /**
+     * Все сделки, завершённые в диапазоне дат (to включительно)
+     * GET /api/v1/admin/exports/deals?from=2025-01-01&to=2025-01-31&format=ndjson
+     */
+    @GetMapping("/deals")
+    public ResponseEntity<StreamingResponseBody> exportDeals(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        validateRange(from, to);
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        return attachment("deals_" + from + "_" + to, exportFormat, out -> exportService.exportDeals(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, out));
+    }
+
+    /**
+     * Все заявки, созданные в диапазоне дат (to включительно)
+     * GET /api/v1/admin/exports/requests?from=2025-01-01&to=2025-01-31
+     */
+    @GetMapping("/requests")
+    public ResponseEntity<StreamingResponseBody> exportRequests(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format) {
+
+        validateRange(from, to);
+        ExportFormat exportFormat = ExportFormat.parse(format);
+        return attachment("requests_" + from + "_" + to, exportFormat, out -> exportService.exportRequests(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, out));
+    }
+
+    static ResponseEntity<StreamingResponseBody> attachment(String name, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + format.extension() + "\"")
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .body(body);
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new BusinessException("Дата 'to' раньше 'from'");
+        }
+    }
+}
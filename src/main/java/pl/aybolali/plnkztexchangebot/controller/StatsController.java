@@ -0,0 +1,69 @@
+package pl.aybolali.plnkztexchangebot.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import pl.aybolali.plnkztexchangebot.dto.ApiResponseDTO;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+import pl.aybolali.plnkztexchangebot.service.stats.TradeStatsService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * REST API статистики торговли: читает готовые агрегаты trade_rollups
+ */
+@RestController
+@RequestMapping("/api/stats")
+@RequiredArgsConstructor
+@Slf4j
+public class StatsController {
+
+    private static final Duration MAX_HOURLY_RANGE = Duration.ofDays(31);
+    private static final Duration MAX_DAILY_RANGE = Duration.ofDays(366);
+    private static final Duration MAX_SUMMARY_WINDOW = Duration.ofDays(7);
+
+    private final TradeStatsService tradeStatsService;
+
+    /**
+     * Бакеты за период; по умолчанию — последние 24 часа (HOUR) или 30 дней (DAY)
+     * GET /api/stats?period=HOUR&from=2025-03-01T00:00&to=2025-03-02T00:00
+     */
+    @GetMapping
+    public ApiResponseDTO<List<TradeRollupDTO>> getRollups(
+            @RequestParam(defaultValue = "HOUR") RollupPeriod period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+                : end.minus(period == RollupPeriod.HOUR ? Duration.ofHours(24) : Duration.ofDays(30));
+
+        if (!start.isBefore(end)) {
+            throw new BusinessException("Дата 'from' должна быть раньше 'to'");
+        }
+        Duration maxRange = period == RollupPeriod.HOUR ? MAX_HOURLY_RANGE : MAX_DAILY_RANGE;
+        if (Duration.between(start, end).compareTo(maxRange) > 0) {
+            throw new BusinessException("Слишком большой диапазон для " + period + ": максимум " + maxRange.toDays() + " дней");
+        }
+
+        return ApiResponseDTO.success(tradeStatsService.getRollups(period, start, end));
+    }
+
+    /**
+     * Итоги по валютам за последние N часов
+     * GET /api/stats/summary?hours=24
+     */
+    @GetMapping("/summary")
+    public ApiResponseDTO<List<TradeRollupDTO>> getSummary(@RequestParam(defaultValue = "24") int hours) {
+        Duration window = Duration.ofHours(hours);
+        if (hours <= 0 || window.compareTo(MAX_SUMMARY_WINDOW) > 0) {
+            throw new BusinessException("Окно: от 1 до " + MAX_SUMMARY_WINDOW.toHours() + " часов");
+        }
+        return ApiResponseDTO.success(tradeStatsService.getSummary(window));
+    }
+}
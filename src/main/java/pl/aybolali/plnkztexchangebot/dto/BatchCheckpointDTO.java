@@ -0,0 +1,39 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import pl.aybolali.plnkztexchangebot.entity.BatchCheckpoint;
+import pl.aybolali.plnkztexchangebot.entity.BatchStatus;
+
+import java.time.LocalDateTime;
+
+public record BatchCheckpointDTO(
+        String jobName,
+        Integer partitionNo,
+        BatchStatus status,
+        Long lowerKey,
+        Long upperKey,
+        Long lastKey,
+        Long processed,
+        Long affected,
+        Integer chunks,
+        String lastError,
+        LocalDateTime startedAt,
+        LocalDateTime updatedAt,
+        LocalDateTime finishedAt
+) {
+    public static BatchCheckpointDTO from(BatchCheckpoint checkpoint) {
+        return new BatchCheckpointDTO(
+                checkpoint.getJobName(),
+                checkpoint.getPartitionNo(),
+                checkpoint.getStatus(),
+                checkpoint.getLowerKey(),
+                checkpoint.getUpperKey(),
+                checkpoint.getLastKey(),
+                checkpoint.getProcessed(),
+                checkpoint.getAffected(),
+                checkpoint.getChunks(),
+                checkpoint.getLastError(),
+                checkpoint.getStartedAt(),
+                checkpoint.getUpdatedAt(),
+                checkpoint.getFinishedAt());
+    }
+}
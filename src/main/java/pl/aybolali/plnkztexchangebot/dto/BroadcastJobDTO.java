@@ -0,0 +1,31 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import pl.aybolali.plnkztexchangebot.entity.BroadcastJob;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastStatus;
+
+import java.time.LocalDateTime;
+
+public record BroadcastJobDTO(
+        Long id,
+        BroadcastStatus status,
+        Integer delivered,
+        Integer failed,
+        Integer blocked,
+        Long lastUserId,
+        LocalDateTime createdAt,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt
+) {
+    public static BroadcastJobDTO from(BroadcastJob job) {
+        return new BroadcastJobDTO(
+                job.getId(),
+                job.getStatus(),
+                job.getDelivered(),
+                job.getFailed(),
+                job.getBlocked(),
+                job.getLastUserId(),
+                job.getCreatedAt(),
+                job.getStartedAt(),
+                job.getFinishedAt());
+    }
+}
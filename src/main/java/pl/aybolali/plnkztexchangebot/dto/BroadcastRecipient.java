@@ -0,0 +1,9 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+/**
+ * Получатель рассылки — только то, что нужно для отправки, без загрузки сущности User
+ */
+public record BroadcastRecipient(
+        Long userId,
+        Long telegramUserId
+) {}
@@ -0,0 +1,15 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO для создания рассылки
+ *
+ * @param text - текст сообщения (HTML, лимит Telegram 4096 символов)
+ */
+public record CreateBroadcastDTO(
+        @NotBlank(message = "Текст рассылки не может быть пустым")
+        @Size(max = 4096, message = "Текст рассылки не может быть длиннее 4096 символов")
+        String text
+) {}
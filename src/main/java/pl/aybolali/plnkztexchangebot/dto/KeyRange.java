@@ -0,0 +1,11 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+/**
+ * MIN(id) / MAX(id) таблицы; null — таблица пуста
+ */
+public record KeyRange(Long min, Long max) {
+
+    public boolean isEmpty() {
+        return min == null || max == null;
+    }
+}
@@ -0,0 +1,48 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.entity.TradeRollup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+
+/**
+ * Агрегат торговли за бакет (или сумма бакетов) по одной валюте
+ */
+public record TradeRollupDTO(
+        RollupPeriod period,
+        LocalDateTime bucketStart,
+        ExchangeRequest.Currency currency,
+        Integer dealCount,
+        BigDecimal volume,
+        BigDecimal vwap,                  // Средневзвешенный по объёму курс; null без сделок
+        Integer filledRequests,
+        Long avgFillSeconds,              // Среднее время от создания заявки до исполнения; null без исполнений
+        Long maxFillSeconds,
+        Integer openRequests,             // Глубина книги на последний снимок
+        BigDecimal openAmount
+) {
+    public static TradeRollupDTO from(TradeRollup rollup) {
+        BigDecimal vwap = rollup.getVolume().signum() > 0
+                ? rollup.getRateVolume().divide(rollup.getVolume(), 8, RoundingMode.HALF_UP)
+                : null;
+        Long avgFillSeconds = rollup.getFilledRequests() > 0
+                ? rollup.getFillSecondsSum() / rollup.getFilledRequests()
+                : null;
+
+        return new TradeRollupDTO(
+                rollup.getId().getPeriod(),
+                rollup.getId().getBucketStart(),
+                rollup.getId().getCurrency(),
+                rollup.getDealCount(),
+                rollup.getVolume(),
+                vwap,
+                rollup.getFilledRequests(),
+                avgFillSeconds,
+                rollup.getFillSecondsMax(),
+                rollup.getOpenRequests(),
+                rollup.getOpenAmount());
+    }
+}
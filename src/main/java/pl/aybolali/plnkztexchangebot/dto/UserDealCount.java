@@ -0,0 +1,9 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+/**
+ * Число завершённых сделок пользователя в одной роли (requester или provider)
+ */
+public record UserDealCount(
+        Long userId,
+        Long deals
+) {}
@@ -0,0 +1,12 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Сумма и число полученных пользователем оценок
+ */
+public record UserRatingTotals(
+        Long userId,
+        BigDecimal ratingSum,
+        Long ratingCount
+) {}
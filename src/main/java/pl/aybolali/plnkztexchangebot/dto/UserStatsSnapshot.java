@@ -0,0 +1,13 @@
+package pl.aybolali.plnkztexchangebot.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Текущие счётчики статистики пользователя (для сверки с deals и ratings)
+ */
+public record UserStatsSnapshot(
+        Long userId,
+        Integer completedDeals,
+        BigDecimal ratingSum,
+        Integer ratingCount
+) {}
@@ -0,0 +1,6 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+public enum ArchiveKind {
+    DEALS,       // Завершённые и отменённые сделки
+    REQUESTS     // Закрытые заявки (COMPLETED / CANCELLED)
+}
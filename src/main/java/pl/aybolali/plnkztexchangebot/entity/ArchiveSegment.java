@@ -0,0 +1,60 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 🧊 Файл холодного слоя: неизменяемый колоночный сегмент со строками одной таблицы.
+ * Диапазоны id и времени позволяют открыть только нужные сегменты.
+ */
+@Entity
+@Table(name = "archive_segments")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class ArchiveSegment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 16)
+    private ArchiveKind kind;
+
+    @Column(name = "file_name", nullable = false, unique = true, length = 128)
+    private String fileName;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    // ===== ДИАПАЗОНЫ =====
+    @Column(name = "min_id", nullable = false)
+    private Long minId;
+
+    @Column(name = "max_id", nullable = false)
+    private Long maxId;
+
+    @Column(name = "min_time")
+    private LocalDateTime minTime;                     // Сделки: finished_at, заявки: created_at
+
+    @Column(name = "max_time")
+    private LocalDateTime maxTime;
+
+    // ===== ФАЙЛ =====
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "checksum", nullable = false)
+    private Long checksum;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,60 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+
+/**
+ * Участие пользователя в сегменте: сколько его строк в файле и сколько из них COMPLETED.
+ */
+@Entity
+@Table(name = "archive_segment_users")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class ArchiveSegmentUser implements Persistable<ArchiveSegmentUser.Key> {
+
+    @EmbeddedId
+    private Key id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 16)
+    private ArchiveKind kind;
+
+    @Column(name = "row_count", nullable = false)
+    private Integer rowCount;
+
+    @Column(name = "completed_count", nullable = false)
+    private Integer completedCount;
+
+    // Ключ задаётся вручную: без флага save() делал бы лишний SELECT на каждую строку
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean stored;
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        this.stored = true;
+    }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Column(name = "segment_id", nullable = false)
+        private Long segmentId;
+
+        @Column(name = "user_id", nullable = false)
+        private Long userId;
+    }
+}
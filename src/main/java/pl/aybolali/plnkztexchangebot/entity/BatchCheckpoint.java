@@ -0,0 +1,116 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 🧮 Checkpoint секции пакетной задачи: диапазон ключей (lower_key, upper_key] и курсор last_key.
+ * Сохраняется в транзакции каждой пачки вместе с её изменениями — после рестарта или ошибки
+ * секция продолжается с last_key, ни одна пачка не применяется дважды.
+ */
+@Entity
+@Table(name = "batch_checkpoints",
+        uniqueConstraints = @UniqueConstraint(name = "uk_batch_checkpoints_job_partition",
+                columnNames = {"job_name", "partition_no"}))
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class BatchCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @Column(name = "partition_no", nullable = false)
+    private Integer partitionNo;
+
+    // ===== ДИАПАЗОН И КУРСОР =====
+    @Column(name = "lower_key", nullable = false)
+    private Long lowerKey;
+
+    @Column(name = "upper_key", nullable = false)
+    private Long upperKey;
+
+    @Column(name = "last_key", nullable = false)
+    private Long lastKey;
+
+    // ===== ПРОГРЕСС =====
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private BatchStatus status = BatchStatus.RUNNING;
+
+    @Column(name = "processed", nullable = false)
+    @Builder.Default
+    private Long processed = 0L;
+
+    @Column(name = "affected", nullable = false)
+    @Builder.Default
+    private Long affected = 0L;
+
+    @Column(name = "chunks", nullable = false)
+    @Builder.Default
+    private Integer chunks = 0;
+
+    // Неудачные попытки пачки после last_key подряд
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // ===== LIFECYCLE МЕТОДЫ =====
+    @PrePersist
+    protected void onCreate() {
+        if (startedAt == null) {
+            startedAt = LocalDateTime.now();
+        }
+    }
+
+    /**
+     * Пачка обработана: курсор сдвигается на её последний ключ
+     */
+    public void advance(long chunkLastKey, int chunkSize, int chunkAffected) {
+        this.lastKey = chunkLastKey;
+        this.processed += chunkSize;
+        this.affected += chunkAffected;
+        this.chunks++;
+        this.status = BatchStatus.RUNNING;
+        this.attempts = 0;
+        this.lastError = null;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public void complete() {
+        this.status = BatchStatus.COMPLETED;
+        this.lastError = null;
+        this.updatedAt = LocalDateTime.now();
+        this.finishedAt = this.updatedAt;
+    }
+
+    public void fail(String error) {
+        this.status = BatchStatus.FAILED;
+        this.attempts++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,7 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+public enum BatchStatus {
+    RUNNING,     // Секция в работе или прервана рестартом — следующий запуск продолжит с last_key
+    COMPLETED,   // Все ключи секции обработаны
+    FAILED       // Пачка упала — следующий запуск повторит её с last_key
+}
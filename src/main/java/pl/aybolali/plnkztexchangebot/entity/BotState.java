@@ -0,0 +1,33 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Числовое состояние бота по ключу (например, last_update_id — offset для Long Polling)
+ */
+@Entity
+@Table(name = "bot_state")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "key")
+public class BotState {
+    @Id
+    @Column(name = "state_key", length = 64)
+    private String key;
+
+    @Column(name = "state_value", nullable = false)
+    private Long value;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,67 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 📣 Рассылка: текст, курсор по получателям и счётчики результата.
+ * Курсор и счётчики сохраняются после каждой пачки — после рестарта отправка продолжается с last_user_id.
+ */
+@Entity
+@Table(name = "broadcast_jobs")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+@ToString(exclude = "messageText")
+public class BroadcastJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "message_text", nullable = false, columnDefinition = "TEXT")
+    private String messageText;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private BroadcastStatus status = BroadcastStatus.PENDING;
+
+    // ===== ПРОГРЕСС =====
+    @Column(name = "last_user_id", nullable = false)
+    @Builder.Default
+    private Long lastUserId = 0L;
+
+    @Column(name = "delivered", nullable = false)
+    @Builder.Default
+    private Integer delivered = 0;
+
+    @Column(name = "failed", nullable = false)
+    @Builder.Default
+    private Integer failed = 0;
+
+    @Column(name = "blocked", nullable = false)
+    @Builder.Default
+    private Integer blocked = 0;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // ===== LIFECYCLE МЕТОДЫ =====
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
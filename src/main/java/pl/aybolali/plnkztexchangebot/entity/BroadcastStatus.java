@@ -0,0 +1,8 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+public enum BroadcastStatus {
+    PENDING,     // Создана, ещё не начата
+    RUNNING,     // Идёт отправка (продолжается после рестарта)
+    COMPLETED,   // Все получатели обработаны
+    CANCELLED    // Остановлена администратором
+}
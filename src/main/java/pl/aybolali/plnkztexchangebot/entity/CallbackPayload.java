@@ -0,0 +1,34 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Поля кнопки, не поместившиеся в callback_data: ключ = route + случайный ключ из кнопки
+ */
+@Entity
+@Table(name = "callback_payloads")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "key")
+public class CallbackPayload {
+    @Id
+    @Column(name = "payload_key", length = 80)
+    private String key;
+
+    @Column(name = "body", nullable = false)
+    private byte[] body;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -58,6 +58,10 @@ public class Deal {
     @Column(name = "finished_at")
     private LocalDateTime finishedAt;
 
+    // Токен из кнопки подтверждения: повторное подтверждение не создаёт вторую сделку
+    @Column(name = "confirmation_token", unique = true)
+    private Long confirmationToken;
+
     @PrePersist
     protected void onCreate() {
         // ✅ Устанавливаем только если еще не установлен
@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Size;
 import lombok.*;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEntityListener;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@EntityListeners(OfferBookEntityListener.class)
 @Table(name = "exchange_requests")
 @Data
 @NoArgsConstructor
@@ -66,6 +68,10 @@ public class ExchangeRequest {
     @Column(name = "finished_at")
     private LocalDateTime finishedAt;
 
+    // Автор предупреждён о скором истечении срока (RequestExpiryScheduler)
+    @Column(name = "expiry_warned_at")
+    private LocalDateTime expiryWarnedAt;
+
     // Все бизнес-методы остаются как были
     public boolean canCreateDeal(BigDecimal dealAmount) {
         if (this.status != ExchangeRequestStatus.ACTIVE) return false;
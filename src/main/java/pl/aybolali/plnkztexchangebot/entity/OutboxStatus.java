@@ -0,0 +1,7 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+public enum OutboxStatus {
+    PENDING,     // Ждёт диспетчера (в том числе повтор после ошибки)
+    DONE,        // Обработчик записи отработал и закоммитился вместе с захватом
+    FAILED       // Исчерпаны попытки, нужен разбор вручную
+}
@@ -23,8 +23,9 @@ public class Rating {
     private Long id;
 
     // ===== СВЯЗИ =====
+    // Без внешнего ключа: сделка может уйти в холодный слой, оценка остаётся (V10)
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "deal_id", nullable = false)
+    @JoinColumn(name = "deal_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Deal deal;                                 // Оцениваемая сделка
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,23 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum RollupPeriod {
+    HOUR(ChronoUnit.HOURS),     // Бакет — начало часа
+    DAY(ChronoUnit.DAYS);       // Бакет — начало суток
+
+    private final ChronoUnit unit;
+
+    RollupPeriod(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+}
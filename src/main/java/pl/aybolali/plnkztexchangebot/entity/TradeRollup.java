@@ -0,0 +1,98 @@
+package pl.aybolali.plnkztexchangebot.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 📈 Агрегат торговли за час или сутки по одной валюте.
+ * Хранятся суммы, а не средние: VWAP = rateVolume / volume, среднее время исполнения =
+ * fillSecondsSum / filledRequests — так бакеты складываются в любой диапазон без потери точности.
+ */
+@Entity
+@Table(name = "trade_rollups")
+@Data
+@Builder
+@NoArgsConstructor @AllArgsConstructor
+@EqualsAndHashCode(of = "id")
+public class TradeRollup implements Persistable<TradeRollup.Key> {
+
+    @EmbeddedId
+    private Key id;
+
+    // ===== СДЕЛКИ =====
+    @Column(name = "deal_count", nullable = false)
+    @Builder.Default
+    private Integer dealCount = 0;
+
+    @Column(name = "volume", nullable = false, precision = 18, scale = 2)
+    @Builder.Default
+    private BigDecimal volume = BigDecimal.ZERO;
+
+    @Column(name = "rate_volume", nullable = false, precision = 30, scale = 8)
+    @Builder.Default
+    private BigDecimal rateVolume = BigDecimal.ZERO;
+
+    // ===== ИСПОЛНЕНИЕ ЗАЯВОК =====
+    @Column(name = "filled_requests", nullable = false)
+    @Builder.Default
+    private Integer filledRequests = 0;
+
+    @Column(name = "fill_seconds_sum", nullable = false)
+    @Builder.Default
+    private Long fillSecondsSum = 0L;
+
+    @Column(name = "fill_seconds_max", nullable = false)
+    @Builder.Default
+    private Long fillSecondsMax = 0L;
+
+    // ===== ГЛУБИНА КНИГИ (снимок) =====
+    @Column(name = "open_requests")
+    private Integer openRequests;
+
+    @Column(name = "open_amount", precision = 18, scale = 2)
+    private BigDecimal openAmount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    /**
+     * Ключ задаётся вручную, поэтому save() без этого флага сделал бы merge (SELECT + UPDATE)
+     * и затёр строку, вставленную параллельно. Новая строка — только INSERT.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean stored;
+
+    @Override
+    public boolean isNew() {
+        return !stored;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markStored() {
+        this.stored = true;
+    }
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "period", nullable = false, length = 4)
+        private RollupPeriod period;
+
+        @Column(name = "bucket_start", nullable = false)
+        private LocalDateTime bucketStart;
+
+        @Enumerated(EnumType.STRING)
+        @Column(name = "currency", nullable = false, length = 3)
+        private ExchangeRequest.Currency currency;
+    }
+}
@@ -3,12 +3,14 @@ package pl.aybolali.plnkztexchangebot.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
+@EntityListeners(OfferBookEntityListener.class)
 @Table(name = "users")
 @Getter
 @Setter
@@ -50,10 +52,19 @@ public class User {
     @Builder.Default
     private BigDecimal trustRating = new BigDecimal("5.00");
 
-    @Column(name = "successful_deals")
+    @Column(name = "successful_deals", nullable = false)
     @Builder.Default
     private Integer successfulDeals = 0;
 
+    // Счётчики оценок: trust_rating = rating_sum / rating_count (UserRepository.addRating)
+    @Column(name = "rating_sum", nullable = false, precision = 12, scale = 1)
+    @Builder.Default
+    private BigDecimal ratingSum = BigDecimal.ZERO;
+
+    @Column(name = "rating_count", nullable = false)
+    @Builder.Default
+    private Integer ratingCount = 0;
+
     @Column(name = "is_phone_verified")
     @Builder.Default
     private Boolean isPhoneVerified = false;
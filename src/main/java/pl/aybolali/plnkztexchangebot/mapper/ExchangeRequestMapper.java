@@ -3,8 +3,11 @@ package pl.aybolali.plnkztexchangebot.mapper;
 import org.springframework.stereotype.Component;
 import pl.aybolali.plnkztexchangebot.dto.CreateExchangeRequestDTO;
 import pl.aybolali.plnkztexchangebot.dto.ExchangeRequestDTO;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
 import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -47,6 +50,29 @@ public class ExchangeRequestMapper {
         );
     }
 
+    /**
+     * 📤 OFFER BOOK TO DTO: ActiveOffer → ExchangeRequestDTO
+     *
+     * Для ответов из in-memory индекса (без обращения к БД)
+     */
+    public static ExchangeRequestDTO toDTO(ActiveOffer offer, UserPublicDTO user) {
+        if (offer == null) return null;
+
+        return new ExchangeRequestDTO(
+                offer.id(),
+                user,
+                offer.currencyNeed().toString(),
+                offer.amountNeed(),
+                ExchangeRequestStatus.ACTIVE,
+                offer.notes(),
+                offer.transferMethod(),
+                offer.createdAt(),
+                offer.updatedAt(),
+                null,
+                calculateHoursAgo(offer.createdAt())
+        );
+    }
+
     /**
      * 📥 DTO TO ENTITY: CreateExchangeRequestDTO → ExchangeRequest
      *
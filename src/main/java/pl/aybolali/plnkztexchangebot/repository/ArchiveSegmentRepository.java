@@ -0,0 +1,34 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegment;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, Long> {
+
+    /**
+     * Сегменты, в диапазон id которых попадает строка. Диапазоны одного вида могут пересекаться
+     * (заявки архивируются отдельно по статусам, сделки — по finished_at), строка есть не более чем в одном
+     */
+    @Query("SELECT s FROM ArchiveSegment s WHERE s.kind = :kind AND s.minId <= :id AND s.maxId >= :id ORDER BY s.id")
+    List<ArchiveSegment> findCovering(@Param("kind") ArchiveKind kind, @Param("id") Long id);
+
+    /**
+     * Сегменты, чей диапазон времени пересекается с [from, to), от старых к новым
+     */
+    @Query("SELECT s FROM ArchiveSegment s WHERE s.kind = :kind AND s.maxTime >= :from AND s.minTime < :to " +
+            "ORDER BY s.minId")
+    List<ArchiveSegment> findOverlapping(@Param("kind") ArchiveKind kind,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
+
+    @Query("SELECT s.fileName FROM ArchiveSegment s")
+    List<String> findAllFileNames();
+}
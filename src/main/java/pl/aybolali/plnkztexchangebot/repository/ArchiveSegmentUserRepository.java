@@ -0,0 +1,30 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegmentUser;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArchiveSegmentUserRepository extends JpaRepository<ArchiveSegmentUser, ArchiveSegmentUser.Key> {
+
+    /**
+     * Сегменты пользователя от новых к старым
+     */
+    @Query("SELECT u FROM ArchiveSegmentUser u WHERE u.id.userId = :userId AND u.kind = :kind " +
+            "ORDER BY u.id.segmentId DESC")
+    List<ArchiveSegmentUser> findByUser(@Param("userId") Long userId, @Param("kind") ArchiveKind kind);
+
+    /**
+     * Архивные COMPLETED сделки пользователей (в любой роли) — дополняют подсчёт по горячей таблице deals
+     */
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserDealCount(u.id.userId, SUM(u.completedCount)) " +
+            "FROM ArchiveSegmentUser u WHERE u.id.userId IN :userIds AND u.kind = :kind GROUP BY u.id.userId")
+    List<UserDealCount> sumCompleted(@Param("userIds") Collection<Long> userIds, @Param("kind") ArchiveKind kind);
+}
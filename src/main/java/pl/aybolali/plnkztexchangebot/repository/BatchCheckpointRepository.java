@@ -0,0 +1,23 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.entity.BatchCheckpoint;
+
+import java.util.List;
+
+@Repository
+public interface BatchCheckpointRepository extends JpaRepository<BatchCheckpoint, Long> {
+
+    List<BatchCheckpoint> findByJobNameOrderByPartitionNoAsc(String jobName);
+
+    /**
+     * Checkpoints прошлого (завершённого) запуска перед новым
+     */
+    @Modifying
+    @Query("DELETE FROM BatchCheckpoint c WHERE c.jobName = :jobName")
+    int deleteByJobName(@Param("jobName") String jobName);
+}
@@ -0,0 +1,24 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.aybolali.plnkztexchangebot.entity.BotState;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface BotStateRepository extends JpaRepository<BotState, String> {
+
+    /**
+     * Монотонный сдвиг значения: одно UPDATE без чтения, меньшее значение не перезапишет большее
+     * @return 0, если строки нет или значение уже не меньше
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE BotState s SET s.value = :value, s.updatedAt = :now WHERE s.key = :key AND s.value < :value")
+    int advance(@Param("key") String key, @Param("value") Long value, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,23 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastJob;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastStatus;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BroadcastJobRepository extends JpaRepository<BroadcastJob, Long> {
+
+    /**
+     * Незавершённые рассылки по порядку создания (RUNNING — прерванные рестартом)
+     */
+    List<BroadcastJob> findByStatusInOrderByIdAsc(List<BroadcastStatus> statuses);
+
+    @Query("SELECT j.status FROM BroadcastJob j WHERE j.id = :id")
+    Optional<BroadcastStatus> findStatusById(@Param("id") Long id);
+}
@@ -0,0 +1,23 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import pl.aybolali.plnkztexchangebot.entity.CallbackPayload;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface CallbackPayloadRepository extends JpaRepository<CallbackPayload, String> {
+
+    /**
+     * Кнопки старше срока хранения больше не обрабатываются — их поля не нужны
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM CallbackPayload p WHERE p.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
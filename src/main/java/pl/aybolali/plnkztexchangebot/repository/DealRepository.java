@@ -2,12 +2,19 @@ package pl.aybolali.plnkztexchangebot.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
 import pl.aybolali.plnkztexchangebot.entity.Deal;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +38,15 @@ public interface DealRepository extends JpaRepository<Deal, Long> {
     @Query("SELECT COUNT(d) FROM Deal d WHERE (d.requester.id = :userId OR d.provider.id = :userId) AND d.status = 'COMPLETED'")
     Long countCompletedByUserId(@Param("userId") Long userId);
 
+    // ===== ДЛЯ СВЕРКИ СЧЁТЧИКОВ: по роли отдельно, каждый запрос идёт по своему индексу =====
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserDealCount(d.requester.id, COUNT(d)) FROM Deal d " +
+            "WHERE d.requester.id IN :userIds AND d.status = 'COMPLETED' GROUP BY d.requester.id")
+    List<UserDealCount> countCompletedAsRequester(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserDealCount(d.provider.id, COUNT(d)) FROM Deal d " +
+            "WHERE d.provider.id IN :userIds AND d.status = 'COMPLETED' GROUP BY d.provider.id")
+    List<UserDealCount> countCompletedAsProvider(@Param("userIds") Collection<Long> userIds);
+
     @Query("""
     SELECT DISTINCT d FROM Deal d
     LEFT JOIN FETCH d.requester
@@ -49,4 +65,14 @@ public interface DealRepository extends JpaRepository<Deal, Long> {
     WHERE d.id = :id
     """)
     Optional<Deal> findByIdWithUsers(@Param("id") Long id);
+
+    // Идемпотентное подтверждение сделки
+    Optional<Deal> findByConfirmationToken(Long confirmationToken);
+
+    // ===== ДЛЯ АРХИВАЦИИ: FOR UPDATE SKIP LOCKED — реплики берут непересекающиеся пачки =====
+    // created_at ≤ finished_at: условие по ключу секционирования отсекает свежие месяцы
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT d FROM Deal d WHERE d.finishedAt < :cutoff AND d.createdAt < :cutoff ORDER BY d.id")
+    List<Deal> findArchivable(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
 }
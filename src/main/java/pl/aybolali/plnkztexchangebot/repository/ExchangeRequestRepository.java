@@ -2,16 +2,25 @@ package pl.aybolali.plnkztexchangebot.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
 import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -108,6 +117,12 @@ public interface ExchangeRequestRepository extends JpaRepository<ExchangeRequest
     @Query("DELETE FROM ExchangeRequest r WHERE r.status = 'EXPIRED'")
     int deleteAllExpiredRequests();
 
+    /**
+     * Все ACTIVE запросы вместе с пользователями (для построения in-memory индекса)
+     */
+    @Query("SELECT er FROM ExchangeRequest er JOIN FETCH er.user WHERE er.status = 'ACTIVE'")
+    List<ExchangeRequest> findAllActiveWithUser();
+
     @Query("SELECT r FROM ExchangeRequest r JOIN FETCH r.user WHERE r.id = :id")
     Optional<ExchangeRequest> findByIdWithUser(@Param("id") Long id);
     /**
@@ -138,7 +153,7 @@ public interface ExchangeRequestRepository extends JpaRepository<ExchangeRequest
      * Найти COMPLETED запросы старше указанной даты (для cleanup)
      */
     @Query("SELECT r FROM ExchangeRequest r " +
-            "WHERE r.status = 'COMPLETED' AND r.updatedAt < :cutoffDate")
+            "WHERE r.status = 'COMPLETED' AND r.updatedAt < :cutoffDate AND r.createdAt < :cutoffDate")
     List<ExchangeRequest> findOldCompletedRequests(@Param("cutoffDate") LocalDateTime cutoffDate);
 
     /**
@@ -160,25 +175,111 @@ public interface ExchangeRequestRepository extends JpaRepository<ExchangeRequest
             @Param("status") ExchangeRequestStatus status,
             @Param("cutoffDate") LocalDateTime cutoffDate);
 
+    @Modifying
+    @Query(value = "ALTER SEQUENCE exchange_requests_id_seq RESTART WITH 1", nativeQuery = true)
+    void resetSequence();
+
     /**
-     * Удалить старые COMPLETED заявки
-     * ⚠️ БЕЗОПАСНО: deals больше не имеют FK на exchange_requests
+     * Закрытые заявки для переноса в архив (FOR UPDATE SKIP LOCKED — реплики берут непересекающиеся пачки).
+     * created_at ≤ updated_at: условие по ключу секционирования отсекает свежие месяцы
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r FROM ExchangeRequest r WHERE r.status = :status AND r.updatedAt < :cutoff "
+            + "AND r.createdAt < :cutoff ORDER BY r.id")
+    List<ExchangeRequest> findArchivable(@Param("status") ExchangeRequestStatus status,
+                                         @Param("cutoff") LocalDateTime cutoff,
+                                         Pageable pageable);
+
+    /**
+     * Истечение срока пачкой: статус и возраст перепроверяются в самом UPDATE, поэтому заявка,
+     * закрытая за это время (или уже отменённая другой репликой), не трогается.
+     * Затронутые строки помечаются updated_at = :now и читаются {@link #findStampedWithUser}
      */
     @Modifying
-    @Query("DELETE FROM ExchangeRequest r " +
-            "WHERE r.status = 'COMPLETED' AND r.updatedAt < :cutoffDate")
-    int deleteOldCompletedRequests(@Param("cutoffDate") LocalDateTime cutoffDate);
+    @Query("UPDATE ExchangeRequest r SET r.status = :status, r.updatedAt = :now, r.finishedAt = :now "
+            + "WHERE r.id IN :ids AND r.status = 'ACTIVE' AND r.createdAt <= :cutoff")
+    int expireActive(@Param("ids") Collection<Long> ids,
+                     @Param("cutoff") LocalDateTime cutoff,
+                     @Param("now") LocalDateTime now,
+                     @Param("status") ExchangeRequestStatus status);
+
+    @Query("SELECT r FROM ExchangeRequest r JOIN FETCH r.user "
+            + "WHERE r.id IN :ids AND r.status = :status AND r.updatedAt = :now")
+    List<ExchangeRequest> findStampedWithUser(@Param("ids") Collection<Long> ids,
+                                              @Param("status") ExchangeRequestStatus status,
+                                              @Param("now") LocalDateTime now);
 
     /**
-     * Удалить старые CANCELLED заявки
+     * Предупреждение об истечении — не больше одного на заявку, даже если таймер сработал на нескольких репликах
+     */
+    @Modifying
+    @Query("UPDATE ExchangeRequest r SET r.expiryWarnedAt = :now "
+            + "WHERE r.id IN :ids AND r.status = 'ACTIVE' AND r.expiryWarnedAt IS NULL")
+    int markExpiryWarned(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Query("SELECT r FROM ExchangeRequest r JOIN FETCH r.user WHERE r.id IN :ids AND r.expiryWarnedAt = :now")
+    List<ExchangeRequest> findExpiryWarnedWithUser(@Param("ids") Collection<Long> ids,
+                                                   @Param("now") LocalDateTime now);
+
+    // ===== Пакетные задачи (BatchJobRunner) =====
+
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.KeyRange(MIN(r.id), MAX(r.id)) FROM ExchangeRequest r")
+    KeyRange findIdRange();
+
+    @Query("SELECT r.id FROM ExchangeRequest r WHERE r.id > :afterId AND r.id <= :upToId ORDER BY r.id")
+    List<Long> findIdsBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Pageable pageable);
+
+    /**
+     * Закрытые заявки старше сроков хранения — пачка для удаления.
      * ⚠️ БЕЗОПАСНО: deals больше не имеют FK на exchange_requests
      */
+    @Query("SELECT r.id FROM ExchangeRequest r WHERE r.id > :afterId AND r.id <= :upToId AND ("
+            + "(r.status = 'COMPLETED' AND r.updatedAt < :completedCutoff AND r.createdAt < :completedCutoff) OR "
+            + "(r.status = 'CANCELLED' AND r.updatedAt < :cancelledCutoff AND r.createdAt < :cancelledCutoff)) "
+            + "ORDER BY r.id")
+    List<Long> findPurgeableIdsBetween(@Param("afterId") Long afterId,
+                                       @Param("upToId") Long upToId,
+                                       @Param("completedCutoff") LocalDateTime completedCutoff,
+                                       @Param("cancelledCutoff") LocalDateTime cancelledCutoff,
+                                       Pageable pageable);
+
     @Modifying
-    @Query("DELETE FROM ExchangeRequest r " +
-            "WHERE r.status = 'CANCELLED' AND r.updatedAt < :cutoffDate")
-    int deleteOldCancelledRequests(@Param("cutoffDate") LocalDateTime cutoffDate);
+    @Query("DELETE FROM ExchangeRequest r WHERE r.id IN :ids AND ("
+            + "(r.status = 'COMPLETED' AND r.updatedAt < :completedCutoff AND r.createdAt < :completedCutoff) OR "
+            + "(r.status = 'CANCELLED' AND r.updatedAt < :cancelledCutoff AND r.createdAt < :cancelledCutoff))")
+    int deletePurgeable(@Param("ids") Collection<Long> ids,
+                        @Param("completedCutoff") LocalDateTime completedCutoff,
+                        @Param("cancelledCutoff") LocalDateTime cancelledCutoff);
+
+    /**
+     * ACTIVE заявки с остатком ниже минимальной суммы обмена — сделка должна была их закрыть
+     */
+    @Query("SELECT r.id FROM ExchangeRequest r WHERE r.id IN :ids AND r.status = 'ACTIVE' AND r.amountNeed < :threshold")
+    List<Long> findActiveBelow(@Param("ids") Collection<Long> ids, @Param("threshold") BigDecimal threshold);
 
     @Modifying
-    @Query(value = "ALTER SEQUENCE exchange_requests_id_seq RESTART WITH 1", nativeQuery = true)
-    void resetSequence();
+    @Query("UPDATE ExchangeRequest r SET r.status = :status, r.amountNeed = 0, r.finishedAt = :now, r.updatedAt = :now "
+            + "WHERE r.id IN :ids AND r.status = 'ACTIVE' AND r.amountNeed < :threshold")
+    int completeActiveBelow(@Param("ids") Collection<Long> ids,
+                            @Param("threshold") BigDecimal threshold,
+                            @Param("now") LocalDateTime now,
+                            @Param("status") ExchangeRequestStatus status);
+
+    @Modifying
+    @Query("UPDATE ExchangeRequest r SET r.finishedAt = r.updatedAt "
+            + "WHERE r.id IN :ids AND r.status IN ('COMPLETED', 'CANCELLED') AND r.finishedAt IS NULL")
+    int fillMissingFinishedAt(@Param("ids") Collection<Long> ids);
+
+    /**
+     * COMPLETED заявки, у автора которых нет ни одной завершённой сделки — ни в deals, ни в архиве
+     */
+    @Query("SELECT r.id FROM ExchangeRequest r WHERE r.id IN :ids AND r.status = 'COMPLETED' "
+            + "AND NOT EXISTS (SELECT 1 FROM Deal d WHERE d.status = :dealStatus "
+            + "    AND (d.requester.id = r.user.id OR d.provider.id = r.user.id)) "
+            + "AND NOT EXISTS (SELECT 1 FROM ArchiveSegmentUser a WHERE a.id.userId = r.user.id "
+            + "    AND a.kind = :archiveKind AND a.completedCount > 0)")
+    List<Long> findCompletedWithoutDeals(@Param("ids") Collection<Long> ids,
+                                         @Param("dealStatus") DealStatus dealStatus,
+                                         @Param("archiveKind") ArchiveKind archiveKind);
 }
\ No newline at end of file
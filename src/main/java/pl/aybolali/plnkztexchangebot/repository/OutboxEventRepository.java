@@ -0,0 +1,49 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.entity.OutboxEvent;
+import pl.aybolali.plnkztexchangebot.entity.OutboxStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * Идентификаторы ожидающих событий, чей срок повтора наступил, в порядке записи
+     */
+    @Query("SELECT e.id FROM OutboxEvent e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueIds(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Захват события: переводит PENDING → DONE в транзакции обработчиков.
+     * Откат обработчика откатывает и захват; вторая реплика на той же строке получит 0.
+     */
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :done, e.attempts = e.attempts + 1, e.processedAt = :now " +
+            "WHERE e.id = :id AND e.status = :pending")
+    int claim(@Param("id") Long id,
+              @Param("pending") OutboxStatus pending,
+              @Param("done") OutboxStatus done,
+              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.status = :status, e.attempts = e.attempts + 1, " +
+            "e.nextAttemptAt = :nextAttemptAt, e.lastError = :error " +
+            "WHERE e.id = :id AND e.status = :pending")
+    int recordFailure(@Param("id") Long id,
+                      @Param("pending") OutboxStatus pending,
+                      @Param("status") OutboxStatus status,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.status = :status AND e.processedAt < :before")
+    int deleteProcessedBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
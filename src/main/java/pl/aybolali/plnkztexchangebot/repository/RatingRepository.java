@@ -6,8 +6,11 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.dto.UserRatingTotals;
 import pl.aybolali.plnkztexchangebot.entity.Rating;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -24,6 +27,11 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
     @Query("SELECT COUNT(r) FROM Rating r WHERE r.ratedUser.id = :userId")
     Long countRatingsByUserId(@Param("userId") Long userId);
 
+    // ===== ДЛЯ СВЕРКИ СЧЁТЧИКОВ =====
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserRatingTotals(r.ratedUser.id, SUM(r.rating), COUNT(r)) " +
+            "FROM Rating r WHERE r.ratedUser.id IN :userIds GROUP BY r.ratedUser.id")
+    List<UserRatingTotals> sumRatingsByUserIds(@Param("userIds") Collection<Long> userIds);
+
     // ===== ДЛЯ проверки дублей при POST /api/ratings =====
     boolean existsByDealIdAndRaterId(Long dealId, Long raterId);
 
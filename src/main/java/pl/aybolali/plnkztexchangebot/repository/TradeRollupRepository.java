@@ -0,0 +1,110 @@
+package pl.aybolali.plnkztexchangebot.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.entity.TradeRollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TradeRollupRepository extends JpaRepository<TradeRollup, TradeRollup.Key> {
+
+    @Query("SELECT r FROM TradeRollup r WHERE r.id.period = :period " +
+            "AND r.id.bucketStart >= :from AND r.id.bucketStart < :to " +
+            "ORDER BY r.id.bucketStart, r.id.currency")
+    List<TradeRollup> findRange(@Param("period") RollupPeriod period,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    /**
+     * Пустая строка бакета, если её ещё нет (нули явно — схема тестов без DEFAULT из V9). PostgreSQL:
+     * одновременная вставка того же бакета не падает на PK, а ждёт чужую транзакцию и ничего не делает —
+     * следующий addDeal / addFill / setDepth (READ COMMITTED) уже видит строку
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            INSERT INTO trade_rollups (period, bucket_start, currency, deal_count, volume, rate_volume,
+                                       filled_requests, fill_seconds_sum, fill_seconds_max, updated_at)
+            VALUES (:period, :bucketStart, :currency, 0, 0, 0, 0, 0, 0, :now)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    int insertBucketIfAbsent(@Param("period") String period,
+                             @Param("bucketStart") LocalDateTime bucketStart,
+                             @Param("currency") String currency,
+                             @Param("now") LocalDateTime now);
+
+    /**
+     * То же для H2 в любом режиме совместимости (тесты): стандартный MERGE без ON CONFLICT
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            MERGE INTO trade_rollups r
+            USING (SELECT CAST(:period AS VARCHAR(10)) AS period,
+                          CAST(:bucketStart AS TIMESTAMP) AS bucket_start,
+                          CAST(:currency AS VARCHAR(3)) AS currency) b
+            ON r.period = b.period AND r.bucket_start = b.bucket_start AND r.currency = b.currency
+            WHEN NOT MATCHED THEN
+                INSERT (period, bucket_start, currency, deal_count, volume, rate_volume,
+                        filled_requests, fill_seconds_sum, fill_seconds_max, updated_at)
+                VALUES (b.period, b.bucket_start, b.currency, 0, 0, 0, 0, 0, 0, :now)
+            """, nativeQuery = true)
+    int mergeBucketIfAbsent(@Param("period") String period,
+                            @Param("bucketStart") LocalDateTime bucketStart,
+                            @Param("currency") String currency,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * Относительное увеличение под блокировкой строки — параллельные сделки и реплики не теряют друг друга
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE trade_rollups SET
+                deal_count = deal_count + 1,
+                volume = volume + :amount,
+                rate_volume = rate_volume + :rateVolume,
+                updated_at = :now
+            WHERE period = :period AND bucket_start = :bucketStart AND currency = :currency
+            """, nativeQuery = true)
+    int addDeal(@Param("period") String period,
+                @Param("bucketStart") LocalDateTime bucketStart,
+                @Param("currency") String currency,
+                @Param("amount") BigDecimal amount,
+                @Param("rateVolume") BigDecimal rateVolume,
+                @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE trade_rollups SET
+                filled_requests = filled_requests + 1,
+                fill_seconds_sum = fill_seconds_sum + :seconds,
+                fill_seconds_max = GREATEST(fill_seconds_max, :seconds),
+                updated_at = :now
+            WHERE period = :period AND bucket_start = :bucketStart AND currency = :currency
+            """, nativeQuery = true)
+    int addFill(@Param("period") String period,
+                @Param("bucketStart") LocalDateTime bucketStart,
+                @Param("currency") String currency,
+                @Param("seconds") long seconds,
+                @Param("now") LocalDateTime now);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE trade_rollups SET
+                open_requests = :openRequests,
+                open_amount = :openAmount,
+                updated_at = :now
+            WHERE period = :period AND bucket_start = :bucketStart AND currency = :currency
+            """, nativeQuery = true)
+    int setDepth(@Param("period") String period,
+                 @Param("bucketStart") LocalDateTime bucketStart,
+                 @Param("currency") String currency,
+                 @Param("openRequests") int openRequests,
+                 @Param("openAmount") BigDecimal openAmount,
+                 @Param("now") LocalDateTime now);
+}
@@ -1,11 +1,18 @@
 package pl.aybolali.plnkztexchangebot.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import pl.aybolali.plnkztexchangebot.dto.BroadcastRecipient;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.dto.UserStatsSnapshot;
 import pl.aybolali.plnkztexchangebot.entity.User;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,4 +29,59 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     @Query("SELECT u from User u where u.isEnabled=true")
     List<User> findAllActiveUsers();
+
+    /**
+     * Keyset-курсор по активным пользователям для рассылок: следующая пачка после afterId,
+     * только id и Telegram ID (без загрузки сущностей)
+     */
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.BroadcastRecipient(u.id, u.telegramUserId) " +
+            "FROM User u WHERE u.isEnabled = true AND u.id > :afterId ORDER BY u.id")
+    List<BroadcastRecipient> findActiveRecipientsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // ===== СЧЁТЧИКИ СТАТИСТИКИ =====
+    // Относительные UPDATE в транзакции сделки/оценки: строка блокируется на время транзакции,
+    // параллельные сделки одного пользователя не теряют инкременты. Сессия сбрасывается и очищается:
+    // User, прочитанный дальше в той же транзакции, загружается заново, а не со старыми счётчиками.
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.successfulDeals = u.successfulDeals + 1 WHERE u.id IN :ids")
+    int incrementCompletedDeals(@Param("ids") Collection<Long> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.ratingSum = u.ratingSum + :rating, u.ratingCount = u.ratingCount + 1, " +
+            "u.trustRating = ROUND((u.ratingSum + :rating) / (u.ratingCount + 1), 2) WHERE u.id = :id")
+    int addRating(@Param("id") Long id, @Param("rating") BigDecimal rating);
+
+    /**
+     * Keyset-курсор по счётчикам для сверки
+     */
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserStatsSnapshot(u.id, u.successfulDeals, u.ratingSum, u.ratingCount) " +
+            "FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserStatsSnapshot> findStatsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.UserStatsSnapshot(u.id, u.successfulDeals, u.ratingSum, u.ratingCount) " +
+            "FROM User u WHERE u.id IN :ids ORDER BY u.id")
+    List<UserStatsSnapshot> findStatsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new pl.aybolali.plnkztexchangebot.dto.KeyRange(MIN(u.id), MAX(u.id)) FROM User u")
+    KeyRange findIdRange();
+
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.id <= :upToId ORDER BY u.id")
+    List<Long> findIdsBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId, Pageable pageable);
+
+    /**
+     * Исправление счётчиков сверкой. Условие на прочитанные значения: если между чтением и UPDATE
+     * прошла сделка или оценка, строка не меняется — её поправит следующий проход.
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.successfulDeals = :deals, u.ratingSum = :ratingSum, u.ratingCount = :ratingCount, " +
+            "u.trustRating = :trustRating " +
+            "WHERE u.id = :id AND u.successfulDeals = :observedDeals AND u.ratingCount = :observedRatings")
+    int reconcileStats(@Param("id") Long id,
+                       @Param("deals") Integer deals,
+                       @Param("ratingSum") BigDecimal ratingSum,
+                       @Param("ratingCount") Integer ratingCount,
+                       @Param("trustRating") BigDecimal trustRating,
+                       @Param("observedDeals") Integer observedDeals,
+                       @Param("observedRatings") Integer observedRatings);
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package pl.aybolali.plnkztexchangebot.security;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -10,14 +10,26 @@ import org.springframework.stereotype.Service;
 import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.service.UserService;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final UserService userService;
+    private final Set<String> adminUsernames;
+
+    public CustomUserDetailsService(UserService userService,
+                                    @Value("${app.security.admin-usernames:}") String adminUsernames) {
+        this.userService = userService;
+        this.adminUsernames = Arrays.stream(adminUsernames.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
 
     @Override
     public UserDetails loadUserByUsername(String telegramUsername) throws UsernameNotFoundException {
@@ -35,15 +47,17 @@ public class CustomUserDetailsService implements UserDetailsService {
         }
 
         log.debug("User authenticated: {}", telegramUsername);
-        return new UserPrincipal(user);
+        return new UserPrincipal(user, adminUsernames.contains(user.getTelegramUsername()));
     }
 
     // ✅ УПРОЩЕНО: меньше кода
-    public record UserPrincipal(User user) implements UserDetails {
+    public record UserPrincipal(User user, boolean admin) implements UserDetails {
 
         @Override
         public List<SimpleGrantedAuthority> getAuthorities() {
-            return List.of(new SimpleGrantedAuthority("ROLE_USER"));
+            return admin
+                    ? List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"))
+                    : List.of(new SimpleGrantedAuthority("ROLE_USER"));
         }
 
         @Override
@@ -53,6 +53,11 @@ public class ConversationStateService {
         return value;
     }
 
+    public void removeUserData(Long userId, String key) {
+        log.debug("Removing data for user {}: {}", userId, key);
+        userData.getOrDefault(userId, Map.of()).remove(key);
+    }
+
     public boolean hasUserData(Long userId, String key) {
         return userData.containsKey(userId) && userData.get(userId).containsKey(key);
     }
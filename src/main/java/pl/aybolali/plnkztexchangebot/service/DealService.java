@@ -3,6 +3,9 @@ package pl.aybolali.plnkztexchangebot.service;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -10,10 +13,16 @@ import pl.aybolali.plnkztexchangebot.entity.*;
 import pl.aybolali.plnkztexchangebot.repository.DealRepository;
 import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
 import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.archive.ArchiveReader;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEvent;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEventOutbox;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @RequiredArgsConstructor
@@ -24,30 +33,81 @@ public class DealService {
     private final ExchangeRequestRepository exchangeRequestRepository;
     private final UserRepository userRepository;
     private final ExchangeRequestService exchangeRequestService;
-    private final UserService userService;
     private final ExchangeRateService exchangeRateService;
+    private final DomainEventOutbox eventOutbox;
+    private final ArchiveReader archiveReader;
 
     private BigDecimal roundToCurrency(BigDecimal value) {
         return BigDecimal.valueOf(Math.round(value.doubleValue() * 100.0) / 100.0);
     }
 
+    /**
+     * История продолжается архивными сделками (холодный слой) после горячих
+     */
     public Page<Deal> getUserDeals(Long userId, Pageable pageable) {
-        return dealRepository.findAllUserDeals(userId, pageable);
+        Page<Deal> hot = dealRepository.findAllUserDeals(userId, pageable);
+        return archiveReader.appendArchivedDeals(hot, userId, pageable, false);
     }
 
     public Page<Deal> getFinishedUserDeals(Long userId, Pageable pageable) {
-        return dealRepository.findFinishedUserDeals(userId, pageable);
+        Page<Deal> hot = dealRepository.findFinishedUserDeals(userId, pageable);
+        return archiveReader.appendArchivedDeals(hot, userId, pageable, true);
     }
 
+    /**
+     * Архивная сделка возвращается только для чтения — она не управляется JPA и не сохраняется
+     */
     @Transactional
     public Deal findById(Long id) {
         return dealRepository.findById(id)
+                .or(() -> archiveReader.findDeal(id))
                 .orElseThrow(() -> new RuntimeException("Сделка не найдена с ID: " + id));
     }
 
 
+    /**
+     * Случайный токен подтверждения для кнопки предложения (положительный, 62 бита)
+     */
+    public static long newConfirmationToken() {
+        return ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE >>> 1);
+    }
+
+    /**
+     * Сделка, уже созданная по этому токену подтверждения (индекс uk_deals_confirmation_token)
+     */
+    public Optional<Deal> findByConfirmationToken(Long confirmationToken) {
+        return dealRepository.findByConfirmationToken(confirmationToken);
+    }
+
+    /**
+     * Нарушение уникальности токена подтверждения: индекс deals или deal_confirmation_tokens (V11).
+     * Токен архивированной сделки остаётся в deal_confirmation_tokens, хотя строки в deals уже нет
+     */
+    public static boolean isConfirmationTokenConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains("confirmation_token")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Transactional
     public Deal createDealFromRequest(Long requestId, Long providerId, BigDecimal dealAmount) {
+        return createDealFromRequest(requestId, providerId, dealAmount, null);
+    }
+
+    /**
+     * В транзакции — сделка, заявки, счётчики сделок участников (относительный UPDATE)
+     * и события outbox (DealCompleted, RequestFilled); книгу предложений и холды
+     * обновляет OutboxDispatcher после коммита.
+     *
+     * @param confirmationToken токен из кнопки подтверждения; уникален в deals, поэтому вторая сделка
+     *                          по тому же предложению не сохранится (DataIntegrityViolationException)
+     */
+    @Transactional
+    public Deal createDealFromRequest(Long requestId, Long providerId, BigDecimal dealAmount, Long confirmationToken) {
         ExchangeRequest request = exchangeRequestService.findById(requestId);
         User provider = userRepository.findById(providerId)
                 .orElseThrow(() -> new IllegalArgumentException("Provider not found"));
@@ -76,6 +136,9 @@ public class DealService {
         BigDecimal actualReceivedAmount = dealAmount.min(request.getAmountNeed());
         boolean isFullExchange = actualReceivedAmount.compareTo(request.getAmountNeed()) >= 0;
 
+        // created_at — момент сделки, а не заявки: по нему deals секционированы по месяцам (V11),
+        // и сделка по давней заявке не должна попадать в прошедший (возможно, уже удалённый) месяц
+        LocalDateTime now = LocalDateTime.now();
         Deal deal = Deal.builder()
                 .requester(requester)
                 .provider(provider)
@@ -84,8 +147,9 @@ public class DealService {
                 .exchangeRate(exchangeRate)
                 .transferMethod(request.getTransferMethod())
                 .status(DealStatus.COMPLETED)
-                .createdAt(request.getCreatedAt())
-                .finishedAt(LocalDateTime.now())
+                .createdAt(now)
+                .finishedAt(now)
+                .confirmationToken(confirmationToken)
                 .build();
 
         Deal savedDeal = dealRepository.save(deal);
@@ -100,11 +164,16 @@ public class DealService {
             log.info("Partial exchange. Updating request {} amount", request.getId());
             exchangeRequestService.updateAfterPartialDeal(request.getId(), actualReceivedAmount);
         }
+        appendIfFilled(request);
 
         updateCounterpartyRequest(provider.getId(), dealAmount, dealCurrency);
 
-        userService.updateUserStatsAfterDeal(requester.getId());
-        userService.updateUserStatsAfterDeal(provider.getId());
+        // UPDATE очищает сессию: участники сделки должны быть загружены до него
+        Hibernate.initialize(requester);
+        Hibernate.initialize(provider);
+        userRepository.incrementCompletedDeals(List.of(requester.getId(), provider.getId()));
+        eventOutbox.append(new DomainEvent.DealCompleted(
+                savedDeal.getId(), requester.getId(), provider.getId(), dealAmount, dealCurrency));
 
         log.info("Completed deal created: {} between {} and {}",
                 savedDeal.getId(), requester.getTelegramUsername(), provider.getTelegramUsername());
@@ -160,6 +229,7 @@ public class DealService {
                     log.info("📝 Partial exchange. Updating request {} amount", request.getId());
                     exchangeRequestService.updateAfterPartialDeal(request.getId(), actualReceivedAmount);
                 }
+                appendIfFilled(request);
 
                 log.info("✅ Successfully updated counterparty request");
             } else {
@@ -170,6 +240,15 @@ public class DealService {
         }
     }
 
+    /**
+     * Заявка закрыта сделкой (полностью или автозакрытием малого остатка)
+     */
+    private void appendIfFilled(ExchangeRequest request) {
+        if (request.getStatus() == ExchangeRequestStatus.COMPLETED) {
+            eventOutbox.append(new DomainEvent.RequestFilled(request.getId(), request.getUser().getId()));
+        }
+    }
+
     public Deal save(Deal deal) {
         return dealRepository.save(deal);
     }
@@ -177,11 +256,13 @@ public class DealService {
     @Transactional
     public Deal findByIdWithUsers(Long id) {
         return dealRepository.findByIdWithUsers(id)
+                .or(() -> archiveReader.findDeal(id))
                 .orElseThrow(() -> new RuntimeException("Deal not found: " + id));
     }
 
     @Transactional
     public Page<Deal> getFinishedUserDealsWithUsers(Long userId, Pageable pageable) {
-        return dealRepository.findFinishedUserDealsWithUsers(userId, pageable);
+        Page<Deal> hot = dealRepository.findFinishedUserDealsWithUsers(userId, pageable);
+        return archiveReader.appendArchivedDeals(hot, userId, pageable, true);
     }
 }
\ No newline at end of file
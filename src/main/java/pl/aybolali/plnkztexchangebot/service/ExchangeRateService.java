@@ -9,9 +9,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -32,6 +35,12 @@ public class ExchangeRateService {
     @Value("${app.currency-api.fallback-rate}")
     private Double fallbackRate;
 
+    @Value("${app.currency-api.cache-ttl-minutes:60}")
+    private long cacheTtlMinutes;
+
+    // Последний успешно полученный курс (переживает рестарт через OfferBookJournal)
+    private volatile LastGoodRate lastGoodRate;
+
     private BigDecimal roundRate(BigDecimal value, int scale) {
         return BigDecimal.valueOf(Math.round(value.doubleValue() * Math.pow(10, scale)) / Math.pow(10, scale));
     }
@@ -44,29 +53,66 @@ public class ExchangeRateService {
             return BigDecimal.valueOf(fallbackRate);
         }
 
+        LastGoodRate cached = lastGoodRate;
+        if (cached != null && cached.isFresh(Duration.ofMinutes(cacheTtlMinutes))) {
+            log.debug("Using last good rate from {}: {}", cached.fetchedAt(), cached.plnToKzt());
+            return cached.plnToKzt();
+        }
+
         BigDecimal rateFromNationalbank = fetchFromNationalbankKz();
         if (rateFromNationalbank != null) {
             log.info("✅ PLN→KZT получен из Nationalbank.kz: {}", rateFromNationalbank);
-            return rateFromNationalbank;
+            return rememberGoodRate(rateFromNationalbank);
         }
 
         BigDecimal directRate = getRate("pln", "kzt");
         if (directRate != null) {
             log.info("✅ PLN→KZT получен из fallback API: {}", directRate);
-            return directRate;
+            return rememberGoodRate(directRate);
         }
 
         BigDecimal inverseRate = getRate("kzt", "pln");
         if (inverseRate != null && inverseRate.doubleValue() > 0) {
             BigDecimal calculated = roundRate(BigDecimal.valueOf(1.0 / inverseRate.doubleValue()), 4);
             log.debug("PLN→KZT from inverse: {}", calculated);
-            return calculated;
+            return rememberGoodRate(calculated);
+        }
+
+        if (cached != null) {
+            log.info("All sources failed, using last good rate from {}: {}", cached.fetchedAt(), cached.plnToKzt());
+            return cached.plnToKzt();
         }
 
         log.info("All sources failed, using fallback: {}", fallbackRate);
         return BigDecimal.valueOf(fallbackRate);
     }
 
+    public Optional<LastGoodRate> getLastGoodRate() {
+        return Optional.ofNullable(lastGoodRate);
+    }
+
+    /**
+     * Восстановление курса после рестарта. Более свежий курс не перезаписывается.
+     */
+    public void restoreLastGoodRate(LastGoodRate rate) {
+        LastGoodRate current = lastGoodRate;
+        if (current == null || current.fetchedAt().isBefore(rate.fetchedAt())) {
+            lastGoodRate = rate;
+            log.info("Restored last good PLN→KZT rate from {}: {}", rate.fetchedAt(), rate.plnToKzt());
+        }
+    }
+
+    private BigDecimal rememberGoodRate(BigDecimal rate) {
+        lastGoodRate = new LastGoodRate(rate, Instant.now());
+        return rate;
+    }
+
+    public record LastGoodRate(BigDecimal plnToKzt, Instant fetchedAt) {
+        boolean isFresh(Duration ttl) {
+            return fetchedAt.plus(ttl).isAfter(Instant.now());
+        }
+    }
+
 
     @Cacheable(value = "exchangeRates", key = "'KZT_PLN'")
     public BigDecimal getCurrentKZTtoPLNRate() {
@@ -5,20 +5,24 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
-import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.archive.ArchiveService;
+import pl.aybolali.plnkztexchangebot.service.batch.BatchJobRunner;
+import pl.aybolali.plnkztexchangebot.service.batch.BatchRunResult;
+import pl.aybolali.plnkztexchangebot.service.batch.ClosedRequestPurgeJob;
+import pl.aybolali.plnkztexchangebot.service.partition.PartitionMaintenanceService;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
 
 /**
- * Сервис для автоматической очистки старых заявок
- * Выполняет 2 задачи:
- * 1. Отменяет ACTIVE заявки старше N дней (чтобы не висели вечно)
- * 2. Удаляет старые COMPLETED и CANCELLED заявки (сделки остаются в deals)
+ * Сервис для автоматической очистки старых заявок:
+ * переносит старые COMPLETED и CANCELLED заявки в архив (app.archive.enabled=false — удаляет);
+ * на секционированной таблице удаление идёт месяцами (DETACH + DROP секции), а не по строкам,
+ * иначе — пакетной задачей {@link ClosedRequestPurgeJob} (пачки по id, checkpoint, продолжение после рестарта).
+ *
+ * ACTIVE заявки старше cleanup.inactive-requests.days/minutes отменяет не этот обход,
+ * а {@link pl.aybolali.plnkztexchangebot.service.expiry.RequestExpiryScheduler} — точно в срок каждой заявки.
  */
 @Service
 @Slf4j
@@ -29,43 +33,37 @@ import java.util.List;
 )
 public class ExchangeRequestCleanupService {
 
-    private final ExchangeRequestRepository exchangeRequestRepository;
-    private final int inactiveDays;
-    private final int inactiveMinutes;
-    private final int completedRetentionDays;
-    private final int completedRetentionMinutes;
-    private final int cancelledRetentionDays;
-    private final int cancelledRetentionMinutes;
+    private final ArchiveService archiveService;
+    private final PartitionMaintenanceService partitionMaintenance;
+    private final BatchJobRunner batchJobRunner;
+    private final ClosedRequestPurgeJob purgeJob;
 
     public ExchangeRequestCleanupService(
-            ExchangeRequestRepository exchangeRequestRepository,
-            @Value("${cleanup.inactive-requests.days}") int inactiveDays,
-            @Value("${cleanup.inactive-requests.minutes}") int inactiveMinutes,
+            ArchiveService archiveService,
+            PartitionMaintenanceService partitionMaintenance,
+            BatchJobRunner batchJobRunner,
+            ClosedRequestPurgeJob purgeJob,
             @Value("${cleanup.completed-requests.days}") int completedRetentionDays,
             @Value("${cleanup.completed-requests.minutes}") int completedRetentionMinutes,
             @Value("${cleanup.cancelled-requests.days}") int cancelledRetentionDays,
             @Value("${cleanup.cancelled-requests.minutes}") int cancelledRetentionMinutes) {
 
-        this.exchangeRequestRepository = exchangeRequestRepository;
-        this.inactiveDays = inactiveDays;
-        this.inactiveMinutes = inactiveMinutes;
-        this.completedRetentionDays = completedRetentionDays;
-        this.completedRetentionMinutes = completedRetentionMinutes;
-        this.cancelledRetentionDays = cancelledRetentionDays;
-        this.cancelledRetentionMinutes = cancelledRetentionMinutes;
+        this.archiveService = archiveService;
+        this.partitionMaintenance = partitionMaintenance;
+        this.batchJobRunner = batchJobRunner;
+        this.purgeJob = purgeJob;
 
         log.info("🧹 ExchangeRequestCleanupService ENABLED");
         log.info("📊 Configuration:");
-        log.info("   - Cancel ACTIVE after: {} days, {} minutes", inactiveDays, inactiveMinutes);
-        log.info("   - Delete COMPLETED after: {} days, {} minutes", completedRetentionDays, completedRetentionMinutes);
-        log.info("   - Delete CANCELLED after: {} days, {} minutes", cancelledRetentionDays, cancelledRetentionMinutes);
+        String action = archiveService.isEnabled() ? "Archive" : "Delete";
+        log.info("   - {} COMPLETED after: {} days, {} minutes", action, completedRetentionDays, completedRetentionMinutes);
+        log.info("   - {} CANCELLED after: {} days, {} minutes", action, cancelledRetentionDays, cancelledRetentionMinutes);
     }
 
     /**
      * Основной метод cleanup - выполняется по расписанию
      */
     @Scheduled(cron = "${cleanup.inactive-requests.cron}")
-    @Transactional
     public void cleanupInactiveRequests() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
 
@@ -74,16 +72,12 @@ public class ExchangeRequestCleanupService {
         log.info("🧹 ========================================");
 
         try {
-            // ЭТАП 1: Отмена старых ACTIVE заявок
-            int cancelledCount = cancelOldActiveRequests();
-
-            // ЭТАП 2: Удаление старых COMPLETED и CANCELLED заявок
+            // Архивация (или удаление) старых COMPLETED и CANCELLED заявок
             int deletedCount = deleteOldRequests();
 
             log.info("🎉 ========================================");
             log.info("🎉 CLEANUP COMPLETED:");
-            log.info("🎉 - Cancelled ACTIVE: {}", cancelledCount);
-            log.info("🎉 - Deleted old requests: {}", deletedCount);
+            log.info("🎉 - Archived/deleted old requests: {}", deletedCount);
             log.info("🎉 ========================================");
 
         } catch (Exception e) {
@@ -92,101 +86,44 @@ public class ExchangeRequestCleanupService {
     }
 
     /**
-     * ЭТАП 1: Отменить старые ACTIVE заявки
+     * Убрать старые закрытые заявки из горячей таблицы.
+     * С архивом заявки остаются доступны в выгрузках; каждая пачка архивируется в своей транзакции.
      */
-    private int cancelOldActiveRequests() {
-        LocalDateTime activeCutoff = calculateActiveCutoffDate();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
-
-        log.info("🔍 STEP 1: Cancelling old ACTIVE requests");
-        log.info("   Cutoff date: {}", activeCutoff.format(formatter));
-
-        List<ExchangeRequest> inactiveRequests = exchangeRequestRepository
-                .findByStatusAndCreatedAtBefore(ExchangeRequestStatus.ACTIVE, activeCutoff);
-
-        log.info("   Found {} ACTIVE requests older than cutoff", inactiveRequests.size());
-
-        if (inactiveRequests.isEmpty()) {
-            log.info("   ✅ No ACTIVE requests to cancel");
-            return 0;
-        }
-
-        for (ExchangeRequest request : inactiveRequests) {
-            log.info("   📋 Request #{} - User: @{}, Amount: {} {}, Age: {} days",
-                    request.getId(),
-                    request.getUser().getTelegramUsername(),
-                    request.getAmountNeed(),
-                    request.getCurrencyNeed(),
-                    java.time.Duration.between(request.getCreatedAt(), LocalDateTime.now()).toDays());
-        }
-
-        for (ExchangeRequest request : inactiveRequests) {
-            request.setStatus(ExchangeRequestStatus.CANCELLED);
-            request.setUpdatedAt(LocalDateTime.now());
-            exchangeRequestRepository.save(request);
-
-            log.info("   ✅ Cancelled request #{} from @{}",
-                    request.getId(),
-                    request.getUser().getTelegramUsername());
-        }
-
-        return inactiveRequests.size();
-    }
-
     private int deleteOldRequests() {
-        LocalDateTime completedCutoff = calculateCompletedCutoffDate();
-        LocalDateTime cancelledCutoff = calculateCancelledCutoffDate();
+        LocalDateTime completedCutoff = purgeJob.completedCutoff();
+        LocalDateTime cancelledCutoff = purgeJob.cancelledCutoff();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm:ss");
 
-        log.info("🗑️ STEP 2: Deleting old requests");
+        log.info("🗑️ {} old requests", archiveService.isEnabled() ? "Archiving" : "Deleting");
         log.info("   COMPLETED cutoff: {}", completedCutoff.format(formatter));
         log.info("   CANCELLED cutoff: {}", cancelledCutoff.format(formatter));
 
-        int completedDeleted = exchangeRequestRepository
-                .deleteOldCompletedRequests(completedCutoff);
-
-        int cancelledDeleted = exchangeRequestRepository
-                .deleteOldCancelledRequests(cancelledCutoff);
-
-        int totalDeleted = completedDeleted + cancelledDeleted;
-
-        log.info("   ✅ Deleted {} requests (COMPLETED: {}, CANCELLED: {})",
-                totalDeleted, completedDeleted, cancelledDeleted);
+        if (archiveService.isEnabled()) {
+            int completedArchived = archiveService.archiveRequests(ExchangeRequestStatus.COMPLETED, completedCutoff);
+            int cancelledArchived = archiveService.archiveRequests(ExchangeRequestStatus.CANCELLED, cancelledCutoff);
 
+            log.info("   🧊 Archived {} requests (COMPLETED: {}, CANCELLED: {})",
+                    completedArchived + cancelledArchived, completedArchived, cancelledArchived);
 
-        return totalDeleted;
-    }
-
-    private LocalDateTime calculateActiveCutoffDate() {
-        LocalDateTime cutoff = LocalDateTime.now();
-        if (inactiveDays > 0) {
-            cutoff = cutoff.minusDays(inactiveDays);
-        }
-        if (inactiveMinutes > 0) {
-            cutoff = cutoff.minusMinutes(inactiveMinutes);
+            // Месяцы, которые архив опустошил целиком
+            int droppedPartitions = partitionMaintenance.dropEmptyPartitions(PartitionMaintenanceService.REQUESTS);
+            if (droppedPartitions > 0) {
+                log.info("   🗓️ Dropped {} empty monthly partitions", droppedPartitions);
+            }
+            return completedArchived + cancelledArchived;
         }
-        return cutoff;
-    }
 
-    private LocalDateTime calculateCompletedCutoffDate() {
-        LocalDateTime cutoff = LocalDateTime.now();
-        if (completedRetentionDays > 0) {
-            cutoff = cutoff.minusDays(completedRetentionDays);
-        }
-        if (completedRetentionMinutes > 0) {
-            cutoff = cutoff.minusMinutes(completedRetentionMinutes);
+        if (partitionMaintenance.isPartitioned(PartitionMaintenanceService.REQUESTS)) {
+            int dropped = partitionMaintenance.dropExpiredRequestPartitions(completedCutoff, cancelledCutoff);
+            log.info("   🗓️ Deleted {} requests with their monthly partitions", dropped);
+            return dropped;
         }
-        return cutoff;
-    }
 
-    private LocalDateTime calculateCancelledCutoffDate() {
-        LocalDateTime cutoff = LocalDateTime.now();
-        if (cancelledRetentionDays > 0) {
-            cutoff = cutoff.minusDays(cancelledRetentionDays);
-        }
-        if (cancelledRetentionMinutes > 0) {
-            cutoff = cutoff.minusMinutes(cancelledRetentionMinutes);
-        }
-        return cutoff;
+        BatchRunResult purge = batchJobRunner.run(purgeJob);
+        int deleted = Math.toIntExact(purge.affected());
+
+        log.info("   ✅ Deleted {} requests in {} partitions{}", deleted, purge.partitions(),
+                purge.completed() ? "" : " (unfinished partitions resume next run)");
+        return deleted;
     }
 }
\ No newline at end of file
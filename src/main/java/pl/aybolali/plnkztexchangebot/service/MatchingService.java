@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
 import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -24,6 +25,7 @@ public class MatchingService {
     private final ExchangeRequestRepository exchangeRequestRepository;
     private final RatingService ratingService;
     private final ExchangeRateService exchangeRateService;
+    private final AmountReservationLedger reservationLedger;
 
     public List<ExchangeRequest> findMatchingOffers(Long userId, ExchangeRequest.Currency currency,
                                                     int limit, BigDecimal targetAmount) {
@@ -40,6 +42,7 @@ public class MatchingService {
 
             List<ExchangeRequest> smartOffers = allOffers.stream()
                     .filter(offer -> !offer.getUser().getId().equals(userId))
+                    .filter(offer -> reservationLedger.available(offer).signum() > 0)
                     .sorted((offer1, offer2) -> {
                         double score1 = calculateOfferScore(offer1, targetAmount, currency);
                         double score2 = calculateOfferScore(offer2, targetAmount, currency);
@@ -118,7 +121,9 @@ public class MatchingService {
         double bonusScore = getBonusScore(offer);
 
         if (targetAmount != null) {
-            BigDecimal comparableOfferAmount = offer.getAmountNeed();
+            // Близость считаем по свободной сумме: зарезервированная часть уже обещана другим
+            BigDecimal availableAmount = reservationLedger.available(offer);
+            BigDecimal comparableOfferAmount = availableAmount;
             BigDecimal comparableTargetAmount = targetAmount;
 
             if (offer.getCurrencyNeed() != targetCurrency) {
@@ -126,11 +131,11 @@ public class MatchingService {
                     if (offer.getCurrencyNeed() == ExchangeRequest.Currency.KZT && targetCurrency == ExchangeRequest.Currency.PLN) {
                         // KZT → PLN
                         BigDecimal kztToPln = exchangeRateService.getCurrentKZTtoPLNRate();
-                        comparableOfferAmount = offer.getAmountNeed().multiply(kztToPln);
+                        comparableOfferAmount = availableAmount.multiply(kztToPln);
                     } else if (offer.getCurrencyNeed() == ExchangeRequest.Currency.PLN && targetCurrency == ExchangeRequest.Currency.KZT) {
                         // PLN → KZT
                         BigDecimal plnToKzt = exchangeRateService.getCurrentPLNtoKZTRate();
-                        comparableOfferAmount = offer.getAmountNeed().multiply(plnToKzt);
+                        comparableOfferAmount = availableAmount.multiply(plnToKzt);
                     }
                 } catch (Exception e) {
                     log.debug("Error converting currencies for score calculation: {}", e.getMessage());
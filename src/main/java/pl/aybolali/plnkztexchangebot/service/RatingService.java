@@ -3,6 +3,7 @@ package pl.aybolali.plnkztexchangebot.service;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -13,6 +14,8 @@ import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.repository.DealRepository;
 import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
 import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEvent;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEventOutbox;
 
 import java.time.LocalDateTime;
 
@@ -24,7 +27,7 @@ public class RatingService {
     private final RatingRepository ratingRepository;
     private final DealRepository dealRepository;
     private final UserRepository userRepository;
-    private final UserService userService;
+    private final DomainEventOutbox eventOutbox;
 
     public Page<Rating> getDealRatings(Long dealId, Pageable pageable) {
         return ratingRepository.findByDealIdOrderByCreatedAtDesc(dealId, pageable);
@@ -34,15 +37,17 @@ public class RatingService {
         return ratingRepository.findByRatedUserIdOrderByCreatedAtDesc(userId, pageable);
     }
 
+    /**
+     * Из счётчиков users.rating_sum / rating_count — без AVG/COUNT по ratings
+     */
     public UserRatingStats getUserRatingStats(Long userId) {
-        Double averageRating = ratingRepository.getAverageRatingByUserId(userId);
-        Long totalRatings = ratingRepository.countRatingsByUserId(userId);
-
-        return new UserRatingStats(
-                userId,
-                averageRating != null ? averageRating : 0.0,
-                totalRatings != null ? totalRatings : 0L
-        );
+        return userRepository.findById(userId)
+                .filter(user -> user.getRatingCount() > 0)
+                .map(user -> new UserRatingStats(
+                        userId,
+                        user.getRatingSum().doubleValue() / user.getRatingCount(),
+                        user.getRatingCount().longValue()))
+                .orElseGet(() -> new UserRatingStats(userId, 0.0, 0L));
     }
 
     @Transactional
@@ -81,7 +86,11 @@ public class RatingService {
 
         Rating savedRating = ratingRepository.save(rating);
 
-        updateUserTrustRating(ratedUser.getId());
+        // UPDATE очищает сессию: оцениваемый пользователь нужен загруженным и после него
+        Hibernate.initialize(ratedUser);
+        userRepository.addRating(ratedUser.getId(), dto.rating());
+        eventOutbox.append(new DomainEvent.RatingCreated(
+                savedRating.getId(), dto.dealId(), ratedUser.getId(), dto.rating()));
 
         log.info("Rating created: {} stars for user {} in deal {}",
                 dto.rating(), ratedUser.getTelegramUsername(), dto.dealId());
@@ -89,20 +98,6 @@ public class RatingService {
         return savedRating;
     }
 
-    private void updateUserTrustRating(Long userId) {
-        try {
-            UserRatingStats stats = getUserRatingStats(userId);
-            if (stats.totalRatings() > 0) {
-                userService.updateTrustRating(userId, stats.averageRating());
-
-                log.info("Updated trust_rating for user {}: {} (based on {} ratings)",
-                        userId, stats.averageRating(), stats.totalRatings());
-            }
-        } catch (Exception e) {
-            log.error("Failed to update trust_rating for user {}: {}", userId, e.getMessage());
-        }
-    }
-
     public boolean existsByDealIdAndRaterId(Long dealId, Long raterId) {
         return ratingRepository.existsByDealIdAndRaterId(dealId, raterId);
     }
@@ -4,7 +4,10 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
 import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
 import pl.aybolali.plnkztexchangebot.repository.DealRepository;
 import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
 import pl.aybolali.plnkztexchangebot.repository.UserRepository;
@@ -22,6 +25,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final DealRepository dealRepository;
     private final RatingRepository ratingRepository;
+    private final ArchiveSegmentUserRepository archiveSegmentUserRepository;
 
     public Optional<User> findByTelegramUserId(Long telegramUserId) {
         return userRepository.findByTelegramUserId(telegramUserId);
@@ -64,8 +68,8 @@ public class UserService {
         return userRepository.findAllActiveUsers()
                 .stream()
                 .sorted((u1, u2) -> {
-                    double score1 = calculateUserScore(u1.getId());
-                    double score2 = calculateUserScore(u2.getId());
+                    double score1 = calculateUserScore(u1);
+                    double score2 = calculateUserScore(u2);
                     return Double.compare(score2, score1); // От лучших к худшим
                 })
                 .collect(Collectors.toList());
@@ -76,13 +80,24 @@ public class UserService {
         return rating != null ? rating : 0.0;
     }
 
+    /**
+     * Горячие сделки + перенесённые в архив
+     */
     private Long getCompletedDealsCount(Long userId) {
-        return dealRepository.countCompletedByUserId(userId);
+        long archived = archiveSegmentUserRepository.sumCompleted(List.of(userId), ArchiveKind.DEALS).stream()
+                .mapToLong(UserDealCount::deals)
+                .sum();
+        return dealRepository.countCompletedByUserId(userId) + archived;
     }
 
-    private double calculateUserScore(Long userId) {
-        Double rating = getActualRating(userId);
-        Long deals = getCompletedDealsCount(userId);
+    /**
+     * Из поддерживаемых счётчиков пользователя — без запросов к deals/ratings на каждого
+     */
+    private double calculateUserScore(User user) {
+        double rating = user.getRatingCount() > 0
+                ? user.getRatingSum().doubleValue() / user.getRatingCount()
+                : 0.0;
+        int deals = user.getSuccessfulDeals();
 
         // Защита от случайных 5★ у новичков + разумный бонус за опыт
         double experienceBonus = Math.min(deals * 0.1, 2.0);  // максимум +2.0
@@ -90,6 +105,10 @@ public class UserService {
         return rating + experienceBonus;
     }
 
+    /**
+     * Полный пересчёт статистики одного пользователя из deals и ratings.
+     * В потоке сделок не используется — счётчики ведутся инкрементально (UserStatsVerifier сверяет их).
+     */
     @Transactional
     public void updateUserStatsAfterDeal(Long userId) {
         User user = userRepository.findById(userId)
@@ -102,6 +121,15 @@ public class UserService {
         // Обновляем trust_rating из реальных оценок
         Double actualRating = getActualRating(userId);
         user.setTrustRating(BigDecimal.valueOf(actualRating));
+        ratingRepository.sumRatingsByUserIds(List.of(userId)).stream().findFirst().ifPresentOrElse(
+                totals -> {
+                    user.setRatingSum(totals.ratingSum());
+                    user.setRatingCount(totals.ratingCount().intValue());
+                },
+                () -> {
+                    user.setRatingSum(BigDecimal.ZERO);
+                    user.setRatingCount(0);
+                });
 
         userRepository.save(user);
         log.info("Updated stats for user {}: deals={}, rating={}",
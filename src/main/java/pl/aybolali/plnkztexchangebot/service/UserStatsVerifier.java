@@ -0,0 +1,187 @@
+package pl.aybolali.plnkztexchangebot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
+import pl.aybolali.plnkztexchangebot.dto.UserRatingTotals;
+import pl.aybolali.plnkztexchangebot.dto.UserStatsSnapshot;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.mapper.UserMapper;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
+import pl.aybolali.plnkztexchangebot.repository.DealRepository;
+import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.batch.ChunkedJob;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 🔎 СВЕРКА СЧЁТЧИКОВ: successful_deals, rating_sum, rating_count против deals и ratings
+ *
+ * Счётчики ведутся относительными UPDATE в транзакциях сделок и оценок; сверка ловит дрейф
+ * (ручные правки в БД, удалённые сделки, старые данные).
+ * - пользователи читаются пачками по keyset-курсору, фактические значения — тремя GROUP BY на пачку
+ * - сделки, перенесённые в архив, учитываются по индексу archive_segment_users
+ * - исправление условное (UserRepository.reconcileStats): не затирает сделку, прошедшую во время сверки
+ * - исправленные пользователи публикуются в книгу предложений
+ *
+ * По расписанию и по запросу администратора идёт как пакетная задача {@link #JOB_NAME}
+ * (секции по users.id, checkpoint после каждой пачки, см. MaintenanceJobs)
+ */
+@Service
+@Slf4j
+public class UserStatsVerifier implements ChunkedJob {
+
+    public static final String JOB_NAME = "user-stats-rebuild";
+
+    private final UserRepository userRepository;
+    private final DealRepository dealRepository;
+    private final RatingRepository ratingRepository;
+    private final ArchiveSegmentUserRepository archiveSegmentUserRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+
+    private final Counter drift = Metrics.counter("users.stats.drift");
+
+    public UserStatsVerifier(
+            UserRepository userRepository,
+            DealRepository dealRepository,
+            RatingRepository ratingRepository,
+            ArchiveSegmentUserRepository archiveSegmentUserRepository,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.user-stats.verify-batch-size:500}") int batchSize) {
+
+        this.userRepository = userRepository;
+        this.dealRepository = dealRepository;
+        this.ratingRepository = ratingRepository;
+        this.archiveSegmentUserRepository = archiveSegmentUserRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public String name() {
+        return JOB_NAME;
+    }
+
+    @Override
+    public KeyRange keyRange() {
+        return userRepository.findIdRange();
+    }
+
+    @Override
+    public List<Long> readKeys(long afterKey, long upToKey, int limit) {
+        return userRepository.findIdsBetween(afterKey, upToKey, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Пачка задачи: счётчики перечитываются в транзакции пачки
+     *
+     * @return число исправленных пользователей
+     */
+    @Override
+    public int process(List<Long> keys) {
+        List<UserStatsSnapshot> batch = userRepository.findStatsByIds(keys);
+        return batch.isEmpty() ? 0 : reconcile(batch);
+    }
+
+    /**
+     * Сверка всех пользователей в текущем потоке, без checkpoints
+     *
+     * @return число исправленных пользователей
+     */
+    public int verifyAll() {
+        long afterId = 0;
+        int checked = 0;
+        int corrected = 0;
+
+        while (true) {
+            List<UserStatsSnapshot> batch = userRepository.findStatsAfter(afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            Integer fixed = transactions.execute(status -> reconcile(batch));
+            corrected += fixed != null ? fixed : 0;
+            checked += batch.size();
+            afterId = batch.get(batch.size() - 1).userId();
+
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (corrected > 0) {
+            log.warn("🔎 User stats verified: {} users, {} corrected", checked, corrected);
+        } else {
+            log.info("🔎 User stats verified: {} users, no drift", checked);
+        }
+        return corrected;
+    }
+
+    private int reconcile(List<UserStatsSnapshot> batch) {
+        List<Long> userIds = batch.stream().map(UserStatsSnapshot::userId).toList();
+
+        Map<Long, Long> asRequester = dealRepository.countCompletedAsRequester(userIds).stream()
+                .collect(Collectors.toMap(UserDealCount::userId, UserDealCount::deals));
+        Map<Long, Long> asProvider = dealRepository.countCompletedAsProvider(userIds).stream()
+                .collect(Collectors.toMap(UserDealCount::userId, UserDealCount::deals));
+        Map<Long, Long> archived = archiveSegmentUserRepository.sumCompleted(userIds, ArchiveKind.DEALS).stream()
+                .collect(Collectors.toMap(UserDealCount::userId, UserDealCount::deals));
+        Map<Long, UserRatingTotals> ratings = ratingRepository.sumRatingsByUserIds(userIds).stream()
+                .collect(Collectors.toMap(UserRatingTotals::userId, Function.identity()));
+
+        List<Long> correctedIds = new ArrayList<>();
+        for (UserStatsSnapshot current : batch) {
+            Long userId = current.userId();
+            int deals = Math.toIntExact(asRequester.getOrDefault(userId, 0L) + asProvider.getOrDefault(userId, 0L)
+                    + archived.getOrDefault(userId, 0L));
+            UserRatingTotals totals = ratings.get(userId);
+            BigDecimal ratingSum = totals != null ? totals.ratingSum().setScale(1, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+            int ratingCount = totals != null ? Math.toIntExact(totals.ratingCount()) : 0;
+
+            if (deals == current.completedDeals()
+                    && ratingCount == current.ratingCount()
+                    && ratingSum.compareTo(current.ratingSum()) == 0) {
+                continue;
+            }
+
+            BigDecimal trustRating = ratingCount > 0
+                    ? ratingSum.divide(BigDecimal.valueOf(ratingCount), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+
+            int updated = userRepository.reconcileStats(userId, deals, ratingSum, ratingCount, trustRating,
+                    current.completedDeals(), current.ratingCount());
+            if (updated > 0) {
+                correctedIds.add(userId);
+                drift.increment();
+                log.warn("🔎 User {} stats drift: deals {} → {}, ratings {}/{} → {}/{}", userId,
+                        current.completedDeals(), deals, current.ratingSum(), current.ratingCount(), ratingSum, ratingCount);
+            }
+        }
+
+        if (!correctedIds.isEmpty()) {
+            userRepository.findAllById(correctedIds).forEach(user ->
+                    eventPublisher.publishEvent(new OfferBookEvent.UserChanged(UserMapper.toPublicDTO(user))));
+        }
+        return correctedIds.size();
+    }
+}
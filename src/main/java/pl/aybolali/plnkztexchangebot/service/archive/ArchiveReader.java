@@ -0,0 +1,241 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegment;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegmentUser;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentRepository;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 🧊 ЧТЕНИЕ ЧЕРЕЗ ОБА СЛОЯ: горячие таблицы + сегменты архива
+ *
+ * Архивные строки всегда старше горячих, поэтому история пользователя — это горячая страница,
+ * продолженная архивом: смещение в архиве считается по archive_segment_users без чтения файлов,
+ * открываются только сегменты, попавшие в страницу.
+ *
+ * Строки с участием удалённого пользователя не отдаются — как горячие строки, которые удаляются
+ * вместе с ним каскадом. Его записи в archive_segment_users удаляет FK (V15); счётчики контрагентов
+ * в индексе не уменьшаются, поэтому total страницы у них может быть больше отданных строк.
+ */
+@Service
+@RequiredArgsConstructor
+public class ArchiveReader {
+
+    private static final Comparator<Deal> NEWEST_FIRST = Comparator
+            .comparing(Deal::getFinishedAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Deal::getId, Comparator.reverseOrder());
+
+    private final ArchiveSegmentRepository segmentRepository;
+    private final ArchiveSegmentUserRepository segmentUserRepository;
+    private final ArchiveStore archiveStore;
+    private final UserRepository userRepository;
+
+    /**
+     * Дополняет страницу сделок из горячей таблицы архивными сделками пользователя (от новых к старым)
+     *
+     * @param completedOnly только COMPLETED — как в истории обменов
+     */
+    public Page<Deal> appendArchivedDeals(Page<Deal> hot, Long userId, Pageable pageable, boolean completedOnly) {
+        List<ArchiveSegmentUser> segments = segmentUserRepository.findByUser(userId, ArchiveKind.DEALS);
+        if (segments.isEmpty()) {
+            return hot;
+        }
+
+        long archived = segments.stream()
+                .mapToLong(segment -> completedOnly ? segment.getCompletedCount() : segment.getRowCount())
+                .sum();
+        long hotTotal = hot.getTotalElements();
+        long total = hotTotal + archived;
+
+        if (pageable.isUnpaged()) {
+            List<Deal> content = new ArrayList<>(hot.getContent());
+            content.addAll(readUserDeals(userId, segments, 0, Integer.MAX_VALUE, completedOnly));
+            return new PageImpl<>(content, pageable, total);
+        }
+
+        int missing = pageable.getPageSize() - hot.getNumberOfElements();
+        if (missing <= 0 || pageable.getOffset() + pageable.getPageSize() <= hotTotal) {
+            return new PageImpl<>(hot.getContent(), pageable, total);
+        }
+
+        long archivedOffset = Math.max(0, pageable.getOffset() - hotTotal);
+        List<Deal> content = new ArrayList<>(hot.getContent());
+        content.addAll(readUserDeals(userId, segments, archivedOffset, missing, completedOnly));
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    /**
+     * Архивная сделка по id (кнопки старых сообщений, /api/deals/{id})
+     */
+    public Optional<Deal> findDeal(Long dealId) {
+        // Диапазоны id сегментов могут пересекаться: проверяем каждый кандидат
+        for (ArchiveSegment segment : segmentRepository.findCovering(ArchiveKind.DEALS, dealId)) {
+            ColumnarSegment columns = archiveStore.open(segment);
+            int row = Arrays.binarySearch(columns.longs("id"), dealId);
+            if (row < 0) {
+                continue;
+            }
+            List<Integer> rows = new ArrayList<>(List.of(row));
+            Map<Long, User> users = retainLiveRows(columns, rows, "requester_id", "provider_id");
+            return rows.isEmpty()
+                    ? Optional.empty()
+                    : Optional.of(ArchivedRows.readDeal(columns, row, users::get));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Число архивных COMPLETED сделок по пользователям
+     */
+    public Map<Long, Long> countArchivedCompletedDeals(Collection<Long> userIds) {
+        return segmentUserRepository.sumCompleted(userIds, ArchiveKind.DEALS).stream()
+                .collect(Collectors.toMap(UserDealCount::userId, UserDealCount::deals));
+    }
+
+    /**
+     * Архивные сделки пользователя в порядке id (выгрузка)
+     */
+    public void forEachUserDeal(Long userId, Consumer<Deal> consumer) {
+        List<ArchiveSegmentUser> segments = new ArrayList<>(segmentUserRepository.findByUser(userId, ArchiveKind.DEALS));
+        segments.sort(Comparator.comparing(segment -> segment.getId().getSegmentId()));
+
+        for (ArchiveSegmentUser entry : segments) {
+            segmentRepository.findById(entry.getId().getSegmentId()).ifPresent(segment -> {
+                ColumnarSegment columns = archiveStore.open(segment);
+                List<Integer> rows = ArchivedRows.dealRowsOf(columns, userId);
+                Map<Long, User> users = retainLiveRows(columns, rows, "requester_id", "provider_id");
+                rows.forEach(row -> consumer.accept(ArchivedRows.readDeal(columns, row, users::get)));
+            });
+        }
+    }
+
+    /**
+     * Архивные сделки, завершённые в [from, to), по finished_at
+     */
+    public void forEachDeal(LocalDateTime from, LocalDateTime to, Consumer<Deal> consumer) {
+        for (ArchiveSegment segment : segmentRepository.findOverlapping(ArchiveKind.DEALS, from, to)) {
+            ColumnarSegment columns = archiveStore.open(segment);
+            List<Integer> rows = rowsInRange(columns.timestamps("finished_at"), from, to);
+            Map<Long, User> users = retainLiveRows(columns, rows, "requester_id", "provider_id");
+            rows.forEach(row -> consumer.accept(ArchivedRows.readDeal(columns, row, users::get)));
+        }
+    }
+
+    /**
+     * Архивные заявки, созданные в [from, to), по created_at
+     */
+    public void forEachRequest(LocalDateTime from, LocalDateTime to, Consumer<ExchangeRequest> consumer) {
+        for (ArchiveSegment segment : segmentRepository.findOverlapping(ArchiveKind.REQUESTS, from, to)) {
+            ColumnarSegment columns = archiveStore.open(segment);
+            List<Integer> rows = rowsInRange(columns.timestamps("created_at"), from, to);
+            Map<Long, User> users = retainLiveRows(columns, rows, "user_id");
+            rows.forEach(row -> consumer.accept(ArchivedRows.readRequest(columns, row, users::get)));
+        }
+    }
+
+    private List<Deal> readUserDeals(Long userId, List<ArchiveSegmentUser> segments,
+                                     long offset, int limit, boolean completedOnly) {
+        List<Deal> result = new ArrayList<>();
+        long skip = offset;
+
+        for (ArchiveSegmentUser entry : segments) {
+            long inSegment = completedOnly ? entry.getCompletedCount() : entry.getRowCount();
+            if (skip >= inSegment) {
+                // Сегмент целиком до начала страницы — файл не открываем
+                skip -= inSegment;
+                continue;
+            }
+
+            ArchiveSegment segment = segmentRepository.findById(entry.getId().getSegmentId()).orElse(null);
+            if (segment == null) {
+                continue;
+            }
+            ColumnarSegment columns = archiveStore.open(segment);
+            List<Integer> rows = ArchivedRows.dealRowsOf(columns, userId);
+            Map<Long, User> users = retainLiveRows(columns, rows, "requester_id", "provider_id");
+
+            List<Deal> deals = rows.stream()
+                    .map(row -> ArchivedRows.readDeal(columns, row, users::get))
+                    .filter(deal -> !completedOnly || deal.getStatus() == DealStatus.COMPLETED)
+                    .sorted(NEWEST_FIRST)
+                    .toList();
+
+            for (Deal deal : deals) {
+                if (skip > 0) {
+                    skip--;
+                    continue;
+                }
+                result.add(deal);
+                if (result.size() >= limit) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> rowsInRange(LocalDateTime[] times, LocalDateTime from, LocalDateTime to) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < times.length; row++) {
+            LocalDateTime time = times[row];
+            if (time != null && !time.isBefore(from) && time.isBefore(to)) {
+                rows.add(row);
+            }
+        }
+        rows.sort(Comparator.comparing((Integer row) -> times[row]).thenComparing(row -> row));
+        return rows;
+    }
+
+    /**
+     * Убирает из rows строки, чей участник удалён (пользователя больше нет в users)
+     *
+     * @return участники оставшихся строк по id
+     */
+    private Map<Long, User> retainLiveRows(ColumnarSegment columns, List<Integer> rows, String... userColumns) {
+        Set<Long> ids = new HashSet<>();
+        for (String column : userColumns) {
+            Long[] values = columns.longs(column);
+            rows.forEach(row -> {
+                if (values[row] != null) {
+                    ids.add(values[row]);
+                }
+            });
+        }
+        Map<Long, User> users = loadUsers(ids);
+        rows.removeIf(row -> Arrays.stream(userColumns)
+                .map(column -> columns.longs(column)[row])
+                .anyMatch(id -> id != null && !users.containsKey(id)));
+        return users;
+    }
+
+    private Map<Long, User> loadUsers(Set<Long> ids) {
+        Map<Long, User> users = new HashMap<>();
+        userRepository.findAllById(ids).forEach(user -> users.put(user.getId(), user));
+        return users;
+    }
+}
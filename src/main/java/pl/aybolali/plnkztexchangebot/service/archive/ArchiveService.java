@@ -0,0 +1,229 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegment;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegmentUser;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentRepository;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
+import pl.aybolali.plnkztexchangebot.repository.DealRepository;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.partition.PartitionMaintenanceService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * 🧊 АРХИВАЦИЯ: перенос старых сделок и закрытых заявок из горячих таблиц в сегменты
+ *
+ * Пачка = одна транзакция:
+ * строки под FOR UPDATE SKIP LOCKED → файл сегмента (fsync) → archive_segments + индекс пользователей
+ * → удаление строк из горячей таблицы. Откат транзакции удаляет записанный файл.
+ *
+ * - Сделки: finished_at старше app.archive.deals-after-days (по расписанию)
+ * - Заявки: COMPLETED / CANCELLED, которые ExchangeRequestCleanupService раньше удалял, теперь архивирует
+ * - Оценки остаются в горячей таблице; счётчики пользователей не меняются
+ * - Токены подтверждения архивируемых сделок остаются в deal_confirmation_tokens (V15):
+ *   старая кнопка подтверждения после архивации получает отказ, а не вторую сделку
+ */
+@Service
+@Slf4j
+public class ArchiveService {
+
+    private final DealRepository dealRepository;
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final ArchiveSegmentRepository segmentRepository;
+    private final ArchiveSegmentUserRepository segmentUserRepository;
+    private final ArchiveStore archiveStore;
+    private final PartitionMaintenanceService partitionMaintenanceService;
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final int dealsAfterDays;
+    private final int segmentRows;
+
+    public ArchiveService(
+            DealRepository dealRepository,
+            ExchangeRequestRepository exchangeRequestRepository,
+            ArchiveSegmentRepository segmentRepository,
+            ArchiveSegmentUserRepository segmentUserRepository,
+            ArchiveStore archiveStore,
+            PartitionMaintenanceService partitionMaintenanceService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.archive.enabled:true}") boolean enabled,
+            @Value("${app.archive.deals-after-days:180}") int dealsAfterDays,
+            @Value("${app.archive.segment-rows:10000}") int segmentRows) {
+
+        this.dealRepository = dealRepository;
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.segmentRepository = segmentRepository;
+        this.segmentUserRepository = segmentUserRepository;
+        this.archiveStore = archiveStore;
+        this.partitionMaintenanceService = partitionMaintenanceService;
+        // Своя транзакция на пачку, даже если вызвано из транзакции cleanup
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.dealsAfterDays = dealsAfterDays;
+        this.segmentRows = segmentRows;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Scheduled(cron = "${app.archive.cron:0 30 3 * * *}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveDeals(LocalDateTime.now().minusDays(dealsAfterDays));
+        } catch (Exception e) {
+            log.error("❌ Deal archiving failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return число перенесённых сделок
+     */
+    public int archiveDeals(LocalDateTime finishedBefore) {
+        return archiveAll(ArchiveKind.DEALS, () -> archiveDealBatch(finishedBefore));
+    }
+
+    /**
+     * @return число перенесённых заявок
+     */
+    public int archiveRequests(ExchangeRequestStatus status, LocalDateTime updatedBefore) {
+        return archiveAll(ArchiveKind.REQUESTS, () -> archiveRequestBatch(status, updatedBefore));
+    }
+
+    private int archiveAll(ArchiveKind kind, Supplier<Integer> batch) {
+        int total = 0;
+        while (true) {
+            Integer archived = transactions.execute(status -> batch.get());
+            int count = archived != null ? archived : 0;
+            total += count;
+            if (count < segmentRows) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("🧊 Archived {} {} rows", total, kind);
+        }
+        return total;
+    }
+
+    private int archiveDealBatch(LocalDateTime finishedBefore) {
+        List<Deal> deals = dealRepository.findArchivable(finishedBefore, PageRequest.of(0, segmentRows));
+        if (deals.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, int[]> participation = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(deals.size());
+        List<LocalDateTime> times = new ArrayList<>(deals.size());
+        for (Deal deal : deals) {
+            ids.add(deal.getId());
+            times.add(deal.getFinishedAt());
+            boolean completed = deal.getStatus() == DealStatus.COMPLETED;
+            count(participation, deal.getRequester().getId(), completed);
+            if (!deal.getProvider().getId().equals(deal.getRequester().getId())) {
+                count(participation, deal.getProvider().getId(), completed);
+            }
+        }
+
+        register(ArchiveKind.DEALS, ids, times, ArchivedRows.writeDeals(deals), participation);
+        partitionMaintenanceService.keepConfirmationTokens();
+        dealRepository.deleteAllByIdInBatch(ids);
+        return deals.size();
+    }
+
+    private int archiveRequestBatch(ExchangeRequestStatus status, LocalDateTime updatedBefore) {
+        List<ExchangeRequest> requests = exchangeRequestRepository.findArchivable(
+                status, updatedBefore, PageRequest.of(0, segmentRows));
+        if (requests.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, int[]> participation = new LinkedHashMap<>();
+        List<Long> ids = new ArrayList<>(requests.size());
+        List<LocalDateTime> times = new ArrayList<>(requests.size());
+        for (ExchangeRequest request : requests) {
+            ids.add(request.getId());
+            times.add(request.getCreatedAt());
+            count(participation, request.getUser().getId(), request.getStatus() == ExchangeRequestStatus.COMPLETED);
+        }
+
+        register(ArchiveKind.REQUESTS, ids, times, ArchivedRows.writeRequests(requests), participation);
+        exchangeRequestRepository.deleteAllByIdInBatch(ids);
+        return requests.size();
+    }
+
+    private void register(ArchiveKind kind, List<Long> ids, List<LocalDateTime> times,
+                          byte[] content, Map<Long, int[]> participation) {
+        Long minId = ids.get(0);
+        Long maxId = ids.get(ids.size() - 1);
+        String fileName = ArchiveStore.fileName(kind.name(), minId, maxId);
+
+        long checksum = archiveStore.write(fileName, content);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    archiveStore.delete(fileName);
+                }
+            }
+        });
+
+        ArchiveSegment segment = segmentRepository.save(ArchiveSegment.builder()
+                .kind(kind)
+                .fileName(fileName)
+                .rowCount(ids.size())
+                .minId(minId)
+                .maxId(maxId)
+                .minTime(times.stream().filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null))
+                .maxTime(times.stream().filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null))
+                .sizeBytes((long) content.length)
+                .checksum(checksum)
+                .build());
+
+        List<ArchiveSegmentUser> users = new ArrayList<>(participation.size());
+        participation.forEach((userId, counts) -> users.add(ArchiveSegmentUser.builder()
+                .id(new ArchiveSegmentUser.Key(segment.getId(), userId))
+                .kind(kind)
+                .rowCount(counts[0])
+                .completedCount(counts[1])
+                .build()));
+        segmentUserRepository.saveAll(users);
+
+        Metrics.counter("archive.rows", "kind", kind.name()).increment(ids.size());
+        log.info("🧊 Segment {}: {} rows, {} users, {} bytes", fileName, ids.size(), users.size(), content.length);
+    }
+
+    private static void count(Map<Long, int[]> participation, Long userId, boolean completed) {
+        int[] counts = participation.computeIfAbsent(userId, id -> new int[2]);
+        counts[0]++;
+        if (completed) {
+            counts[1]++;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegment;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 🧊 ФАЙЛЫ ХОЛОДНОГО СЛОЯ: запись, проверка и кэш открытых сегментов
+ *
+ * - Запись: временный файл → fsync → атомарное переименование → только чтение; готовый файл не меняется
+ * - Открытие: CRC32 файла сверяется с archive_segments.checksum
+ * - Последние открытые сегменты держатся в LRU (файлы неизменяемы — инвалидация не нужна)
+ * - При старте удаляются файлы без строки в archive_segments (сбой между записью файла и коммитом);
+ *   только старше часа — свежий файл может принадлежать транзакции другой реплики
+ */
+@Component
+@Slf4j
+public class ArchiveStore {
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Duration ORPHAN_MIN_AGE = Duration.ofHours(1);
+
+    private final ArchiveSegmentRepository segmentRepository;
+    private final Path directory;
+    private final Map<Long, ColumnarSegment> cache;
+
+    private final Counter cacheMisses = Metrics.counter("archive.segments.opened");
+
+    public ArchiveStore(ArchiveSegmentRepository segmentRepository,
+                        @Value("${app.archive.directory:./data/archive}") Path directory,
+                        @Value("${app.archive.cached-segments:16}") int cachedSegments) {
+        this.segmentRepository = segmentRepository;
+        this.directory = directory;
+        this.cache = new LinkedHashMap<>(cachedSegments, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ColumnarSegment> eldest) {
+                return size() > cachedSegments;
+            }
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweepOrphans() {
+        try {
+            Files.createDirectories(directory);
+            Set<String> known = new HashSet<>(segmentRepository.findAllFileNames());
+            Instant cutoff = Instant.now().minus(ORPHAN_MIN_AGE);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(file -> {
+                    String name = file.getFileName().toString();
+                    boolean orphan = name.endsWith(TEMP_SUFFIX) || (name.endsWith(SEGMENT_SUFFIX) && !known.contains(name));
+                    return orphan && lastModified(file).isBefore(cutoff);
+                }).forEach(file -> {
+                    log.warn("🧊 Removing orphan archive file {}", file.getFileName());
+                    delete(file.getFileName().toString());
+                });
+            }
+        } catch (Exception e) {
+            log.error("❌ Archive directory sweep failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public static String fileName(String kind, Long minId, Long maxId) {
+        return kind.toLowerCase() + "-" + minId + "-" + maxId + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * Записывает сегмент на диск
+     *
+     * @return CRC32 содержимого
+     */
+    public long write(String fileName, byte[] content) {
+        Path target = directory.resolve(fileName);
+        Path temp = directory.resolve(fileName + TEMP_SUFFIX);
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(content);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            target.toFile().setReadOnly();
+            return checksum(content);
+        } catch (IOException e) {
+            delete(fileName + TEMP_SUFFIX);
+            throw new UncheckedIOException("Failed to write archive segment " + fileName, e);
+        }
+    }
+
+    public ColumnarSegment open(ArchiveSegment segment) {
+        synchronized (cache) {
+            ColumnarSegment cached = cache.get(segment.getId());
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(directory.resolve(segment.getFileName()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archive segment unavailable: " + segment.getFileName(), e);
+        }
+        if (checksum(content) != segment.getChecksum()) {
+            throw new IllegalStateException("Archive segment checksum mismatch: " + segment.getFileName());
+        }
+
+        ColumnarSegment opened = ColumnarSegment.read(content);
+        cacheMisses.increment();
+        synchronized (cache) {
+            cache.put(segment.getId(), opened);
+        }
+        return opened;
+    }
+
+    /**
+     * Удаление файла, запись которого не закоммичена
+     */
+    public void delete(String fileName) {
+        Path file = directory.resolve(fileName);
+        try {
+            file.toFile().setWritable(true);
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete archive file {}: {}", fileName, e.getMessage());
+        }
+    }
+
+    private static Instant lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant();
+        } catch (IOException e) {
+            return Instant.now();
+        }
+    }
+
+    private static long checksum(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,172 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.entity.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Схемы сегментов: сделки и заявки ↔ колонки.
+ * Из сегмента восстанавливаются обычные (не управляемые JPA) сущности, поэтому форматтеры и мапперы
+ * работают с архивом так же, как с горячими строками. Пользователи не архивируются и подставляются по id.
+ */
+final class ArchivedRows {
+
+    private ArchivedRows() {
+    }
+
+    // ========================================================================
+    // СДЕЛКИ
+    // ========================================================================
+
+    static byte[] writeDeals(List<Deal> deals) {
+        int n = deals.size();
+        Long[] ids = new Long[n];
+        Long[] requesterIds = new Long[n];
+        Long[] providerIds = new Long[n];
+        BigDecimal[] amounts = new BigDecimal[n];
+        String[] currencies = new String[n];
+        BigDecimal[] rates = new BigDecimal[n];
+        String[] transferMethods = new String[n];
+        String[] statuses = new String[n];
+        LocalDateTime[] createdAt = new LocalDateTime[n];
+        LocalDateTime[] finishedAt = new LocalDateTime[n];
+        Long[] confirmationTokens = new Long[n];
+
+        for (int i = 0; i < n; i++) {
+            Deal deal = deals.get(i);
+            ids[i] = deal.getId();
+            requesterIds[i] = deal.getRequester().getId();
+            providerIds[i] = deal.getProvider().getId();
+            amounts[i] = deal.getAmount();
+            currencies[i] = name(deal.getCurrency());
+            rates[i] = deal.getExchangeRate();
+            transferMethods[i] = name(deal.getTransferMethod());
+            statuses[i] = name(deal.getStatus());
+            createdAt[i] = deal.getCreatedAt();
+            finishedAt[i] = deal.getFinishedAt();
+            confirmationTokens[i] = deal.getConfirmationToken();
+        }
+
+        return ColumnarSegment.builder(n)
+                .longs("id", ids)
+                .longs("requester_id", requesterIds)
+                .longs("provider_id", providerIds)
+                .decimals("amount", amounts)
+                .strings("currency", currencies)
+                .decimals("exchange_rate", rates)
+                .strings("transfer_method", transferMethods)
+                .strings("status", statuses)
+                .timestamps("created_at", createdAt)
+                .timestamps("finished_at", finishedAt)
+                .longs("confirmation_token", confirmationTokens)
+                .toBytes();
+    }
+
+    /**
+     * Номера строк сегмента, где пользователь — одна из сторон (только две колонки id)
+     */
+    static List<Integer> dealRowsOf(ColumnarSegment segment, Long userId) {
+        Long[] requesterIds = segment.longs("requester_id");
+        Long[] providerIds = segment.longs("provider_id");
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < segment.rowCount(); row++) {
+            if (userId.equals(requesterIds[row]) || userId.equals(providerIds[row])) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    static Deal readDeal(ColumnarSegment segment, int row, Function<Long, User> users) {
+        return Deal.builder()
+                .id(segment.longs("id")[row])
+                .requester(users.apply(segment.longs("requester_id")[row]))
+                .provider(users.apply(segment.longs("provider_id")[row]))
+                .amount(segment.decimals("amount")[row])
+                .currency(value(ExchangeRequest.Currency.class, segment.strings("currency")[row]))
+                .exchangeRate(segment.decimals("exchange_rate")[row])
+                .transferMethod(value(TransferMethod.class, segment.strings("transfer_method")[row]))
+                .status(value(DealStatus.class, segment.strings("status")[row]))
+                .createdAt(segment.timestamps("created_at")[row])
+                .finishedAt(segment.timestamps("finished_at")[row])
+                .confirmationToken(segment.longs("confirmation_token")[row])
+                .build();
+    }
+
+    // ========================================================================
+    // ЗАЯВКИ
+    // ========================================================================
+
+    static byte[] writeRequests(List<ExchangeRequest> requests) {
+        int n = requests.size();
+        Long[] ids = new Long[n];
+        Long[] userIds = new Long[n];
+        String[] currencies = new String[n];
+        BigDecimal[] amounts = new BigDecimal[n];
+        String[] statuses = new String[n];
+        String[] notes = new String[n];
+        String[] transferMethods = new String[n];
+        LocalDateTime[] createdAt = new LocalDateTime[n];
+        LocalDateTime[] updatedAt = new LocalDateTime[n];
+        LocalDateTime[] finishedAt = new LocalDateTime[n];
+
+        for (int i = 0; i < n; i++) {
+            ExchangeRequest request = requests.get(i);
+            ids[i] = request.getId();
+            userIds[i] = request.getUser().getId();
+            currencies[i] = name(request.getCurrencyNeed());
+            amounts[i] = request.getAmountNeed();
+            statuses[i] = name(request.getStatus());
+            notes[i] = request.getNotes();
+            transferMethods[i] = name(request.getTransferMethod());
+            createdAt[i] = request.getCreatedAt();
+            updatedAt[i] = request.getUpdatedAt();
+            finishedAt[i] = request.getFinishedAt();
+        }
+
+        return ColumnarSegment.builder(n)
+                .longs("id", ids)
+                .longs("user_id", userIds)
+                .strings("currency_need", currencies)
+                .decimals("amount_need", amounts)
+                .strings("status", statuses)
+                .strings("notes", notes)
+                .strings("transfer_method", transferMethods)
+                .timestamps("created_at", createdAt)
+                .timestamps("updated_at", updatedAt)
+                .timestamps("finished_at", finishedAt)
+                .toBytes();
+    }
+
+    static ExchangeRequest readRequest(ColumnarSegment segment, int row, Function<Long, User> users) {
+        return ExchangeRequest.builder()
+                .id(segment.longs("id")[row])
+                .user(users.apply(segment.longs("user_id")[row]))
+                .currencyNeed(value(ExchangeRequest.Currency.class, segment.strings("currency_need")[row]))
+                .amountNeed(segment.decimals("amount_need")[row])
+                .status(value(ExchangeRequestStatus.class, segment.strings("status")[row]))
+                .notes(segment.strings("notes")[row])
+                .transferMethod(value(TransferMethod.class, segment.strings("transfer_method")[row]))
+                .createdAt(segment.timestamps("created_at")[row])
+                .updatedAt(segment.timestamps("updated_at")[row])
+                .finishedAt(segment.timestamps("finished_at")[row])
+                .build();
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private static <E extends Enum<E>> E value(Class<E> type, String name) {
+        return name != null ? Enum.valueOf(type, name) : null;
+    }
+}
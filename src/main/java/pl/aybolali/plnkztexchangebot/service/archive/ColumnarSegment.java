@@ -0,0 +1,372 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 🧊 КОЛОНОЧНЫЙ СЕГМЕНТ: неизменяемый блок строк, каждая колонка хранится и сжимается отдельно
+ *
+ * Формат:
+ * [int MAGIC][byte версия][int строк][short колонок]
+ * на каждую колонку: [UTF имя][byte тип][int длина до сжатия][int длина после]
+ * затем блоки колонок (Deflate) в том же порядке
+ *
+ * Блок колонки: битмап null (бит на строку), затем значения только не-null строк:
+ * - LONG — zigzag varint дельты от предыдущего значения (id идут по возрастанию → 1 байт)
+ * - DECIMAL — varint scale + zigzag varint unscaled
+ * - TIMESTAMP — zigzag varint дельты секунд (UTC) + varint наносекунд
+ * - STRING — словарь (валюта, статус, способ перевода — 2-3 значения на весь сегмент) + varint индекс
+ *
+ * Колонка распаковывается при первом обращении: подсчёт по пользователю не трогает суммы и заметки.
+ */
+public final class ColumnarSegment {
+
+    private static final int MAGIC = 0x504B5A41;   // "PKZA"
+    private static final byte VERSION = 1;
+
+    public enum Type {
+        LONG, DECIMAL, TIMESTAMP, STRING
+    }
+
+    private record Column(Type type, int rawLength, int offset, int length) {}
+
+    private final byte[] data;
+    private final int rowCount;
+    private final Map<String, Column> columns;
+    private final Map<String, Object[]> decoded = new ConcurrentHashMap<>();
+
+    private ColumnarSegment(byte[] data, int rowCount, Map<String, Column> columns) {
+        this.data = data;
+        this.rowCount = rowCount;
+        this.columns = columns;
+    }
+
+    public static Builder builder(int rowCount) {
+        return new Builder(rowCount);
+    }
+
+    public static ColumnarSegment read(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an archive segment");
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported segment version: " + version);
+            }
+            int rowCount = in.readInt();
+            int columnCount = in.readShort();
+
+            List<String> names = new ArrayList<>(columnCount);
+            List<int[]> meta = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                names.add(in.readUTF());
+                meta.add(new int[]{in.readByte(), in.readInt(), in.readInt()});
+            }
+
+            int offset = data.length - in.available();
+            Map<String, Column> columns = new HashMap<>();
+            for (int i = 0; i < columnCount; i++) {
+                int[] m = meta.get(i);
+                columns.put(names.get(i), new Column(Type.values()[m[0]], m[1], offset, m[2]));
+                offset += m[2];
+            }
+            if (offset != data.length) {
+                throw new IllegalArgumentException("Truncated segment: " + offset + " of " + data.length);
+            }
+            return new ColumnarSegment(data, rowCount, columns);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public Long[] longs(String name) {
+        return (Long[]) column(name, Type.LONG);
+    }
+
+    public BigDecimal[] decimals(String name) {
+        return (BigDecimal[]) column(name, Type.DECIMAL);
+    }
+
+    public LocalDateTime[] timestamps(String name) {
+        return (LocalDateTime[]) column(name, Type.TIMESTAMP);
+    }
+
+    public String[] strings(String name) {
+        return (String[]) column(name, Type.STRING);
+    }
+
+    private Object[] column(String name, Type expected) {
+        Column column = columns.get(name);
+        if (column == null || column.type() != expected) {
+            throw new IllegalArgumentException("No " + expected + " column '" + name + "' in segment");
+        }
+        return decoded.computeIfAbsent(name, key -> decode(column));
+    }
+
+    private Object[] decode(Column column) {
+        byte[] raw = new byte[column.rawLength()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, column.offset(), column.length());
+            int n = inflater.inflate(raw);
+            if (n != raw.length) {
+                throw new IllegalStateException("Corrupted column block");
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupted column block", e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        byte[] nulls = new byte[(rowCount + 7) / 8];
+        in.get(nulls);
+
+        return switch (column.type()) {
+            case LONG -> {
+                Long[] values = new Long[rowCount];
+                long previous = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    if (!isNull(nulls, row)) {
+                        previous += unzigzag(readVarLong(in));
+                        values[row] = previous;
+                    }
+                }
+                yield values;
+            }
+            case DECIMAL -> {
+                BigDecimal[] values = new BigDecimal[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    if (!isNull(nulls, row)) {
+                        int scale = (int) readVarLong(in);
+                        values[row] = BigDecimal.valueOf(unzigzag(readVarLong(in)), scale);
+                    }
+                }
+                yield values;
+            }
+            case TIMESTAMP -> {
+                LocalDateTime[] values = new LocalDateTime[rowCount];
+                long previous = 0;
+                for (int row = 0; row < rowCount; row++) {
+                    if (!isNull(nulls, row)) {
+                        previous += unzigzag(readVarLong(in));
+                        int nanos = (int) readVarLong(in);
+                        values[row] = LocalDateTime.ofEpochSecond(previous, nanos, ZoneOffset.UTC);
+                    }
+                }
+                yield values;
+            }
+            case STRING -> {
+                String[] dictionary = new String[(int) readVarLong(in)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    byte[] bytes = new byte[(int) readVarLong(in)];
+                    in.get(bytes);
+                    dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+                String[] values = new String[rowCount];
+                for (int row = 0; row < rowCount; row++) {
+                    if (!isNull(nulls, row)) {
+                        values[row] = dictionary[(int) readVarLong(in)];
+                    }
+                }
+                yield values;
+            }
+        };
+    }
+
+    // ========================================================================
+    // ЗАПИСЬ
+    // ========================================================================
+
+    public static final class Builder {
+
+        private final int rowCount;
+        private final Map<String, Type> types = new LinkedHashMap<>();
+        private final Map<String, byte[]> blocks = new LinkedHashMap<>();
+
+        private Builder(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public Builder longs(String name, Long[] values) {
+            ByteArrayOutputStream out = nullBitmap(values);
+            long previous = 0;
+            for (Long value : values) {
+                if (value != null) {
+                    writeVarLong(out, zigzag(value - previous));
+                    previous = value;
+                }
+            }
+            return add(name, Type.LONG, out);
+        }
+
+        public Builder decimals(String name, BigDecimal[] values) {
+            ByteArrayOutputStream out = nullBitmap(values);
+            for (BigDecimal value : values) {
+                if (value != null) {
+                    BigInteger unscaled = value.unscaledValue();
+                    writeVarLong(out, value.scale());
+                    writeVarLong(out, zigzag(unscaled.longValueExact()));
+                }
+            }
+            return add(name, Type.DECIMAL, out);
+        }
+
+        public Builder timestamps(String name, LocalDateTime[] values) {
+            ByteArrayOutputStream out = nullBitmap(values);
+            long previous = 0;
+            for (LocalDateTime value : values) {
+                if (value != null) {
+                    long seconds = value.toEpochSecond(ZoneOffset.UTC);
+                    writeVarLong(out, zigzag(seconds - previous));
+                    writeVarLong(out, value.getNano());
+                    previous = seconds;
+                }
+            }
+            return add(name, Type.TIMESTAMP, out);
+        }
+
+        public Builder strings(String name, String[] values) {
+            Map<String, Integer> dictionary = new LinkedHashMap<>();
+            for (String value : values) {
+                if (value != null) {
+                    dictionary.putIfAbsent(value, dictionary.size());
+                }
+            }
+
+            ByteArrayOutputStream out = nullBitmap(values);
+            writeVarLong(out, dictionary.size());
+            for (String entry : dictionary.keySet()) {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                writeVarLong(out, bytes.length);
+                out.writeBytes(bytes);
+            }
+            for (String value : values) {
+                if (value != null) {
+                    writeVarLong(out, dictionary.get(value));
+                }
+            }
+            return add(name, Type.STRING, out);
+        }
+
+        public byte[] toBytes() {
+            Map<String, byte[]> compressed = new LinkedHashMap<>();
+            blocks.forEach((name, raw) -> compressed.put(name, deflate(raw)));
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(buffer)) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(rowCount);
+                out.writeShort(blocks.size());
+                for (String name : blocks.keySet()) {
+                    out.writeUTF(name);
+                    out.writeByte(types.get(name).ordinal());
+                    out.writeInt(blocks.get(name).length);
+                    out.writeInt(compressed.get(name).length);
+                }
+                for (byte[] block : compressed.values()) {
+                    out.write(block);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.toByteArray();
+        }
+
+        private ByteArrayOutputStream nullBitmap(Object[] values) {
+            if (values.length != rowCount) {
+                throw new IllegalArgumentException("Column has " + values.length + " rows, segment " + rowCount);
+            }
+            byte[] nulls = new byte[(rowCount + 7) / 8];
+            for (int row = 0; row < rowCount; row++) {
+                if (values[row] == null) {
+                    nulls[row >>> 3] |= (byte) (1 << (row & 7));
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(nulls.length + rowCount * 2);
+            out.writeBytes(nulls);
+            return out;
+        }
+
+        private Builder add(String name, Type type, ByteArrayOutputStream out) {
+            if (types.putIfAbsent(name, type) != null) {
+                throw new IllegalArgumentException("Duplicate column: " + name);
+            }
+            blocks.put(name, out.toByteArray());
+            return this;
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static boolean isNull(byte[] nulls, int row) {
+        return (nulls[row >>> 3] & (1 << (row & 7))) != 0;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+}
@@ -0,0 +1,273 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.entity.BatchCheckpoint;
+import pl.aybolali.plnkztexchangebot.entity.BatchStatus;
+import pl.aybolali.plnkztexchangebot.repository.BatchCheckpointRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🧮 ПАКЕТНЫЕ ЗАДАЧИ: обход больших таблиц пачками с checkpoint после каждой
+ *
+ * - Диапазон ключей задачи делится на app.batch.partitions секций, секции идут параллельно
+ *   в пуле из app.batch.threads потоков
+ * - Секция читает ключи keyset-курсором по app.batch.chunk-size; каждая пачка — своя короткая транзакция,
+ *   в которой вместе с изменениями сохраняется checkpoint (last_key). Ни блокировки, ни память
+ *   не растут с размером таблицы
+ * - Прерванный запуск (рестарт, ошибка пачки) продолжается следующим с last_key незавершённых секций.
+ *   Секция, чья пачка упала app.batch.max-chunk-attempts раз подряд, остаётся FAILED и не продолжается;
+ *   когда других незавершённых секций нет, следующий запуск начинается заново по текущему диапазону
+ * - @Version на checkpoint: секцию, которую уже ведёт другая реплика, эта оставляет
+ * - Метрики: batch.items / batch.affected (по задаче), batch.chunk (время пачки)
+ */
+@Service
+@Slf4j
+public class BatchJobRunner {
+
+    private final BatchCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactions;
+    private final int partitions;
+    private final int chunkSize;
+    private final int maxChunkAttempts;
+    private final ExecutorService workers;
+
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    public BatchJobRunner(
+            BatchCheckpointRepository checkpointRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.batch.partitions:4}") int partitions,
+            @Value("${app.batch.chunk-size:500}") int chunkSize,
+            @Value("${app.batch.threads:4}") int threads,
+            @Value("${app.batch.max-chunk-attempts:3}") int maxChunkAttempts) {
+
+        this.checkpointRepository = checkpointRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.partitions = Math.max(1, partitions);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxChunkAttempts = Math.max(1, maxChunkAttempts);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "batch-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    public BatchRunResult run(ChunkedJob job) {
+        return run(job, partitions, chunkSize);
+    }
+
+    /**
+     * Запускает задачу (или продолжает прерванный запуск) и ждёт завершения всех секций.
+     * Повторный вызов, пока задача идёт на этом узле, ничего не делает.
+     */
+    public BatchRunResult run(ChunkedJob job, int partitionCount, int chunkLimit) {
+        if (!running.add(job.name())) {
+            log.warn("🧮 Batch {} is already running, skipped", job.name());
+            return BatchRunResult.skipped(job.name());
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            List<BatchCheckpoint> checkpoints = resumeOrStart(job, Math.max(1, partitionCount));
+            if (checkpoints.isEmpty()) {
+                return BatchRunResult.skipped(job.name());
+            }
+
+            List<Future<BatchRunResult>> futures = new ArrayList<>(checkpoints.size());
+            for (BatchCheckpoint checkpoint : checkpoints) {
+                futures.add(workers.submit(() -> runPartition(job, checkpoint, Math.max(1, chunkLimit))));
+            }
+
+            long processed = 0;
+            long affected = 0;
+            int unfinished = 0;
+            for (Future<BatchRunResult> future : futures) {
+                BatchRunResult partition = await(future);
+                processed += partition.processed();
+                affected += partition.affected();
+                unfinished += partition.unfinished();
+            }
+
+            BatchRunResult result = new BatchRunResult(job.name(), checkpoints.size(), processed, affected, unfinished);
+            log.info("🧮 Batch {} {}: {} keys, {} rows changed, {} partitions in {} ms",
+                    job.name(), result.completed() ? "completed" : "interrupted",
+                    processed, affected, checkpoints.size(), System.currentTimeMillis() - start);
+            return result;
+        } finally {
+            running.remove(job.name());
+        }
+    }
+
+    public List<BatchCheckpoint> checkpoints(String jobName) {
+        return checkpointRepository.findByJobNameOrderByPartitionNoAsc(jobName);
+    }
+
+    /**
+     * Есть секции, которые следующий запуск продолжит (незавершённые и без исчерпанных попыток)
+     */
+    public boolean hasResumable(String jobName) {
+        return checkpoints(jobName).stream().anyMatch(this::isResumable);
+    }
+
+    /**
+     * Незавершённые секции прошлого запуска или новые секции по текущему диапазону ключей
+     */
+    private List<BatchCheckpoint> resumeOrStart(ChunkedJob job, int partitionCount) {
+        List<BatchCheckpoint> existing = checkpointRepository.findByJobNameOrderByPartitionNoAsc(job.name());
+        List<BatchCheckpoint> resumable = existing.stream()
+                .filter(this::isResumable)
+                .toList();
+        if (!resumable.isEmpty()) {
+            log.info("🧮 Batch {}: resuming {} of {} partitions from checkpoints",
+                    job.name(), resumable.size(), existing.size());
+            return resumable;
+        }
+        existing.stream()
+                .filter(checkpoint -> checkpoint.getStatus() == BatchStatus.FAILED)
+                .forEach(checkpoint -> log.error("❌ Batch {} partition {} gave up at key {} after {} attempts: {}",
+                        job.name(), checkpoint.getPartitionNo(), checkpoint.getLastKey(),
+                        checkpoint.getAttempts(), checkpoint.getLastError()));
+
+        KeyRange range = job.keyRange();
+        try {
+            return transactions.execute(status -> {
+                checkpointRepository.deleteByJobName(job.name());
+                if (range == null || range.isEmpty()) {
+                    return List.<BatchCheckpoint>of();
+                }
+                return checkpointRepository.saveAll(split(job.name(), range, partitionCount));
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.warn("🧮 Batch {} was started by another instance, skipped", job.name());
+            return List.of();
+        }
+    }
+
+    private boolean isResumable(BatchCheckpoint checkpoint) {
+        return checkpoint.getStatus() == BatchStatus.RUNNING
+                || checkpoint.getStatus() == BatchStatus.FAILED && checkpoint.getAttempts() < maxChunkAttempts;
+    }
+
+    /**
+     * [min, max] → секции (lower, upper] равной ширины
+     */
+    static List<BatchCheckpoint> split(String jobName, KeyRange range, int partitionCount) {
+        long min = range.min();
+        long span = range.max() - min + 1;
+        long step = Math.max(1, -Math.floorDiv(-span, partitionCount));
+
+        List<BatchCheckpoint> checkpoints = new ArrayList<>();
+        for (int partition = 0; (long) partition * step < span; partition++) {
+            long lower = min - 1 + partition * step;
+            checkpoints.add(BatchCheckpoint.builder()
+                    .jobName(jobName)
+                    .partitionNo(partition)
+                    .lowerKey(lower)
+                    .upperKey(Math.min(range.max(), lower + step))
+                    .lastKey(lower)
+                    .build());
+        }
+        return checkpoints;
+    }
+
+    private BatchRunResult runPartition(ChunkedJob job, BatchCheckpoint initial, int chunkLimit) {
+        Counter items = Metrics.counter("batch.items", "job", job.name());
+        Counter changed = Metrics.counter("batch.affected", "job", job.name());
+        Timer chunkTimer = Metrics.timer("batch.chunk", "job", job.name());
+
+        BatchCheckpoint checkpoint = initial;
+        long processed = 0;
+        long affected = 0;
+
+        try {
+            while (true) {
+                List<Long> keys = job.readKeys(checkpoint.getLastKey(), checkpoint.getUpperKey(), chunkLimit);
+                BatchCheckpoint current = checkpoint;
+
+                if (keys.isEmpty()) {
+                    current.complete();
+                    transactions.execute(status -> checkpointRepository.save(current));
+                    log.debug("🧮 Batch {} partition {} completed", job.name(), current.getPartitionNo());
+                    return new BatchRunResult(job.name(), 1, processed, affected, 0);
+                }
+
+                int[] chunkAffected = new int[1];
+                long chunkStart = System.nanoTime();
+                checkpoint = transactions.execute(status -> {
+                    chunkAffected[0] = job.process(keys);
+                    current.advance(keys.get(keys.size() - 1), keys.size(), chunkAffected[0]);
+                    return checkpointRepository.save(current);
+                });
+                chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+
+                processed += keys.size();
+                affected += chunkAffected[0];
+                items.increment(keys.size());
+                changed.increment(chunkAffected[0]);
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            log.warn("⚠️ Batch {} partition {} is handled by another instance, stopping",
+                    job.name(), initial.getPartitionNo());
+        } catch (Exception e) {
+            log.error("❌ Batch {} partition {} failed after key {}: {}",
+                    job.name(), initial.getPartitionNo(), checkpoint.getLastKey(), e.getMessage(), e);
+            markFailed(initial.getId(), e);
+        }
+        return new BatchRunResult(job.name(), 1, processed, affected, 1);
+    }
+
+    /**
+     * Сохранённый курсор не трогаем — следующий запуск повторит упавшую пачку (до app.batch.max-chunk-attempts раз)
+     */
+    private void markFailed(Long checkpointId, Exception error) {
+        try {
+            transactions.executeWithoutResult(status -> checkpointRepository.findById(checkpointId)
+                    .ifPresent(checkpoint -> {
+                        checkpoint.fail(error.getMessage());
+                        checkpointRepository.save(checkpoint);
+                    }));
+        } catch (Exception e) {
+            log.warn("⚠️ Could not mark batch checkpoint {} as failed: {}", checkpointId, e.getMessage());
+        }
+    }
+
+    private static BatchRunResult await(Future<BatchRunResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch partition", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch partition crashed", e.getCause());
+        }
+    }
+}
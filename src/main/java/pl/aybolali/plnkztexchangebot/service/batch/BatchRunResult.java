@@ -0,0 +1,16 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+/**
+ * Итог запуска: processed — прочитано ключей, affected — изменено строк,
+ * unfinished — секции, оставшиеся незавершёнными (ошибка или их ведёт другая реплика)
+ */
+public record BatchRunResult(String job, int partitions, long processed, long affected, int unfinished) {
+
+    public static BatchRunResult skipped(String job) {
+        return new BatchRunResult(job, 0, 0, 0, 0);
+    }
+
+    public boolean completed() {
+        return unfinished == 0;
+    }
+}
@@ -0,0 +1,35 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+
+import java.util.List;
+
+/**
+ * Пакетная задача для {@link BatchJobRunner}: таблица обходится по возрастанию числового ключа (id)
+ * пачками по keyset-курсору — без OFFSET и без чтения всей таблицы в память.
+ */
+public interface ChunkedJob {
+
+    /**
+     * Имя задачи — ключ её checkpoints в batch_checkpoints
+     */
+    String name();
+
+    /**
+     * Границы ключей на момент запуска: делятся на секции; строки, появившиеся позже, в этот запуск не попадают
+     */
+    KeyRange keyRange();
+
+    /**
+     * Ключи следующей пачки: больше afterKey, не больше upToKey, по возрастанию, не больше limit.
+     * Вызывается вне транзакции.
+     */
+    List<Long> readKeys(long afterKey, long upToKey, int limit);
+
+    /**
+     * Обрабатывает пачку в её транзакции (вместе с сохранением checkpoint).
+     *
+     * @return число изменённых строк
+     */
+    int process(List<Long> keys);
+}
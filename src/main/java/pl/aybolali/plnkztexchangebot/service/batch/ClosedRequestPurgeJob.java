@@ -0,0 +1,90 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.archive.ArchiveService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 🗑️ Удаление закрытых заявок старше сроков хранения — пачками вместо одного DELETE на всю таблицу.
+ * Сроки считаются от текущего момента при каждом чтении и только растут, поэтому продолженный
+ * (в том числе после рестарта, MaintenanceJobs) запуск удаляет по новым срокам.
+ *
+ * С включённым архивом закрытые заявки не удаляются, а архивируются — новый запуск ничего не делает.
+ */
+@Component
+@ConditionalOnProperty(name = "cleanup.inactive-requests.enabled", havingValue = "true")
+public class ClosedRequestPurgeJob implements ChunkedJob {
+
+    public static final String NAME = "closed-request-purge";
+
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final ArchiveService archiveService;
+    private final int completedRetentionDays;
+    private final int completedRetentionMinutes;
+    private final int cancelledRetentionDays;
+    private final int cancelledRetentionMinutes;
+
+    public ClosedRequestPurgeJob(ExchangeRequestRepository exchangeRequestRepository,
+                                 ArchiveService archiveService,
+                                 @Value("${cleanup.completed-requests.days}") int completedRetentionDays,
+                                 @Value("${cleanup.completed-requests.minutes}") int completedRetentionMinutes,
+                                 @Value("${cleanup.cancelled-requests.days}") int cancelledRetentionDays,
+                                 @Value("${cleanup.cancelled-requests.minutes}") int cancelledRetentionMinutes) {
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.archiveService = archiveService;
+        this.completedRetentionDays = completedRetentionDays;
+        this.completedRetentionMinutes = completedRetentionMinutes;
+        this.cancelledRetentionDays = cancelledRetentionDays;
+        this.cancelledRetentionMinutes = cancelledRetentionMinutes;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public KeyRange keyRange() {
+        return archiveService.isEnabled() ? null : exchangeRequestRepository.findIdRange();
+    }
+
+    @Override
+    public List<Long> readKeys(long afterKey, long upToKey, int limit) {
+        return exchangeRequestRepository.findPurgeableIdsBetween(
+                afterKey, upToKey, completedCutoff(), cancelledCutoff(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * Условия повторяются в DELETE: заявка, которую за это время изменили, не удаляется
+     */
+    @Override
+    public int process(List<Long> keys) {
+        return exchangeRequestRepository.deletePurgeable(keys, completedCutoff(), cancelledCutoff());
+    }
+
+    public LocalDateTime completedCutoff() {
+        return cutoff(completedRetentionDays, completedRetentionMinutes);
+    }
+
+    public LocalDateTime cancelledCutoff() {
+        return cutoff(cancelledRetentionDays, cancelledRetentionMinutes);
+    }
+
+    private static LocalDateTime cutoff(int days, int minutes) {
+        LocalDateTime cutoff = LocalDateTime.now();
+        if (days > 0) {
+            cutoff = cutoff.minusDays(days);
+        }
+        if (minutes > 0) {
+            cutoff = cutoff.minusMinutes(minutes);
+        }
+        return cutoff;
+    }
+}
@@ -0,0 +1,92 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.service.UserStatsVerifier;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 🛠️ Обслуживающие пакетные задачи (бины {@link ChunkedJob}): расписание, ручной запуск и
+ * продолжение после рестарта. Очистку закрытых заявок ({@link ClosedRequestPurgeJob}) по расписанию
+ * запускает ExchangeRequestCleanupService.
+ *
+ * Запуск идёт в отдельном потоке — поток планировщика не ждёт многочасовой обход.
+ */
+@Service
+@Slf4j
+public class MaintenanceJobs {
+
+    private final BatchJobRunner batchJobRunner;
+    private final Map<String, ChunkedJob> jobs = new LinkedHashMap<>();
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "batch-launcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MaintenanceJobs(BatchJobRunner batchJobRunner, List<ChunkedJob> jobs) {
+        this.batchJobRunner = batchJobRunner;
+        jobs.forEach(job -> this.jobs.put(job.name(), job));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        launcher.shutdownNow();
+    }
+
+    /**
+     * Полная пересборка счётчиков пользователей (UserStatsVerifier пачками по users.id)
+     */
+    @Scheduled(cron = "${app.user-stats.verify-cron:0 20 5 * * *}")
+    public void scheduledStatsRebuild() {
+        start(UserStatsVerifier.JOB_NAME);
+    }
+
+    @Scheduled(cron = "${app.batch.reconcile-cron:0 40 5 * * *}")
+    public void scheduledReconciliation() {
+        start(RequestReconciliationJob.NAME);
+    }
+
+    /**
+     * Незавершённые запуски (рестарт посреди обхода) продолжаются с сохранённых checkpoints.
+     * Секции с исчерпанными попытками сами по себе запуск не возобновляют — задача начнётся заново по расписанию
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        jobs.keySet().stream()
+                .filter(batchJobRunner::hasResumable)
+                .forEach(this::start);
+    }
+
+    /**
+     * @return false — задачи с таким именем нет
+     */
+    public boolean start(String name) {
+        ChunkedJob job = jobs.get(name);
+        if (job == null) {
+            return false;
+        }
+        launcher.execute(() -> {
+            try {
+                batchJobRunner.run(job);
+            } catch (Exception e) {
+                log.error("❌ Batch {} failed: {}", name, e.getMessage(), e);
+            }
+        });
+        return true;
+    }
+
+    public Set<String> jobNames() {
+        return jobs.keySet();
+    }
+}
@@ -0,0 +1,89 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+import pl.aybolali.plnkztexchangebot.telegram.TelegramConstants;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 🔗 СВЕРКА ЗАЯВОК СО СДЕЛКАМИ (пачками по exchange_requests.id)
+ *
+ * - ACTIVE заявка с остатком меньше минимальной суммы обмена закрывается как COMPLETED —
+ *   так же, как её закрыла бы сделка (ExchangeRequestService.updateAfterPartialDeal), и уходит из книги
+ * - закрытой заявке без finished_at проставляется updated_at
+ * - COMPLETED заявка, у автора которой нет ни одной завершённой сделки (в deals и в архиве),
+ *   только логируется: deals не хранят ссылку на заявку, и исправить её автоматически нечем
+ */
+@Component
+@Slf4j
+public class RequestReconciliationJob implements ChunkedJob {
+
+    public static final String NAME = "request-reconciliation";
+
+    // Остаток, который updateAfterPartialDeal закрывает автоматически
+    private static final BigDecimal MIN_REMAINDER = TelegramConstants.MIN_EXCHANGE_AMOUNT;
+
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Counter orphaned = Metrics.counter("requests.reconcile.completed_without_deals");
+
+    public RequestReconciliationJob(ExchangeRequestRepository exchangeRequestRepository,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public KeyRange keyRange() {
+        return exchangeRequestRepository.findIdRange();
+    }
+
+    @Override
+    public List<Long> readKeys(long afterKey, long upToKey, int limit) {
+        return exchangeRequestRepository.findIdsBetween(afterKey, upToKey, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public int process(List<Long> keys) {
+        int changed = 0;
+
+        List<Long> filled = exchangeRequestRepository.findActiveBelow(keys, MIN_REMAINDER);
+        if (!filled.isEmpty()) {
+            int completed = exchangeRequestRepository.completeActiveBelow(
+                    filled, MIN_REMAINDER, LocalDateTime.now(), ExchangeRequestStatus.COMPLETED);
+            // Массовый UPDATE минует OfferBookEntityListener — убираем заявки из книги сами (после коммита)
+            filled.forEach(id -> eventPublisher.publishEvent(new OfferBookEvent.OfferChanged(id, null, null)));
+            log.warn("🔗 Completed {} ACTIVE requests with remainder below minimum: {}", completed, filled);
+            changed += completed;
+        }
+
+        changed += exchangeRequestRepository.fillMissingFinishedAt(keys);
+
+        List<Long> withoutDeals = exchangeRequestRepository.findCompletedWithoutDeals(
+                keys, DealStatus.COMPLETED, ArchiveKind.DEALS);
+        if (!withoutDeals.isEmpty()) {
+            orphaned.increment(withoutDeals.size());
+            log.warn("🔗 COMPLETED requests whose owners have no completed deals: {}", withoutDeals);
+        }
+        return changed;
+    }
+}
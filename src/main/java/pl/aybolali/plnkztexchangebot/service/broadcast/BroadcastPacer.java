@@ -0,0 +1,40 @@
+package pl.aybolali.plnkztexchangebot.service.broadcast;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ⏱️ Равномерный темп отправки: не чаще одного сообщения в interval.
+ * Без всплесков — Telegram считает глобальный лимит (~30 сообщений/сек) по скользящему окну.
+ */
+class BroadcastPacer {
+
+    private final long intervalNanos;
+    private long nextSendAt;
+
+    BroadcastPacer(int messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("messagesPerSecond must be positive");
+        }
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / messagesPerSecond;
+        this.nextSendAt = System.nanoTime();
+    }
+
+    /**
+     * Блокирует до следующего разрешённого слота
+     */
+    void acquire() throws InterruptedException {
+        long now = System.nanoTime();
+        long wait = nextSendAt - now;
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        nextSendAt = Math.max(now, nextSendAt) + intervalNanos;
+    }
+
+    /**
+     * 429 от Telegram: сдвигаем следующий слот на retry_after
+     */
+    void pause(long seconds) {
+        nextSendAt = Math.max(nextSendAt, System.nanoTime()) + TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
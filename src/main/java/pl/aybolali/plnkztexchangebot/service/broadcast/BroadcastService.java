@@ -0,0 +1,242 @@
+package pl.aybolali.plnkztexchangebot.service.broadcast;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import pl.aybolali.plnkztexchangebot.dto.BroadcastRecipient;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastJob;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastStatus;
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+import pl.aybolali.plnkztexchangebot.repository.BroadcastJobRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 📣 РАССЫЛКИ: сообщение всем активным пользователям без flood-лимитов и без загрузки всех User
+ *
+ * - Получатели читаются пачками по keyset-курсору (users.id > last_user_id), только id + Telegram ID
+ * - Отправка в одном фоновом потоке в темпе app.broadcast.messages-per-second (ниже глобального лимита Telegram)
+ * - После каждой пачки курсор и счётчики delivered/failed/blocked сохраняются — после рестарта
+ *   рассылка продолжается с места остановки (повторно может уйти не больше одной пачки)
+ * - 429 → пауза на retry_after и повтор; 403 → пользователь заблокировал бота (blocked)
+ * - Задачи выполняются строго по очереди; @Version не даёт двум репликам вести одну рассылку
+ */
+@Service
+@Slf4j
+public class BroadcastService {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final List<BroadcastStatus> UNFINISHED = List.of(BroadcastStatus.RUNNING, BroadcastStatus.PENDING);
+
+    private final PLNKZTExchangeBot bot;
+    private final BroadcastJobRepository jobRepository;
+    private final UserRepository userRepository;
+    private final int messagesPerSecond;
+    private final int batchSize;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "broadcast-runner");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+
+    public BroadcastService(
+            @Lazy PLNKZTExchangeBot bot,
+            BroadcastJobRepository jobRepository,
+            UserRepository userRepository,
+            @Value("${app.broadcast.messages-per-second:25}") int messagesPerSecond,
+            @Value("${app.broadcast.batch-size:100}") int batchSize) {
+
+        this.bot = bot;
+        this.jobRepository = jobRepository;
+        this.userRepository = userRepository;
+        this.messagesPerSecond = messagesPerSecond;
+        this.batchSize = batchSize;
+    }
+
+    public BroadcastJob createBroadcast(String text) {
+        BroadcastJob job = jobRepository.save(BroadcastJob.builder()
+                .messageText(text)
+                .build());
+
+        log.info("📣 Broadcast #{} created", job.getId());
+        wake();
+        return job;
+    }
+
+    public Optional<BroadcastJob> findBroadcast(Long id) {
+        return jobRepository.findById(id);
+    }
+
+    /**
+     * Отмена: фоновый поток увидит статус перед следующей пачкой
+     */
+    public BroadcastJob cancelBroadcast(Long id) {
+        BroadcastJob job = jobRepository.findById(id)
+                .orElseThrow(() -> new BusinessException("Рассылка не найдена"));
+
+        if (job.getStatus() == BroadcastStatus.COMPLETED || job.getStatus() == BroadcastStatus.CANCELLED) {
+            return job;
+        }
+
+        job.setStatus(BroadcastStatus.CANCELLED);
+        job.setFinishedAt(LocalDateTime.now());
+        return jobRepository.save(job);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinished() {
+        wake();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    private void wake() {
+        wakeRequested.set(true);
+        if (draining.compareAndSet(false, true)) {
+            runner.submit(this::drainSafely);
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            while (wakeRequested.getAndSet(false)) {
+                drain();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("❌ Broadcast runner failed: {}", e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+
+        // Задача создана между последней проверкой и сбросом флага
+        if (wakeRequested.get()) {
+            wake();
+        }
+    }
+
+    /**
+     * Выполняет все незавершённые рассылки по очереди в текущем потоке
+     */
+    void drain() throws InterruptedException {
+        List<BroadcastJob> jobs;
+        while (!(jobs = jobRepository.findByStatusInOrderByIdAsc(UNFINISHED)).isEmpty()) {
+            if (!run(jobs.get(0))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false, если задачу забрала другая реплика — этому потоку пора остановиться
+     */
+    private boolean run(BroadcastJob job) throws InterruptedException {
+        BroadcastPacer pacer = new BroadcastPacer(messagesPerSecond);
+
+        try {
+            if (job.getStatus() == BroadcastStatus.PENDING) {
+                job.setStatus(BroadcastStatus.RUNNING);
+                job.setStartedAt(LocalDateTime.now());
+                job = jobRepository.save(job);
+                log.info("📣 Broadcast #{} started", job.getId());
+            } else {
+                log.info("📣 Broadcast #{} resumed after user {}", job.getId(), job.getLastUserId());
+            }
+
+            while (true) {
+                List<BroadcastRecipient> recipients = userRepository.findActiveRecipientsAfter(
+                        job.getLastUserId(), PageRequest.of(0, batchSize));
+
+                if (recipients.isEmpty()) {
+                    job.setStatus(BroadcastStatus.COMPLETED);
+                    job.setFinishedAt(LocalDateTime.now());
+                    jobRepository.save(job);
+                    log.info("✅ Broadcast #{} completed: delivered={}, blocked={}, failed={}",
+                            job.getId(), job.getDelivered(), job.getBlocked(), job.getFailed());
+                    return true;
+                }
+
+                for (BroadcastRecipient recipient : recipients) {
+                    deliver(job, recipient, pacer);
+                    job.setLastUserId(recipient.userId());
+                }
+
+                if (jobRepository.findStatusById(job.getId()).orElse(BroadcastStatus.CANCELLED)
+                        == BroadcastStatus.CANCELLED) {
+                    log.info("⏹️ Broadcast #{} cancelled after user {}", job.getId(), job.getLastUserId());
+                    return true;
+                }
+
+                job = jobRepository.save(job);
+                log.debug("Broadcast #{} checkpoint: user {}", job.getId(), job.getLastUserId());
+            }
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Строку изменил кто-то ещё: отмена между проверкой и checkpoint'ом или другая реплика
+            if (jobRepository.findStatusById(job.getId()).orElse(BroadcastStatus.CANCELLED) == BroadcastStatus.CANCELLED) {
+                log.info("⏹️ Broadcast #{} cancelled", job.getId());
+                return true;
+            }
+            log.warn("⚠️ Broadcast #{} is handled by another instance, stopping", job.getId());
+            return false;
+        }
+    }
+
+    private void deliver(BroadcastJob job, BroadcastRecipient recipient, BroadcastPacer pacer)
+            throws InterruptedException {
+
+        SendMessage message = new SendMessage();
+        message.setChatId(recipient.telegramUserId().toString());
+        message.setText(job.getMessageText());
+        message.setParseMode("HTML");
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            pacer.acquire();
+            try {
+                bot.execute(message);
+                job.setDelivered(job.getDelivered() + 1);
+                return;
+            } catch (TelegramApiRequestException e) {
+                Integer code = e.getErrorCode();
+                if (code != null && code == 403) {
+                    job.setBlocked(job.getBlocked() + 1);
+                    return;
+                }
+                if (code != null && code == 429 && e.getParameters() != null
+                        && e.getParameters().getRetryAfter() != null && attempt < MAX_ATTEMPTS) {
+                    log.warn("⏳ Broadcast #{} throttled, retry after {}s", job.getId(), e.getParameters().getRetryAfter());
+                    pacer.pause(e.getParameters().getRetryAfter());
+                    continue;
+                }
+                log.warn("Broadcast #{} failed for user {}: {}", job.getId(), recipient.userId(), e.getApiResponse());
+                break;
+            } catch (Exception e) {
+                log.warn("Broadcast #{} failed for user {}: {}", job.getId(), recipient.userId(), e.getMessage());
+                break;
+            }
+        }
+        job.setFailed(job.getFailed() + 1);
+    }
+}
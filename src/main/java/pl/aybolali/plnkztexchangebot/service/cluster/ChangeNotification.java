@@ -0,0 +1,68 @@
+package pl.aybolali.plnkztexchangebot.service.cluster;
+
+/**
+ * Компактное событие изменения для шины инвалидации (payload Postgres NOTIFY, лимит 8000 байт).
+ *
+ * Формат: {@code v1;<node>;<seq>;<type>;<id>;<version>[;<value>]}
+ * - REQUEST / USER: id сущности, version — метка изменения (updatedAt в мс или время события)
+ * - RATE: id = 0, version — время получения курса, value — курс PLN→KZT
+ * - HEARTBEAT: seq — последний выданный узлом номер (без инкремента)
+ */
+public record ChangeNotification(
+        String nodeId,
+        long sequence,
+        Type type,
+        long entityId,
+        long version,
+        String value
+) {
+
+    private static final String PREFIX = "v1";
+
+    public enum Type {
+        REQUEST('R'), USER('U'), RATE('X'), HEARTBEAT('H');
+
+        private final char code;
+
+        Type(char code) {
+            this.code = code;
+        }
+
+        static Type of(char code) {
+            for (Type type : values()) {
+                if (type.code == code) return type;
+            }
+            throw new IllegalArgumentException("Unknown change type: " + code);
+        }
+    }
+
+    public String encode() {
+        StringBuilder payload = new StringBuilder(48)
+                .append(PREFIX).append(';')
+                .append(nodeId).append(';')
+                .append(sequence).append(';')
+                .append(type.code).append(';')
+                .append(entityId).append(';')
+                .append(version);
+        if (value != null) {
+            payload.append(';').append(value);
+        }
+        return payload.toString();
+    }
+
+    public static ChangeNotification parse(String payload) {
+        String[] parts = payload.split(";", -1);
+        if (parts.length < 6 || !PREFIX.equals(parts[0]) || parts[3].length() != 1) {
+            throw new IllegalArgumentException("Invalid change notification: " + payload);
+        }
+
+        return new ChangeNotification(
+                parts[1],
+                Long.parseLong(parts[2]),
+                Type.of(parts[3].charAt(0)),
+                Long.parseLong(parts[4]),
+                Long.parseLong(parts[5]),
+                parts.length > 6 ? parts[6] : null
+        );
+    }
+}
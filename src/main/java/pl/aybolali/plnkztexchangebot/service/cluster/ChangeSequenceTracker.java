@@ -0,0 +1,111 @@
+package pl.aybolali.plnkztexchangebot.service.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Отслеживает номера событий каждого узла и находит пропуски.
+ *
+ * Номера выдаются внутри транзакции, поэтому параллельные транзакции одного узла
+ * могут закоммититься не по порядку — пропуск считается потерей только если он
+ * не закрылся за grace-период. Heartbeat сообщает последний выданный номер,
+ * так обнаруживаются и потери в самом конце потока.
+ *
+ * Сами события применяются всегда (перечитывание из БД идемпотентно), трекер только решает,
+ * когда локальным кэшам нужна полная пересинхронизация.
+ */
+public class ChangeSequenceTracker {
+
+    private static final long NO_GAP = -1;
+
+    private final long graceMillis;
+    private final long forgetAfterMillis;
+    private final Map<String, NodeState> nodes = new HashMap<>();
+
+    public ChangeSequenceTracker(long graceMillis, long forgetAfterMillis) {
+        this.graceMillis = graceMillis;
+        this.forgetAfterMillis = forgetAfterMillis;
+    }
+
+    public synchronized void onEvent(String nodeId, long sequence, long now) {
+        NodeState node = nodes.get(nodeId);
+        if (node == null) {
+            // Первое событие узла — точка отсчёта (всё, что было раньше, покрыто стартовой синхронизацией)
+            nodes.put(nodeId, new NodeState(sequence, now));
+            return;
+        }
+
+        node.lastSeen = now;
+        node.highestKnown = Math.max(node.highestKnown, sequence);
+        if (sequence > node.contiguous) {
+            node.ahead.add(sequence);
+            node.advance();
+        }
+        node.updateGap(now);
+    }
+
+    public synchronized void onHeartbeat(String nodeId, long sequence, long now) {
+        NodeState node = nodes.get(nodeId);
+        if (node == null) {
+            nodes.put(nodeId, new NodeState(sequence, now));
+            return;
+        }
+
+        node.lastSeen = now;
+        node.highestKnown = Math.max(node.highestKnown, sequence);
+        node.updateGap(now);
+    }
+
+    /**
+     * true — есть пропуск старше grace-периода, нужна полная пересинхронизация.
+     */
+    public synchronized boolean hasExpiredGap(long now) {
+        nodes.values().removeIf(node -> now - node.lastSeen > forgetAfterMillis);
+        return nodes.values().stream()
+                .anyMatch(node -> node.gapSince != NO_GAP && now - node.gapSince >= graceMillis);
+    }
+
+    /**
+     * После полной пересинхронизации всё известное считается применённым.
+     */
+    public synchronized void markResynced() {
+        nodes.values().forEach(node -> {
+            node.contiguous = node.highestKnown;
+            node.ahead.clear();
+            node.gapSince = NO_GAP;
+        });
+    }
+
+    public synchronized void clear() {
+        nodes.clear();
+    }
+
+    private static final class NodeState {
+        private long contiguous;
+        private long highestKnown;
+        private long lastSeen;
+        private long gapSince = NO_GAP;
+        private final TreeSet<Long> ahead = new TreeSet<>();
+
+        private NodeState(long sequence, long now) {
+            this.contiguous = sequence;
+            this.highestKnown = sequence;
+            this.lastSeen = now;
+        }
+
+        private void advance() {
+            while (!ahead.isEmpty() && ahead.first() <= contiguous + 1) {
+                contiguous = Math.max(contiguous, ahead.pollFirst());
+            }
+        }
+
+        private void updateGap(long now) {
+            if (contiguous >= highestKnown) {
+                gapSince = NO_GAP;
+            } else if (gapSince == NO_GAP) {
+                gapSince = now;
+            }
+        }
+    }
+}
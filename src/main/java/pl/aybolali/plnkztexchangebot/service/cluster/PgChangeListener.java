@@ -0,0 +1,201 @@
+package pl.aybolali.plnkztexchangebot.service.cluster;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.mapper.UserMapper;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * 📡 CHANGE LISTENER: Приём изменений от других реплик (Postgres LISTEN)
+ *
+ * Отдельный поток держит выделенное соединение (вне пула транзакций) и применяет уведомления
+ * к локальным кэшам: книге заявок и последнему известному курсу.
+ * Уведомление несёт только тип и id — актуальное состояние перечитывается из БД,
+ * поэтому повтор или перестановка сообщений безопасны.
+ *
+ * Полная пересинхронизация книги:
+ * - после каждого (пере)подключения — пока соединения не было, уведомления терялись
+ * - если пропуск в номерах узла не закрылся за grace-период
+ */
+@Service
+@ConditionalOnProperty(name = "app.cluster.invalidation.enabled", havingValue = "true")
+@Slf4j
+public class PgChangeListener {
+
+    private static final long RECONNECT_DELAY_MS = 5_000;
+    private static final long FORGET_NODE_AFTER_MS = 10 * 60_000;
+
+    private final DataSource dataSource;
+    private final PgChangePublisher publisher;
+    private final ActiveOfferBook offerBook;
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final UserRepository userRepository;
+    private final ExchangeRateService exchangeRateService;
+    private final String channel;
+    private final int pollTimeoutMs;
+    private final ChangeSequenceTracker tracker;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public PgChangeListener(DataSource dataSource,
+                            PgChangePublisher publisher,
+                            ActiveOfferBook offerBook,
+                            ExchangeRequestRepository exchangeRequestRepository,
+                            UserRepository userRepository,
+                            ExchangeRateService exchangeRateService,
+                            @Value("${app.cluster.invalidation.channel:exchange_changes}") String channel,
+                            @Value("${app.cluster.invalidation.poll-timeout-ms:1000}") int pollTimeoutMs,
+                            @Value("${app.cluster.invalidation.gap-grace-ms:15000}") long gapGraceMs) {
+        this.dataSource = dataSource;
+        this.publisher = publisher;
+        this.offerBook = offerBook;
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.userRepository = userRepository;
+        this.exchangeRateService = exchangeRateService;
+        this.channel = channel;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.tracker = new ChangeSequenceTracker(gapGraceMs, FORGET_NODE_AFTER_MS);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalStateException("Invalid LISTEN channel name: " + channel);
+        }
+
+        running = true;
+        thread = new Thread(this::listenLoop, "pg-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("📡 Слушаем канал {} (узел {})", channel, publisher.getNodeId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void listenLoop() {
+        boolean firstConnect = true;
+
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // При первом подключении книгу уже собрал старт приложения
+                if (!firstConnect) {
+                    resync("переподключение");
+                }
+                firstConnect = false;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+
+                    if (tracker.hasExpiredGap(System.currentTimeMillis())) {
+                        resync("пропуск в номерах уведомлений");
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("⚠️ Соединение LISTEN потеряно: {}. Повтор через {} мс", e.getMessage(), RECONNECT_DELAY_MS);
+                tracker.clear();
+                sleepBeforeReconnect();
+            }
+        }
+    }
+
+    void handle(String payload) {
+        ChangeNotification notification;
+        try {
+            notification = ChangeNotification.parse(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️ Пропускаем неизвестное уведомление: {}", payload);
+            return;
+        }
+
+        if (notification.nodeId().equals(publisher.getNodeId())) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (notification.type() == ChangeNotification.Type.HEARTBEAT) {
+            tracker.onHeartbeat(notification.nodeId(), notification.sequence(), now);
+            return;
+        }
+
+        tracker.onEvent(notification.nodeId(), notification.sequence(), now);
+        try {
+            apply(notification);
+        } catch (Exception e) {
+            log.error("❌ Не удалось применить уведомление {}: {}", payload, e.getMessage());
+        }
+    }
+
+    private void apply(ChangeNotification notification) {
+        switch (notification.type()) {
+            case REQUEST -> {
+                Optional<ExchangeRequest> request = exchangeRequestRepository.findByIdWithUser(notification.entityId());
+                if (request.isPresent() && request.get().isActive()) {
+                    offerBook.put(ActiveOffer.of(request.get()), UserMapper.toPublicDTO(request.get().getUser()));
+                } else {
+                    offerBook.remove(notification.entityId());
+                }
+            }
+            case USER -> userRepository.findById(notification.entityId())
+                    .ifPresent(user -> offerBook.updateUser(UserMapper.toPublicDTO(user)));
+            case RATE -> exchangeRateService.restoreLastGoodRate(new ExchangeRateService.LastGoodRate(
+                    new BigDecimal(notification.value()), Instant.ofEpochMilli(notification.version())));
+            default -> {
+            }
+        }
+    }
+
+    private void resync(String reason) {
+        log.warn("🔄 Полная пересинхронизация книги заявок: {}", reason);
+        offerBook.rebuild();
+        tracker.markResynced();
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package pl.aybolali.plnkztexchangebot.service.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 📣 CHANGE PUBLISHER: Рассылка изменений другим репликам через Postgres NOTIFY
+ *
+ * Слушает те же {@link OfferBookEvent}, что и локальная книга заявок, и так же после коммита:
+ * откаченная транзакция не занимает номер и не рассылает изменения, которых нет в базе.
+ * Номер (seq) выдаётся в порядке отправки, а не flush, поэтому параллельные транзакции
+ * не приходят получателям «задом наперёд».
+ *
+ * pg_notify уходит в своей транзакции (REQUIRES_NEW): исходная уже закоммичена, а ошибка
+ * NOTIFY не должна обрывать чужую транзакцию. Неотправленное уведомление оставляет пропуск
+ * номера — по нему получатели понимают, что что-то потеряли, и делают полную пересинхронизацию.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cluster.invalidation.enabled", havingValue = "true")
+@Slf4j
+public class PgChangePublisher {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+    private final ExchangeRateService exchangeRateService;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ExchangeRateService.LastGoodRate publishedRate;
+
+    public PgChangePublisher(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ExchangeRateService exchangeRateService,
+                             @Value("${app.cluster.invalidation.channel:exchange_changes}") String channel) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.exchangeRateService = exchangeRateService;
+        this.channel = channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferBookEvent(OfferBookEvent event) {
+        if (event instanceof OfferBookEvent.OfferChanged changed) {
+            publish(ChangeNotification.Type.REQUEST, changed.requestId(), versionOf(changed.offer()), null);
+        } else if (event instanceof OfferBookEvent.UserChanged changed) {
+            publish(ChangeNotification.Type.USER, changed.user().id(), System.currentTimeMillis(), null);
+        }
+    }
+
+    /**
+     * Курс живёт только в памяти, поэтому реплика, получившая его, делится им с остальными.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.invalidation.heartbeat-interval-ms:5000}")
+    public void publishRateAndHeartbeat() {
+        exchangeRateService.getLastGoodRate()
+                .filter(rate -> !rate.equals(publishedRate))
+                .ifPresent(rate -> {
+                    publish(ChangeNotification.Type.RATE, 0L, rate.fetchedAt().toEpochMilli(),
+                            rate.plnToKzt().toPlainString());
+                    publishedRate = rate;
+                });
+
+        // Heartbeat не занимает номер — сообщает последний выданный
+        send(new ChangeNotification(nodeId, sequence.get(), ChangeNotification.Type.HEARTBEAT, 0L, 0L, null));
+    }
+
+    private void publish(ChangeNotification.Type type, Long entityId, long version, String value) {
+        if (entityId == null) {
+            return;
+        }
+        send(new ChangeNotification(nodeId, sequence.incrementAndGet(), type, entityId, version, value));
+    }
+
+    private void send(ChangeNotification notification) {
+        try {
+            transactions.executeWithoutResult(status ->
+                    jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, notification.encode()));
+        } catch (RuntimeException e) {
+            // Исходная транзакция уже закоммичена — получатели увидят пропуск номера и пересинхронизируются
+            log.warn("⚠️ Не удалось отправить уведомление {}: {}", notification.type(), e.getMessage());
+        }
+    }
+
+    private static long versionOf(ActiveOffer offer) {
+        if (offer == null || offer.updatedAt() == null) {
+            return System.currentTimeMillis();
+        }
+        return offer.updatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
@@ -0,0 +1,315 @@
+package pl.aybolali.plnkztexchangebot.service.expiry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookChangeListener;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+import pl.aybolali.plnkztexchangebot.service.reservation.TimingWheel;
+import pl.aybolali.plnkztexchangebot.telegram.TelegramMessageFormatter;
+import pl.aybolali.plnkztexchangebot.telegram.spool.OutboundSpool;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ⏳ ИСТЕЧЕНИЕ ЗАЯВОК: ACTIVE заявка отменяется ровно через cleanup.inactive-requests.days/minutes
+ * после создания, а не при еженедельном обходе таблицы
+ *
+ * - Таймеры в иерархическом {@link TimingWheel}: ставятся, когда заявка попадает в {@link ActiveOfferBook}
+ *   (создание, загрузка книги из БД или журнала при старте), снимаются, когда заявка из неё уходит
+ * - Сработавшие за тик таймеры обрабатываются пачками: один UPDATE … WHERE id IN (…) AND status = 'ACTIVE'
+ *   на пачку и один SELECT затронутых строк вместе с авторами
+ * - Автор получает предупреждение за app.request-expiry.warn-before-minutes и сообщение об отмене;
+ *   сообщения уходят через {@link OutboundSpool}, поток планировщика Telegram API не ждёт
+ * - Таймеры есть на каждой реплике; условия в UPDATE (статус, expiry_warned_at) гарантируют,
+ *   что заявку отменит и автору напишет только одна из них
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(
+        name = "cleanup.inactive-requests.enabled",
+        havingValue = "true",
+        matchIfMissing = false
+)
+public class RequestExpiryScheduler implements OfferBookChangeListener {
+
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final ActiveOfferBook offerBook;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TelegramMessageFormatter messageFormatter;
+    private final OutboundSpool outboundSpool;
+    private final TransactionTemplate transactions;
+    private final Duration lifetime;
+    private final Duration warnBefore;
+    private final int batchSize;
+    private final TimingWheel<Expiry> wheel;
+
+    private final Map<Long, Timers> timers = new ConcurrentHashMap<>();
+
+    private final Counter expiredCounter = Metrics.counter("requests.expiry.expired");
+    private final Counter warnedCounter = Metrics.counter("requests.expiry.warned");
+
+    public RequestExpiryScheduler(
+            ExchangeRequestRepository exchangeRequestRepository,
+            ActiveOfferBook offerBook,
+            ApplicationEventPublisher eventPublisher,
+            TelegramMessageFormatter messageFormatter,
+            OutboundSpool outboundSpool,
+            PlatformTransactionManager transactionManager,
+            @Value("${cleanup.inactive-requests.days}") int inactiveDays,
+            @Value("${cleanup.inactive-requests.minutes}") int inactiveMinutes,
+            @Value("${app.request-expiry.warn-before-minutes:720}") long warnBeforeMinutes,
+            @Value("${app.request-expiry.tick-ms:1000}") long tickMillis,
+            @Value("${app.request-expiry.wheel-size:512}") int wheelSize,
+            @Value("${app.request-expiry.batch-size:200}") int batchSize) {
+
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.offerBook = offerBook;
+        this.eventPublisher = eventPublisher;
+        this.messageFormatter = messageFormatter;
+        this.outboundSpool = outboundSpool;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.lifetime = Duration.ofDays(Math.max(0, inactiveDays)).plusMinutes(Math.max(0, inactiveMinutes));
+        this.warnBefore = Duration.ofMinutes(Math.max(0, warnBeforeMinutes));
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        Metrics.gauge("requests.expiry.scheduled", timers, Map::size);
+
+        log.info("⏳ RequestExpiryScheduler ENABLED: ACTIVE requests expire after {}, warning {} before",
+                lifetime, warnBefore);
+    }
+
+    @PostConstruct
+    public void register() {
+        offerBook.addChangeListener(this);
+    }
+
+    /**
+     * Книга могла быть загружена из журнала без полной перестройки — расставляем таймеры по ней
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        resync();
+    }
+
+    @Override
+    public void offerPut(ActiveOffer offer, UserPublicDTO user) {
+        schedule(offer.id(), offer.createdAt());
+    }
+
+    @Override
+    public void offerRemoved(Long requestId) {
+        Timers removed = timers.remove(requestId);
+        if (removed != null) {
+            removed.cancel();
+        }
+    }
+
+    @Override
+    public void userUpdated(UserPublicDTO user) {
+        // Срок заявки от автора не зависит
+    }
+
+    @Override
+    public void bookRebuilt() {
+        resync();
+    }
+
+    /**
+     * Таймеры по всей книге. Под read lock книги: offerPut/offerRemoved в это время ждут,
+     * поэтому снятая заявка не получит таймер заново.
+     */
+    void resync() {
+        int scheduled = offerBook.readSnapshot(entries -> {
+            Map<Long, LocalDateTime> active = new HashMap<>();
+            entries.forEach(entry -> active.put(entry.offer().id(), entry.offer().createdAt()));
+
+            timers.keySet().stream()
+                    .filter(requestId -> !active.containsKey(requestId))
+                    .toList()
+                    .forEach(this::offerRemoved);
+            active.forEach(this::schedule);
+            return active.size();
+        });
+        log.info("⏳ Expiry timers resynced: {} active requests", scheduled);
+    }
+
+    @Scheduled(fixedDelayString = "${app.request-expiry.tick-ms:1000}")
+    public void tick() {
+        List<Expiry> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return;
+        }
+
+        // Сначала отмена: если предупреждение и срок наступили вместе (после простоя), пишем только об отмене
+        List<Long> expiring = new ArrayList<>();
+        List<Long> warning = new ArrayList<>();
+        due.forEach(expiry -> (expiry.warning() ? warning : expiring).add(expiry.requestId()));
+
+        for (List<Long> batch : batches(expiring)) {
+            try {
+                expire(batch);
+            } catch (Exception e) {
+                log.error("❌ Request expiry failed for {} requests: {}", batch.size(), e.getMessage(), e);
+                retryLater(batch, false);
+            }
+        }
+        for (List<Long> batch : batches(warning)) {
+            try {
+                warn(batch);
+            } catch (Exception e) {
+                log.error("❌ Expiry warning failed for {} requests: {}", batch.size(), e.getMessage(), e);
+                retryLater(batch, true);
+            }
+        }
+    }
+
+    private void expire(List<Long> requestIds) {
+        LocalDateTime now = now();
+        List<ExchangeRequest> expired = transactions.execute(status -> {
+            int updated = exchangeRequestRepository.expireActive(
+                    requestIds, now.minus(lifetime), now, ExchangeRequestStatus.CANCELLED);
+            if (updated == 0) {
+                return List.<ExchangeRequest>of();
+            }
+            List<ExchangeRequest> rows = exchangeRequestRepository.findStampedWithUser(
+                    requestIds, ExchangeRequestStatus.CANCELLED, now);
+            // Массовый UPDATE минует OfferBookEntityListener — убираем заявки из книги сами (после коммита)
+            rows.forEach(request -> eventPublisher.publishEvent(
+                    new OfferBookEvent.OfferChanged(request.getId(), null, null)));
+            return rows;
+        });
+        if (expired == null || expired.isEmpty()) {
+            return;
+        }
+
+        expiredCounter.increment(expired.size());
+        log.info("⌛ Expired {} ACTIVE requests", expired.size());
+        for (ExchangeRequest request : expired) {
+            notifyOwner(request, messageFormatter.formatRequestExpired(request, lifetime));
+        }
+    }
+
+    private void warn(List<Long> requestIds) {
+        LocalDateTime now = now();
+        List<ExchangeRequest> warned = transactions.execute(status ->
+                exchangeRequestRepository.markExpiryWarned(requestIds, now) == 0
+                        ? List.<ExchangeRequest>of()
+                        : exchangeRequestRepository.findExpiryWarnedWithUser(requestIds, now));
+        if (warned == null || warned.isEmpty()) {
+            return;
+        }
+
+        warnedCounter.increment(warned.size());
+        log.info("⏳ Warned owners of {} requests about expiry", warned.size());
+        for (ExchangeRequest request : warned) {
+            Duration remaining = Duration.between(now, request.getCreatedAt().plus(lifetime));
+            notifyOwner(request, messageFormatter.formatRequestExpiryWarning(request, remaining));
+        }
+    }
+
+    private void schedule(Long requestId, LocalDateTime createdAt) {
+        if (createdAt == null) {
+            return;
+        }
+        Timers existing = timers.get(requestId);
+        if (existing != null && existing.createdAt().equals(createdAt)) {
+            // Изменение суммы / примечания — срок прежний
+            return;
+        }
+
+        long expiresAt = toMillis(createdAt.plus(lifetime));
+        TimingWheel.Timeout<Expiry> warningTimeout = warnBefore.isZero() || warnBefore.compareTo(lifetime) >= 0
+                ? null
+                : wheel.schedule(new Expiry(requestId, true), expiresAt - warnBefore.toMillis());
+        TimingWheel.Timeout<Expiry> expiryTimeout = wheel.schedule(new Expiry(requestId, false), expiresAt);
+
+        Timers replaced = timers.put(requestId, new Timers(createdAt, warningTimeout, expiryTimeout));
+        if (replaced != null) {
+            replaced.cancel();
+        }
+    }
+
+    /**
+     * БД недоступна — повтор через минуту; UPDATE с условиями делает повтор безопасным
+     */
+    private void retryLater(List<Long> requestIds, boolean warning) {
+        long retryAt = System.currentTimeMillis() + RETRY_DELAY_MS;
+        requestIds.forEach(requestId -> wheel.schedule(new Expiry(requestId, warning), retryAt));
+    }
+
+    private void notifyOwner(ExchangeRequest request, String text) {
+        Long chatId = request.getUser().getTelegramUserId();
+        if (chatId == null) {
+            return;
+        }
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setParseMode("HTML");
+        if (!outboundSpool.submit(message)) {
+            log.error("Error spooling expiry notice for request {}", request.getId());
+        }
+    }
+
+    private List<List<Long>> batches(List<Long> requestIds) {
+        List<List<Long>> batches = new ArrayList<>();
+        for (int from = 0; from < requestIds.size(); from += batchSize) {
+            batches.add(requestIds.subList(from, Math.min(from + batchSize, requestIds.size())));
+        }
+        return batches;
+    }
+
+    /**
+     * Метка пачки: обрезана до микросекунд, чтобы совпасть со значением, сохранённым в БД
+     */
+    private static LocalDateTime now() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    record Expiry(Long requestId, boolean warning) {
+    }
+
+    private record Timers(LocalDateTime createdAt,
+                          TimingWheel.Timeout<Expiry> warning,
+                          TimingWheel.Timeout<Expiry> expiry) {
+
+        void cancel() {
+            if (warning != null) {
+                warning.cancel();
+            }
+            expiry.cancel();
+        }
+    }
+}
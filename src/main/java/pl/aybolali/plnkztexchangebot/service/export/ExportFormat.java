@@ -0,0 +1,40 @@
+package pl.aybolali.plnkztexchangebot.service.export;
+
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public enum ExportFormat {
+    CSV("text/csv; charset=UTF-8", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public RowWriter open(OutputStream out) throws IOException {
+        return this == CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+    }
+
+    public static ExportFormat parse(String value) {
+        for (ExportFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new BusinessException("Формат экспорта: csv или ndjson");
+    }
+}
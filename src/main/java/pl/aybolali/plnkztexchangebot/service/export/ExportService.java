@@ -0,0 +1,206 @@
+package pl.aybolali.plnkztexchangebot.service.export;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.service.archive.ArchiveReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * 📤 ВЫГРУЗКИ: сделки и заявки потоком в CSV / NDJSON
+ *
+ * - Курсор на стороне сервера: forward-only запрос с fetchSize в read-only транзакции
+ *   (PostgreSQL отдаёт строки порциями только при выключенном autocommit)
+ * - Каждая строка сразу пишется в поток ответа; в памяти — одна порция курсора и буфер writer'а,
+ *   независимо от числа строк
+ * - Без OFFSET: один проход по индексу в порядке выдачи
+ * - Архивные строки (холодный слой, они старше горячих) идут первыми в тех же колонках
+ */
+@Service
+@Slf4j
+public class ExportService {
+
+    private static final String USER_DEALS_SQL = """
+            SELECT d.id, d.finished_at, d.status,
+                   CASE WHEN d.requester_id = ? THEN 'REQUESTER' ELSE 'PROVIDER' END AS role,
+                   cp.telegram_username AS counterparty,
+                   d.amount, d.currency, d.exchange_rate, d.transfer_method
+            FROM deals d
+            JOIN users cp ON cp.id = CASE WHEN d.requester_id = ? THEN d.provider_id ELSE d.requester_id END
+            WHERE d.requester_id = ? OR d.provider_id = ?
+            ORDER BY d.id
+            """;
+
+    private static final String DEALS_SQL = """
+            SELECT d.id, d.created_at, d.finished_at, d.status,
+                   d.requester_id, r.telegram_username AS requester,
+                   d.provider_id, p.telegram_username AS provider,
+                   d.amount, d.currency, d.exchange_rate, d.transfer_method
+            FROM deals d
+            JOIN users r ON r.id = d.requester_id
+            JOIN users p ON p.id = d.provider_id
+            WHERE d.finished_at >= ? AND d.finished_at < ? AND d.created_at < ?
+            ORDER BY d.finished_at, d.id
+            """;
+
+    private static final String REQUESTS_SQL = """
+            SELECT er.id, er.created_at, er.finished_at, er.status,
+                   er.user_id, u.telegram_username AS username,
+                   er.currency_need, er.amount_need, er.transfer_method, er.notes
+            FROM exchange_requests er
+            JOIN users u ON u.id = er.user_id
+            WHERE er.created_at >= ? AND er.created_at < ?
+            ORDER BY er.created_at, er.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ArchiveReader archiveReader;
+    private final TransactionTemplate readOnly;
+    private final int fetchSize;
+
+    private final Counter exportedRows = Metrics.counter("exports.rows");
+
+    public ExportService(JdbcTemplate jdbcTemplate,
+                         ArchiveReader archiveReader,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${app.exports.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveReader = archiveReader;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Все сделки пользователя (в обеих ролях) с ником второй стороны
+     *
+     * @return число выгруженных строк
+     */
+    public long exportUserDeals(Long userId, ExportFormat format, OutputStream out) {
+        return stream(USER_DEALS_SQL, new Object[]{userId, userId, userId, userId}, format, out,
+                rows -> archiveReader.forEachUserDeal(userId, deal -> {
+                    boolean requester = userId.equals(deal.getRequester().getId());
+                    User counterparty = requester ? deal.getProvider() : deal.getRequester();
+                    rows.accept(new Object[]{
+                            deal.getId(), deal.getFinishedAt(), name(deal.getStatus()),
+                            requester ? "REQUESTER" : "PROVIDER", counterparty.getTelegramUsername(),
+                            deal.getAmount(), name(deal.getCurrency()), deal.getExchangeRate(),
+                            name(deal.getTransferMethod())});
+                }));
+    }
+
+    /**
+     * Сделки, завершённые в [from, to)
+     */
+    public long exportDeals(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out) {
+        // created_at < to (сделка создана до завершения): секции после периода не читаются
+        return stream(DEALS_SQL, new Object[]{from, to, to}, format, out,
+                rows -> archiveReader.forEachDeal(from, to, deal -> rows.accept(dealRow(deal))));
+    }
+
+    /**
+     * Заявки, созданные в [from, to)
+     */
+    public long exportRequests(LocalDateTime from, LocalDateTime to, ExportFormat format, OutputStream out) {
+        return stream(REQUESTS_SQL, new Object[]{from, to}, format, out,
+                rows -> archiveReader.forEachRequest(from, to, request -> rows.accept(requestRow(request))));
+    }
+
+    private static Object[] dealRow(Deal deal) {
+        return new Object[]{
+                deal.getId(), deal.getCreatedAt(), deal.getFinishedAt(), name(deal.getStatus()),
+                deal.getRequester().getId(), deal.getRequester().getTelegramUsername(),
+                deal.getProvider().getId(), deal.getProvider().getTelegramUsername(),
+                deal.getAmount(), name(deal.getCurrency()), deal.getExchangeRate(), name(deal.getTransferMethod())};
+    }
+
+    private static Object[] requestRow(ExchangeRequest request) {
+        return new Object[]{
+                request.getId(), request.getCreatedAt(), request.getFinishedAt(), name(request.getStatus()),
+                request.getUser().getId(), request.getUser().getTelegramUsername(),
+                name(request.getCurrencyNeed()), request.getAmountNeed(), name(request.getTransferMethod()),
+                request.getNotes()};
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    /**
+     * @param archived архивные строки в колонках запроса; пишутся сразу после заголовка
+     */
+    private long stream(String sql, Object[] args, ExportFormat format, OutputStream out,
+                        Consumer<Consumer<Object[]>> archived) {
+        long started = System.currentTimeMillis();
+
+        Long rows = readOnly.execute(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            for (int i = 0; i < args.length; i++) {
+                statement.setObject(i + 1, args[i]);
+            }
+            return statement;
+        }, resultSet -> {
+            try (RowWriter writer = format.open(out)) {
+                return writeRows(resultSet, writer, archived);
+            } catch (IOException e) {
+                // Клиент оборвал соединение — откатываем курсор
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        long count = rows != null ? rows : 0;
+        exportedRows.increment(count);
+        log.info("📤 Exported {} rows as {} in {} ms", count, format, System.currentTimeMillis() - started);
+        return count;
+    }
+
+    private static long writeRows(ResultSet resultSet, RowWriter writer, Consumer<Consumer<Object[]>> archived)
+            throws SQLException, IOException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1).toLowerCase();
+        }
+        writer.header(columns);
+
+        long[] archivedCount = new long[1];
+        archived.accept(values -> {
+            try {
+                writer.row(values);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            archivedCount[0]++;
+        });
+
+        Object[] values = new Object[columns.length];
+        long count = archivedCount[0];
+        while (resultSet.next()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = resultSet.getObject(i + 1);
+            }
+            writer.row(values);
+            count++;
+        }
+        return count;
+    }
+}
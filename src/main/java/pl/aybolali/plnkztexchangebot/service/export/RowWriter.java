@@ -0,0 +1,18 @@
+package pl.aybolali.plnkztexchangebot.service.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Построчная запись выгрузки в поток: буфер фиксированного размера, строки не накапливаются.
+ * close() дописывает буфер, но не закрывает поток ответа.
+ */
+public interface RowWriter extends Closeable {
+
+    void header(String[] columns) throws IOException;
+
+    /**
+     * @param values значения в порядке колонок заголовка; массив переиспользуется между строками
+     */
+    void row(Object[] values) throws IOException;
+}
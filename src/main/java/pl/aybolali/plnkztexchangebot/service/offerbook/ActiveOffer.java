@@ -0,0 +1,36 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемый снимок ACTIVE заявки в {@link ActiveOfferBook}.
+ * Данные пользователя хранятся отдельно (по userId), чтобы смена рейтинга не требовала пересборки заявок.
+ */
+public record ActiveOffer(
+        Long id,
+        Long userId,
+        ExchangeRequest.Currency currencyNeed,
+        BigDecimal amountNeed,
+        TransferMethod transferMethod,
+        String notes,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+
+    public static ActiveOffer of(ExchangeRequest request) {
+        return new ActiveOffer(
+                request.getId(),
+                request.getUser().getId(),
+                request.getCurrencyNeed(),
+                request.getAmountNeed(),
+                request.getTransferMethod(),
+                request.getNotes(),
+                request.getCreatedAt(),
+                request.getUpdatedAt()
+        );
+    }
+}
@@ -0,0 +1,554 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.mapper.UserMapper;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 📚 ACTIVE OFFER BOOK: In-memory индекс всех ACTIVE заявок для фасетного поиска
+ *
+ * Каждая заявка занимает слот (плотный int, освобождённые слоты переиспользуются),
+ * а каждый фасет — это BitSet по слотам:
+ * - валюта, способ перевода
+ * - бакет суммы (по степени двойки), бакет рейтинга (шаг 0.5★), бакет числа сделок
+ * - ключевые слова из notes (инвертированный индекс)
+ *
+ * Запрос = AND/OR битмапов + точная проверка граничных условий только по кандидатам,
+ * поэтому любая комбинация фильтров обслуживается без SQL.
+ *
+ * Индекс обновляется инкрементально через {@link OfferBookEntityListener} после коммита
+ * и полностью перестраивается при старте приложения (или восстанавливается из {@link OfferBookJournal}).
+ */
+@Service
+@Slf4j
+public class ActiveOfferBook {
+
+    private static final int RATING_BUCKETS = 11;   // 0.0, 0.5, ... 5.0
+    private static final int AMOUNT_BUCKETS = 64;
+    private static final int DEALS_BUCKETS = 33;
+    private static final int MIN_KEYWORD_LENGTH = 2;
+
+    private static final Comparator<ActiveOffer> NEWEST_FIRST = Comparator
+            .comparing(ActiveOffer::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(ActiveOffer::id, Comparator.reverseOrder());
+
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final UserRepository userRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Слоты
+    private ActiveOffer[] offers = new ActiveOffer[256];
+    private final Map<Long, Integer> slotByRequestId = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final BitSet freeSlots = new BitSet();
+    private int highWater;
+
+    // Фасеты
+    private final Map<ExchangeRequest.Currency, BitSet> byCurrency = new EnumMap<>(ExchangeRequest.Currency.class);
+    private final Map<TransferMethod, BitSet> byTransferMethod = new EnumMap<>(TransferMethod.class);
+    private final BitSet[] byAmountBucket = newBitSets(AMOUNT_BUCKETS);
+    private final BitSet[] byRatingBucket = newBitSets(RATING_BUCKETS);
+    private final BitSet[] byDealsBucket = newBitSets(DEALS_BUCKETS);
+    private final Map<String, BitSet> byKeyword = new HashMap<>();
+
+    // Пользователи: рейтинг и сделки общие для всех их заявок
+    private final Map<Long, UserPublicDTO> users = new HashMap<>();
+    private final Map<Long, BitSet> slotsByUser = new HashMap<>();
+
+    private final List<OfferBookChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private List<Runnable> changesDuringRebuild;
+    private volatile boolean warm;
+
+    public ActiveOfferBook(ExchangeRequestRepository exchangeRequestRepository, UserRepository userRepository) {
+        this.exchangeRequestRepository = exchangeRequestRepository;
+        this.userRepository = userRepository;
+        for (ExchangeRequest.Currency currency : ExchangeRequest.Currency.values()) {
+            byCurrency.put(currency, new BitSet());
+        }
+        for (TransferMethod method : TransferMethod.values()) {
+            byTransferMethod.put(method, new BitSet());
+        }
+    }
+
+    // ========================================================================
+    // MAINTENANCE
+    // ========================================================================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (warm) {
+            // Книга уже восстановлена из журнала — сверка с БД запускается OfferBookJournal в фоне
+            log.info("📚 Offer book warm: {} active offers restored", size());
+            return;
+        }
+        rebuild();
+    }
+
+    /**
+     * Полная сверка с БД. Загрузка идёт без lock (поиск продолжает работать по текущему состоянию),
+     * изменения, пришедшие во время загрузки, применяются поверх загруженного снимка.
+     */
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<OfferBookEntry> loaded;
+        try {
+            loaded = exchangeRequestRepository.findAllActiveWithUser().stream()
+                    .map(request -> new OfferBookEntry(ActiveOffer.of(request), UserMapper.toPublicDTO(request.getUser())))
+                    .toList();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            loaded.forEach(entry -> upsert(entry.offer(), entry.user()));
+            changesDuringRebuild.forEach(Runnable::run);
+            changesDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("📚 Offer book rebuilt: {} active offers in {} ms", size(), System.currentTimeMillis() - start);
+        listeners.forEach(OfferBookChangeListener::bookRebuilt);
+    }
+
+    /**
+     * Книга заполнена из журнала — полная перестройка при старте не нужна.
+     */
+    public void markWarm() {
+        this.warm = true;
+    }
+
+    public void addChangeListener(OfferBookChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Консистентный снимок всех заявок: функция выполняется под read lock, изменения в это время ждут.
+     */
+    public <T> T readSnapshot(Function<List<OfferBookEntry>, T> reader) {
+        lock.readLock().lock();
+        try {
+            List<OfferBookEntry> entries = new ArrayList<>(slotByRequestId.size());
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                entries.add(new OfferBookEntry(offers[slot], users.get(offers[slot].userId())));
+            }
+            return reader.apply(entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEvent(OfferBookEvent event) {
+        if (event instanceof OfferBookEvent.OfferChanged changed) {
+            if (changed.offer() == null) {
+                remove(changed.requestId());
+            } else {
+                put(changed.offer(), changed.user());
+            }
+        } else if (event instanceof OfferBookEvent.UserChanged changed) {
+            updateUser(changed.user());
+        }
+    }
+
+    public void put(ActiveOffer offer, UserPublicDTO user) {
+        UserPublicDTO summary = user != null ? user : knownUser(offer.userId()).orElseGet(() -> loadUser(offer.userId()));
+
+        lock.writeLock().lock();
+        try {
+            upsert(offer, summary);
+            recordDuringRebuild(() -> upsert(offer, summary));
+            listeners.forEach(listener -> listener.offerPut(offer, summary));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long requestId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(requestId);
+            recordDuringRebuild(() -> removeInternal(requestId));
+            listeners.forEach(listener -> listener.offerRemoved(requestId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Перекладывает все заявки пользователя в новые бакеты рейтинга/сделок.
+     * Пользователи без активных заявок не хранятся.
+     */
+    public void updateUser(UserPublicDTO user) {
+        lock.writeLock().lock();
+        try {
+            if (applyUser(user)) {
+                recordDuringRebuild(() -> applyUser(user));
+                listeners.forEach(listener -> listener.userUpdated(user));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ========================================================================
+    // QUERIES
+    // ========================================================================
+
+    public Page<OfferBookEntry> search(OfferSearchCriteria criteria, Pageable pageable) {
+        List<OfferBookEntry> matched;
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidates(criteria);
+            LocalDateTime createdAfter = criteria.maxAgeHours() != null
+                    ? LocalDateTime.now().minusHours(criteria.maxAgeHours())
+                    : null;
+
+            List<ActiveOffer> exact = new ArrayList<>(candidates.cardinality());
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                ActiveOffer offer = offers[slot];
+                if (matchesExactly(offer, users.get(offer.userId()), criteria, createdAfter)) {
+                    exact.add(offer);
+                }
+            }
+
+            exact.sort(NEWEST_FIRST);
+            matched = exact.stream()
+                    .map(offer -> new OfferBookEntry(offer, users.get(offer.userId())))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int from = (int) Math.min(pageable.getOffset(), matched.size());
+        int to = Math.min(from + pageable.getPageSize(), matched.size());
+        return new PageImpl<>(matched.subList(from, to), pageable, matched.size());
+    }
+
+    public Optional<OfferBookEntry> get(Long requestId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByRequestId.get(requestId);
+            if (slot == null) {
+                return Optional.empty();
+            }
+            ActiveOffer offer = offers[slot];
+            return Optional.of(new OfferBookEntry(offer, users.get(offer.userId())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotByRequestId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Заявка + публичные данные автора на момент последнего обновления индекса.
+     */
+    public record OfferBookEntry(ActiveOffer offer, UserPublicDTO user) {
+    }
+
+    // ========================================================================
+    // INTERNALS (вызываются под write/read lock)
+    // ========================================================================
+
+    private BitSet candidates(OfferSearchCriteria criteria) {
+        BitSet result = (BitSet) live.clone();
+
+        if (criteria.currency() != null) {
+            result.and(byCurrency.get(criteria.currency()));
+        }
+        if (criteria.transferMethod() != null) {
+            result.and(byTransferMethod.get(criteria.transferMethod()));
+        }
+        if (criteria.minAmount() != null || criteria.maxAmount() != null) {
+            int from = criteria.minAmount() != null ? amountBucket(criteria.minAmount()) : 0;
+            int to = criteria.maxAmount() != null ? amountBucket(criteria.maxAmount()) : AMOUNT_BUCKETS - 1;
+            result.and(union(byAmountBucket, from, to));
+        }
+        if (criteria.minTrustRating() != null) {
+            result.and(union(byRatingBucket, ratingBucket(criteria.minTrustRating()), RATING_BUCKETS - 1));
+        }
+        if (criteria.minSuccessfulDeals() != null) {
+            result.and(union(byDealsBucket, dealsBucket(criteria.minSuccessfulDeals()), DEALS_BUCKETS - 1));
+        }
+        if (criteria.keywords() != null) {
+            for (String keyword : criteria.keywords()) {
+                for (String token : tokenize(keyword)) {
+                    BitSet withKeyword = byKeyword.get(token);
+                    if (withKeyword == null) {
+                        return new BitSet();
+                    }
+                    result.and(withKeyword);
+                }
+            }
+        }
+        if (criteria.excludeUserId() != null) {
+            BitSet own = slotsByUser.get(criteria.excludeUserId());
+            if (own != null) {
+                result.andNot(own);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Бакеты грубые — граничные значения проверяем точно.
+     */
+    private boolean matchesExactly(ActiveOffer offer, UserPublicDTO user, OfferSearchCriteria criteria,
+                                   LocalDateTime createdAfter) {
+        if (criteria.minAmount() != null && offer.amountNeed().compareTo(criteria.minAmount()) < 0) return false;
+        if (criteria.maxAmount() != null && offer.amountNeed().compareTo(criteria.maxAmount()) > 0) return false;
+        if (createdAfter != null && (offer.createdAt() == null || offer.createdAt().isBefore(createdAfter))) return false;
+
+        if (criteria.minTrustRating() != null) {
+            BigDecimal rating = user != null && user.trustRating() != null ? user.trustRating() : BigDecimal.ZERO;
+            if (rating.compareTo(criteria.minTrustRating()) < 0) return false;
+        }
+        if (criteria.minSuccessfulDeals() != null) {
+            int deals = user != null && user.successfulDeals() != null ? user.successfulDeals() : 0;
+            if (deals < criteria.minSuccessfulDeals()) return false;
+        }
+
+        return true;
+    }
+
+    private void upsert(ActiveOffer offer, UserPublicDTO user) {
+        Integer existing = slotByRequestId.get(offer.id());
+        if (existing != null) {
+            release(existing);
+        }
+
+        int slot = allocate();
+        offers[slot] = offer;
+        slotByRequestId.put(offer.id(), slot);
+        live.set(slot);
+
+        byCurrency.get(offer.currencyNeed()).set(slot);
+        byTransferMethod.get(offer.transferMethod()).set(slot);
+        byAmountBucket[amountBucket(offer.amountNeed())].set(slot);
+        for (String token : tokenize(offer.notes())) {
+            byKeyword.computeIfAbsent(token, k -> new BitSet()).set(slot);
+        }
+
+        BitSet userSlots = slotsByUser.computeIfAbsent(offer.userId(), k -> new BitSet());
+        userSlots.set(slot);
+
+        if (!users.containsKey(offer.userId())) {
+            users.put(offer.userId(), user != null ? user : unknownUser(offer.userId()));
+        } else if (user != null) {
+            applyUser(user);
+        }
+
+        UserPublicDTO summary = users.get(offer.userId());
+        byRatingBucket[ratingBucket(summary.trustRating())].set(slot);
+        byDealsBucket[dealsBucket(summary.successfulDeals())].set(slot);
+    }
+
+    private void recordDuringRebuild(Runnable change) {
+        if (changesDuringRebuild != null) {
+            changesDuringRebuild.add(change);
+        }
+    }
+
+    private void removeInternal(Long requestId) {
+        Integer slot = slotByRequestId.remove(requestId);
+        if (slot != null) {
+            release(slot);
+        }
+    }
+
+    private boolean applyUser(UserPublicDTO user) {
+        BitSet slots = slotsByUser.get(user.id());
+        UserPublicDTO previous = users.get(user.id());
+        if (slots == null || previous == null || previous.equals(user)) {
+            return false;
+        }
+
+        byRatingBucket[ratingBucket(previous.trustRating())].andNot(slots);
+        byDealsBucket[dealsBucket(previous.successfulDeals())].andNot(slots);
+        byRatingBucket[ratingBucket(user.trustRating())].or(slots);
+        byDealsBucket[dealsBucket(user.successfulDeals())].or(slots);
+        users.put(user.id(), user);
+        return true;
+    }
+
+    private void release(int slot) {
+        ActiveOffer offer = offers[slot];
+        offers[slot] = null;
+        live.clear(slot);
+        freeSlots.set(slot);
+
+        byCurrency.values().forEach(bits -> bits.clear(slot));
+        byTransferMethod.values().forEach(bits -> bits.clear(slot));
+        byAmountBucket[amountBucket(offer.amountNeed())].clear(slot);
+        for (BitSet bits : byRatingBucket) bits.clear(slot);
+        for (BitSet bits : byDealsBucket) bits.clear(slot);
+        for (String token : tokenize(offer.notes())) {
+            BitSet bits = byKeyword.get(token);
+            if (bits != null) {
+                bits.clear(slot);
+                if (bits.isEmpty()) byKeyword.remove(token);
+            }
+        }
+
+        BitSet userSlots = slotsByUser.get(offer.userId());
+        if (userSlots != null) {
+            userSlots.clear(slot);
+            if (userSlots.isEmpty()) {
+                slotsByUser.remove(offer.userId());
+                users.remove(offer.userId());
+            }
+        }
+    }
+
+    private int allocate() {
+        int slot = freeSlots.nextSetBit(0);
+        if (slot >= 0) {
+            freeSlots.clear(slot);
+            return slot;
+        }
+        if (highWater == offers.length) {
+            offers = Arrays.copyOf(offers, offers.length * 2);
+        }
+        return highWater++;
+    }
+
+    private void clear() {
+        Arrays.fill(offers, null);
+        slotByRequestId.clear();
+        live.clear();
+        freeSlots.clear();
+        highWater = 0;
+        byCurrency.values().forEach(BitSet::clear);
+        byTransferMethod.values().forEach(BitSet::clear);
+        for (BitSet bits : byAmountBucket) bits.clear();
+        for (BitSet bits : byRatingBucket) bits.clear();
+        for (BitSet bits : byDealsBucket) bits.clear();
+        byKeyword.clear();
+        users.clear();
+        slotsByUser.clear();
+    }
+
+    private Optional<UserPublicDTO> knownUser(Long userId) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(users.get(userId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private UserPublicDTO loadUser(Long userId) {
+        return userRepository.findById(userId)
+                .map(UserMapper::toPublicDTO)
+                .orElseGet(() -> unknownUser(userId));
+    }
+
+    private static UserPublicDTO unknownUser(Long userId) {
+        return new UserPublicDTO(userId, null, null, BigDecimal.ZERO, 0, null);
+    }
+
+    // ========================================================================
+    // BUCKETS & TOKENS
+    // ========================================================================
+
+    static int amountBucket(BigDecimal amount) {
+        long value = Math.max(0, amount.longValue());
+        return Math.min(64 - Long.numberOfLeadingZeros(value), AMOUNT_BUCKETS - 1);
+    }
+
+    static int ratingBucket(BigDecimal rating) {
+        if (rating == null) return 0;
+        int bucket = rating.multiply(BigDecimal.valueOf(2)).intValue();
+        return Math.max(0, Math.min(bucket, RATING_BUCKETS - 1));
+    }
+
+    static int dealsBucket(Integer deals) {
+        int value = deals != null ? Math.max(0, deals) : 0;
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.length() >= MIN_KEYWORD_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static BitSet union(BitSet[] buckets, int from, int to) {
+        BitSet result = new BitSet();
+        for (int i = Math.max(0, from); i <= Math.min(to, buckets.length - 1); i++) {
+            result.or(buckets[i]);
+        }
+        return result;
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+}
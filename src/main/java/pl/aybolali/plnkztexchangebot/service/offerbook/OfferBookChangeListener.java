@@ -0,0 +1,22 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+
+/**
+ * Получает каждое применённое к {@link ActiveOfferBook} изменение.
+ * Вызывается под write lock книги — реализация должна быть быстрой и не обращаться к книге.
+ */
+public interface OfferBookChangeListener {
+
+    void offerPut(ActiveOffer offer, UserPublicDTO user);
+
+    void offerRemoved(Long requestId);
+
+    void userUpdated(UserPublicDTO user);
+
+    /**
+     * Книга полностью перестроена из БД (вызывается уже без lock).
+     */
+    default void bookRebuilt() {
+    }
+}
@@ -0,0 +1,106 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Бинарный формат записей журнала и снапшота {@link OfferBookJournal}.
+ * Enum-ы пишутся по имени, чтобы добавление значений не ломало старые файлы.
+ */
+final class OfferBookCodec {
+
+    private OfferBookCodec() {
+    }
+
+    static void writeOffer(DataOutput out, ActiveOffer offer) throws IOException {
+        out.writeLong(offer.id());
+        out.writeLong(offer.userId());
+        out.writeUTF(offer.currencyNeed().name());
+        out.writeUTF(offer.amountNeed().toPlainString());
+        out.writeUTF(offer.transferMethod().name());
+        writeNullableString(out, offer.notes());
+        writeDateTime(out, offer.createdAt());
+        writeDateTime(out, offer.updatedAt());
+    }
+
+    static ActiveOffer readOffer(DataInput in) throws IOException {
+        return new ActiveOffer(
+                in.readLong(),
+                in.readLong(),
+                ExchangeRequest.Currency.valueOf(in.readUTF()),
+                new BigDecimal(in.readUTF()),
+                TransferMethod.valueOf(in.readUTF()),
+                readNullableString(in),
+                readDateTime(in),
+                readDateTime(in)
+        );
+    }
+
+    static void writeUser(DataOutput out, UserPublicDTO user) throws IOException {
+        out.writeLong(user.id());
+        writeNullableString(out, user.telegramUsername());
+        writeNullableString(out, user.firstName());
+        writeNullableString(out, user.trustRating() != null ? user.trustRating().toPlainString() : null);
+        out.writeInt(user.successfulDeals() != null ? user.successfulDeals() : -1);
+        writeDateTime(out, user.createdAt());
+    }
+
+    static UserPublicDTO readUser(DataInput in) throws IOException {
+        long id = in.readLong();
+        String username = readNullableString(in);
+        String firstName = readNullableString(in);
+        String rating = readNullableString(in);
+        int deals = in.readInt();
+        LocalDateTime createdAt = readDateTime(in);
+
+        return new UserPublicDTO(id, username, firstName,
+                rating != null ? new BigDecimal(rating) : null,
+                deals >= 0 ? deals : null,
+                createdAt);
+    }
+
+    static void writeRate(DataOutput out, ExchangeRateService.LastGoodRate rate) throws IOException {
+        out.writeUTF(rate.plnToKzt().toPlainString());
+        out.writeLong(rate.fetchedAt().toEpochMilli());
+    }
+
+    static ExchangeRateService.LastGoodRate readRate(DataInput in) throws IOException {
+        return new ExchangeRateService.LastGoodRate(new BigDecimal(in.readUTF()), Instant.ofEpochMilli(in.readLong()));
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,56 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.mapper.UserMapper;
+
+/**
+ * JPA listener для ExchangeRequest и User: превращает изменения сущностей в {@link OfferBookEvent}.
+ *
+ * Снимок делается сразу (в момент flush), чтобы последующие изменения сущности в той же
+ * транзакции не попали в индекс раньше коммита. Spring-бин: Hibernate получает его через SpringBeanContainer.
+ */
+@Component
+@RequiredArgsConstructor
+public class OfferBookEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Object entity) {
+        if (entity instanceof ExchangeRequest request) {
+            publishRequest(request);
+        } else if (entity instanceof User user) {
+            eventPublisher.publishEvent(new OfferBookEvent.UserChanged(UserMapper.toPublicDTO(user)));
+        }
+    }
+
+    @PostRemove
+    public void onRemoved(Object entity) {
+        if (entity instanceof ExchangeRequest request) {
+            eventPublisher.publishEvent(new OfferBookEvent.OfferChanged(request.getId(), null, null));
+        }
+    }
+
+    private void publishRequest(ExchangeRequest request) {
+        if (!request.isActive()) {
+            eventPublisher.publishEvent(new OfferBookEvent.OfferChanged(request.getId(), null, null));
+            return;
+        }
+
+        // Не инициализируем LAZY proxy во время flush — книга догрузит пользователя сама
+        User user = request.getUser();
+        eventPublisher.publishEvent(new OfferBookEvent.OfferChanged(
+                request.getId(),
+                ActiveOffer.of(request),
+                Hibernate.isInitialized(user) ? UserMapper.toPublicDTO(user) : null));
+    }
+}
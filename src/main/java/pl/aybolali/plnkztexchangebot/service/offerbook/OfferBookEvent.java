@@ -0,0 +1,23 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+
+/**
+ * События изменения заявок и пользователей, публикуемые {@link OfferBookEntityListener}.
+ * Применяются к {@link ActiveOfferBook} только после коммита транзакции.
+ */
+public sealed interface OfferBookEvent {
+
+    /**
+     * Заявка сохранена. offer == null — заявка больше не ACTIVE (или удалена).
+     * user == null — пользователь не был загружен в сессии (LAZY proxy).
+     */
+    record OfferChanged(Long requestId, ActiveOffer offer, UserPublicDTO user) implements OfferBookEvent {
+    }
+
+    /**
+     * Изменились рейтинг / число сделок / имя пользователя.
+     */
+    record UserChanged(UserPublicDTO user) implements OfferBookEvent {
+    }
+}
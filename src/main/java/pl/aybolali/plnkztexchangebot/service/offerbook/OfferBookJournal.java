@@ -0,0 +1,419 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 💾 OFFER BOOK JOURNAL: Тёплый рестарт книги заявок
+ *
+ * Два файла в app.offer-book.journal.directory:
+ * - offer-book.snapshot — компактный снимок (все заявки + авторы + последний курс), пишется атомарно
+ * - offer-book.journal  — memory-mapped append-only журнал изменений после снимка
+ *
+ * Запись журнала: [int длина][byte тип][payload][int CRC32(поколение, тип, payload)].
+ * Поколение снимка и журнала должно совпадать — иначе журнал уже вошёл в снимок и игнорируется.
+ * Записи старого поколения после сброса не проходят CRC, поэтому файл не нужно обнулять.
+ *
+ * Старт: снимок → хвост журнала → книга отвечает сразу, сверка с БД идёт в фоне
+ * и по завершении пишет новый снимок.
+ */
+@Service
+@ConditionalOnProperty(name = "app.offer-book.journal.enabled", havingValue = "true")
+@Slf4j
+public class OfferBookJournal implements OfferBookChangeListener {
+
+    private static final int MAGIC = 0x4F424A31; // "OBJ1"
+    private static final int HEADER_SIZE = 16;   // magic + generation + reserved
+    private static final int RECORD_OVERHEAD = 4 + 1 + 4;
+
+    private static final byte OFFER_PUT = 1;
+    private static final byte OFFER_REMOVED = 2;
+    private static final byte USER_UPDATED = 3;
+    private static final byte RATE = 4;
+
+    private final ActiveOfferBook offerBook;
+    private final ExchangeRateService exchangeRateService;
+    private final Executor executor;
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final int capacityBytes;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private boolean overflowed;
+    private boolean warmStart;
+    private ExchangeRateService.LastGoodRate journaledRate;
+
+    public OfferBookJournal(ActiveOfferBook offerBook,
+                            ExchangeRateService exchangeRateService,
+                            @Qualifier("customTaskExecutor") Executor executor,
+                            @Value("${app.offer-book.journal.directory:./data/offer-book}") Path directory,
+                            @Value("${app.offer-book.journal.size-mb:64}") int sizeMb) {
+        this.offerBook = offerBook;
+        this.exchangeRateService = exchangeRateService;
+        this.executor = executor;
+        this.snapshotFile = directory.resolve("offer-book.snapshot");
+        this.journalFile = directory.resolve("offer-book.journal");
+        this.capacityBytes = sizeMb * 1024 * 1024;
+    }
+
+    // ========================================================================
+    // STARTUP
+    // ========================================================================
+
+    @PostConstruct
+    public void open() throws IOException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(snapshotFile.getParent());
+
+        int restored = loadSnapshot();
+
+        channel = FileChannel.open(journalFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+
+        int replayed = 0;
+        if (buffer.getInt(0) == MAGIC && buffer.getLong(4) == generation) {
+            replayed = replayJournal();
+        } else {
+            resetJournal(generation);
+        }
+
+        warmStart = restored > 0 || replayed > 0;
+        if (warmStart) {
+            offerBook.markWarm();
+        }
+        offerBook.addChangeListener(this);
+
+        log.info("💾 Offer book journal opened: {} offers from snapshot, {} journal records replayed in {} ms",
+                restored, replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Книга уже отвечает из журнала — сверяемся с БД в фоне; по завершении bookRebuilt() запишет снимок.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileInBackground() {
+        if (!warmStart) {
+            return; // Холодный старт: ActiveOfferBook уже перестроилась синхронно
+        }
+        executor.execute(() -> {
+            try {
+                offerBook.rebuild();
+            } catch (Exception e) {
+                log.error("❌ Offer book reconciliation failed, serving journal state: {}", e.getMessage(), e);
+            }
+        });
+    }
+
+    private int loadSnapshot() throws IOException {
+        generation = 0;
+        if (!Files.exists(snapshotFile)) {
+            return 0;
+        }
+
+        List<ActiveOfferBook.OfferBookEntry> entries = new ArrayList<>();
+        ExchangeRateService.LastGoodRate rate = null;
+
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)), new CRC32());
+             DataInputStream in = new DataInputStream(checked)) {
+
+            if (in.readInt() != MAGIC) {
+                log.warn("⚠️ Unknown offer book snapshot format, ignoring {}", snapshotFile);
+                return 0;
+            }
+            long snapshotGeneration = in.readLong();
+            if (in.readBoolean()) {
+                rate = OfferBookCodec.readRate(in);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                entries.add(new ActiveOfferBook.OfferBookEntry(OfferBookCodec.readOffer(in), OfferBookCodec.readUser(in)));
+            }
+
+            long expectedCrc = checked.getChecksum().getValue();
+            if (in.readLong() != expectedCrc) {
+                log.warn("⚠️ Offer book snapshot checksum mismatch, ignoring {}", snapshotFile);
+                return 0;
+            }
+            generation = snapshotGeneration;
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Failed to read offer book snapshot, starting cold: {}", e.getMessage());
+            generation = 0;
+            return 0;
+        }
+
+        entries.forEach(entry -> offerBook.put(entry.offer(), entry.user()));
+        if (rate != null) {
+            exchangeRateService.restoreLastGoodRate(rate);
+            journaledRate = rate;
+        }
+        return entries.size();
+    }
+
+    private int replayJournal() {
+        int position = HEADER_SIZE;
+        int replayed = 0;
+
+        while (position + RECORD_OVERHEAD <= capacityBytes) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_OVERHEAD + length > capacityBytes) {
+                break;
+            }
+
+            byte type = buffer.get(position + 4);
+            byte[] payload = new byte[length];
+            buffer.get(position + 5, payload);
+            if (buffer.getInt(position + 5 + length) != crc(type, payload)) {
+                break; // Недописанная запись или запись старого поколения
+            }
+
+            try {
+                apply(type, new DataInputStream(new ByteArrayInputStream(payload)));
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ Skipping unreadable journal record at {}: {}", position, e.getMessage());
+            }
+
+            position += RECORD_OVERHEAD + length;
+            replayed++;
+        }
+
+        buffer.position(position);
+        buffer.putInt(position, 0);
+        return replayed;
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case OFFER_PUT -> offerBook.put(OfferBookCodec.readOffer(in), OfferBookCodec.readUser(in));
+            case OFFER_REMOVED -> offerBook.remove(in.readLong());
+            case USER_UPDATED -> offerBook.updateUser(OfferBookCodec.readUser(in));
+            case RATE -> {
+                ExchangeRateService.LastGoodRate rate = OfferBookCodec.readRate(in);
+                exchangeRateService.restoreLastGoodRate(rate);
+                journaledRate = rate;
+            }
+            default -> log.warn("⚠️ Unknown journal record type: {}", type);
+        }
+    }
+
+    // ========================================================================
+    // APPEND (вызывается под write lock книги)
+    // ========================================================================
+
+    @Override
+    public void offerPut(ActiveOffer offer, UserPublicDTO user) {
+        append(OFFER_PUT, out -> {
+            OfferBookCodec.writeOffer(out, offer);
+            OfferBookCodec.writeUser(out, user);
+        });
+    }
+
+    @Override
+    public void offerRemoved(Long requestId) {
+        append(OFFER_REMOVED, out -> out.writeLong(requestId));
+    }
+
+    @Override
+    public void userUpdated(UserPublicDTO user) {
+        append(USER_UPDATED, out -> OfferBookCodec.writeUser(out, user));
+    }
+
+    @Override
+    public void bookRebuilt() {
+        compact();
+    }
+
+    /**
+     * Курс меняется вне книги — раз в минуту дописываем его, если он обновился, и сбрасываем страницы на диск.
+     */
+    @Scheduled(fixedDelayString = "${app.offer-book.journal.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        exchangeRateService.getLastGoodRate()
+                .filter(rate -> !rate.equals(journaledRate))
+                .ifPresent(rate -> {
+                    append(RATE, out -> OfferBookCodec.writeRate(out, rate));
+                    journaledRate = rate;
+                });
+
+        synchronized (this) {
+            buffer.force();
+        }
+    }
+
+    private synchronized void append(byte type, RecordWriter writer) {
+        if (overflowed) {
+            return; // Всё, что не попало в журнал, войдёт в ближайший снимок
+        }
+
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            writer.write(new DataOutputStream(bytes));
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int position = buffer.position();
+        if (position + RECORD_OVERHEAD + payload.length + 4 > capacityBytes) {
+            log.warn("⚠️ Offer book journal is full, compacting");
+            overflowed = true;
+            requestCompaction();
+            return;
+        }
+
+        buffer.putInt(payload.length);
+        buffer.put(type);
+        buffer.put(payload);
+        buffer.putInt(crc(type, payload));
+        buffer.putInt(buffer.position(), 0); // Терминатор: читатель остановится здесь
+
+        if (buffer.position() > capacityBytes / 4 * 3) {
+            requestCompaction();
+        }
+    }
+
+    // ========================================================================
+    // COMPACTION
+    // ========================================================================
+
+    @Scheduled(fixedDelayString = "${app.offer-book.journal.snapshot-interval-ms:600000}")
+    public void compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            // Порядок lock-ов как у append: сначала книга, потом журнал
+            int written = offerBook.readSnapshot(entries -> {
+                synchronized (this) {
+                    try {
+                        long next = generation + 1;
+                        writeSnapshot(next, entries, exchangeRateService.getLastGoodRate().orElse(null));
+                        resetJournal(next);
+                        return entries.size();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+            log.info("💾 Offer book snapshot written: {} offers, generation {} in {} ms",
+                    written, generation, System.currentTimeMillis() - start);
+        } catch (UncheckedIOException e) {
+            log.error("❌ Failed to write offer book snapshot: {}", e.getMessage(), e);
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private void requestCompaction() {
+        if (!compacting.get()) {
+            executor.execute(this::compact);
+        }
+    }
+
+    private void writeSnapshot(long snapshotGeneration, List<ActiveOfferBook.OfferBookEntry> entries,
+                               ExchangeRateService.LastGoodRate rate) throws IOException {
+        Path tmp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+
+        try (OutputStream file = Files.newOutputStream(tmp);
+             CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file), new CRC32());
+             DataOutputStream out = new DataOutputStream(checked)) {
+
+            out.writeInt(MAGIC);
+            out.writeLong(snapshotGeneration);
+            out.writeBoolean(rate != null);
+            if (rate != null) {
+                OfferBookCodec.writeRate(out, rate);
+            }
+            out.writeInt(entries.size());
+            for (ActiveOfferBook.OfferBookEntry entry : entries) {
+                OfferBookCodec.writeOffer(out, entry.offer());
+                OfferBookCodec.writeUser(out, entry.user());
+            }
+            out.flush();
+            out.writeLong(checked.getChecksum().getValue());
+        }
+
+        try (FileChannel tmpChannel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            tmpChannel.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void resetJournal(long newGeneration) {
+        generation = newGeneration;
+        overflowed = false;
+        journaledRate = exchangeRateService.getLastGoodRate().orElse(null);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(4, newGeneration);
+        buffer.putInt(12, 0);
+        buffer.putInt(HEADER_SIZE, 0);
+        buffer.position(HEADER_SIZE);
+        buffer.force();
+    }
+
+    private int crc(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (generation >>> shift));
+        }
+        crc.update(type);
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        compact();
+        synchronized (this) {
+            buffer.force();
+            channel.close();
+        }
+        log.info("💾 Offer book journal closed at generation {}", generation);
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
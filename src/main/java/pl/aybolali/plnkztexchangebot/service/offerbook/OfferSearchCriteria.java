@@ -0,0 +1,28 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Фильтры фасетного поиска. Любое поле может быть null — тогда фильтр не применяется.
+ * Ключевые слова объединяются по AND.
+ */
+public record OfferSearchCriteria(
+        ExchangeRequest.Currency currency,
+        BigDecimal minAmount,
+        BigDecimal maxAmount,
+        TransferMethod transferMethod,
+        BigDecimal minTrustRating,
+        Integer minSuccessfulDeals,
+        Integer maxAgeHours,
+        List<String> keywords,
+        Long excludeUserId
+) {
+
+    public static OfferSearchCriteria forCurrency(ExchangeRequest.Currency currency) {
+        return new OfferSearchCriteria(currency, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,48 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+
+import java.math.BigDecimal;
+
+/**
+ * Доменные события, записываемые в outbox ({@link DomainEventOutbox}) в транзакции изменения.
+ * Имя записи — event_type в domain_outbox, поэтому переименование требует миграции данных.
+ */
+public sealed interface DomainEvent {
+
+    /**
+     * Идентификатор агрегата, к которому относится событие (aggregate_id)
+     */
+    Long aggregateId();
+
+    /**
+     * Сделка создана и завершена: статистика обоих участников устарела.
+     */
+    record DealCompleted(Long dealId, Long requesterId, Long providerId,
+                         BigDecimal amount, ExchangeRequest.Currency currency) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return dealId;
+        }
+    }
+
+    /**
+     * Заявка исполнена полностью (COMPLETED): холды на ней больше не нужны.
+     */
+    record RequestFilled(Long requestId, Long userId) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return requestId;
+        }
+    }
+
+    /**
+     * Оставлена оценка по сделке: trust_rating оценённого устарел.
+     */
+    record RatingCreated(Long ratingId, Long dealId, Long ratedUserId, BigDecimal rating) implements DomainEvent {
+        @Override
+        public Long aggregateId() {
+            return ratingId;
+        }
+    }
+}
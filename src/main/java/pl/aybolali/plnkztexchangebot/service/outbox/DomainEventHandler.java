@@ -0,0 +1,21 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import org.springframework.util.ClassUtils;
+
+/**
+ * Обработчик событий outbox. У каждого обработчика своя запись события: {@link OutboxDispatcher}
+ * вызывает его в той же транзакции, что и захват этой записи, — исключение откатывает только
+ * его изменения и планирует повтор только ему.
+ * Побочные эффекты вне БД должны быть идемпотентны — при сбое коммита событие придёт снова.
+ */
+public interface DomainEventHandler {
+
+    void handle(DomainEvent event);
+
+    /**
+     * Имя в domain_outbox.handler — переименование класса оставит его записи без обработчика
+     */
+    default String name() {
+        return ClassUtils.getUserClass(this).getSimpleName();
+    }
+}
@@ -0,0 +1,95 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.entity.OutboxEvent;
+import pl.aybolali.plnkztexchangebot.repository.OutboxEventRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 📬 OUTBOX: запись доменных событий в domain_outbox в транзакции вызывающего кода
+ *
+ * Событие сохраняется тем же коммитом, что и сделка/оценка, поэтому не теряется и не появляется
+ * без изменения. Запись на каждый обработчик — у каждого своя транзакция, попытки и статус.
+ * После коммита {@link OutboxDispatcher} получает {@link Appended} и применяет обработчики;
+ * если узел упал до этого — записи подберёт периодический опрос.
+ */
+@Service
+@Slf4j
+public class DomainEventOutbox {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private static final Map<String, Class<?>> TYPES = Arrays.stream(DomainEvent.class.getPermittedSubclasses())
+            .collect(Collectors.toUnmodifiableMap(Class::getSimpleName, Function.identity()));
+
+    private final OutboxEventRepository outboxRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<String> handlerNames;
+
+    public DomainEventOutbox(OutboxEventRepository outboxRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             List<DomainEventHandler> handlers) {
+        this.outboxRepository = outboxRepository;
+        this.eventPublisher = eventPublisher;
+        this.handlerNames = handlers.stream().map(DomainEventHandler::name).toList();
+    }
+
+    /**
+     * Сигнал диспетчеру: в транзакции появились события (доставляется после коммита)
+     */
+    public record Appended(Long outboxId) {
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void append(DomainEvent event) {
+        LocalDateTime now = LocalDateTime.now();
+        String payload = write(event);
+        List<OutboxEvent> saved = outboxRepository.saveAll(handlerNames.stream()
+                .map(handler -> OutboxEvent.builder()
+                        .eventType(event.getClass().getSimpleName())
+                        .aggregateId(event.aggregateId())
+                        .handler(handler)
+                        .payload(payload)
+                        .nextAttemptAt(now)
+                        .createdAt(now)
+                        .build())
+                .toList());
+        if (saved.isEmpty()) {
+            return;
+        }
+
+        log.debug("📬 Outbox #{}+{}: {}", saved.get(0).getId(), saved.size(), event);
+        eventPublisher.publishEvent(new Appended(saved.get(0).getId()));
+    }
+
+    static DomainEvent read(OutboxEvent record) {
+        Class<?> type = TYPES.get(record.getEventType());
+        if (type == null) {
+            throw new IllegalStateException("Unknown outbox event type: " + record.getEventType());
+        }
+        try {
+            return (DomainEvent) JSON.readValue(record.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupted outbox payload #" + record.getId(), e);
+        }
+    }
+
+    static String write(DomainEvent event) {
+        try {
+            return JSON.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + event, e);
+        }
+    }
+}
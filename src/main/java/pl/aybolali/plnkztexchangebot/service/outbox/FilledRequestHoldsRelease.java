@@ -0,0 +1,31 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+
+/**
+ * 🔓 Исполненная заявка больше не участвует в поиске — снимаем оставшиеся холды на ней,
+ * не дожидаясь их истечения.
+ *
+ * Холды в памяти узла, а событие outbox обрабатывает один узел: на остальных репликах
+ * холды этой заявки снимаются только по TTL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilledRequestHoldsRelease implements DomainEventHandler {
+
+    private final AmountReservationLedger reservationLedger;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof DomainEvent.RequestFilled filled) {
+            int released = reservationLedger.releaseRequest(filled.requestId());
+            if (released > 0) {
+                log.info("🔓 Released {} holds on filled request {}", released, filled.requestId());
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.mapper.UserMapper;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+
+import java.util.List;
+
+/**
+ * 📊 Счётчики сделок и оценок меняются относительным UPDATE мимо сущностей, поэтому
+ * OfferBookEntityListener их не видит. После сделки или оценки перечитываем участников
+ * и публикуем UserChanged — книга предложений (и другие реплики через PgChangePublisher)
+ * обновятся после коммита. Повтор безопасен: публикуется текущее состояние.
+ */
+@Component
+@RequiredArgsConstructor
+public class OfferBookUserRefresh implements DomainEventHandler {
+
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void handle(DomainEvent event) {
+        List<Long> userIds;
+        if (event instanceof DomainEvent.DealCompleted deal) {
+            userIds = List.of(deal.requesterId(), deal.providerId());
+        } else if (event instanceof DomainEvent.RatingCreated rating) {
+            userIds = List.of(rating.ratedUserId());
+        } else {
+            return;
+        }
+
+        userRepository.findAllById(userIds).forEach(user ->
+                eventPublisher.publishEvent(new OfferBookEvent.UserChanged(UserMapper.toPublicDTO(user))));
+    }
+}
@@ -0,0 +1,254 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.entity.OutboxEvent;
+import pl.aybolali.plnkztexchangebot.entity.OutboxStatus;
+import pl.aybolali.plnkztexchangebot.repository.OutboxEventRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 📮 ДИСПЕТЧЕР OUTBOX: применяет обработчики к событиям domain_outbox
+ *
+ * - Записи читаются пачками по batchSize в порядке id; запись — событие для одного обработчика
+ * - Каждая запись — своя транзакция: захват (PENDING → DONE) и её обработчик коммитятся вместе,
+ *   ошибка откатывает и то и другое, не задевая обработчики соседних записей того же события
+ * - После ошибки — повтор с экспоненциальной задержкой, после maxAttempts запись FAILED
+ * - Запуск: после коммита транзакции с событиями и периодический опрос (события упавшего узла, повторы)
+ *
+ * after-commit=async — обработка в фоновом потоке (по умолчанию);
+ * inline — в потоке закоммитившей транзакции, сразу после коммита (тесты, отладка).
+ */
+@Service
+@Slf4j
+public class OutboxDispatcher {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final OutboxEventRepository outboxRepository;
+    private final List<DomainEventHandler> handlers;
+    private final Map<String, DomainEventHandler> handlersByName;
+    private final TransactionTemplate transactions;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+    private final boolean inline;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+
+    private final Counter dispatched = Metrics.counter("outbox.events", "outcome", "dispatched");
+    private final Counter retried = Metrics.counter("outbox.events", "outcome", "retried");
+    private final Counter failed = Metrics.counter("outbox.events", "outcome", "failed");
+
+    public OutboxDispatcher(
+            OutboxEventRepository outboxRepository,
+            List<DomainEventHandler> handlers,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.outbox.batch-size:100}") int batchSize,
+            @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+            @Value("${app.outbox.initial-backoff-ms:1000}") long initialBackoffMs,
+            @Value("${app.outbox.max-backoff-ms:600000}") long maxBackoffMs,
+            @Value("${app.outbox.retention-days:7}") int retentionDays,
+            @Value("${app.outbox.after-commit:async}") String afterCommit) {
+
+        this.outboxRepository = outboxRepository;
+        this.handlers = handlers;
+        this.handlersByName = handlers.stream()
+                .collect(Collectors.toUnmodifiableMap(DomainEventHandler::name, Function.identity()));
+        // REQUIRES_NEW: после коммита ресурсы исходной транзакции ещё привязаны к потоку
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.transactions.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofMillis(initialBackoffMs);
+        this.maxBackoff = Duration.ofMillis(maxBackoffMs);
+        this.retention = Duration.ofDays(retentionDays);
+        this.inline = "inline".equalsIgnoreCase(afterCommit);
+    }
+
+    @TransactionalEventListener
+    public void onAppended(DomainEventOutbox.Appended appended) {
+        if (inline) {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                // Исходная транзакция уже закоммичена — событие подберёт опрос
+                log.error("❌ Inline outbox dispatch failed: {}", e.getMessage(), e);
+            }
+        } else {
+            wake();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-ms:5000}")
+    public void poll() {
+        wake();
+    }
+
+    @Scheduled(cron = "${app.outbox.purge-cron:0 40 4 * * *}")
+    public void purgeProcessed() {
+        Integer deleted = transactions.execute(status -> outboxRepository.deleteProcessedBefore(
+                OutboxStatus.DONE, LocalDateTime.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("📮 Purged {} processed outbox events", deleted);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Обрабатывает все события, срок которых наступил.
+     *
+     * @return число успешно обработанных событий
+     */
+    public int drain() {
+        int handled = 0;
+        while (true) {
+            List<Long> due = outboxRepository.findDueIds(
+                    OutboxStatus.PENDING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+
+            for (Long id : due) {
+                if (dispatch(id)) {
+                    handled++;
+                }
+            }
+            if (due.size() < batchSize) {
+                return handled;
+            }
+        }
+    }
+
+    private void wake() {
+        wakeRequested.set(true);
+        if (draining.compareAndSet(false, true)) {
+            runner.submit(this::drainSafely);
+        }
+    }
+
+    private void drainSafely() {
+        try {
+            while (wakeRequested.getAndSet(false)) {
+                drain();
+            }
+        } catch (Exception e) {
+            log.error("❌ Outbox dispatcher failed: {}", e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+
+        // Событие записано между последней проверкой и сбросом флага
+        if (wakeRequested.get()) {
+            wake();
+        }
+    }
+
+    /**
+     * @return true, если событие захвачено этим вызовом и обработано
+     */
+    boolean dispatch(Long id) {
+        try {
+            Boolean handled = transactions.execute(status -> {
+                if (outboxRepository.claim(id, OutboxStatus.PENDING, OutboxStatus.DONE, LocalDateTime.now()) == 0) {
+                    // Уже обработано другим потоком или репликой
+                    return false;
+                }
+                OutboxEvent record = outboxRepository.findById(id)
+                        .orElseThrow(() -> new IllegalStateException("Outbox event disappeared: " + id));
+                DomainEvent event = DomainEventOutbox.read(record);
+                for (DomainEventHandler handler : handlersOf(record)) {
+                    handler.handle(event);
+                }
+                return true;
+            });
+
+            if (Boolean.TRUE.equals(handled)) {
+                dispatched.increment();
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            recordFailure(id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Обработчик записи; запись до V17 (handler = null) — все обработчики, как раньше
+     */
+    private List<DomainEventHandler> handlersOf(OutboxEvent record) {
+        if (record.getHandler() == null) {
+            return handlers;
+        }
+        DomainEventHandler handler = handlersByName.get(record.getHandler());
+        if (handler == null) {
+            throw new IllegalStateException("Unknown outbox handler: " + record.getHandler());
+        }
+        return List.of(handler);
+    }
+
+    private void recordFailure(Long id, RuntimeException error) {
+        transactions.executeWithoutResult(status -> outboxRepository.findById(id).ifPresent(record -> {
+            int attempt = record.getAttempts() + 1;
+            boolean exhausted = attempt >= maxAttempts;
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(attempt));
+
+            outboxRepository.recordFailure(id, OutboxStatus.PENDING,
+                    exhausted ? OutboxStatus.FAILED : OutboxStatus.PENDING,
+                    nextAttemptAt, truncate(error));
+
+            if (exhausted) {
+                failed.increment();
+                log.error("❌ Outbox #{} {} → {} failed after {} attempts: {}",
+                        id, record.getEventType(), record.getHandler(), attempt, error.getMessage(), error);
+            } else {
+                retried.increment();
+                log.warn("⚠️ Outbox #{} {} → {} failed (attempt {}), retry at {}: {}",
+                        id, record.getEventType(), record.getHandler(), attempt, nextAttemptAt, error.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * initialBackoff · 2^(attempt−1), не больше maxBackoff
+     */
+    Duration backoff(int attempt) {
+        int shift = Math.min(attempt - 1, 30);
+        Duration delay = initialBackoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(RuntimeException error) {
+        String message = error.getClass().getSimpleName() + ": " + error.getMessage();
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,36 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.repository.DealRepository;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.stats.TradeStatsService;
+
+/**
+ * 📈 Сделки и исполненные заявки → часовые и суточные агрегаты торговли.
+ * Курс и время берутся из сохранённых строк: бакет определяется finished_at, а не моментом обработки,
+ * поэтому повтор после сбоя попадает в тот же бакет.
+ */
+@Component
+@RequiredArgsConstructor
+public class TradeStatsRollup implements DomainEventHandler {
+
+    private final DealRepository dealRepository;
+    private final ExchangeRequestRepository exchangeRequestRepository;
+    private final TradeStatsService tradeStatsService;
+
+    @Override
+    public void handle(DomainEvent event) {
+        if (event instanceof DomainEvent.DealCompleted completed) {
+            dealRepository.findById(completed.dealId())
+                    .filter(deal -> deal.getFinishedAt() != null)
+                    .ifPresent(deal -> tradeStatsService.recordDeal(
+                            deal.getCurrency(), deal.getAmount(), deal.getExchangeRate(), deal.getFinishedAt()));
+        } else if (event instanceof DomainEvent.RequestFilled filled) {
+            exchangeRequestRepository.findById(filled.requestId())
+                    .filter(request -> request.getFinishedAt() != null)
+                    .ifPresent(request -> tradeStatsService.recordFill(
+                            request.getCurrencyNeed(), request.getCreatedAt(), request.getFinishedAt()));
+        }
+    }
+}
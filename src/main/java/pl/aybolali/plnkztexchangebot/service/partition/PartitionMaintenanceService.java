@@ -0,0 +1,262 @@
+package pl.aybolali.plnkztexchangebot.service.partition;
+
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 🗓️ СЕКЦИИ ПО МЕСЯЦАМ: deals и exchange_requests секционированы по created_at (V11)
+ *
+ * - Создание: секции на app.partitions.months-ahead месяцев вперёд (при старте и по расписанию),
+ *   чтобы новые строки не попадали в секцию DEFAULT. Строки, всё же оказавшиеся в DEFAULT
+ *   (месяц без секции), переносятся в воссозданную секцию своего месяца
+ * - Удаление: прошедший месяц, в котором не осталось строк (их перенёс архив) или остались только
+ *   строки, подлежащие очистке, отсоединяется и удаляется целиком — без DELETE по строкам и VACUUM
+ * - Каждая секция — своя транзакция с lock_timeout: DETACH ждёт эксклюзивную блокировку родителя
+ *   и не должен надолго вставать в очередь за длинной выгрузкой
+ * - На H2 (тесты) и на несекционированной схеме ничего не делает — очистка идёт по строкам, как раньше
+ */
+@Service
+@Slf4j
+public class PartitionMaintenanceService {
+
+    public static final String DEALS = "deals";
+    public static final String REQUESTS = "exchange_requests";
+
+    private static final Pattern MONTH_SUFFIX = Pattern.compile("_p(\\d{4})_(\\d{2})$");
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = ?
+            ORDER BY c.relname
+            """;
+
+    /**
+     * Строки заявок, которые очистка ещё не удаляет: не закрытые или закрытые позже срока хранения
+     */
+    private static final String REQUESTS_RETAINED = """
+            status NOT IN ('COMPLETED', 'CANCELLED')
+            OR (status = 'COMPLETED' AND updated_at >= ?)
+            OR (status = 'CANCELLED' AND updated_at >= ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactions;
+    private final int monthsAhead;
+    private final long lockTimeoutMs;
+
+    private volatile Boolean postgres;
+
+    public PartitionMaintenanceService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${app.partitions.lock-timeout-ms:5000}") long lockTimeoutMs) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        try {
+            ensureFuturePartitions();
+        } catch (Exception e) {
+            log.error("❌ Partition creation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * После ночного архива (app.archive.cron): новые секции + удаление опустевших месяцев
+     */
+    @Scheduled(cron = "${app.partitions.cron:0 0 4 * * *}")
+    public void scheduledMaintenance() {
+        try {
+            ensureFuturePartitions();
+            dropEmptyPartitions(DEALS);
+            dropEmptyPartitions(REQUESTS);
+        } catch (Exception e) {
+            log.error("❌ Partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public boolean isPartitioned(String table) {
+        if (!isPostgres()) {
+            return false;
+        }
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                        + "WHERE c.relname = ?)", Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    /**
+     * DELETE из deals до конца текущей транзакции не освобождает токены подтверждения (V15):
+     * для архивации, после которой старая кнопка не должна создать сделку повторно
+     */
+    public void keepConfirmationTokens() {
+        if (isPartitioned(DEALS)) {
+            jdbcTemplate.queryForObject("SELECT set_config('app.keep_confirmation_tokens', 'on', true)", String.class);
+        }
+    }
+
+    /**
+     * @return число созданных секций
+     */
+    public int ensureFuturePartitions() {
+        int created = 0;
+        for (String table : List.of(DEALS, REQUESTS)) {
+            if (!isPartitioned(table)) {
+                continue;
+            }
+            LocalDate month = YearMonth.now().atDay(1);
+            created += ensureMonths(table, month, month.plusMonths(monthsAhead));
+
+            // Месяцы, строки которых лежат в DEFAULT: секция создаётся, строки переносятся в неё
+            for (Date stray : jdbcTemplate.queryForList("SELECT DISTINCT date_trunc('month', created_at)::date FROM "
+                    + table + "_default", Date.class)) {
+                LocalDate strayMonth = stray.toLocalDate();
+                int rehomed = ensureMonths(table, strayMonth, strayMonth);
+                if (rehomed > 0) {
+                    log.warn("🗓️ Rows of {} {} were in the DEFAULT partition, moved to a new monthly partition",
+                            table, YearMonth.from(strayMonth));
+                }
+                created += rehomed;
+            }
+        }
+        if (created > 0) {
+            log.info("🗓️ Created {} monthly partitions", created);
+        }
+        return created;
+    }
+
+    private int ensureMonths(String table, LocalDate from, LocalDate until) {
+        Integer count = transactions.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT ensure_monthly_partitions(?, ?, ?)", Integer.class, table, from, until));
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Удаляет прошедшие месяцы без строк
+     *
+     * @return число удалённых секций
+     */
+    public int dropEmptyPartitions(String table) {
+        if (!isPartitioned(table)) {
+            return 0;
+        }
+        int dropped = 0;
+        for (String partition : pastPartitions(table)) {
+            if (dropIfNoRowsMatch(table, partition, "TRUE") != null) {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Очистка заявок секциями: удаляет прошедшие месяцы, где все заявки закрыты и старше сроков хранения
+     *
+     * @return число удалённых заявок
+     */
+    public int dropExpiredRequestPartitions(LocalDateTime completedCutoff, LocalDateTime cancelledCutoff) {
+        if (!isPartitioned(REQUESTS)) {
+            return 0;
+        }
+        int deleted = 0;
+        for (String partition : pastPartitions(REQUESTS)) {
+            Integer rows = dropIfNoRowsMatch(REQUESTS, partition, REQUESTS_RETAINED, completedCutoff, cancelledCutoff);
+            if (rows != null) {
+                deleted += rows;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Отсоединяет и удаляет секцию, если в ней нет строк по условию retained.
+     * Условие проверяется дважды: без блокировки (дешёвый отсев) и под блокировкой родителя.
+     *
+     * @return число строк в удалённой секции или null, если секция осталась
+     */
+    private Integer dropIfNoRowsMatch(String table, String partition, String retained, Object... args) {
+        String retainedSql = "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE " + retained + ")";
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(retainedSql, Boolean.class, args))) {
+            return null;
+        }
+
+        try {
+            return transactions.execute(status -> {
+                jdbcTemplate.execute("SET LOCAL lock_timeout = " + lockTimeoutMs);
+                jdbcTemplate.execute("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE");
+                if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(retainedSql, Boolean.class, args))) {
+                    return null;
+                }
+                Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Integer.class);
+                if (DEALS.equals(table)) {
+                    // DETACH + DROP не вызывают триггер trg_deals_confirmation_token — токены сделок секции убираем сами
+                    jdbcTemplate.update("DELETE FROM deal_confirmation_tokens WHERE deal_id IN (SELECT id FROM "
+                            + partition + ")");
+                }
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+
+                Metrics.counter("partitions.dropped", "table", table).increment();
+                log.info("🗓️ Dropped partition {} ({} rows)", partition, rows);
+                return rows;
+            });
+        } catch (Exception e) {
+            // Не дождались блокировки — секция будет удалена в следующий запуск
+            log.warn("⚠️ Partition {} not dropped: {}", partition, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Месячные секции, закончившиеся до начала текущего месяца. Новые строки туда не попадают:
+     * created_at обеих таблиц — момент вставки (заявка — @CreationTimestamp, сделка — DealService.createDealFromRequest)
+     */
+    private List<String> pastPartitions(String table) {
+        YearMonth current = YearMonth.now();
+        List<String> past = new ArrayList<>();
+        for (String partition : jdbcTemplate.queryForList(PARTITIONS_SQL, String.class, table)) {
+            Matcher matcher = MONTH_SUFFIX.matcher(partition);
+            if (matcher.find()
+                    && YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))).isBefore(current)) {
+                past.add(partition);
+            }
+        }
+        return past;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+}
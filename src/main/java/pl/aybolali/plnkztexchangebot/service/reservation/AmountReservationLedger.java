@@ -0,0 +1,266 @@
+package pl.aybolali.plnkztexchangebot.service.reservation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔒 РЕЗЕРВ СУММ: временные холды на заявки между предложением и подтверждением сделки
+ *
+ * Когда откликающемуся предлагается сумма, она удерживается за ним, чтобы та же
+ * ликвидность не ушла нескольким откликам сразу. Поиск и подбор видят
+ * available = amountNeed − сумма холдов.
+ *
+ * - один холд на пару (заявка, откликающийся): новый отклик заменяет прежний
+ * - неподтверждённый холд (предложение показано, откликающийся ещё не нажал «Подтвердить») живёт
+ *   pendingTtl и снимается, как только откликающийся уходит с предложения; подтверждённый
+ *   (предложение отправлено автору) — holdTtl
+ * - у одного откликающегося не больше maxHoldsPerResponder холдов — один пользователь
+ *   не может занять весь стакан (лимит мягкий: параллельные резервы могут превысить его на единицу)
+ * - суммы холдов по заявке — AtomicLong в копейках, резерв через CAS без блокировок и без БД;
+ *   обнулившийся счётчик помечается TOMBSTONE и убирается, резерв на нём берёт новый
+ * - холд снимается при создании сделки, исполнении заявки или истекает по {@link TimingWheel}
+ *
+ * Холды живут в памяти одного узла и видны только ему: при нескольких репликах каждая
+ * резервирует независимо, после рестарта все суммы снова доступны. Снятие холдов исполненной
+ * заявки (FilledRequestHoldsRelease) выполняется только на узле, забравшем событие из outbox, —
+ * на остальных холды этой заявки доживают до своего TTL.
+ */
+@Service
+@Slf4j
+public class AmountReservationLedger {
+
+    private static final int MINOR_UNITS = 2;
+    private static final long TOMBSTONE = Long.MIN_VALUE;
+
+    private final Duration pendingTtl;
+    private final Duration holdTtl;
+    private final int maxHoldsPerResponder;
+    private final TimingWheel<Hold> wheel;
+
+    private final Map<Long, AtomicLong> heldByRequest = new ConcurrentHashMap<>();
+    private final Map<HoldKey, Hold> holds = new ConcurrentHashMap<>();
+
+    private final Counter rejected = Metrics.counter("reservations.holds.rejected");
+    private final Counter expired = Metrics.counter("reservations.holds.expired");
+
+    public AmountReservationLedger(
+            @Value("${app.reservations.pending-ttl-seconds:120}") long pendingTtlSeconds,
+            @Value("${app.reservations.hold-ttl-seconds:900}") long holdTtlSeconds,
+            @Value("${app.reservations.max-holds-per-responder:3}") int maxHoldsPerResponder,
+            @Value("${app.reservations.tick-ms:1000}") long tickMillis,
+            @Value("${app.reservations.wheel-size:512}") int wheelSize) {
+        this.pendingTtl = Duration.ofSeconds(pendingTtlSeconds);
+        this.holdTtl = Duration.ofSeconds(holdTtlSeconds);
+        this.maxHoldsPerResponder = Math.max(1, maxHoldsPerResponder);
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+        Metrics.gauge("reservations.holds.active", holds, Map::size);
+    }
+
+    /**
+     * Резервирует amount на заявке за откликающимся на pendingTtl (прежний холд этой пары снимается).
+     *
+     * @return false, если свободной суммы не хватает или у откликающегося уже maxHoldsPerResponder холдов
+     */
+    public boolean reserve(Long requestId, BigDecimal amountNeed, Long responderId, BigDecimal amount) {
+        HoldKey key = new HoldKey(requestId, responderId);
+        release(key);
+
+        if (atResponderLimit(requestId, responderId)) {
+            rejected.increment();
+            log.info("🔒 Hold rejected: user {} already holds {} requests", responderId, maxHoldsPerResponder);
+            return false;
+        }
+
+        long limit = toMinorUnits(amountNeed, RoundingMode.FLOOR);
+        long cents = toMinorUnits(amount, RoundingMode.CEILING);
+
+        AtomicLong counter;
+        while (true) {
+            AtomicLong held = heldByRequest.computeIfAbsent(requestId, id -> new AtomicLong());
+            long current = held.get();
+            if (current == TOMBSTONE) {
+                heldByRequest.remove(requestId, held);
+                continue;
+            }
+            if (current + cents > limit) {
+                rejected.increment();
+                log.info("🔒 Hold rejected: request {} has {} held of {}, asked {}", requestId,
+                        fromMinorUnits(current), amountNeed, amount);
+                return false;
+            }
+            if (held.compareAndSet(current, current + cents)) {
+                counter = held;
+                break;
+            }
+        }
+
+        Hold hold = new Hold(key, counter, cents);
+        hold.timeout = wheel.schedule(hold, System.currentTimeMillis() + pendingTtl.toMillis());
+        Hold replaced = holds.put(key, hold);
+        if (replaced != null) {
+            // Параллельный резерв той же пары — оставляем последний
+            replaced.timeout.cancel();
+            drop(replaced);
+        }
+
+        log.debug("🔒 Held {} on request {} for user {} ({} s)", amount, requestId, responderId, pendingTtl.toSeconds());
+        return true;
+    }
+
+    /**
+     * Откликающийся подтвердил предложение — холд держится holdTtl, пока решает автор.
+     *
+     * @return false, если холда уже нет (истёк или снят)
+     */
+    public boolean confirm(Long requestId, Long responderId) {
+        HoldKey key = new HoldKey(requestId, responderId);
+        Hold hold = holds.get(key);
+        if (hold == null) {
+            return false;
+        }
+        hold.confirmed = true;
+        hold.timeout.cancel();
+        hold.timeout = wheel.schedule(hold, System.currentTimeMillis() + holdTtl.toMillis());
+        // Таймер мог сработать до переноса — тогда холд уже снят
+        return holds.get(key) == hold;
+    }
+
+    /**
+     * Снимает неподтверждённые холды откликающегося (нажал «Отмена» или ушёл с предложения).
+     *
+     * @return число снятых холдов
+     */
+    public int releaseUnconfirmed(Long responderId) {
+        int released = 0;
+        for (Hold hold : holds.values()) {
+            if (!hold.confirmed && hold.key.responderId().equals(responderId) && holds.remove(hold.key, hold)) {
+                hold.timeout.cancel();
+                drop(hold);
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * У откликающегося уже maxHoldsPerResponder холдов на других заявках
+     */
+    public boolean atResponderLimit(Long requestId, Long responderId) {
+        long others = holds.keySet().stream()
+                .filter(key -> key.responderId().equals(responderId) && !key.requestId().equals(requestId))
+                .count();
+        return others >= maxHoldsPerResponder;
+    }
+
+    /**
+     * Снимает холд пары (сделка создана или предложение отменено).
+     */
+    public void release(Long requestId, Long responderId) {
+        release(new HoldKey(requestId, responderId));
+    }
+
+    /**
+     * Снимает все холды заявки (заявка исполнена).
+     *
+     * @return число снятых холдов
+     */
+    public int releaseRequest(Long requestId) {
+        int released = 0;
+        for (HoldKey key : holds.keySet()) {
+            if (key.requestId().equals(requestId) && release(key)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Сумма заявки, не занятая холдами.
+     */
+    public BigDecimal available(Long requestId, BigDecimal amountNeed) {
+        long held = heldMinorUnits(requestId);
+        if (held == 0) {
+            return amountNeed;
+        }
+        return amountNeed.subtract(fromMinorUnits(held)).max(BigDecimal.ZERO);
+    }
+
+    public BigDecimal available(ExchangeRequest request) {
+        return available(request.getId(), request.getAmountNeed());
+    }
+
+    public BigDecimal held(Long requestId) {
+        return fromMinorUnits(heldMinorUnits(requestId));
+    }
+
+    @Scheduled(fixedDelayString = "${app.reservations.tick-ms:1000}")
+    public void expireHolds() {
+        for (Hold hold : wheel.advance(System.currentTimeMillis())) {
+            if (holds.remove(hold.key, hold)) {
+                drop(hold);
+                expired.increment();
+                log.debug("🔓 Hold on request {} for user {} expired", hold.key.requestId(), hold.key.responderId());
+            }
+        }
+    }
+
+    private boolean release(HoldKey key) {
+        Hold hold = holds.remove(key);
+        if (hold == null) {
+            return false;
+        }
+        hold.timeout.cancel();
+        drop(hold);
+        return true;
+    }
+
+    private void drop(Hold hold) {
+        if (hold.counter.addAndGet(-hold.cents) == 0 && hold.counter.compareAndSet(0, TOMBSTONE)) {
+            heldByRequest.remove(hold.key.requestId(), hold.counter);
+        }
+    }
+
+    private long heldMinorUnits(Long requestId) {
+        AtomicLong held = heldByRequest.get(requestId);
+        long value = held != null ? held.get() : 0;
+        return value == TOMBSTONE ? 0 : value;
+    }
+
+    private static long toMinorUnits(BigDecimal amount, RoundingMode rounding) {
+        return amount.setScale(MINOR_UNITS, rounding).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromMinorUnits(long cents) {
+        return BigDecimal.valueOf(cents, MINOR_UNITS);
+    }
+
+    private record HoldKey(Long requestId, Long responderId) {
+    }
+
+    private static final class Hold {
+
+        private final HoldKey key;
+        private final AtomicLong counter;
+        private final long cents;
+        private volatile boolean confirmed;
+        private volatile TimingWheel.Timeout<Hold> timeout;
+
+        private Hold(HoldKey key, AtomicLong counter, long cents) {
+            this.key = key;
+            this.counter = counter;
+            this.cents = cents;
+        }
+    }
+}
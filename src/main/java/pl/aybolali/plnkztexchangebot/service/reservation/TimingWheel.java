@@ -0,0 +1,150 @@
+package pl.aybolali.plnkztexchangebot.service.reservation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ⏱️ TIMING WHEEL: дешёвые таймеры для большого числа истекающих элементов
+ *
+ * Иерархия колёс из wheelSize бакетов: тик уровня i = tickMillis × wheelSize^i
+ * (512 × 1 с → 8.5 мин, 3 суток, 4 года). Таймер попадает на нижний уровень, который его вмещает;
+ * когда колесо верхнего уровня доходит до бакета, таймеры спускаются ниже — без повторных
+ * обходов на каждом обороте, поэтому дальние дедлайны (сутки и больше) не стоят ничего до своего часа.
+ * Дедлайн дальше всей иерархии ждёт в последнем бакете верхнего уровня и раскладывается заново.
+ *
+ * schedule/advance — O(1) на таймер под монитором колеса; cancel — без блокировок,
+ * отменённый таймер просто пропускается при обходе бакета.
+ *
+ * Точность — один тик нижнего уровня: элемент истекает не раньше дедлайна и не позже дедлайна + tickMillis.
+ */
+public class TimingWheel<T> {
+
+    public static final int DEFAULT_LEVELS = 3;
+
+    private final int wheelSize;
+    private final long[] levelTickMillis;
+    private final ArrayDeque<Timeout<T>>[][] buckets;
+    private long currentMillis;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this(tickMillis, wheelSize, DEFAULT_LEVELS, startMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || levels <= 0) {
+            throw new IllegalArgumentException("tickMillis, wheelSize and levels must be positive");
+        }
+        this.wheelSize = wheelSize;
+        this.levelTickMillis = new long[levels];
+        this.buckets = new ArrayDeque[levels][wheelSize];
+
+        long tick = tickMillis;
+        for (int level = 0; level < levels; level++) {
+            levelTickMillis[level] = tick;
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[level][i] = new ArrayDeque<>();
+            }
+            tick = Math.multiplyExact(tick, (long) wheelSize);
+        }
+        this.currentMillis = startMillis;
+    }
+
+    public synchronized Timeout<T> schedule(T item, long deadlineMillis) {
+        Timeout<T> timeout = new Timeout<>(item, deadlineMillis);
+        place(timeout, currentMillis);
+        return timeout;
+    }
+
+    /**
+     * Продвигает колесо до nowMillis: уровни обходятся сверху вниз, чтобы спущенные таймеры
+     * истекли в этом же вызове.
+     *
+     * @return истёкшие и не отменённые элементы
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+
+        for (int level = levelTickMillis.length - 1; level >= 0; level--) {
+            long tick = levelTickMillis[level];
+            long currentTick = Math.floorDiv(currentMillis, tick);
+            long targetTick = Math.floorDiv(nowMillis, tick);
+            // Если планировщик проспал больше оборота, достаточно обойти каждый бакет один раз
+            long fromTick = Math.max(currentTick + 1, targetTick - wheelSize + 1);
+
+            for (long slot = fromTick; slot <= targetTick; slot++) {
+                ArrayDeque<Timeout<T>> bucket = buckets[level][bucket(slot)];
+                int pending = bucket.size();
+                for (int i = 0; i < pending; i++) {
+                    Timeout<T> timeout = bucket.poll();
+                    if (timeout.cancelled) {
+                        continue;
+                    }
+                    if (timeout.deadlineMillis <= nowMillis) {
+                        expired.add(timeout.item);
+                    } else {
+                        // Спуск на уровень, который теперь вмещает дедлайн
+                        place(timeout, nowMillis);
+                    }
+                }
+            }
+        }
+
+        currentMillis = Math.max(currentMillis, nowMillis);
+        return expired;
+    }
+
+    /**
+     * Уровень 0 — бакет с концом тика не раньше дедлайна; верхние уровни — бакет, в котором дедлайн
+     * начинается (при его обходе таймер спустится ниже и истечёт вовремя).
+     */
+    private void place(Timeout<T> timeout, long refMillis) {
+        int top = levelTickMillis.length - 1;
+        for (int level = 0; level <= top; level++) {
+            long tick = levelTickMillis[level];
+            long refTick = Math.floorDiv(refMillis, tick);
+            long slot = level == 0
+                    ? Math.max(ceilDiv(timeout.deadlineMillis, tick), refTick + 1)
+                    : Math.floorDiv(timeout.deadlineMillis, tick);
+            if (slot > refTick && slot <= refTick + wheelSize) {
+                buckets[level][bucket(slot)].add(timeout);
+                return;
+            }
+        }
+        // Дальше всей иерархии — ждём полный оборот верхнего уровня
+        long refTick = Math.floorDiv(refMillis, levelTickMillis[top]);
+        buckets[top][bucket(refTick + wheelSize)].add(timeout);
+    }
+
+    private int bucket(long tick) {
+        return (int) Math.floorMod(tick, (long) wheelSize);
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    /**
+     * Дескриптор таймера; отменённый таймер просто пропускается при обходе бакета.
+     */
+    public static final class Timeout<T> {
+
+        private final T item;
+        private final long deadlineMillis;
+        private volatile boolean cancelled;
+
+        private Timeout(T item, long deadlineMillis) {
+            this.item = item;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public long deadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+}
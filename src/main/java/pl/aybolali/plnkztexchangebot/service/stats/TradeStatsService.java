@@ -0,0 +1,192 @@
+package pl.aybolali.plnkztexchangebot.service.stats;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.entity.TradeRollup;
+import pl.aybolali.plnkztexchangebot.repository.TradeRollupRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 📈 СТАТИСТИКА ТОРГОВЛИ: часовые и суточные агрегаты в trade_rollups
+ *
+ * - Сделки и исполнения заявок увеличивают бакеты (вставка пустого бакета ON CONFLICT DO NOTHING +
+ *   относительный UPDATE; на H2 вместо ON CONFLICT — MERGE) в транзакции
+ *   обработчика outbox (TradeStatsRollup) — каждое событие учитывается ровно один раз
+ * - Глубина книги — уровень, а не поток: раз в минуту снимается с in-memory ActiveOfferBook
+ * - Чтение — несколько строк агрегатов вместо сканирования deals и exchange_requests
+ */
+@Service
+@Slf4j
+public class TradeStatsService {
+
+    private static final RollupPeriod[] PERIODS = RollupPeriod.values();
+
+    private final TradeRollupRepository rollupRepository;
+    private final ActiveOfferBook offerBook;
+    private final TransactionTemplate transactions;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean postgres;
+
+    public TradeStatsService(TradeRollupRepository rollupRepository,
+                             ActiveOfferBook offerBook,
+                             PlatformTransactionManager transactionManager,
+                             JdbcTemplate jdbcTemplate) {
+        this.rollupRepository = rollupRepository;
+        this.offerBook = offerBook;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Сделка в часовой и суточный бакет её завершения
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordDeal(ExchangeRequest.Currency currency, BigDecimal amount,
+                           BigDecimal exchangeRate, LocalDateTime finishedAt) {
+        BigDecimal rateVolume = amount.multiply(exchangeRate);
+        LocalDateTime now = LocalDateTime.now();
+        for (RollupPeriod period : PERIODS) {
+            LocalDateTime bucketStart = ensureBucket(period, finishedAt, currency, now);
+            rollupRepository.addDeal(period.name(), bucketStart, currency.name(), amount, rateVolume, now);
+        }
+    }
+
+    /**
+     * Исполненная заявка: время от создания до закрытия
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void recordFill(ExchangeRequest.Currency currency, LocalDateTime createdAt, LocalDateTime finishedAt) {
+        long seconds = Math.max(0, Duration.between(createdAt, finishedAt).toSeconds());
+        LocalDateTime now = LocalDateTime.now();
+        for (RollupPeriod period : PERIODS) {
+            LocalDateTime bucketStart = ensureBucket(period, finishedAt, currency, now);
+            rollupRepository.addFill(period.name(), bucketStart, currency.name(), seconds, now);
+        }
+    }
+
+    /**
+     * @return начало бакета; строка бакета после вызова существует
+     */
+    private LocalDateTime ensureBucket(RollupPeriod period, LocalDateTime at,
+                                       ExchangeRequest.Currency currency, LocalDateTime now) {
+        LocalDateTime bucketStart = period.bucketStart(at);
+        if (isPostgres()) {
+            rollupRepository.insertBucketIfAbsent(period.name(), bucketStart, currency.name(), now);
+        } else {
+            rollupRepository.mergeBucketIfAbsent(period.name(), bucketStart, currency.name(), now);
+        }
+        return bucketStart;
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+
+    @Scheduled(fixedDelayString = "${app.trade-stats.depth-sample-ms:60000}",
+            initialDelayString = "${app.trade-stats.depth-sample-ms:60000}")
+    public void sampleDepth() {
+        try {
+            recordDepth(LocalDateTime.now());
+        } catch (Exception e) {
+            // Снимок периодический — следующий перезапишет глубину
+            log.warn("⚠️ Book depth sample failed: {}", e.getMessage());
+        }
+    }
+
+    void recordDepth(LocalDateTime at) {
+        Map<ExchangeRequest.Currency, int[]> counts = new EnumMap<>(ExchangeRequest.Currency.class);
+        Map<ExchangeRequest.Currency, BigDecimal> amounts = new EnumMap<>(ExchangeRequest.Currency.class);
+        for (ExchangeRequest.Currency currency : ExchangeRequest.Currency.values()) {
+            counts.put(currency, new int[1]);
+            amounts.put(currency, BigDecimal.ZERO);
+        }
+
+        offerBook.readSnapshot(entries -> {
+            entries.forEach(entry -> {
+                ExchangeRequest.Currency currency = entry.offer().currencyNeed();
+                counts.get(currency)[0]++;
+                amounts.merge(currency, entry.offer().amountNeed(), BigDecimal::add);
+            });
+            return null;
+        });
+
+        transactions.executeWithoutResult(status -> {
+            for (ExchangeRequest.Currency currency : ExchangeRequest.Currency.values()) {
+                int openRequests = counts.get(currency)[0];
+                BigDecimal openAmount = amounts.get(currency);
+                LocalDateTime now = LocalDateTime.now();
+                for (RollupPeriod period : PERIODS) {
+                    LocalDateTime bucketStart = ensureBucket(period, at, currency, now);
+                    rollupRepository.setDepth(period.name(), bucketStart, currency.name(),
+                            openRequests, openAmount, now);
+                }
+            }
+        });
+    }
+
+    /**
+     * Бакеты периода в [from, to), по времени и валюте
+     */
+    public List<TradeRollupDTO> getRollups(RollupPeriod period, LocalDateTime from, LocalDateTime to) {
+        return rollupRepository.findRange(period, period.bucketStart(from), to).stream()
+                .map(TradeRollupDTO::from)
+                .toList();
+    }
+
+    /**
+     * Сумма часовых бакетов за последнее окно, по валюте; глубина — последний снимок
+     */
+    public List<TradeRollupDTO> getSummary(Duration window) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = RollupPeriod.HOUR.bucketStart(now.minus(window));
+
+        Map<ExchangeRequest.Currency, TradeRollup> totals = new EnumMap<>(ExchangeRequest.Currency.class);
+        for (ExchangeRequest.Currency currency : ExchangeRequest.Currency.values()) {
+            totals.put(currency, TradeRollup.builder()
+                    .id(new TradeRollup.Key(RollupPeriod.HOUR, from, currency))
+                    .build());
+        }
+
+        // Строки упорядочены по времени — последний непустой снимок глубины перезапишет предыдущие
+        for (TradeRollup row : rollupRepository.findRange(RollupPeriod.HOUR, from, now)) {
+            TradeRollup total = totals.get(row.getId().getCurrency());
+            total.setDealCount(total.getDealCount() + row.getDealCount());
+            total.setVolume(total.getVolume().add(row.getVolume()));
+            total.setRateVolume(total.getRateVolume().add(row.getRateVolume()));
+            total.setFilledRequests(total.getFilledRequests() + row.getFilledRequests());
+            total.setFillSecondsSum(total.getFillSecondsSum() + row.getFillSecondsSum());
+            total.setFillSecondsMax(Math.max(total.getFillSecondsMax(), row.getFillSecondsMax()));
+            if (row.getOpenRequests() != null) {
+                total.setOpenRequests(row.getOpenRequests());
+                total.setOpenAmount(row.getOpenAmount());
+            }
+        }
+
+        List<TradeRollupDTO> summary = new ArrayList<>(totals.size());
+        totals.values().forEach(total -> summary.add(TradeRollupDTO.from(total)));
+        return summary;
+    }
+}
@@ -0,0 +1,158 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import pl.aybolali.plnkztexchangebot.telegram.spool.OutboundSpool;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.RENDERED_MESSAGES_CACHE_SIZE;
+
+/**
+ * 📤 ОТПРАВКА ОТВЕТОВ: общая для TelegramBotService и групп маршрутов
+ *
+ * - Ответы на нажатия / команды — короткий повтор из памяти при 429 / сбое сети
+ * - Уведомления другим пользователям — дисковый spool
+ * - Навигация — редактирование сообщения с нажатой кнопкой (RenderedMessageCache отсекает no-op)
+ */
+@Component
+@Slf4j
+public class BotMessenger {
+
+    private final PLNKZTExchangeBot bot;
+    private final OutboundSpool outboundSpool;
+    private final RenderedMessageCache renderedMessages = new RenderedMessageCache(RENDERED_MESSAGES_CACHE_SIZE);
+
+    public BotMessenger(@Lazy PLNKZTExchangeBot bot, OutboundSpool outboundSpool) {
+        this.bot = bot;
+        this.outboundSpool = outboundSpool;
+    }
+
+    public void sendMessage(Long chatId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setParseMode("HTML");
+        try {
+            bot.execute(message);
+            log.debug("Message sent to {}", chatId);
+        } catch (Exception e) {
+            retryReply(message, e);
+        }
+    }
+
+    public void sendMessageWithKeyboard(Long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setParseMode("HTML");
+        message.setReplyMarkup(keyboard);
+        try {
+            Message sent = bot.execute(message);
+            if (sent != null && sent.getMessageId() != null) {
+                renderedMessages.remember(chatId, sent.getMessageId(), text, keyboard);
+            }
+            log.debug("Keyboard message sent to {}", chatId);
+        } catch (Exception e) {
+            retryReply(message, e);
+        }
+    }
+
+    /**
+     * Ответ на нажатие / команду: при 429 / сбое сети — короткий повтор из памяти, без записи в spool.
+     * Иначе после потерянного ответа диалог (валюта → сумма → способ) не продолжить
+     */
+    private void retryReply(SendMessage message, Exception e) {
+        if (OutboundSpool.isRetriable(e)) {
+            outboundSpool.retryReply(message, e);
+            log.warn("⚠️ Reply to {} not sent ({}), retrying shortly", message.getChatId(), e.getMessage());
+        } else {
+            log.error("Error sending message to {}: {}", message.getChatId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Уведомление (предложение автору, итог сделки): при сбое сети / 5xx / 429 уходит в дисковый spool
+     * и будет доставлено позже. Ответы на нажатия (sendMessage*) на диск не пишутся — только короткий
+     * повтор из памяти (retryReply): устаревшая клавиатура через час только мешает.
+     */
+    public void sendNotification(Long chatId, String text, InlineKeyboardMarkup keyboard) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setParseMode("HTML");
+        message.setReplyMarkup(keyboard);
+        try {
+            Message sent = bot.execute(message);
+            if (sent != null && sent.getMessageId() != null) {
+                renderedMessages.remember(chatId, sent.getMessageId(), text, keyboard);
+            }
+            log.debug("Notification sent to {}", chatId);
+        } catch (Exception e) {
+            spoolForRetry(message, e);
+        }
+    }
+
+    /**
+     * 400/403 повтором не исправить
+     */
+    private void spoolForRetry(SendMessage message, Exception e) {
+        if (OutboundSpool.isRetriable(e) && outboundSpool.enqueue(message)) {
+            log.warn("⚠️ Message to {} not sent ({}), spooled for retry", message.getChatId(), e.getMessage());
+        } else {
+            log.error("Error sending message to {}: {}", message.getChatId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Навигация (страницы, "Обновить"): редактируем сообщение с нажатой кнопкой вместо нового.
+     * Без изменений — запроса в API нет; изменилась только клавиатура — EditMessageReplyMarkup.
+     * Если сообщение уже нельзя редактировать (удалено, слишком старое) — отправляем новое.
+     */
+    public void editMessageWithKeyboard(Long chatId, Integer messageId, String text, InlineKeyboardMarkup keyboard) {
+        if (messageId == null) {
+            sendMessageWithKeyboard(chatId, text, keyboard);
+            return;
+        }
+
+        RenderedMessageCache.Change change = renderedMessages.compare(chatId, messageId, text, keyboard);
+        if (change == RenderedMessageCache.Change.NONE) {
+            log.debug("Message {} in chat {} unchanged, edit skipped", messageId, chatId);
+            return;
+        }
+
+        try {
+            if (change == RenderedMessageCache.Change.KEYBOARD_ONLY) {
+                EditMessageReplyMarkup edit = new EditMessageReplyMarkup();
+                edit.setChatId(chatId.toString());
+                edit.setMessageId(messageId);
+                edit.setReplyMarkup(keyboard);
+                bot.execute(edit);
+            } else {
+                EditMessageText edit = new EditMessageText();
+                edit.setChatId(chatId.toString());
+                edit.setMessageId(messageId);
+                edit.setText(text);
+                edit.setParseMode("HTML");
+                edit.setReplyMarkup(keyboard);
+                bot.execute(edit);
+            }
+            renderedMessages.remember(chatId, messageId, text, keyboard);
+            log.debug("Message {} edited in chat {}", messageId, chatId);
+        } catch (TelegramApiRequestException e) {
+            if (e.getApiResponse() != null && e.getApiResponse().contains("message is not modified")) {
+                renderedMessages.remember(chatId, messageId, text, keyboard);
+                return;
+            }
+            log.warn("Cannot edit message {} in chat {} ({}), sending new one", messageId, chatId, e.getApiResponse());
+            sendMessageWithKeyboard(chatId, text, keyboard);
+        } catch (Exception e) {
+            log.error("Error editing keyboard message: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 👆👆 ДВОЙНЫЕ НАЖАТИЯ: одинаковые callback'и в одном чате не выполняются повторно
+ *
+ * Ключ — (chatId, messageId, callback data): та же кнопка под тем же сообщением.
+ * - нажатие, пока первое ещё выполняется, присоединяется к нему и ждёт его завершения (single-flight)
+ * - нажатие в течение окна после успешного выполнения переиспользует результат — он уже на экране,
+ *   но только если в чате с тех пор не нажимали ничего другого (иначе экран уже другой)
+ * - изменяющие callback'и ({@code mutating = true} в маршруте) выполняются в чате строго по одному
+ *
+ * Polling и webhook-полосы и так обрабатывают один чат последовательно; слой делает гарантию явной
+ * и не зависящей от способа доставки.
+ */
+@Component
+@Slf4j
+public class CallbackCoalescer {
+
+    public enum Outcome {
+        EXECUTED,
+        JOINED,
+        REUSED
+    }
+
+    private static final int CHATS_TRACKED = 10_000;
+    private static final int LOCK_STRIPES = 64;
+    private static final long JOIN_TIMEOUT_SECONDS = 30;
+
+    private final long windowNanos;
+    private final Map<Long, Execution> lastByChat;
+    private final ReentrantLock[] mutatingLocks = new ReentrantLock[LOCK_STRIPES];
+
+    private final Counter joined = Metrics.counter("telegram.callback.coalesced", "outcome", "joined");
+    private final Counter reused = Metrics.counter("telegram.callback.coalesced", "outcome", "reused");
+
+    public CallbackCoalescer(@Value("${telegram.bot.callbacks.coalesce-window-ms:1500}") long windowMillis) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.lastByChat = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Execution> eldest) {
+                return size() > CHATS_TRACKED;
+            }
+        };
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            mutatingLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Выполняет обработчик или схлопывает повторное нажатие.
+     * Исключение обработчика пробрасывается; неудачное выполнение не переиспользуется.
+     */
+    public Outcome execute(Long chatId, Integer messageId, String data, boolean mutating, Runnable handler) {
+        String key = messageId + "|" + data;
+        long now = System.nanoTime();
+
+        Execution previous;
+        Execution current = null;
+        synchronized (lastByChat) {
+            previous = lastByChat.get(chatId);
+            boolean sameButton = previous != null && previous.key.equals(key);
+
+            if (!sameButton || (previous.done.isDone() && !previous.reusableAt(now, windowNanos))) {
+                current = new Execution(key);
+                lastByChat.put(chatId, current);
+            }
+        }
+
+        if (current == null) {
+            return coalesce(chatId, data, previous);
+        }
+
+        ReentrantLock lock = mutating ? mutatingLocks[Math.floorMod(Long.hashCode(chatId), LOCK_STRIPES)] : null;
+        if (lock != null) {
+            lock.lock();
+        }
+        boolean succeeded = false;
+        try {
+            handler.run();
+            succeeded = true;
+            return Outcome.EXECUTED;
+        } finally {
+            // В том числе при Error: иначе повторные нажатия ждали бы JOIN_TIMEOUT_SECONDS
+            current.finish(succeeded);
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Outcome coalesce(Long chatId, String data, Execution previous) {
+        if (previous.done.isDone()) {
+            reused.increment();
+            log.debug("👆 Repeated callback '{}' in chat {} reused", data, chatId);
+            return Outcome.REUSED;
+        }
+
+        joined.increment();
+        log.debug("👆 Repeated callback '{}' in chat {} joined in-flight execution", data, chatId);
+        try {
+            previous.done.get(JOIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("⚠️ In-flight callback '{}' in chat {} did not finish: {}", data, chatId, e.getMessage());
+        }
+        return Outcome.JOINED;
+    }
+
+    private static final class Execution {
+
+        private final String key;
+        private final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        private volatile long finishedAt;
+
+        private Execution(String key) {
+            this.key = key;
+        }
+
+        private void finish(boolean succeeded) {
+            finishedAt = System.nanoTime();
+            done.complete(succeeded);
+        }
+
+        private boolean reusableAt(long now, long windowNanos) {
+            return Boolean.TRUE.equals(done.getNow(false)) && now - finishedAt < windowNanos;
+        }
+    }
+}
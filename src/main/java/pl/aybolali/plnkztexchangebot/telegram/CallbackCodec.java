@@ -0,0 +1,228 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import pl.aybolali.plnkztexchangebot.entity.CallbackPayload;
+import pl.aybolali.plnkztexchangebot.repository.CallbackPayloadRepository;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteArgumentException;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+/**
+ * 🔏 СОСТОЯНИЕ ШАГА В САМОЙ КНОПКЕ: подписанный компактный payload в callback_data
+ *
+ * Формат: route + base64url(версия | поля varint (zigzag) | HMAC-SHA256, усечённый до 8 байт).
+ * Подпись покрывает и префикс маршрута, поэтому payload одной кнопки не подходит к другой.
+ * Такую кнопку может обработать любая реплика — без ConversationStateService.
+ *
+ * Telegram ограничивает callback_data 64 байтами; если payload не помещается, поля хранятся
+ * в таблице callback_payloads, а в кнопку уходит только случайный ключ с префиксом '~'.
+ * Такую кнопку тоже обработает любая реплика, в том числе после рестарта; строки старше
+ * telegram.bot.callbacks.stored-retention-days удаляются, их кнопки отвечают "Данные устарели".
+ */
+@Component
+@Slf4j
+public class CallbackCodec {
+
+    static final int MAX_CALLBACK_DATA_BYTES = 64;
+
+    private static final byte VERSION = 1;
+    private static final int MAC_BYTES = 8;
+    private static final int STORED_KEY_BYTES = 12;
+    private static final char STORED_MARKER = '~';
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    private final CallbackPayloadRepository payloadRepository;
+    private final Duration storedRetention;
+
+    private final Counter storedCounter = Metrics.counter("telegram.callback.payload", "kind", "stored");
+    private final Counter rejectedCounter = Metrics.counter("telegram.callback.payload", "kind", "rejected");
+
+    public CallbackCodec(
+            @Value("${telegram.bot.callbacks.secret:${telegram.bot.token}}") String secret,
+            CallbackPayloadRepository payloadRepository,
+            @Value("${telegram.bot.callbacks.stored-retention-days:7}") int storedRetentionDays) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+        this.payloadRepository = payloadRepository;
+        this.storedRetention = Duration.ofDays(storedRetentionDays);
+    }
+
+    /**
+     * @return готовая callback_data: route + подписанный payload
+     */
+    public String encode(String route, Consumer<Writer> fields) {
+        Writer writer = new Writer();
+        writer.out.write(VERSION);
+        fields.accept(writer);
+        byte[] body = writer.out.toByteArray();
+
+        byte[] signed = Arrays.copyOf(body, body.length + MAC_BYTES);
+        System.arraycopy(mac(route, body), 0, signed, body.length, MAC_BYTES);
+
+        String data = route + ENCODER.encodeToString(signed);
+        if (data.getBytes(StandardCharsets.UTF_8).length <= MAX_CALLBACK_DATA_BYTES) {
+            return data;
+        }
+
+        // Не помещается в 64 байта — храним поля в БД; ошибка записи уходит вызывающему,
+        // кнопка без сохранённых полей не отправляется
+        byte[] keyBytes = new byte[STORED_KEY_BYTES];
+        random.nextBytes(keyBytes);
+        String storedKey = ENCODER.encodeToString(keyBytes);
+        payloadRepository.save(CallbackPayload.builder()
+                .key(route + storedKey)
+                .body(body)
+                .build());
+        storedCounter.increment();
+        log.debug("🔏 Callback payload for '{}' is {} bytes, stored server-side", route, data.length());
+        return route + STORED_MARKER + storedKey;
+    }
+
+    /**
+     * @param payload callback_data без префикса маршрута
+     * @throws RouteArgumentException если подпись не сошлась или payload устарел —
+     *                                обработчик маршрутов ответит "Данные устарели"
+     */
+    public Reader decode(String route, String payload) {
+        byte[] body = payload.startsWith(String.valueOf(STORED_MARKER))
+                ? lookup(route, payload.substring(1))
+                : verify(route, payload);
+
+        if (body == null || body.length == 0 || body[0] != VERSION) {
+            rejectedCounter.increment();
+            throw new RouteArgumentException("Invalid signed payload for " + route);
+        }
+        return new Reader(body);
+    }
+
+    private byte[] lookup(String route, String storedKey) {
+        return payloadRepository.findById(route + storedKey)
+                .map(CallbackPayload::getBody)
+                .orElse(null);
+    }
+
+    @Scheduled(cron = "${telegram.bot.callbacks.stored-purge-cron:0 50 4 * * *}")
+    public void purgeStoredPayloads() {
+        int deleted = payloadRepository.deleteCreatedBefore(LocalDateTime.now().minus(storedRetention));
+        if (deleted > 0) {
+            log.info("🧹 Purged {} stored callback payloads", deleted);
+        }
+    }
+
+    private byte[] verify(String route, String payload) {
+        byte[] signed;
+        try {
+            signed = DECODER.decode(payload);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (signed.length <= MAC_BYTES) {
+            return null;
+        }
+
+        byte[] body = Arrays.copyOf(signed, signed.length - MAC_BYTES);
+        byte[] expected = Arrays.copyOf(mac(route, body), MAC_BYTES);
+        byte[] actual = Arrays.copyOfRange(signed, body.length, signed.length);
+        return MessageDigest.isEqual(expected, actual) ? body : null;
+    }
+
+    private byte[] mac(String route, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            mac.update(route.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal(body);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC is not available", e);
+        }
+    }
+
+    /**
+     * Запись полей: целые — zigzag varint, суммы — (unscaled, scale) без хвостовых нулей
+     */
+    public static final class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+
+        public Writer putLong(long value) {
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out.write((int) ((zigzag & 0x7F) | 0x80));
+                zigzag >>>= 7;
+            }
+            out.write((int) zigzag);
+            return this;
+        }
+
+        /**
+         * null записывается как 0 — идентификаторы в БД начинаются с 1
+         */
+        public Writer putId(Long id) {
+            return putLong(id != null ? id : 0L);
+        }
+
+        public Writer putAmount(BigDecimal amount) {
+            BigDecimal normalized = amount.stripTrailingZeros();
+            return putLong(normalized.unscaledValue().longValueExact()).putLong(normalized.scale());
+        }
+    }
+
+    /**
+     * Чтение полей в том же порядке, в котором они записаны
+     */
+    public static final class Reader {
+
+        private final byte[] body;
+        private int position = 1;
+
+        private Reader(byte[] body) {
+            this.body = body;
+        }
+
+        public long getLong() {
+            long zigzag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= body.length) {
+                    throw new RouteArgumentException("Truncated signed payload");
+                }
+                byte b = body[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigzag >>> 1) ^ -(zigzag & 1);
+                }
+            }
+            throw new RouteArgumentException("Malformed varint in signed payload");
+        }
+
+        public Long getId() {
+            long id = getLong();
+            return id != 0 ? id : null;
+        }
+
+        public BigDecimal getAmount() {
+            long unscaled = getLong();
+            return BigDecimal.valueOf(unscaled, (int) getLong());
+        }
+    }
+}
@@ -0,0 +1,428 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.exception.UserNotFoundException;
+import pl.aybolali.plnkztexchangebot.service.ConversationStateService;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteGroup;
+import pl.aybolali.plnkztexchangebot.telegram.routing.UpdateRouter;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * 🤝 ПОДТВЕРЖДЕНИЕ СДЕЛОК: предложение откликнувшегося → кнопка автору → Deal
+ *
+ * - Откликнувшийся подтверждает рассчитанную сумму или вводит свою (AWAITING_DEAL_AMOUNT)
+ * - Автор получает подписанную кнопку со всеми данными сделки; повторное нажатие
+ *   и одновременное подтверждение с другого узла упираются в токен подтверждения
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DealConfirmationHandlers implements RouteGroup {
+
+    private final UserService userService;
+    private final ExchangeRequestService exchangeService;
+    private final DealService dealService;
+    private final ExchangeRateService exchangeRateService;
+    private final TelegramMessageFormatter messageFormatter;
+    private final ConversationStateService conversationStateService;
+    private final CallbackCodec callbackCodec;
+    private final AmountReservationLedger reservationLedger;
+    private final BotMessenger messenger;
+
+    @Override
+    public void registerCallbacks(UpdateRouter callbacks) {
+        callbacks
+                .onMutating(CALLBACK_CONFIRM_DEAL_AUTO, (context, args) ->
+                        handleConfirmDealAutomatic(context.chatId(), context.telegramUserId(), args.rest(0)))
+                .alias(LEGACY_CALLBACK_CONFIRM_DEAL_AUTO, CALLBACK_CONFIRM_DEAL_AUTO)
+                .onMutating(CALLBACK_AUTHOR_CONFIRM, (context, args) ->
+                        handleAuthorConfirmDeal(context.chatId(), context.telegramUserId(), args.rest(0)))
+                .alias(LEGACY_CALLBACK_AUTHOR_CONFIRM, CALLBACK_AUTHOR_CONFIRM)
+                .onMutating(CALLBACK_CREATE_DEAL, (context, args) ->
+                        handleCreateDeal(context.chatId(), context.telegramUserId(), args.getLong(0)))
+                .onMutating(CALLBACK_CONFIRM_COMPLETED_DEAL, (context, args) ->
+                        handleConfirmCompletedDeal(context.chatId(), context.telegramUserId(), args.getLong(0)));
+    }
+
+    /**
+     * Подтверждение автоматической сделки (когда есть активная заявка).
+     * Заявка, сумма и встречная заявка приходят в подписанном payload кнопки.
+     */
+    void handleConfirmDealAutomatic(Long chatId, Long telegramUserId, String payload) {
+        CallbackCodec.Reader fields = callbackCodec.decode(CALLBACK_CONFIRM_DEAL_AUTO, payload);
+        Long targetRequestId = fields.getLong();
+        BigDecimal dealAmount = fields.getAmount();
+        Long responderRequestId = fields.getId();
+        long confirmationToken = fields.getLong();
+
+        try {
+            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(targetRequestId);
+            User responder = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+            User author = targetRequest.getUser();
+
+            conversationStateService.clearState(telegramUserId);
+
+            // Неподтверждённый холд мог истечь — резервируем заново, пока решает автор
+            if (!reservationLedger.confirm(targetRequestId, responder.getId())
+                    && !(reservationLedger.reserve(targetRequestId, targetRequest.getAmountNeed(), responder.getId(), dealAmount)
+                    && reservationLedger.confirm(targetRequestId, responder.getId()))) {
+                messenger.sendMessage(chatId, messageFormatter.formatHoldRejected(
+                        reservationLedger.atResponderLimit(targetRequestId, responder.getId())));
+                return;
+            }
+
+            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ
+            ExchangeRequest.Currency requestCurrency = targetRequest.getCurrencyNeed();  // Что хочет АВТОР получить
+            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            // dealAmount - это сумма в валюте ЗАЯВКИ (то что автор ПОЛУЧИТ)
+            BigDecimal authorWillReceive = dealAmount;  // Автор получит эту сумму
+
+            // Рассчитываем сколько автор ОТДАСТ
+            BigDecimal rate;
+            BigDecimal authorWillGive;
+
+            if (requestCurrency == ExchangeRequest.Currency.KZT) {
+                // Автор хочет KZT, значит отдаст PLN
+                rate = exchangeRateService.getCurrentKZTtoPLNRate();  // 1 KZT = 0.00681 PLN
+                authorWillGive = dealAmount.multiply(rate);  // KZT → PLN
+            } else {
+                // Автор хочет PLN, значит отдаст KZT
+                rate = exchangeRateService.getCurrentPLNtoKZTRate();  // 1 PLN = 146.8 KZT
+                authorWillGive = dealAmount.multiply(rate);  // PLN → KZT
+            }
+
+            // ⭐ УВЕДОМЛЕНИЕ АВТОРУ
+            String notification = messageFormatter.formatNewDealProposalNotification(
+                    responder,
+                    authorWillReceive,
+                    requestCurrency,
+                    authorWillGive,
+                    oppositeCurrency
+            );
+
+            confirmExchange(chatId, telegramUserId, targetRequestId, dealAmount, responderRequestId, confirmationToken, targetRequest, author, requestCurrency, oppositeCurrency, authorWillReceive, authorWillGive, notification);
+
+        } catch (Exception e) {
+            log.error("Error confirming automatic deal: {}", e.getMessage(), e);
+            conversationStateService.clearState(telegramUserId);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    private void confirmExchange(Long chatId, Long telegramUserId, Long targetRequestId, BigDecimal dealAmount, Long responderRequestId, long confirmationToken, ExchangeRequest targetRequest, User author, ExchangeRequest.Currency requestCurrency, ExchangeRequest.Currency oppositeCurrency, BigDecimal authorWillReceive, BigDecimal authorWillGive, String notification) {
+        // В личном чате chat_id = user_id — тогда вместо чата пишем 0 (1 байт)
+        String confirmation = callbackCodec.encode(CALLBACK_AUTHOR_CONFIRM, fields -> fields
+                .putLong(targetRequestId)
+                .putAmount(dealAmount)
+                .putId(responderRequestId)
+                .putLong(telegramUserId)
+                .putLong(chatId.equals(telegramUserId) ? 0L : chatId)
+                .putLong(confirmationToken));
+
+        InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
+                .addButton("✅ Подтвердить обмен", confirmation)
+                .build();
+
+        messenger.sendNotification(author.getTelegramUserId(), notification, keyboard);
+
+        String message = messageFormatter.formatOfferSentConfirmationToResponder(author, authorWillGive, oppositeCurrency, authorWillReceive, requestCurrency);
+
+        InlineKeyboardMarkup responderKeyboard = TelegramKeyboardBuilder.create()
+                .addUrlButton("💬 Написать @" + author.getTelegramUsername(),
+                        "https://t.me/" + author.getTelegramUsername())
+                .build();
+
+        messenger.sendMessageWithKeyboard(chatId, message, responderKeyboard);
+
+        log.info("✅ Deal proposal sent: {} {} from user {} to request {}",
+                dealAmount, targetRequest.getCurrencyNeed(), telegramUserId, targetRequestId);
+    }
+
+    /**
+     * Автор подтверждает сделку - создаём Deal.
+     * Всё, что нужно для сделки, приходит в подписанном payload кнопки (см. confirmExchange).
+     */
+    void handleAuthorConfirmDeal(Long chatId, Long telegramUserId, String payload) {
+        CallbackCodec.Reader fields = callbackCodec.decode(CALLBACK_AUTHOR_CONFIRM, payload);
+        Long targetRequestId = fields.getLong();
+        BigDecimal dealAmount = fields.getAmount();
+        Long responderRequestId = fields.getId();
+        long responderTelegramId = fields.getLong();
+        long encodedChatId = fields.getLong();
+        Long responderChatId = encodedChatId != 0 ? encodedChatId : responderTelegramId;
+        long confirmationToken = fields.getLong();
+
+        try {
+            // ⭐ ПОВТОРНОЕ НАЖАТИЕ / ПОВТОРНАЯ ДОСТАВКА: сделка по этому предложению уже есть
+            Optional<Deal> existing = dealService.findByConfirmationToken(confirmationToken);
+            if (existing.isPresent()) {
+                log.info("Deal {} already created for confirmation token {}", existing.get().getId(), confirmationToken);
+                messenger.sendMessage(chatId, "✅ Сделка #" + existing.get().getId() + " уже завершена ранее");
+                return;
+            }
+
+            User author = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException("Author not found"));
+
+            User responder = userService.findByTelegramUserId(responderTelegramId)
+                    .orElseThrow(() -> new UserNotFoundException("Responder not found"));
+
+            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(targetRequestId);
+
+            // ⭐ ПОДТВЕРЖДАЕТ ТОЛЬКО АВТОР ЗАЯВКИ: подпись доказывает, что кнопку выдал бот, но не кому
+            if (!targetRequest.getUser().getTelegramUserId().equals(telegramUserId)) {
+                log.warn("User {} tried to confirm deal on request {} owned by another user", telegramUserId, targetRequestId);
+                messenger.sendMessage(chatId, "❌ Подтвердить обмен может только автор заявки");
+                return;
+            }
+
+            // Создаём сделку; одновременное подтверждение с другого узла упрётся в уникальный токен
+            Deal deal;
+            try {
+                deal = dealService.createDealFromRequest(
+                        targetRequestId,
+                        responder.getId(),
+                        dealAmount,
+                        confirmationToken
+                );
+            } catch (DataIntegrityViolationException e) {
+                Optional<Deal> concurrent = dealService.findByConfirmationToken(confirmationToken);
+                if (concurrent.isPresent()) {
+                    log.info("Deal {} was created concurrently for confirmation token {}", concurrent.get().getId(), confirmationToken);
+                    messenger.sendMessage(chatId, "✅ Сделка #" + concurrent.get().getId() + " уже завершена ранее");
+                    return;
+                }
+                if (!DealService.isConfirmationTokenConflict(e)) {
+                    throw e;
+                }
+                // Сделка по этому токену уже перенесена в архив — токен остался занят (V15)
+                log.info("Confirmation token {} belongs to an archived deal", confirmationToken);
+                messenger.sendMessage(chatId, "✅ Сделка уже завершена ранее");
+                return;
+            }
+
+            log.info("✅ Deal created: ID={}, status=COMPLETED", deal.getId());
+            reservationLedger.release(targetRequestId, responder.getId());
+
+            // Загружаем обновлённую заявку автора
+            ExchangeRequest updatedTargetRequest = exchangeService.findByIdWithUser(targetRequestId);
+
+            // РАСЧЁТЫ ДЛЯ АВТОРА
+            ExchangeRequest.Currency requestCurrency = targetRequest.getCurrencyNeed();
+            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            BigDecimal authorReceived = dealAmount;
+
+            BigDecimal rate;
+            BigDecimal authorGave;
+
+            if (requestCurrency == ExchangeRequest.Currency.KZT) {
+                rate = exchangeRateService.getCurrentKZTtoPLNRate();
+                authorGave = dealAmount.multiply(rate);
+            } else {
+                rate = exchangeRateService.getCurrentPLNtoKZTRate();
+                authorGave = dealAmount.multiply(rate);
+            }
+
+            // ⭐ ПОЛУЧАЕМ ЗАЯВКУ RESPONDER'А ЕСЛИ ЕСТЬ
+            ExchangeRequest responderRequest = null;
+            if (responderRequestId != null) {
+                try {
+                    responderRequest = exchangeService.findByIdWithUser(responderRequestId);
+                } catch (Exception e) {
+                    log.warn("Responder request {} not found", responderRequestId);
+                }
+            }
+
+            // УВЕДОМЛЕНИЕ АВТОРУ
+            String authorMessage = messageFormatter.formatDealCompletionForAuthor(
+                    deal,
+                    authorReceived,
+                    requestCurrency,
+                    authorGave,
+                    oppositeCurrency,
+                    updatedTargetRequest
+            );
+
+            messenger.sendNotification(chatId, authorMessage, createRatingKeyboard(deal.getId()));
+
+            // УВЕДОМЛЕНИЕ ОТКЛИКНУВШЕМУСЯ
+            String responderMessage = messageFormatter.formatDealCompletionForResponder(
+                    deal,
+                    authorGave,
+                    oppositeCurrency,
+                    authorReceived,
+                    requestCurrency,
+                    responderRequest  // ⭐ Передаём уже полученный объект
+            );
+
+            messenger.sendNotification(responderChatId, responderMessage, createRatingKeyboard(deal.getId()));
+
+            conversationStateService.clearState(telegramUserId);
+
+            log.info("✅ Deal {} completed successfully. Author: {}, Provider: {}, Amount: {} {}",
+                    deal.getId(), author.getTelegramUsername(), responder.getTelegramUsername(),
+                    dealAmount, requestCurrency);
+
+        } catch (Exception e) {
+            log.error("Error confirming deal: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    /**
+     * Создание клавиатуры для оценки (1-5 звёзд) + кнопка "Пропустить"
+     */
+    private InlineKeyboardMarkup createRatingKeyboard(Long dealId) {
+        TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
+
+        // Кнопки оценки (1-5 звёзд)
+        for (int i = 1; i <= 5; i++) {
+            builder.addButton(i + "⭐", CALLBACK_RATE_DEAL + dealId + ":" + i);
+        }
+
+        return builder.newRow()
+                .addButton("⏭️Пропустить оценку", CALLBACK_SKIP_RATING + dealId)
+                .build();
+    }
+
+    /**
+     * Подтверждение завершённой сделки (после отклика)
+     */
+    void handleConfirmCompletedDeal(Long chatId, Long telegramUserId, Long requestId) {
+        try {
+            User responder = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            String authorIdStr = conversationStateService.getUserData(telegramUserId, "pending_response_author_id");
+            if (authorIdStr == null) {
+                messenger.sendMessage(chatId, "❌ Ошибка: данные не найдены");
+                return;
+            }
+
+            Long authorTelegramId = Long.parseLong(authorIdStr);
+
+            // Показываем форму для ввода суммы
+            conversationStateService.setState(telegramUserId, ConversationState.AWAITING_DEAL_AMOUNT);
+            conversationStateService.setUserData(telegramUserId, "deal_request_id", requestId.toString());
+            conversationStateService.setUserData(telegramUserId, "deal_author_telegram_id", Long.toString(authorTelegramId));
+
+            ExchangeRequest request = exchangeService.findByIdWithUser(requestId);
+
+            String message = messageFormatter.formatConfirmDealAmountRequest(request);
+
+            messenger.sendMessage(chatId, message);
+
+        } catch (Exception e) {
+            log.error("Error confirming completed deal: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    /**
+     * Обработка ввода суммы для сделки (ручной ввод)
+     */
+    void handleDealAmountInput(Long chatId, Long telegramUserId, String text) {
+        try {
+            // ⭐ УБИРАЕМ ПРОБЕЛЫ
+            BigDecimal dealAmount = new BigDecimal(text.replace(" ", "").replace(",", "."));
+
+            if (dealAmount.compareTo(MIN_EXCHANGE_AMOUNT) < 0) {
+                messenger.sendMessage(chatId, "❌ Минимальная сумма: 10");
+                return;
+            }
+
+            String requestIdStr = conversationStateService.getUserData(telegramUserId, "deal_request_id");
+            Long requestId = Long.parseLong(requestIdStr);
+
+            ExchangeRequest request = exchangeService.findByIdWithUser(requestId);
+
+            User responder = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+            User author = request.getUser();
+
+            // Свободная сумма — за вычетом холдов других откликов
+            reservationLedger.release(requestId, responder.getId());
+            BigDecimal available = reservationLedger.available(request);
+            if (dealAmount.compareTo(available) > 0
+                    || !reservationLedger.reserve(requestId, request.getAmountNeed(), responder.getId(), dealAmount)) {
+                messenger.sendMessage(chatId, reservationLedger.atResponderLimit(requestId, responder.getId())
+                        ? messageFormatter.formatHoldRejected(true)
+                        : "❌ Сумма не может превышать " +
+                        messageFormatter.formatAmount(reservationLedger.available(request)) + " " + request.getCurrencyNeed());
+                return;
+            }
+            // Ввод суммы и есть подтверждение: предложение сразу уходит автору
+            reservationLedger.confirm(requestId, responder.getId());
+
+            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ
+            ExchangeRequest.Currency requestCurrency = request.getCurrencyNeed();
+            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            BigDecimal authorWillReceive = dealAmount;
+
+            BigDecimal rate;
+            BigDecimal authorWillGive;
+
+            if (requestCurrency == ExchangeRequest.Currency.KZT) {
+                rate = exchangeRateService.getCurrentKZTtoPLNRate();
+                authorWillGive = dealAmount.multiply(rate);
+            } else {
+                rate = exchangeRateService.getCurrentPLNtoKZTRate();
+                authorWillGive = dealAmount.multiply(rate);
+            }
+
+            conversationStateService.clearState(telegramUserId);
+
+            String notification = messageFormatter.formatNewOfferNotificationToAuthor(responder, authorWillReceive, requestCurrency, authorWillGive, oppositeCurrency);
+
+            confirmExchange(chatId, telegramUserId, requestId, dealAmount, null, DealService.newConfirmationToken(), request, author, requestCurrency, oppositeCurrency, authorWillReceive, authorWillGive, notification);
+
+        } catch (NumberFormatException e) {
+            messenger.sendMessage(chatId, "❌ Неверный формат суммы. Введите число, например: 10000, 10 000 или 500,50");
+        } catch (Exception e) {
+            log.error("Error processing deal amount: {}", e.getMessage());
+            conversationStateService.clearState(telegramUserId);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    void handleCreateDeal(Long chatId, Long telegramUserId, Long requestId) {
+        log.info("Creating deal for request {} by user {}", requestId, telegramUserId);
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            ExchangeRequest request = exchangeService.findById(requestId);
+            Deal deal = dealService.createDealFromRequest(requestId, user.getId(), request.getAmountNeed());
+
+            messenger.sendMessage(chatId, "✅ Сделка создана! ID: " + deal.getId());
+        } catch (Exception e) {
+            messenger.sendMessage(chatId, "❌ Ошибка создания сделки");
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookChangeListener;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferSearchCriteria;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * 🔎 INLINE MODE: Поиск заявок прямо из поля ввода (@bot 500 PLN)
+ *
+ * Ответ собирается только из {@link ActiveOfferBook} и последнего полученного курса — без запросов
+ * к БД и к API курсов, чтобы уложиться в бюджет Telegram на inline-ответ. Нет курса — карточки
+ * показывают «курс недоступен». Два уровня кэша:
+ * - ответы по нормализованному запросу ("500 pln" и "PLN 500" — один ключ), живут cache-seconds
+ * - готовые карточки заявок, пересобираются только если изменились заявка, автор или курс
+ *
+ * Ответы не персональные (is_personal=false) и кэшируются ещё и на стороне Telegram (cache_time),
+ * поэтому популярный запрос считается один раз для многих пользователей.
+ * Требует включённого inline-режима у бота (/setinline в BotFather).
+ */
+@Service
+@Slf4j
+public class InlineQueryService implements OfferBookChangeListener {
+
+    private static final int MAX_RESULTS = 50;
+    private static final int MAX_CACHED_QUERIES = 1_000;
+
+    private final PLNKZTExchangeBot bot;
+    private final ActiveOfferBook offerBook;
+    private final ExchangeRateService exchangeRateService;
+    private final TelegramMessageFormatter messageFormatter;
+    private final String botUsername;
+    private final int cacheSeconds;
+
+    private final Map<String, CachedAnswer> answers = new ConcurrentHashMap<>();
+    private final Map<Long, CachedCard> cards = new ConcurrentHashMap<>();
+
+    public InlineQueryService(
+            @Lazy PLNKZTExchangeBot bot,
+            ActiveOfferBook offerBook,
+            ExchangeRateService exchangeRateService,
+            TelegramMessageFormatter messageFormatter,
+            @Value("${telegram.bot.username}") String botUsername,
+            @Value("${telegram.bot.inline.cache-seconds:30}") int cacheSeconds) {
+
+        this.bot = bot;
+        this.offerBook = offerBook;
+        this.exchangeRateService = exchangeRateService;
+        this.messageFormatter = messageFormatter;
+        this.botUsername = botUsername;
+        this.cacheSeconds = cacheSeconds;
+    }
+
+    @PostConstruct
+    public void registerListener() {
+        offerBook.addChangeListener(this);
+    }
+
+    public void handleInlineQuery(InlineQuery inlineQuery) {
+        try {
+            InlineSearch search = InlineSearch.parse(inlineQuery.getQuery());
+            int offset = parseOffset(inlineQuery.getOffset());
+
+            List<InlineQueryResult> results = findResults(search);
+            int to = Math.min(offset + INLINE_PAGE_SIZE, results.size());
+
+            AnswerInlineQuery answer = new AnswerInlineQuery();
+            answer.setInlineQueryId(inlineQuery.getId());
+            answer.setResults(new ArrayList<>(results.subList(Math.min(offset, to), to)));
+            answer.setCacheTime(cacheSeconds);
+            answer.setIsPersonal(false);
+            answer.setNextOffset(to < results.size() ? String.valueOf(to) : "");
+
+            bot.execute(answer);
+            log.debug("Inline query '{}' answered with {} results", search.key(), to - Math.min(offset, to));
+
+        } catch (Exception e) {
+            log.error("Error answering inline query: {}", e.getMessage());
+        }
+    }
+
+    List<InlineQueryResult> findResults(InlineSearch search) {
+        long now = System.currentTimeMillis();
+        CachedAnswer cached = answers.get(search.key());
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.results();
+        }
+
+        List<InlineQueryResult> results = buildResults(search);
+        if (answers.size() >= MAX_CACHED_QUERIES) {
+            answers.values().removeIf(answer -> answer.expiresAt() <= now);
+            if (answers.size() >= MAX_CACHED_QUERIES) {
+                answers.clear();
+            }
+        }
+        answers.put(search.key(), new CachedAnswer(results, now + cacheSeconds * 1000L));
+        return results;
+    }
+
+    private List<InlineQueryResult> buildResults(InlineSearch search) {
+        // "Ищу PLN" = нужны заявки тех, кому нужен KZT (как в /search)
+        ExchangeRequest.Currency theyWant = search.iWant() != null ? opposite(search.iWant()) : null;
+        OfferSearchCriteria criteria = new OfferSearchCriteria(theyWant, null, null, search.transferMethod(),
+                null, null, null, List.of(), null);
+
+        // Только кэш: getCurrentPLNtoKZTRate при устаревшем курсе ходит во внешние API
+        BigDecimal plnToKzt = exchangeRateService.getLastGoodRate()
+                .map(ExchangeRateService.LastGoodRate::plnToKzt)
+                .filter(rate -> rate.signum() > 0)
+                .orElse(null);
+        BigDecimal kztToPln = plnToKzt != null ? BigDecimal.ONE.divide(plnToKzt, 6, RoundingMode.HALF_UP) : null;
+
+        List<ActiveOfferBook.OfferBookEntry> entries = new ArrayList<>(
+                offerBook.search(criteria, PageRequest.of(0, search.amount() != null ? 500 : MAX_RESULTS)).getContent());
+
+        if (search.amount() != null && theyWant != null && plnToKzt != null) {
+            // Сумма в запросе — в моей валюте; сравниваем с заявками в их валюте
+            BigDecimal target = search.amount().multiply(rateFor(search.iWant(), plnToKzt, kztToPln));
+            entries.sort(Comparator.comparing(entry -> entry.offer().amountNeed().subtract(target).abs()));
+        }
+
+        return entries.stream()
+                .limit(MAX_RESULTS)
+                .map(entry -> card(entry, rateFor(entry.offer().currencyNeed(), plnToKzt, kztToPln)))
+                .toList();
+    }
+
+    private InlineQueryResult card(ActiveOfferBook.OfferBookEntry entry, BigDecimal rate) {
+        ActiveOffer offer = entry.offer();
+        CardKey key = new CardKey(offer, entry.user(), rate);
+
+        CachedCard cached = cards.get(offer.id());
+        if (cached != null && cached.key().equals(key)) {
+            return cached.article();
+        }
+
+        ExchangeRequest.Currency iWant = opposite(offer.currencyNeed());
+        InlineQueryResultArticle article = new InlineQueryResultArticle();
+        article.setId("offer-" + offer.id());
+        article.setTitle("💰 " + messageFormatter.formatAmount(offer.amountNeed()) + " " + offer.currencyNeed()
+                + (rate != null
+                        ? " → ≈ " + messageFormatter.formatAmount(offer.amountNeed().multiply(rate)) + " " + iWant
+                        : " → " + iWant + " (курс недоступен)"));
+        article.setDescription(messageFormatter.formatInlineOfferDescription(offer, entry.user()));
+
+        InputTextMessageContent content = new InputTextMessageContent();
+        content.setMessageText(messageFormatter.formatInlineOfferCard(offer, entry.user(), iWant, rate));
+        content.setParseMode("HTML");
+        article.setInputMessageContent(content);
+
+        // Callback из чужого чата не несёт chatId — отклик идёт через deep link в личку с ботом
+        article.setReplyMarkup(TelegramKeyboardBuilder.create()
+                .addUrlButton("📋 Откликнуться",
+                        "https://t.me/" + botUsername + "?start=" + START_PAYLOAD_RESPOND + offer.id())
+                .build());
+
+        cards.put(offer.id(), new CachedCard(key, article));
+        return article;
+    }
+
+    // ========================================================================
+    // OfferBookChangeListener — вызывается под write lock книги, только сбрасываем карточку
+    // ========================================================================
+
+    @Override
+    public void offerPut(ActiveOffer offer, UserPublicDTO user) {
+        cards.remove(offer.id());
+    }
+
+    @Override
+    public void offerRemoved(Long requestId) {
+        cards.remove(requestId);
+    }
+
+    @Override
+    public void userUpdated(UserPublicDTO user) {
+        // Карточка сравнивает автора при выдаче, устаревшая пересоберётся сама
+    }
+
+    @Override
+    public void bookRebuilt() {
+        cards.clear();
+        answers.clear();
+    }
+
+    /**
+     * Курс перевода суммы в валюте {@code from} в противоположную (null — курса нет).
+     */
+    private static BigDecimal rateFor(ExchangeRequest.Currency from, BigDecimal plnToKzt, BigDecimal kztToPln) {
+        return from == ExchangeRequest.Currency.PLN ? plnToKzt : kztToPln;
+    }
+
+    private static ExchangeRequest.Currency opposite(ExchangeRequest.Currency currency) {
+        return currency == ExchangeRequest.Currency.PLN ? ExchangeRequest.Currency.KZT : ExchangeRequest.Currency.PLN;
+    }
+
+    private static int parseOffset(String offset) {
+        try {
+            return offset == null || offset.isBlank() ? 0 : Math.max(0, Integer.parseInt(offset));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Разобранный текст inline-запроса: сумма, валюта, которую ищет пользователь, способ перевода.
+     * Порядок слов не важен; key() — нормализованный ключ кэша.
+     */
+    record InlineSearch(BigDecimal amount, ExchangeRequest.Currency iWant, TransferMethod transferMethod) {
+
+        static InlineSearch parse(String query) {
+            BigDecimal amount = null;
+            ExchangeRequest.Currency currency = null;
+            TransferMethod method = null;
+
+            for (String token : (query == null ? "" : query).toLowerCase(Locale.ROOT).split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (amount == null && token.matches("\\d[\\d.,]*")) {
+                    try {
+                        amount = new BigDecimal(token.replace(",", ".")).setScale(2, RoundingMode.HALF_UP);
+                    } catch (NumberFormatException ignored) {
+                        // "1.2.3" — не сумма
+                    }
+                } else if (token.startsWith("pln") || token.startsWith("zł") || token.startsWith("злот")) {
+                    currency = ExchangeRequest.Currency.PLN;
+                } else if (token.startsWith("kzt") || token.startsWith("тенге") || token.equals("₸")) {
+                    currency = ExchangeRequest.Currency.KZT;
+                } else if (token.startsWith("нал") || token.equals("cash")) {
+                    method = TransferMethod.CASH;
+                } else if (token.startsWith("банк") || token.startsWith("bank")) {
+                    method = TransferMethod.BANK_TRANSFER;
+                }
+            }
+
+            return new InlineSearch(amount, currency, method);
+        }
+
+        String key() {
+            return (amount != null ? amount.toPlainString() : "") + "|" + iWant + "|" + transferMethod;
+        }
+    }
+
+    private record CachedAnswer(List<InlineQueryResult> results, long expiresAt) {
+    }
+
+    private record CardKey(ActiveOffer offer, UserPublicDTO user, BigDecimal rate) {
+    }
+
+    private record CachedCard(CardKey key, InlineQueryResultArticle article) {
+    }
+}
@@ -0,0 +1,132 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 🧩 Предкомпилированный HTML-шаблон сообщения
+ *
+ * Понимает подмножество синтаксиса String.format: %s, %d, %.Nf и %%.
+ * Шаблон разбирается один раз (обычно в static final поле), render() только склеивает
+ * готовые куски в переиспользуемый буфер потока — без повторного парсинга формата
+ * и без Formatter/Matcher на каждый вызов. Числа %.Nf форматируются как в String.format
+ * (локаль по умолчанию, HALF_UP, без разделителя тысяч).
+ */
+public final class MessageTemplate {
+
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private final String[] literals;
+    private final Placeholder[] placeholders;
+    private final int literalLength;
+
+    private MessageTemplate(String[] literals, Placeholder[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    public static MessageTemplate compile(String pattern) {
+        List<String> literals = new ArrayList<>();
+        List<Placeholder> placeholders = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            if (i + 1 >= pattern.length()) {
+                throw new IllegalArgumentException("Dangling '%' in template");
+            }
+
+            char next = pattern.charAt(i + 1);
+            if (next == '%') {
+                literal.append('%');
+                i++;
+                continue;
+            }
+
+            Placeholder placeholder;
+            if (next == 's' || next == 'd') {
+                placeholder = new Placeholder(-1);
+                i++;
+            } else if (next == '.' && i + 3 < pattern.length()
+                    && Character.isDigit(pattern.charAt(i + 2)) && pattern.charAt(i + 3) == 'f') {
+                placeholder = new Placeholder(pattern.charAt(i + 2) - '0');
+                i += 3;
+            } else {
+                throw new IllegalArgumentException("Unsupported format specifier at " + i + ": " + pattern.substring(i,
+                        Math.min(pattern.length(), i + 4)));
+            }
+
+            literals.add(literal.toString());
+            literal.setLength(0);
+            placeholders.add(placeholder);
+        }
+        literals.add(literal.toString());
+
+        return new MessageTemplate(literals.toArray(String[]::new), placeholders.toArray(Placeholder[]::new));
+    }
+
+    public String render(Object... args) {
+        if (args.length != placeholders.length) {
+            throw new IllegalArgumentException("Template expects " + placeholders.length + " arguments, got " + args.length);
+        }
+
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        sb.ensureCapacity(literalLength + 16 * args.length);
+
+        for (int i = 0; i < placeholders.length; i++) {
+            sb.append(literals[i]);
+            placeholders[i].append(sb, args[i]);
+        }
+        sb.append(literals[placeholders.length]);
+
+        String result = sb.toString();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * precision < 0 — %s / %d, иначе %.Nf.
+     */
+    private record Placeholder(int precision) {
+
+        private static final ThreadLocal<DecimalFormat[]> DECIMALS = ThreadLocal.withInitial(() -> new DecimalFormat[10]);
+
+        void append(StringBuilder sb, Object value) {
+            if (precision < 0 || !(value instanceof Number number)) {
+                sb.append(value);
+                return;
+            }
+            sb.append(decimalFormat(precision).format(number));
+        }
+
+        private static DecimalFormat decimalFormat(int precision) {
+            DecimalFormat[] formats = DECIMALS.get();
+            DecimalFormat format = formats[precision];
+            if (format == null) {
+                format = new DecimalFormat(precision == 0 ? "0" : "0." + "0".repeat(precision),
+                        DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)));
+                format.setRoundingMode(RoundingMode.HALF_UP);
+                formats[precision] = format;
+            }
+            return format;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package pl.aybolali.plnkztexchangebot.telegram;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
 import org.telegram.telegrambots.meta.api.methods.commands.SetMyCommands;
 import org.telegram.telegrambots.meta.api.objects.Update;
@@ -33,6 +34,8 @@ public class PLNKZTExchangeBot extends TelegramLongPollingBot {
     private final String botToken;
     private final String botUsername;
     private final TelegramBotService telegramBotService;
+    private final InlineQueryService inlineQueryService;
+    private final UpdateDeduplicator updateDeduplicator;
 
     /**
      * Конструктор с injection токена и username из application.yml
@@ -40,17 +43,31 @@ public class PLNKZTExchangeBot extends TelegramLongPollingBot {
     public PLNKZTExchangeBot(
             @Value("${telegram.bot.token}") String botToken,
             @Value("${telegram.bot.username}") String botUsername,
-            TelegramBotService telegramBotService) {
+            @Value("${telegram.bot.api-url:https://api.telegram.org/bot}") String apiUrl,
+            TelegramBotService telegramBotService,
+            InlineQueryService inlineQueryService,
+            UpdateDeduplicator updateDeduplicator) {
 
-        super(botToken); // Передаем токен в родительский класс
+        super(botOptions(apiUrl), botToken); // Передаем токен в родительский класс
         this.botToken = botToken;
         this.botUsername = botUsername;
         this.telegramBotService = telegramBotService;
+        this.inlineQueryService = inlineQueryService;
+        this.updateDeduplicator = updateDeduplicator;
 
         log.info("PLN-KZT Exchange Bot component initialized");
         log.info("Username: @{}", botUsername);
     }
 
+    /**
+     * Базовый URL Bot API можно переопределить (telegram.bot.api-url) — например, на локальную заглушку
+     */
+    private static DefaultBotOptions botOptions(String apiUrl) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(apiUrl);
+        return options;
+    }
+
     /**
      * 📨 Получение обновлений от Telegram (Long Polling)
      *
@@ -59,9 +76,17 @@ public class PLNKZTExchangeBot extends TelegramLongPollingBot {
      * - Пользователь отправляет команду
      * - Пользователь нажимает кнопку
      * - Пользователь делится контактом (телефоном)
+     * - Пользователь набирает @bot ... в любом чате (inline query)
+     *
+     * Повторно доставленные update (рестарт, сетевые повторы) отбрасываются до любой работы с БД.
      */
     @Override
     public void onUpdateReceived(Update update) {
+        if (!updateDeduplicator.firstDelivery(update)) {
+            log.debug("🔁 Duplicate update {} skipped", update.getUpdateId());
+            return;
+        }
+
         try {
             // Логируем только важные обновления
             if (update.hasMessage() && update.getMessage().hasText()) {
@@ -76,6 +101,12 @@ public class PLNKZTExchangeBot extends TelegramLongPollingBot {
                 log.debug("📱 Contact shared from @{}", extractUsername(update));
             }
 
+            // ⭐ INLINE QUERY - отвечаем из памяти, без БД
+            if (update.hasInlineQuery()) {
+                inlineQueryService.handleInlineQuery(update.getInlineQuery());
+                return;
+            }
+
             // ⭐ ОБРАБОТКА CALLBACK QUERY (НАЖАТИЯ КНОПОК)
             if (update.hasCallbackQuery()) {
                 telegramBotService.handleCallbackQuery(update.getCallbackQuery());
@@ -89,6 +120,8 @@ public class PLNKZTExchangeBot extends TelegramLongPollingBot {
             log.error("❌ Error processing update {}: {}",
                     update.getUpdateId(), e.getMessage(), e);
             // Не пробрасываем исключение выше чтобы не сломать бота
+        } finally {
+            updateDeduplicator.processed(update);
         }
     }
 
@@ -0,0 +1,306 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import pl.aybolali.plnkztexchangebot.dto.CreateRatingDTO;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.Rating;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.exception.UserNotFoundException;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.RatingService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteGroup;
+import pl.aybolali.plnkztexchangebot.telegram.routing.UpdateRouter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * 👤 ПРОФИЛЬ И ОЦЕНКИ: профиль, история обменов, карточка сделки, оценка и пропуск оценки
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProfileHandlers implements RouteGroup {
+
+    private final UserService userService;
+    private final DealService dealService;
+    private final ExchangeRateService exchangeRateService;
+    private final RatingService ratingService;
+    private final TelegramMessageFormatter messageFormatter;
+    private final BotMessenger messenger;
+
+    @Override
+    public void registerCommands(UpdateRouter commands) {
+        commands
+                .on(COMMAND_PROFILE, (context, args) -> handleProfileCommand(context.chatId(), context.telegramUserId()))
+                .on(COMMAND_HISTORY, (context, args) ->
+                        handleDealsHistoryCommand(context.chatId(), context.telegramUserId()));
+    }
+
+    @Override
+    public void registerCallbacks(UpdateRouter callbacks) {
+        callbacks
+                .onMutating(CALLBACK_RATE_DEAL, (context, args) ->
+                        handleRateDeal(context.chatId(), context.telegramUserId(), args.getLong(0), args.getInt(1)))
+                .on(CALLBACK_SKIP_RATING, (context, args) ->
+                        handleSkipRating(context.chatId(), context.telegramUserId(), args.getLong(0)))
+                .on(CALLBACK_HISTORY_PAGE, (context, args) -> handleDealsHistoryPage(
+                        context.chatId(), context.telegramUserId(), context.messageId(), args.getInt(0)))
+                .on(CALLBACK_VIEW_DEAL, (context, args) ->
+                        handleViewDeal(context.chatId(), context.telegramUserId(), args.getLong(0)));
+    }
+
+    /**
+     * Показать МОЙ ПРОФИЛЬ (статистика как в /start)
+     */
+    void handleProfileCommand(Long chatId, Long telegramUserId) {
+        log.info("Processing profile for user {}", telegramUserId);
+
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            BigDecimal currentRate = exchangeRateService.getCurrentPLNtoKZTRate();
+
+            String message = messageFormatter.formatUserProfile(user, currentRate);
+
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.MENU;
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+        } catch (Exception e) {
+            log.error("Error in profile: {}", e.getMessage());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    void handleDealsHistoryCommand(Long chatId, Long telegramUserId) {
+        handleDealsHistoryPage(chatId, telegramUserId, null, 0);  // Показываем первую страницу (новым сообщением)
+    }
+
+    void handleDealsHistoryPage(Long chatId, Long telegramUserId, Integer messageId, int page) {
+        log.info("Processing history page {} for user {}", page, telegramUserId);
+
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            Pageable pageable = PageRequest.of(page, HISTORY_PAGE_SIZE);
+            Page<Deal> dealsPage = dealService.getFinishedUserDealsWithUsers(user.getId(), pageable);
+            List<Deal> deals = dealsPage.getContent();
+
+            if (deals.isEmpty() && page == 0) {
+                String message = messageFormatter.formatNoHistory();
+
+                InlineKeyboardMarkup keyboard = TelegramKeyboards.NEED_SEARCH_OR_MENU;
+
+                messenger.editMessageWithKeyboard(chatId, messageId, message, keyboard);
+                return;
+            }
+
+            String message = messageFormatter.formatDealsHistoryPage(
+                    dealsPage,
+                    deals,
+                    user,
+                    page,
+                    ratingService
+            );
+
+            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
+
+            for (int i = 0; i < deals.size(); i++) {
+                Deal deal = deals.get(i);
+                builder.addButton("📋 Обмен #" + deal.getId(), CALLBACK_VIEW_DEAL + deal.getId());
+
+                if ((i + 1) % 2 == 0 || i == deals.size() - 1) {
+                    builder.newRow();
+                }
+            }
+
+            if (dealsPage.getTotalPages() > 1) {
+                if (page > 0) {
+                    builder.addButton("⬅️ Назад", CALLBACK_HISTORY_PAGE + (page - 1));
+                }
+
+                builder.addButton("📖 " + (page + 1) + "/" + dealsPage.getTotalPages(), "current_page");
+
+                if (page < dealsPage.getTotalPages() - 1) {
+                    builder.addButton("Вперёд ➡️", CALLBACK_HISTORY_PAGE + (page + 1));
+                }
+
+                builder.newRow();
+            }
+
+            InlineKeyboardMarkup keyboard = builder
+                    .addButton("🏠 Меню", "show_menu")
+                    .build();
+
+            messenger.editMessageWithKeyboard(chatId, messageId, message, keyboard);
+
+        } catch (Exception e) {
+            log.error("Error in history page {}: {}", page, e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    void handleViewDeal(Long chatId, Long telegramUserId, Long dealId) {
+        log.info("Viewing deal {} by user {}", dealId, telegramUserId);
+
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            Deal deal = dealService.findByIdWithUsers(dealId);
+
+            // Проверка доступа
+            if (!deal.getRequester().getId().equals(user.getId()) &&
+                    !deal.getProvider().getId().equals(user.getId())) {
+                messenger.sendMessage(chatId, "❌ У вас нет доступа к этому обмену");
+                return;
+            }
+
+            // Определяем роль
+            boolean isRequester = deal.getRequester().getId().equals(user.getId());
+            User counterparty = isRequester ? deal.getProvider() : deal.getRequester();
+
+            // Рассчитываем конвертацию
+            BigDecimal rate = deal.getCurrency() == ExchangeRequest.Currency.PLN
+                    ? exchangeRateService.getCurrentPLNtoKZTRate()
+                    : exchangeRateService.getCurrentKZTtoPLNRate();
+
+            ExchangeRequest.Currency oppositeCurrency = deal.getCurrency() == ExchangeRequest.Currency.PLN
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            BigDecimal received = deal.getAmount().multiply(rate);
+
+            // Проверяем оценку
+            boolean isRated = ratingService.existsByDealIdAndRaterId(dealId, user.getId());
+
+            String message = messageFormatter.formatDealDetails(
+                    deal,
+                    user,
+                    counterparty,
+                    received,
+                    oppositeCurrency,
+                    isRated);
+
+            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
+
+            if (!isRated) {
+                for (int i = 1; i <= 5; i++) {
+                    builder.addButton(i + " ⭐", CALLBACK_RATE_DEAL + dealId + ":" + i);
+                }
+                builder.newRow();
+            }
+
+            InlineKeyboardMarkup keyboard = builder
+                    .addButton("◀️ Назад к истории", CALLBACK_MENU+"history")
+                    .addButton("🏠 Меню", "show_menu")
+                    .build();
+
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+        } catch (Exception e) {
+            log.error("Error viewing deal: {}", e.getMessage());
+            messenger.sendMessage(chatId, "❌ Обмен не найден");
+        }
+    }
+
+    /**
+     * Обработка оценки сделки
+     */
+    void handleRateDeal(Long chatId, Long telegramUserId, Long dealId, Integer ratingValue) {
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            // ⭐ ИСПОЛЬЗУЕМ СУЩЕСТВУЮЩИЙ createRating
+            CreateRatingDTO dto = new CreateRatingDTO(dealId, BigDecimal.valueOf(ratingValue));
+            Rating rating = ratingService.createRating(dto, user.getTelegramUsername());
+
+            Deal deal = dealService.findByIdWithUsers(dealId);
+
+            // Определяем кого оценили
+            User ratedUser = deal.getRequester().getId().equals(user.getId())
+                    ? deal.getProvider()
+                    : deal.getRequester();
+
+            String ratedUsername = ratedUser.getTelegramUsername();
+
+            String message = messageFormatter.formatRatingThankYou(ratedUsername, ratingValue, dealId);
+
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.MENU;
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+            log.info("✅ Deal #{} rated with {} stars by @{}", dealId, ratingValue, user.getTelegramUsername());
+
+        } catch (RuntimeException e) {
+            String errorMessage = e.getMessage();
+            if (errorMessage.contains("already exists")) {
+                messenger.sendMessage(chatId, "❌ Вы уже оценили эту сделку");
+            } else if (errorMessage.contains("not a participant")) {
+                messenger.sendMessage(chatId, "❌ Вы не участвуете в этой сделке");
+            } else if (errorMessage.contains("not found")) {
+                messenger.sendMessage(chatId, "❌ Сделка не найдена");
+            } else {
+                messenger.sendMessage(chatId, "❌ Ошибка: " + errorMessage);
+            }
+            log.error("Error rating deal {}: {}", dealId, errorMessage);
+        } catch (Exception e) {
+            log.error("Unexpected error rating deal: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    /**
+     * Пропуск оценки
+     */
+    void handleSkipRating(Long chatId, Long telegramUserId, Long dealId) {
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException("User not found"));
+
+            boolean alreadyRated = ratingService.existsByDealIdAndRaterId(dealId, user.getId());
+            if (alreadyRated) {
+                messenger.sendMessage(chatId, "ℹ️ Вы уже оценили этот обмен");
+                return;
+            }
+
+            Deal deal = dealService.findByIdWithUsers(dealId);
+
+            if (!deal.isUserParticipant(user.getId())) {
+                messenger.sendMessage(chatId, "❌ У вас нет доступа к этому обмену");
+                return;
+            }
+
+            boolean isRequester = deal.getRequester().getId().equals(user.getId());
+
+            // ⭐ НОВЫЙ УПРОЩЁННЫЙ ФОРМАТТЕР
+            String message = messageFormatter.formatRatingSkipped(deal, isRequester);
+
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.MENU;
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+            log.info("User {} skipped rating for deal {}", user.getTelegramUsername(), dealId);
+
+        } catch (Exception e) {
+            log.error("Error skipping rating: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 🧾 Хэши последнего содержимого сообщений с клавиатурой (chatId + messageId)
+ *
+ * Нужны навигации, которая редактирует сообщение на месте: если текст и клавиатура
+ * не изменились (повторное нажатие "Обновить"), запрос в Telegram не отправляется вовсе;
+ * если изменилась только клавиатура — хватает EditMessageReplyMarkup.
+ * Ограниченный LRU: старые сообщения просто забываются, и следующее редактирование уйдёт в API.
+ */
+class RenderedMessageCache {
+
+    enum Change {
+        NONE,
+        KEYBOARD_ONLY,
+        TEXT
+    }
+
+    private record MessageKey(Long chatId, Integer messageId) {
+    }
+
+    private record Rendered(int textHash, int keyboardHash) {
+    }
+
+    private final Map<MessageKey, Rendered> rendered;
+
+    RenderedMessageCache(int capacity) {
+        this.rendered = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MessageKey, Rendered> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized Change compare(Long chatId, Integer messageId, String text, InlineKeyboardMarkup keyboard) {
+        Rendered previous = rendered.get(new MessageKey(chatId, messageId));
+        if (previous == null || previous.textHash() != text.hashCode()) {
+            return Change.TEXT;
+        }
+        return previous.keyboardHash() == Objects.hashCode(keyboard) ? Change.NONE : Change.KEYBOARD_ONLY;
+    }
+
+    synchronized void remember(Long chatId, Integer messageId, String text, InlineKeyboardMarkup keyboard) {
+        rendered.put(new MessageKey(chatId, messageId), new Rendered(text.hashCode(), Objects.hashCode(keyboard)));
+    }
+}
@@ -0,0 +1,419 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.exception.UserNotFoundException;
+import pl.aybolali.plnkztexchangebot.service.ConversationStateService;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteGroup;
+import pl.aybolali.plnkztexchangebot.telegram.routing.UpdateRouter;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * 🔍 ПОИСК И НАВИГАЦИЯ: главное меню, поиск предложений по валюте и отклик на заявку
+ *
+ * Отклик показывает предложение с рассчитанной суммой (кнопка ведёт в {@link DealConfirmationHandlers})
+ * или просит ввести сумму; показанная сумма держится за откликающимся до подтверждения или ухода.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SearchHandlers implements RouteGroup {
+
+    private final UserService userService;
+    private final ExchangeRequestService exchangeService;
+    private final ExchangeRateService exchangeRateService;
+    private final TelegramMessageFormatter messageFormatter;
+    private final ConversationStateService conversationStateService;
+    private final CallbackCodec callbackCodec;
+    private final AmountReservationLedger reservationLedger;
+    private final BotMessenger messenger;
+
+    @Override
+    public void registerCommands(UpdateRouter commands) {
+        commands
+                .on(COMMAND_MENU, (context, args) -> handleMenuCommand(context.chatId(), context.telegramUserId()))
+                .on(COMMAND_SEARCH, (context, args) -> handleSearchCommand(context.chatId(), context.telegramUserId()));
+    }
+
+    @Override
+    public void registerCallbacks(UpdateRouter callbacks) {
+        callbacks
+                .on(CALLBACK_CURRENT_PAGE, (context, args) -> ignoreInformationalButton())
+                .on(CALLBACK_SEARCH_CURRENCY, (context, args) -> handleSearchByCurrency(
+                        context.chatId(), context.telegramUserId(), context.messageId(), args.rest(0)))
+                .on(CALLBACK_SHOW_MENU, (context, args) -> handleMenuCommand(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_RESPOND, (context, args) ->
+                        handleRespondToRequest(context.chatId(), context.telegramUserId(), args.getLong(0)));
+    }
+
+    private void ignoreInformationalButton() {
+        // Информационная кнопка (номер страницы) - ничего не делаем
+    }
+
+    void handleSearchByCurrency(Long chatId, Long telegramUserId, Integer messageId, String currency) {
+        log.info("User {} searching for {}", telegramUserId, currency);
+
+        try {
+            conversationStateService.setUserData(telegramUserId, "last_search_currency", currency);
+
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            ExchangeRequest.Currency iWant = ExchangeRequest.Currency.valueOf(currency);
+            ExchangeRequest.Currency theyWant = iWant.equals(ExchangeRequest.Currency.PLN)
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            List<ExchangeRequest> allRequests = exchangeService.findActiveByCurrency(theyWant);
+
+            // Заявки, целиком зарезервированные другими откликами, не показываем
+            List<ExchangeRequest> requests = allRequests.stream()
+                    .filter(req -> !req.getUser().getId().equals(user.getId()))
+                    .filter(req -> reservationLedger.available(req).signum() > 0)
+                    .toList();
+
+            if (requests.isEmpty()) {
+                String message = messageFormatter.formatNoSearchResults();
+
+                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
+                        .addButton("🔄 Обновить поиск", CALLBACK_SEARCH_CURRENCY + currency)
+                        .addButton("💰 Создать заявку", CALLBACK_MENU + "need")
+                        .newRow()
+                        .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+                        .build();
+
+                messenger.editMessageWithKeyboard(chatId, messageId, message, keyboard);
+                return;
+            }
+
+            BigDecimal rate;
+            if (iWant.equals(ExchangeRequest.Currency.PLN)) {
+                rate = exchangeRateService.getCurrentKZTtoPLNRate();
+            } else {
+                rate = exchangeRateService.getCurrentPLNtoKZTRate();
+            }
+
+            String withFlag = iWant.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
+            String theyWantWithFlag = theyWant.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
+
+            String message = messageFormatter.formatSearchResultsList(
+                    requests,
+                    theyWantWithFlag,
+                    withFlag,
+                    iWant,
+                    rate,
+                    reservationLedger::available);
+
+            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
+
+            int limit = Math.min(requests.size(), MAX_SEARCH_RESULTS);
+            for (int i = 0; i < limit; i++) {
+                ExchangeRequest req = requests.get(i);
+                builder.addButton("📋 #" + (i + 1), CALLBACK_RESPOND + req.getId());
+
+                if ((i + 1) % BUTTONS_PER_ROW == 0 || i == limit - 1) {
+                    builder.newRow();
+                }
+            }
+
+            InlineKeyboardMarkup keyboard = builder
+                    .addButton("🔄 Обновить", CALLBACK_SEARCH_CURRENCY + currency)
+                    .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+                    .build();
+
+            messenger.editMessageWithKeyboard(chatId, messageId, message, keyboard);
+
+        } catch (Exception e) {
+            log.error("Error in search by currency: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    void handleMenuCommand(Long chatId, Long telegramUserId) {
+        log.info("Processing /menu for user {}", telegramUserId);
+
+        try {
+            User user = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            String message = messageFormatter.formatMainMenu(user);
+
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.MAIN_MENU;
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+        } catch (Exception e) {
+            log.error("Error in /menu: {}", e.getMessage());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    void handleSearchCommand(Long chatId, Long telegramUserId) {
+        log.info("Processing /search for user {}", telegramUserId);
+
+        try {
+            String lastSearchCurrency = conversationStateService.getUserData(telegramUserId, "last_search_currency");
+
+            if (lastSearchCurrency != null && !lastSearchCurrency.equals("null")) {
+                String message = messageFormatter.formatRepeatSearchOrChooseAnother(lastSearchCurrency);
+
+                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
+                        .addButton("🔄 Повторить (" + lastSearchCurrency + ")",
+                                CALLBACK_SEARCH_CURRENCY + lastSearchCurrency)
+                        .newRow()
+                        .addButton("🇵🇱 Ищу PLN", CALLBACK_SEARCH_CURRENCY + PLN)
+                        .addButton("🇰🇿 Ищу KZT", CALLBACK_SEARCH_CURRENCY + KZT)
+                        .newRow()
+                        .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+                        .build();
+
+                messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+            } else {
+                showSearchCurrencySelection(chatId);
+            }
+
+        } catch (Exception e) {
+            log.error("Error in /search: {}", e.getMessage());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+
+    private void showSearchCurrencySelection(Long chatId) {
+        String message = messageFormatter.formatSearchCurrencySelection();
+
+        InlineKeyboardMarkup keyboard = TelegramKeyboards.SEARCH_CURRENCY;
+
+        messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+    }
+
+    /**
+     * Обработка отклика на заявку из поиска
+     */
+    void handleRespondToRequest(Long chatId, Long telegramUserId, Long requestId) {
+        log.info("User {} responding to request {}", telegramUserId, requestId);
+
+        try {
+            User responder = userService.findByTelegramUserId(telegramUserId)
+                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
+
+            log.info("Responder found: {}", responder.getTelegramUsername());
+
+            // ⭐ ИСПОЛЬЗУЕМ findByIdWithUser С JOIN FETCH
+            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(requestId);
+            User author = targetRequest.getUser();
+
+            log.info("Target request found: ID={}, amount={}, currency={}, status={}",
+                    requestId, targetRequest.getAmountNeed(), targetRequest.getCurrencyNeed(), targetRequest.getStatus());
+
+            // ⭐ ПРОВЕРКА: АКТИВНА ЛИ ЗАЯВКА?
+            if (!targetRequest.isActive()) {
+                messenger.sendMessage(chatId, "❌ Эта заявка больше не активна");
+                log.warn("Request {} is not active", requestId);
+                return;
+            }
+
+            // ⭐ ПРОВЕРКА: НЕ СВОЯ ЛИ ЗАЯВКА?
+            if (author.getId().equals(responder.getId())) {
+                messenger.sendMessage(chatId, "❌ Вы не можете откликнуться на свою заявку");
+                log.warn("User {} tried to respond to own request {}", telegramUserId, requestId);
+                return;
+            }
+
+            // ⭐ ПРОВЕРЯЕМ: ЕСТЬ ЛИ У ОТКЛИКАЮЩЕГОСЯ АКТИВНАЯ ЗАЯВКА С ПРОТИВОПОЛОЖНОЙ ВАЛЮТОЙ
+            ExchangeRequest.Currency oppositeCurrency = targetRequest.getCurrencyNeed().equals(ExchangeRequest.Currency.PLN)
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            // ⭐ СВОБОДНАЯ СУММА: за вычетом холдов других откликов (свой прежний холд снимаем)
+            reservationLedger.release(requestId, responder.getId());
+            BigDecimal available = reservationLedger.available(targetRequest);
+            if (available.signum() <= 0) {
+                messenger.sendMessage(chatId, messageFormatter.formatRequestFullyReserved());
+                log.info("Request {} is fully reserved, user {} has to wait", requestId, telegramUserId);
+                return;
+            }
+
+            List<ExchangeRequest> responderRequests = exchangeService.getActiveByUserId(responder.getId())
+                    .stream()
+                    .filter(req -> req.getCurrencyNeed().equals(oppositeCurrency))
+                    .toList();
+
+            if (!responderRequests.isEmpty()) {
+                // ============================================
+                // ⭐ СЦЕНАРИЙ 1: ЕСТЬ АКТИВНАЯ ЗАЯВКА - АВТОМАТИЧЕСКИЙ РАСЧЁТ
+                // ============================================
+                ExchangeRequest responderRequest = responderRequests.get(0);
+
+                // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ:
+                ExchangeRequest.Currency myCurrency = responderRequest.getCurrencyNeed();
+                ExchangeRequest.Currency hisCurrency = targetRequest.getCurrencyNeed();
+
+                // Определяем правильный курс
+                BigDecimal rate;
+                if (myCurrency == ExchangeRequest.Currency.KZT && hisCurrency == ExchangeRequest.Currency.PLN) {
+                    rate = exchangeRateService.getCurrentKZTtoPLNRate();
+                } else if (myCurrency == ExchangeRequest.Currency.PLN && hisCurrency == ExchangeRequest.Currency.KZT) {
+                    rate = exchangeRateService.getCurrentPLNtoKZTRate();
+                } else {
+                    log.error("Same currency in automatic calculation!");
+                    messenger.sendMessage(chatId, "❌ Ошибка: валюты совпадают");
+                    return;
+                }
+
+                // Конвертируем МОЮ сумму в ЕГО валюту
+                BigDecimal calculatedAmount = responderRequest.getAmountNeed().multiply(rate);
+                BigDecimal maxAmount = available;
+                BigDecimal proposedAmount = calculatedAmount.min(maxAmount);
+
+                // Предложенная сумма держится за откликающимся, пока он не подтвердит или не уйдёт с предложения
+                if (!reservationLedger.reserve(requestId, targetRequest.getAmountNeed(), responder.getId(), proposedAmount)) {
+                    messenger.sendMessage(chatId, messageFormatter.formatHoldRejected(
+                            reservationLedger.atResponderLimit(requestId, responder.getId())));
+                    return;
+                }
+                conversationStateService.setUserData(telegramUserId, OFFER_RESPONDER_KEY, responder.getId().toString());
+
+                log.info("💡 Calculation: {} {} * {} = {} {} (max: {} {})",
+                        responderRequest.getAmountNeed(), myCurrency, rate,
+                        calculatedAmount, hisCurrency, maxAmount, hisCurrency);
+
+                String message = messageFormatter.formatExchangeOfferAutoCalculated(
+                        responderRequest,
+                        targetRequest,
+                        author,
+                        calculatedAmount,
+                        maxAmount,
+                        proposedAmount);
+
+                // Токен выдаётся один раз на предложение: повторные нажатия дадут автору ту же сделку
+                String confirmation = callbackCodec.encode(CALLBACK_CONFIRM_DEAL_AUTO, fields -> fields
+                        .putLong(requestId)
+                        .putAmount(proposedAmount)
+                        .putId(responderRequest.getId())
+                        .putLong(DealService.newConfirmationToken()));
+
+                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
+                        .addButton("✅ Подтвердить", confirmation)
+                        // Любое нажатие, кроме «Подтвердить», снимает холд (releaseUnconfirmedHolds)
+                        .addButton("❌ Отмена", CALLBACK_MENU + "search")
+                        .build();
+
+                messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+                log.info("✅ [SCENARIO 1] Automatic calculation: user {} → {} {}",
+                        telegramUserId, proposedAmount, targetRequest.getCurrencyNeed());
+
+            } else {
+
+                // ⭐ СЦЕНАРИЙ 2: НЕТ АКТИВНОЙ ЗАЯВКИ - СРАЗУ ВВОД СУММЫ
+                conversationStateService.setState(telegramUserId, ConversationState.AWAITING_DEAL_AMOUNT);
+                conversationStateService.setUserData(telegramUserId, "deal_request_id", requestId.toString());
+                conversationStateService.setUserData(telegramUserId, "deal_author_telegram_id", author.getTelegramUserId().toString());
+
+                String message = messageFormatter.formatExchangeOfferManual(targetRequest, author);
+
+                messenger.sendMessage(chatId, message);
+
+                log.info("✅ [SCENARIO 2] Amount input requested: user {} → request {}",
+                        telegramUserId, requestId);
+            }
+
+        } catch (RuntimeException e) {
+            log.error("Error responding to request {}: {}", requestId, e.getMessage(), e);
+            messenger.sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Unexpected error responding to request {}: {}", requestId, e.getMessage(), e);
+            messenger.sendMessage(chatId, "❌ Ошибка: заявка не найдена");
+        }
+    }
+
+    /**
+     * Показать подходящие предложения после создания заявки
+     */
+    void showMatchingOffers(Long chatId, User user, ExchangeRequest request) {
+        try {
+            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА:
+            // Если я создал "Нужно KZT" → ищу тех, кому "Нужно PLN"
+            ExchangeRequest.Currency myNeed = request.getCurrencyNeed();
+            ExchangeRequest.Currency theirNeed = myNeed.equals(ExchangeRequest.Currency.PLN)
+                    ? ExchangeRequest.Currency.KZT
+                    : ExchangeRequest.Currency.PLN;
+
+            // Ищем заявки с ПРОТИВОПОЛОЖНОЙ валютой
+            Pageable pageable = PageRequest.of(0, MAX_MATCHING_OFFERS);
+            Page<ExchangeRequest> matchesPage = exchangeService.getRequestsByCurrency(theirNeed, pageable);
+
+            List<ExchangeRequest> matches = matchesPage.getContent()
+                    .stream()
+                    .filter(req -> !req.getUser().getId().equals(user.getId()))
+                    .limit(MAX_MATCHING_OFFERS)
+                    .toList();
+
+            if (matches.isEmpty()) {
+                String message = messageFormatter.formatNoSearchResults();
+
+                InlineKeyboardMarkup keyboard = TelegramKeyboards.SEARCH_OR_MENU;
+
+                messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+                return;
+            }
+
+            // Получаем курс для конвертации
+            BigDecimal rate;
+            if (myNeed.equals(ExchangeRequest.Currency.PLN)) {
+                rate = exchangeRateService.getCurrentKZTtoPLNRate();  // Их KZT → мой PLN
+            } else {
+                rate = exchangeRateService.getCurrentPLNtoKZTRate();  // Их PLN → мой KZT
+            }
+
+            String theyWantWithFlag = theirNeed.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
+            String whatTheyHaveWithFlag = myNeed.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
+
+            String message = messageFormatter.formatMatchingOffers(
+                    matches,
+                    theyWantWithFlag,
+                    whatTheyHaveWithFlag,
+                    myNeed,
+                    rate
+            );
+
+            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
+
+            for (int i = 0; i < matches.size(); i++) {
+                ExchangeRequest match = matches.get(i);
+                builder.addButton("📋 Предложение #" + (i + 1), CALLBACK_RESPOND + match.getId());
+
+                if ((i + 1) % 2 == 0 || i == matches.size() - 1) {
+                    builder.newRow();
+                }
+            }
+
+            InlineKeyboardMarkup keyboard = builder
+                    .addButton("📊 Мои заявки", CALLBACK_MENU+"my_requests")
+                    .addButton("🔍 Поиск", CALLBACK_MENU+"search")
+                    .newRow()
+                    .addButton("🏠 Меню", "show_menu")
+                    .build();
+
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+
+        } catch (Exception e) {
+            log.error("Error showing matching offers: {}", e.getMessage(), e);
+        }
+    }
+}
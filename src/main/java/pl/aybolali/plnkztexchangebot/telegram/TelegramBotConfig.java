@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
@@ -14,14 +15,16 @@ import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
  * ⚙️ КОНФИГУРАЦИЯ TELEGRAM БОТА - Long Polling Mode
  *
  * ⭐ НЕ запускается в test profile!
+ * ⭐ НЕ запускается в webhook profile - там обновления принимает TelegramWebhookController
  */
 @Configuration
 @RequiredArgsConstructor
 @Slf4j
-@Profile("!test")  // ⭐ ВАЖНО: НЕ запускать в тестах
+@Profile("!test & !webhook")  // ⭐ ВАЖНО: НЕ запускать в тестах и в webhook-режиме
 public class TelegramBotConfig {
 
     private final PLNKZTExchangeBot plnkztExchangeBot;
+    private final UpdateDeduplicator updateDeduplicator;
     private TelegramBotsApi telegramBotsApi;
 
     @PostConstruct
@@ -31,6 +34,8 @@ public class TelegramBotConfig {
             log.info("🤖 Initializing PLN-KZT Exchange Bot...");
             log.info("========================================");
 
+            confirmProcessedUpdates();
+
             telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
             telegramBotsApi.registerBot(plnkztExchangeBot);
 
@@ -64,6 +69,24 @@ public class TelegramBotConfig {
         }
     }
 
+    /**
+     * DefaultBotSession всегда начинает с offset=0, и Telegram отдаёт всё неподтверждённое заново.
+     * getUpdates с сохранённым offset+1 подтверждает уже обработанные update до запуска polling.
+     */
+    private void confirmProcessedUpdates() throws TelegramApiException {
+        long offset = updateDeduplicator.restoreOffset();
+        if (offset <= 0) {
+            return;
+        }
+
+        plnkztExchangeBot.execute(GetUpdates.builder()
+                .offset((int) offset + 1)
+                .limit(1)
+                .timeout(0)
+                .build());
+        log.info("⏩ Resuming after update_id {}", offset);
+    }
+
     @PreDestroy
     public void shutdownTelegramBot() {
         try {
@@ -1,11 +1,7 @@
 package pl.aybolali.plnkztexchangebot.telegram;
 
-import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.*;
@@ -13,15 +9,22 @@ import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMa
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardButton;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
-import pl.aybolali.plnkztexchangebot.dto.CreateRatingDTO;
 import pl.aybolali.plnkztexchangebot.dto.ExchangeRateDTO;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
 import pl.aybolali.plnkztexchangebot.entity.*;
 import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.exception.BusinessException;
 import pl.aybolali.plnkztexchangebot.exception.UserNotFoundException;
 import pl.aybolali.plnkztexchangebot.service.*;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+import pl.aybolali.plnkztexchangebot.service.stats.TradeStatsService;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteArgumentException;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteContext;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteGroup;
+import pl.aybolali.plnkztexchangebot.telegram.routing.UpdateRouter;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -35,32 +38,110 @@ public class TelegramBotService {
     private final PLNKZTExchangeBot bot;
     private final UserService userService;
     private final ExchangeRequestService exchangeService;
-    private final DealService dealService;
     private final ExchangeRateService exchangeRateService;
     private final TelegramMessageFormatter messageFormatter;
-    private final RatingService ratingService;
     private final ConversationStateService conversationStateService;
     private final SimpleRateLimitService rateLimitService;
+    private final CallbackCoalescer callbackCoalescer;
+    private final AmountReservationLedger reservationLedger;
+    private final TradeStatsService tradeStatsService;
+    private final BotMessenger messenger;
+    private final SearchHandlers search;
+    private final ProfileHandlers profile;
+    private final DealConfirmationHandlers dealConfirmation;
+    private final UpdateRouter callbackRouter;
+    private final UpdateRouter commandRouter;
 
     public TelegramBotService(
             @Lazy PLNKZTExchangeBot bot,
             UserService userService,
             ExchangeRequestService exchangeService,
-            DealService dealService,
             ExchangeRateService exchangeRateService,
             TelegramMessageFormatter messageFormatter,
             SimpleRateLimitService rateLimitService,
-            RatingService ratingService, ConversationStateService conversationStateService) {
+            ConversationStateService conversationStateService,
+            CallbackCoalescer callbackCoalescer,
+            AmountReservationLedger reservationLedger,
+            TradeStatsService tradeStatsService,
+            BotMessenger messenger,
+            SearchHandlers search,
+            ProfileHandlers profile,
+            DealConfirmationHandlers dealConfirmation) {
 
         this.bot = bot;
         this.userService = userService;
         this.exchangeService = exchangeService;
-        this.dealService = dealService;
         this.exchangeRateService = exchangeRateService;
         this.messageFormatter = messageFormatter;
-        this.ratingService = ratingService;
         this.conversationStateService = conversationStateService;
         this.rateLimitService = rateLimitService;
+        this.callbackCoalescer = callbackCoalescer;
+        this.reservationLedger = reservationLedger;
+        this.tradeStatsService = tradeStatsService;
+        this.messenger = messenger;
+        this.search = search;
+        this.profile = profile;
+        this.dealConfirmation = dealConfirmation;
+
+        List<RouteGroup> groups = List.of(search, profile, dealConfirmation);
+        this.callbackRouter = callbackRoutes();
+        this.commandRouter = commandRoutes();
+        groups.forEach(group -> {
+            group.registerCallbacks(callbackRouter);
+            group.registerCommands(commandRouter);
+        });
+    }
+
+    /**
+     * Таблица команд: здесь — регистрация, заявки и справка; поиск, профиль и сделки
+     * регистрируют свои маршруты сами (RouteGroup). Транзакции открывают сервисы, а не обработчики
+     */
+    private UpdateRouter commandRoutes() {
+        return UpdateRouter.commands()
+                // /start, /rates, /help, /stats доступны без верификации телефона
+                .onPublic(COMMAND_START, (context, args) ->
+                        handleStart(context.chatId(), context.telegramUserId(), context.telegramUser(), args.rest(0)))
+                .onPublic(COMMAND_HELP, (context, args) -> handleHelpCommand(context.chatId()))
+                .onPublic(COMMAND_RATES, (context, args) -> handleRatesCommand(context.chatId()))
+                .onPublic(COMMAND_STATS, (context, args) -> handleStatsCommand(context.chatId()))
+                .on(COMMAND_NEED, (context, args) -> handleNeedCommand(context.chatId(), context.telegramUserId()))
+                .on(COMMAND_MY_REQUESTS, (context, args) ->
+                        handleMyRequestsCommand(context.chatId(), context.telegramUserId()));
+    }
+
+    /**
+     * Таблица callback'ов (своя часть, остальное — RouteGroup). onMutating — нажатия, меняющие данные
+     * (см. CallbackCoalescer); alias — прежние значения кнопок в уже отправленных сообщениях
+     */
+    private UpdateRouter callbackRoutes() {
+        return UpdateRouter.callbacks()
+                .on(CALLBACK_MENU, (context, args) ->
+                        handleMenuCallback(context.chatId(), context.telegramUserId(), args.rest(0)))
+                .on(CALLBACK_CURRENCY, (context, args) ->
+                        handleCurrencyCallback(context.chatId(), context.telegramUserId(), args.rest(0)))
+                .on(CALLBACK_METHOD, (context, args) ->
+                        handleTransferMethodCallback(context.chatId(), context.telegramUserId(), args.rest(0)))
+                .onMutating(CALLBACK_SKIP_COMMENT, (context, args) ->
+                        handleSkipCommentCallback(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_CANCEL_REQUEST, (context, args) ->
+                        handleCancelRequestCallback(context.chatId(), context.telegramUserId()))
+                .onMutating(CALLBACK_CONFIRM_REQUEST, (context, args) ->
+                        handleRequestConfirmation(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_EDIT_REQUEST, (context, args) -> handleRequestEdit(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_VIEW_REQUEST, (context, args) ->
+                        handleViewRequest(context.chatId(), context.telegramUserId(), args.getLong(0)))
+                .onMutating(CALLBACK_CANCEL_REQUEST_BUTTON, (context, args) ->
+                        handleCancelRequestFromButton(context.chatId(), context.telegramUserId(), args.getLong(0)))
+                .on(CALLBACK_SHOW_REQUEST_MANAGEMENT, (context, args) ->
+                        showRequestManagementOptions(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_ACTION_EDIT_REQUEST, (context, args) ->
+                        showRequestListForEdit(context.chatId(), context.telegramUserId()))
+                .on(CALLBACK_SELECT_EDIT, (context, args) ->
+                        startEditingRequest(context.chatId(), context.telegramUserId(), args.getInt(0)))
+                .on(CALLBACK_ACTION_CANCEL_REQUEST, (context, args) ->
+                        showRequestListForCancel(context.chatId(), context.telegramUserId()))
+                .onMutating(CALLBACK_SELECT_CANCEL, (context, args) ->
+                        handleCancelRequestByIndex(context.chatId(), context.telegramUserId(), args.getInt(0)));
     }
 
     public void processUpdate(Update update) {
@@ -83,12 +164,12 @@ public class TelegramBotService {
         } catch (BusinessException e) {
             log.warn("Business error for user {}: {}", userId, e.getMessage());
             if (update.hasMessage()) {
-                sendMessage(update.getMessage().getChatId(), e.getMessage());
+                messenger.sendMessage(update.getMessage().getChatId(), e.getMessage());
             }
         } catch (Exception e) {
             log.error("Unexpected error processing user {}: {}", userId, e.getMessage(), e);
             if (update.hasMessage()) {
-                sendMessage(update.getMessage().getChatId(), messageFormatter.formatTechnicalError());
+                messenger.sendMessage(update.getMessage().getChatId(), messageFormatter.formatTechnicalError());
             }
         } finally {
             long duration = System.currentTimeMillis() - startTime;
@@ -104,9 +185,11 @@ public class TelegramBotService {
 
         log.debug("Processing: '{}' from user ID: {}", text, telegramUserId);
 
+        releaseUnconfirmedHolds(telegramUserId);
+
         // ⭐ ПРОВЕРКА RATE LIMIT
         if (!rateLimitService.checkLimit(telegramUserId, RATE_LIMIT_TELEGRAM_COMMAND)) {
-            sendMessage(chatId, "⚠️ Слишком много команд. Подождите минуту.");
+            messenger.sendMessage(chatId, "⚠️ Слишком много команд. Подождите минуту.");
             return;
         }
 
@@ -118,43 +201,22 @@ public class TelegramBotService {
                 return;
             }
 
-            if (text.startsWith(COMMAND_START)) {
-                handleStartCommand(chatId, telegramUser);
-                return;
-            }
-
-            if (text.startsWith(COMMAND_RATES)) {
-                handleRatesCommand(chatId);
-                return;
-            }
+            UpdateRouter.Route route = commandRouter.resolve(text);
 
-            if (text.startsWith(COMMAND_HELP)) {
-                handleHelpCommand(chatId);
+            // /start, /rates, /help доступны без верификации телефона
+            if ((route == null || route.requiresVerification()) && !checkPhoneVerification(chatId, telegramUserId)) {
                 return;
             }
 
-            if (!checkPhoneVerification(chatId, telegramUserId)) {
+            if (route == null) {
+                messenger.sendMessage(chatId, messageFormatter.formatUnknownCommand());
                 return;
             }
 
-            if (text.startsWith(COMMAND_MENU)) {
-                handleMenuCommand(chatId, telegramUserId);
-            } else if (text.startsWith(COMMAND_NEED)) {
-                handleNeedCommand(chatId, telegramUserId);
-            } else if (text.startsWith(COMMAND_SEARCH)) {
-                handleSearchCommand(chatId, telegramUserId);
-            } else if (text.startsWith(COMMAND_MY_REQUESTS)) {
-                handleMyRequestsCommand(chatId, telegramUserId);
-            } else if (text.startsWith(COMMAND_HISTORY)) {
-                handleDealsHistoryCommand(chatId, telegramUserId);
-            } else if (text.startsWith(COMMAND_PROFILE)) {
-                handleProfileCommand(chatId, telegramUserId);
-            } else {
-                sendMessage(chatId, messageFormatter.formatUnknownCommand());
-            }
+            route.invoke(new RouteContext(chatId, telegramUserId, telegramUser, null, text));
         } catch (Exception e) {
             log.error("❌ Error: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
 
@@ -185,271 +247,36 @@ public class TelegramBotService {
             answer.setCallbackQueryId(callbackQuery.getId());
             bot.execute(answer);
 
-            // ============================================
-            // ОСНОВНОЕ МЕНЮ
-            // ============================================
-
-            if (CALLBACK_SHOW_MENU.equals(data)) {
-                log.info("📋 Opening menu");
-                handleMenuCommand(chatId, telegramUserId);
-                return;
-            }
-
-            if (CALLBACK_CURRENT_PAGE.equals(data)) {
-                // Информационная кнопка - игнорируем
-                return;
-            }
-
-            // ============================================
-            // ПОИСК И ЗАЯВКИ
-            // ============================================
-
-            if (data.startsWith(CALLBACK_SEARCH_CURRENCY)) {
-                String currency = data.substring(CALLBACK_SEARCH_CURRENCY.length());
-                handleSearchByCurrency(chatId, telegramUserId, currency);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_RESPOND)) {
-                Long requestId = Long.parseLong(data.substring(CALLBACK_RESPOND.length()));
-                handleRespondToRequest(chatId, telegramUserId, requestId);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_VIEW_REQUEST)) {
-                Long requestId = Long.parseLong(data.substring(CALLBACK_VIEW_REQUEST.length()));
-                handleViewRequest(chatId, telegramUserId, requestId);
-                return;
-            }
-
-            // ============================================
-            // СОЗДАНИЕ ЗАЯВОК
-            // ============================================
-
-            if (CALLBACK_SKIP_COMMENT.equals(data)) {
-                handleSkipCommentCallback(chatId, telegramUserId);
-                return;
-            }
-
-            if (CALLBACK_CANCEL_REQUEST.equals(data)) {
-                handleCancelRequestCallback(chatId, telegramUserId);
-                return;
-            }
-
-            if (CALLBACK_CONFIRM_REQUEST.equals(data)) {
-                handleRequestConfirmation(chatId, telegramUserId);
+            UpdateRouter.Route route = callbackRouter.resolve(data);
+            if (route == null) {
+                log.warn("Unhandled callback data: {}", data);
                 return;
             }
-
-            if (CALLBACK_EDIT_REQUEST.equals(data)) {
-                handleRequestEdit(chatId, telegramUserId);
-                return;
-            }
-
-            // ============================================
-            // УПРАВЛЕНИЕ ЗАЯВКАМИ
-            // ============================================
-
-            if (CALLBACK_SHOW_REQUEST_MANAGEMENT.equals(data)) {
-                showRequestManagementOptions(chatId, telegramUserId);
-                return;
-            }
-
-            if (CALLBACK_ACTION_EDIT_REQUEST.equals(data)) {
-                showRequestListForEdit(chatId, telegramUserId);
-                return;
-            }
-
-            if (CALLBACK_ACTION_CANCEL_REQUEST.equals(data)) {
-                showRequestListForCancel(chatId, telegramUserId);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_SELECT_CANCEL)) {
-                int index = Integer.parseInt(data.substring(CALLBACK_SELECT_CANCEL.length()));
-                handleCancelRequestByIndex(chatId, telegramUserId, index);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_SELECT_EDIT)) {
-                int index = Integer.parseInt(data.substring(CALLBACK_SELECT_EDIT.length()));
-                startEditingRequest(chatId, telegramUserId, index);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_CANCEL_REQUEST_BUTTON)) {
-                Long requestId = Long.parseLong(data.substring(CALLBACK_CANCEL_REQUEST_BUTTON.length()));
-                handleCancelRequestFromButton(chatId, telegramUserId, requestId);
-                return;
-            }
-
-            // ============================================
-            // СДЕЛКИ
-            // ============================================
-
-            if (data.startsWith(CALLBACK_CREATE_DEAL)) {
-                Long requestId = Long.parseLong(data.substring(CALLBACK_CREATE_DEAL.length()));
-                handleCreateDeal(chatId, telegramUserId, requestId);
-                return;
-            }
-
-            if (CALLBACK_CONFIRM_DEAL_AUTO.equals(data)) {
-                handleConfirmDealAutomatic(chatId, telegramUserId);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_CONFIRM_COMPLETED_DEAL)) {
-                Long requestId = Long.parseLong(data.substring(CALLBACK_CONFIRM_COMPLETED_DEAL.length()));
-                handleConfirmCompletedDeal(chatId, telegramUserId, requestId);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_AUTHOR_CONFIRM)) {
-                try {
-                    Long responderChatId = Long.parseLong(data.substring(CALLBACK_AUTHOR_CONFIRM.length()));
-                    handleAuthorConfirmDeal(chatId, telegramUserId, responderChatId);
-                } catch (NumberFormatException e) {
-                    log.error("Invalid responder chat ID: {}", data, e);
-                    sendMessage(chatId, messageFormatter.formatStaleDataError());
-                }
-                return;
+            if (!CALLBACK_CONFIRM_DEAL_AUTO.equals(route.key())) {
+                releaseUnconfirmedHolds(telegramUserId);
             }
 
-            // ============================================
-            // ОЦЕНКИ
-            // ============================================
-
-            if (data.startsWith(CALLBACK_RATE_DEAL)) {
-                String[] parts = data.split(":");
-                Long dealId = Long.parseLong(parts[1]);
-                Integer rating = Integer.parseInt(parts[2]);
-                handleRateDeal(chatId, telegramUserId, dealId, rating);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_SKIP_RATING)) {
-                Long dealId = Long.parseLong(data.substring(CALLBACK_SKIP_RATING.length()));
-                handleSkipRating(chatId, telegramUserId, dealId);
-                return;
-            }
-
-            // ============================================
-            // ИСТОРИЯ
-            // ============================================
-
-            if (data.startsWith(CALLBACK_VIEW_DEAL)) {
-                Long dealId = Long.parseLong(data.substring(CALLBACK_VIEW_DEAL.length()));
-                handleViewDeal(chatId, telegramUserId, dealId);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_HISTORY_PAGE)) {
-                int page = Integer.parseInt(data.substring(CALLBACK_HISTORY_PAGE.length()));
-                handleDealsHistoryPage(chatId, telegramUserId, page);
-                return;
-            }
-
-            // ============================================
-            // ОСТАЛЬНЫЕ ОБРАБОТЧИКИ (старые callback'и)
-            // ============================================
-
-            if (data.startsWith(CALLBACK_MENU)) {
-                handleMenuCallback(chatId, telegramUserId, data);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_CURRENCY)) {
-                handleCurrencyCallback(chatId, telegramUserId, data);
-                return;
-            }
-
-            if (data.startsWith(CALLBACK_METHOD)) {
-                handleTransferMethodCallback(chatId, telegramUserId, data);
-                return;
+            Integer messageId = callbackQuery.getMessage().getMessageId();
+            RouteContext context = new RouteContext(chatId, telegramUserId, callbackQuery.getFrom(), messageId, data);
+            try {
+                // Повторное нажатие той же кнопки присоединяется к первому или переиспользует его результат
+                callbackCoalescer.execute(chatId, messageId, data, route.mutating(), () -> route.invoke(context));
+            } catch (RouteArgumentException e) {
+                log.warn("Invalid callback data '{}': {}", data, e.getMessage());
+                messenger.sendMessage(chatId, messageFormatter.formatStaleDataError());
             }
 
-            // Если ничего не подошло - логируем
-            log.warn("Unhandled callback data: {}", data);
-
         } catch (Exception e) {
             log.error("Error handling callback: {}", e.getMessage(), e);
         }
     }
-    private void handleSearchByCurrency(Long chatId, Long telegramUserId, String currency) {
-        log.info("User {} searching for {}", telegramUserId, currency);
-
-        try {
-            conversationStateService.setUserData(telegramUserId, "last_search_currency", currency);
-
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            ExchangeRequest.Currency iWant = ExchangeRequest.Currency.valueOf(currency);
-            ExchangeRequest.Currency theyWant = iWant.equals(ExchangeRequest.Currency.PLN)
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            List<ExchangeRequest> allRequests = exchangeService.findActiveByCurrency(theyWant);
-
-            List<ExchangeRequest> requests = allRequests.stream()
-                    .filter(req -> !req.getUser().getId().equals(user.getId()))
-                    .toList();
-
-            if (requests.isEmpty()) {
-                String message = messageFormatter.formatNoSearchResults();
-
-                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                        .addButton("🔄 Обновить поиск", CALLBACK_SEARCH_CURRENCY + currency)
-                        .addButton("💰 Создать заявку", CALLBACK_MENU + "need")
-                        .newRow()
-                        .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                        .build();
-
-                sendMessageWithKeyboard(chatId, message, keyboard);
-                return;
-            }
-
-            BigDecimal rate;
-            if (iWant.equals(ExchangeRequest.Currency.PLN)) {
-                rate = exchangeRateService.getCurrentKZTtoPLNRate();
-            } else {
-                rate = exchangeRateService.getCurrentPLNtoKZTRate();
-            }
-
-            String withFlag = iWant.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
-            String theyWantWithFlag = theyWant.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
-
-            String message = messageFormatter.formatSearchResultsList(
-                    requests,
-                    theyWantWithFlag,
-                    withFlag,
-                    iWant,
-                    rate);
-
-            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
 
-            int limit = Math.min(requests.size(), MAX_SEARCH_RESULTS);
-            for (int i = 0; i < limit; i++) {
-                ExchangeRequest req = requests.get(i);
-                builder.addButton("📋 #" + (i + 1), CALLBACK_RESPOND + req.getId());
-
-                if ((i + 1) % BUTTONS_PER_ROW == 0 || i == limit - 1) {
-                    builder.newRow();
-                }
-            }
-
-            InlineKeyboardMarkup keyboard = builder
-                    .addButton("🔄 Обновить", CALLBACK_SEARCH_CURRENCY + currency)
-                    .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-        } catch (Exception e) {
-            log.error("Error in search by currency: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
+    private void handleStart(Long chatId, Long telegramUserId,
+                             org.telegram.telegrambots.meta.api.objects.User telegramUser, String payload) {
+        handleStartCommand(chatId, telegramUser);
+        handleStartPayload(chatId, telegramUserId, payload);
     }
+
     private void handleStartCommand(Long chatId, org.telegram.telegrambots.meta.api.objects.User telegramUser) {
         Long telegramUserId = telegramUser.getId();
         String telegramUsername = telegramUser.getUserName();
@@ -461,7 +288,7 @@ public class TelegramBotService {
         try {
             if (telegramUsername == null || telegramUsername.isBlank()) {
                 log.warn("User {} has no username", telegramUserId);
-                sendMessage(chatId, messageFormatter.formatUsernameRequired());
+                messenger.sendMessage(chatId, messageFormatter.formatUsernameRequired());
                 return;
             }
 
@@ -498,11 +325,9 @@ public class TelegramBotService {
                 if (user.getIsPhoneVerified()) {
                     String welcomeMessage = messageFormatter.formatVerifiedUserWelcome(user, currentRate);
 
-                    InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                            .addButton("🏠 Открыть меню", CALLBACK_SHOW_MENU)
-                            .build();
+                    InlineKeyboardMarkup keyboard = TelegramKeyboards.OPEN_MENU;
 
-                    sendMessageWithKeyboard(chatId, welcomeMessage, keyboard);
+                    messenger.sendMessageWithKeyboard(chatId, welcomeMessage, keyboard);
                 } else {
                     sendPhoneVerificationRequest(chatId, currentRate, user);
                 }
@@ -517,11 +342,32 @@ public class TelegramBotService {
             }
         } catch (Exception e) {
             log.error("❌ Error in /start: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
 
     }
 
+    // ⭐ DEEP LINK ИЗ INLINE-КАРТОЧКИ: /start respond_<id> - сразу открываем отклик на заявку
+    private void handleStartPayload(Long chatId, Long telegramUserId, String payload) {
+        if (!payload.startsWith(START_PAYLOAD_RESPOND)) {
+            return;
+        }
+
+        try {
+            Long requestId = Long.parseLong(payload.substring(START_PAYLOAD_RESPOND.length()));
+
+            // Без верификации /start уже попросил телефон - отклик будет доступен после неё
+            boolean verified = userService.findByTelegramUserId(telegramUserId)
+                    .map(User::getIsPhoneVerified)
+                    .orElse(false);
+            if (verified) {
+                search.handleRespondToRequest(chatId, telegramUserId, requestId);
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid /start payload: {}", payload);
+        }
+    }
+
     private void sendPhoneVerificationRequest(Long chatId, BigDecimal currentRate, User user) throws org.telegram.telegrambots.meta.exceptions.TelegramApiException {
         String message = messageFormatter.formatMandatoryPhoneVerificationRequest(user, currentRate);
         SendMessage sendMessage = new SendMessage();
@@ -535,7 +381,7 @@ public class TelegramBotService {
     private void handleHelpCommand(Long chatId) {
         log.info("Processing /help");
         String helpMessage = messageFormatter.formatHelpMessage();
-        sendMessage(chatId, helpMessage);
+        messenger.sendMessage(chatId, helpMessage);
     }
 
     private void handleRatesCommand(Long chatId) {
@@ -552,40 +398,24 @@ public class TelegramBotService {
             );
 
             String message = messageFormatter.formatExchangeRates(rates);
-            sendMessageWithKeyboard(chatId, message, createMenuButton());
+            messenger.sendMessageWithKeyboard(chatId, message, createMenuButton());
 
         } catch (Exception e) {
             log.error("Error getting rates: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatExchangeRateError());
+            messenger.sendMessage(chatId, messageFormatter.formatExchangeRateError());
         }
     }
 
-    private void handleMenuCommand(Long chatId, Long telegramUserId) {
-        log.info("Processing /menu for user {}", telegramUserId);
+    private void handleStatsCommand(Long chatId) {
+        log.info("Processing /stats");
 
         try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            String message = messageFormatter.formatMainMenu(user);
-
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("💰 Создать запрос", CALLBACK_MENU+"need")
-                    .addButton("🔍 Поиск", CALLBACK_MENU+"search")
-                    .newRow()
-                    .addButton("📋 Мои заявки", CALLBACK_MENU+"my_requests")
-                    .addButton("👤 Мой профиль", CALLBACK_MENU+"profile")
-                    .newRow()
-                    .addButton("💹 Курсы", CALLBACK_MENU+"rates")
-                    .addButton("❓ Справка", CALLBACK_MENU+"help")
-                    .newRow()
-                    .addButton("📜 История обменов", CALLBACK_MENU+"history")
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            List<TradeRollupDTO> summary = tradeStatsService.getSummary(Duration.ofHours(STATS_WINDOW_HOURS));
+            messenger.sendMessageWithKeyboard(chatId, messageFormatter.formatTradeStats(summary, STATS_WINDOW_HOURS),
+                    createMenuButton());
         } catch (Exception e) {
-            log.error("Error in /menu: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            log.error("Error getting trade stats: {}", e.getMessage());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
 
@@ -596,403 +426,50 @@ public class TelegramBotService {
             User user = userService.findByTelegramUserId(telegramUserId)
                     .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
 
-            conversationStateService.setState(telegramUserId, ConversationState.AWAITING_CURRENCY);
-
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("🇵🇱 PLN (Злоты)", CALLBACK_CURRENCY + PLN)
-                    .addButton("🇰🇿 KZT (Тенге)", CALLBACK_CURRENCY + KZT)
-                    .newRow()
-                    .addButton("🏠 Главное меню", CALLBACK_SHOW_MENU)
-                    .build();
-
-            sendMessageWithKeyboard(chatId, messageFormatter.formatNeedStep1Currency(), keyboard);
-
-        } catch (Exception e) {
-            log.error("Error in /need: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-    private void handleSearchCommand(Long chatId, Long telegramUserId) {
-        log.info("Processing /search for user {}", telegramUserId);
-
-        try {
-            if (!checkPhoneVerification(chatId, telegramUserId)) {
-                return;
-            }
-
-            String lastSearchCurrency = conversationStateService.getUserData(telegramUserId, "last_search_currency");
-
-            if (lastSearchCurrency != null && !lastSearchCurrency.equals("null")) {
-                String message = messageFormatter.formatRepeatSearchOrChooseAnother(lastSearchCurrency);
-
-                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                        .addButton("🔄 Повторить (" + lastSearchCurrency + ")",
-                                CALLBACK_SEARCH_CURRENCY + lastSearchCurrency)
-                        .newRow()
-                        .addButton("🇵🇱 Ищу PLN", CALLBACK_SEARCH_CURRENCY + PLN)
-                        .addButton("🇰🇿 Ищу KZT", CALLBACK_SEARCH_CURRENCY + KZT)
-                        .newRow()
-                        .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                        .build();
-
-                sendMessageWithKeyboard(chatId, message, keyboard);
-            } else {
-                showSearchCurrencySelection(chatId);
-            }
-
-        } catch (Exception e) {
-            log.error("Error in /search: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    private void showSearchCurrencySelection(Long chatId) {
-        String message = messageFormatter.formatSearchCurrencySelection();
-
-        InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                .addButton("🇵🇱 Ищу PLN", CALLBACK_SEARCH_CURRENCY + PLN)
-                .addButton("🇰🇿 Ищу KZT", CALLBACK_SEARCH_CURRENCY + KZT)
-                .newRow()
-                .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                .build();
-
-        sendMessageWithKeyboard(chatId, message, keyboard);
-    }
-
-    private void handleMenuCallback(Long chatId, Long telegramUserId, String data) {
-        String action = data.substring(5);
-        switch (action) {
-            case "need" -> handleNeedCommand(chatId, telegramUserId);
-            case "search" -> handleSearchCommand(chatId, telegramUserId);
-            case "my_requests" -> handleMyRequestsCommand(chatId, telegramUserId);
-            case "profile" -> handleProfileCommand(chatId, telegramUserId);
-            case "history" -> handleDealsHistoryCommand(chatId, telegramUserId);
-            case "rates" -> handleRatesCommand(chatId);
-            case "help" -> handleHelpCommand(chatId);
-            default -> sendMessage(chatId, messageFormatter.formatUnknownCommand());
-        }
-    }
-    private void handleCurrencyCallback(Long chatId, Long telegramUserId, String data) {
-        String currency = data.substring(9);
-        conversationStateService.setUserData(telegramUserId, "currency", currency);
-        conversationStateService.setState(telegramUserId, ConversationState.AWAITING_AMOUNT);
-        sendMessage(chatId, messageFormatter.formatNeedStep2Amount(currency));
-    }
-
-    private void handleTransferMethodCallback(Long chatId, Long telegramUserId, String data) {
-        String method = data.substring(CALLBACK_METHOD.length());
-        conversationStateService.setUserData(telegramUserId, "method", method);
-        conversationStateService.setState(telegramUserId, ConversationState.AWAITING_COMMENT);
-
-        InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                .addButton("⏭️ Пропустить", CALLBACK_SKIP_COMMENT)
-                .build();
-
-        String methodName = messageFormatter.getTransferMethodName(method);
-        String message = messageFormatter.formatNeedStep4Comment(methodName);
-
-        sendMessageWithKeyboard(chatId, message, keyboard);
-    }
-
-    /**
-     * Подтверждение автоматической сделки (когда есть активная заявка)
-     */
-    private void handleConfirmDealAutomatic(Long chatId, Long telegramUserId) {
-        try {
-            String requestIdStr = conversationStateService.getUserData(telegramUserId, "deal_request_id");
-            String amountStr = conversationStateService.getUserData(telegramUserId, "deal_amount");
-            String responderRequestIdStr = conversationStateService.getUserData(telegramUserId, "responder_request_id");
-
-            Long targetRequestId = Long.parseLong(requestIdStr);
-            BigDecimal dealAmount = new BigDecimal(amountStr);
-            Long responderRequestId = responderRequestIdStr != null && !responderRequestIdStr.equals("null")
-                    ? Long.parseLong(responderRequestIdStr)
-                    : null;
-
-            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(targetRequestId);
-            User responder = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-            User author = targetRequest.getUser();
-
-            conversationStateService.setUserData(author.getTelegramUserId(), "pending_deal_data",
-                    targetRequestId + ":" + dealAmount + ":" + (responderRequestId != null ? responderRequestId : "null"));
-            conversationStateService.setUserData(author.getTelegramUserId(), "responder_user_id",
-                    telegramUserId.toString());
-            conversationStateService.setUserData(author.getTelegramUserId(), "responder_chat_id",
-                    chatId.toString());
-
-            conversationStateService.clearState(telegramUserId);
-
-            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ
-            ExchangeRequest.Currency requestCurrency = targetRequest.getCurrencyNeed();  // Что хочет АВТОР получить
-            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            // dealAmount - это сумма в валюте ЗАЯВКИ (то что автор ПОЛУЧИТ)
-            BigDecimal authorWillReceive = dealAmount;  // Автор получит эту сумму
-
-            // Рассчитываем сколько автор ОТДАСТ
-            BigDecimal rate;
-            BigDecimal authorWillGive;
-
-            if (requestCurrency == ExchangeRequest.Currency.KZT) {
-                // Автор хочет KZT, значит отдаст PLN
-                rate = exchangeRateService.getCurrentKZTtoPLNRate();  // 1 KZT = 0.00681 PLN
-                authorWillGive = dealAmount.multiply(rate);  // KZT → PLN
-            } else {
-                // Автор хочет PLN, значит отдаст KZT
-                rate = exchangeRateService.getCurrentPLNtoKZTRate();  // 1 PLN = 146.8 KZT
-                authorWillGive = dealAmount.multiply(rate);  // PLN → KZT
-            }
-
-            // ⭐ УВЕДОМЛЕНИЕ АВТОРУ
-            String notification = messageFormatter.formatNewDealProposalNotification(
-                    responder,
-                    authorWillReceive,
-                    requestCurrency,
-                    authorWillGive,
-                    oppositeCurrency
-            );
-
-            confirmExchange(chatId, telegramUserId, targetRequestId, dealAmount, targetRequest, author, requestCurrency, oppositeCurrency, authorWillReceive, authorWillGive, notification);
-
-        } catch (Exception e) {
-            log.error("Error confirming automatic deal: {}", e.getMessage(), e);
-            conversationStateService.clearState(telegramUserId);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    private void confirmExchange(Long chatId, Long telegramUserId, Long targetRequestId, BigDecimal dealAmount, ExchangeRequest targetRequest, User author, ExchangeRequest.Currency requestCurrency, ExchangeRequest.Currency oppositeCurrency, BigDecimal authorWillReceive, BigDecimal authorWillGive, String notification) {
-        InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                .addButton("✅ Подтвердить обмен", CALLBACK_AUTHOR_CONFIRM + chatId)
-                .build();
-
-        sendMessageWithKeyboard(author.getTelegramUserId(), notification, keyboard);
-
-        String message = messageFormatter.formatOfferSentConfirmationToResponder(author, authorWillGive, oppositeCurrency, authorWillReceive, requestCurrency);
-
-        InlineKeyboardMarkup responderKeyboard = TelegramKeyboardBuilder.create()
-                .addUrlButton("💬 Написать @" + author.getTelegramUsername(),
-                        "https://t.me/" + author.getTelegramUsername())
-                .build();
-
-        sendMessageWithKeyboard(chatId, message, responderKeyboard);
-
-        log.info("✅ Deal proposal sent: {} {} from user {} to request {}",
-                dealAmount, targetRequest.getCurrencyNeed(), telegramUserId, targetRequestId);
-    }
-
-    /**
-     * Автор подтверждает сделку - создаём Deal
-     */
-    @Transactional
-    private void handleAuthorConfirmDeal(Long chatId, Long telegramUserId, Long responderChatId) {
-        try {
-            String callbackData = conversationStateService.getUserData(telegramUserId, "pending_deal_data");
-            if (callbackData == null) {
-                log.warn("No pending deal data for user {} - deal already completed or expired", telegramUserId);
-                sendMessage(chatId, "✅ Сделка уже завершена ранее");
-                return;
-            }
-
-            String[] parts = callbackData.split(":");
-            Long targetRequestId = Long.parseLong(parts[0]);
-            BigDecimal dealAmount = new BigDecimal(parts[1]);
-            Long responderRequestId = parts[2].equals("null") ? null : Long.parseLong(parts[2]);
-
-            User author = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException("Author not found"));
-
-            User responder = userService.findByTelegramUserId(
-                    conversationStateService.getUserData(telegramUserId, "responder_user_id") != null
-                            ? Long.parseLong(conversationStateService.getUserData(telegramUserId, "responder_user_id"))
-                            : null
-            ).orElseThrow(() -> new UserNotFoundException("Responder not found"));
-
-            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(targetRequestId);
-
-            // Создаём сделку
-            Deal deal = dealService.createDealFromRequest(
-                    targetRequestId,
-                    responder.getId(),
-                    dealAmount
-            );
-
-            log.info("✅ Deal created: ID={}, status=COMPLETED", deal.getId());
-
-            // Загружаем обновлённую заявку автора
-            ExchangeRequest updatedTargetRequest = exchangeService.findByIdWithUser(targetRequestId);
-
-            // РАСЧЁТЫ ДЛЯ АВТОРА
-            ExchangeRequest.Currency requestCurrency = targetRequest.getCurrencyNeed();
-            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            BigDecimal authorReceived = dealAmount;
-
-            BigDecimal rate;
-            BigDecimal authorGave;
-
-            if (requestCurrency == ExchangeRequest.Currency.KZT) {
-                rate = exchangeRateService.getCurrentKZTtoPLNRate();
-                authorGave = dealAmount.multiply(rate);
-            } else {
-                rate = exchangeRateService.getCurrentPLNtoKZTRate();
-                authorGave = dealAmount.multiply(rate);
-            }
-
-            // ⭐ ПОЛУЧАЕМ ЗАЯВКУ RESPONDER'А ЕСЛИ ЕСТЬ
-            ExchangeRequest responderRequest = null;
-            if (responderRequestId != null) {
-                try {
-                    responderRequest = exchangeService.findByIdWithUser(responderRequestId);
-                } catch (Exception e) {
-                    log.warn("Responder request {} not found", responderRequestId);
-                }
-            }
-
-            // УВЕДОМЛЕНИЕ АВТОРУ
-            String authorMessage = messageFormatter.formatDealCompletionForAuthor(
-                    deal,
-                    authorReceived,
-                    requestCurrency,
-                    authorGave,
-                    oppositeCurrency,
-                    updatedTargetRequest
-            );
-
-            sendMessageWithKeyboard(chatId, authorMessage, createRatingKeyboard(deal.getId()));
-
-            // УВЕДОМЛЕНИЕ ОТКЛИКНУВШЕМУСЯ
-            String responderMessage = messageFormatter.formatDealCompletionForResponder(
-                    deal,
-                    authorGave,
-                    oppositeCurrency,
-                    authorReceived,
-                    requestCurrency,
-                    responderRequest  // ⭐ Передаём уже полученный объект
-            );
-
-            sendMessageWithKeyboard(responderChatId, responderMessage, createRatingKeyboard(deal.getId()));
-
-            conversationStateService.clearState(telegramUserId);
-
-            log.info("✅ Deal {} completed successfully. Author: {}, Provider: {}, Amount: {} {}",
-                    deal.getId(), author.getTelegramUsername(), responder.getTelegramUsername(),
-                    dealAmount, requestCurrency);
-
-        } catch (Exception e) {
-            log.error("Error confirming deal: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    /**
-     * Создание клавиатуры для оценки (1-5 звёзд) + кнопка "Пропустить"
-     */
-    private InlineKeyboardMarkup createRatingKeyboard(Long dealId) {
-        TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
-
-        // Кнопки оценки (1-5 звёзд)
-        for (int i = 1; i <= 5; i++) {
-            builder.addButton(i + "⭐", CALLBACK_RATE_DEAL + dealId + ":" + i);
-        }
-
-        return builder.newRow()
-                .addButton("⏭️Пропустить оценку", CALLBACK_SKIP_RATING + dealId)
-                .build();
-    }
-    /**
-     * Обработка оценки сделки
-     */
-    private void handleRateDeal(Long chatId, Long telegramUserId, Long dealId, Integer ratingValue) {
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            // ⭐ ИСПОЛЬЗУЕМ СУЩЕСТВУЮЩИЙ createRating
-            CreateRatingDTO dto = new CreateRatingDTO(dealId, BigDecimal.valueOf(ratingValue));
-            Rating rating = ratingService.createRating(dto, user.getTelegramUsername());
-
-            Deal deal = dealService.findByIdWithUsers(dealId);
-
-            // Определяем кого оценили
-            User ratedUser = deal.getRequester().getId().equals(user.getId())
-                    ? deal.getProvider()
-                    : deal.getRequester();
-
-            String ratedUsername = ratedUser.getTelegramUsername();
-
-            String message = messageFormatter.formatRatingThankYou(ratedUsername, ratingValue, dealId);
-
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-            log.info("✅ Deal #{} rated with {} stars by @{}", dealId, ratingValue, user.getTelegramUsername());
-
-        } catch (RuntimeException e) {
-            String errorMessage = e.getMessage();
-            if (errorMessage.contains("already exists")) {
-                sendMessage(chatId, "❌ Вы уже оценили эту сделку");
-            } else if (errorMessage.contains("not a participant")) {
-                sendMessage(chatId, "❌ Вы не участвуете в этой сделке");
-            } else if (errorMessage.contains("not found")) {
-                sendMessage(chatId, "❌ Сделка не найдена");
-            } else {
-                sendMessage(chatId, "❌ Ошибка: " + errorMessage);
-            }
-            log.error("Error rating deal {}: {}", dealId, errorMessage);
-        } catch (Exception e) {
-            log.error("Unexpected error rating deal: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    /**
-     * Пропуск оценки
-     */
-    private void handleSkipRating(Long chatId, Long telegramUserId, Long dealId) {
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException("User not found"));
-
-            boolean alreadyRated = ratingService.existsByDealIdAndRaterId(dealId, user.getId());
-            if (alreadyRated) {
-                sendMessage(chatId, "ℹ️ Вы уже оценили этот обмен");
-                return;
-            }
-
-            Deal deal = dealService.findByIdWithUsers(dealId);
-
-            if (!deal.isUserParticipant(user.getId())) {
-                sendMessage(chatId, "❌ У вас нет доступа к этому обмену");
-                return;
-            }
-
-            boolean isRequester = deal.getRequester().getId().equals(user.getId());
-
-            // ⭐ НОВЫЙ УПРОЩЁННЫЙ ФОРМАТТЕР
-            String message = messageFormatter.formatRatingSkipped(deal, isRequester);
-
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                    .build();
+            conversationStateService.setState(telegramUserId, ConversationState.AWAITING_CURRENCY);
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.NEED_CURRENCY;
 
-            log.info("User {} skipped rating for deal {}", user.getTelegramUsername(), dealId);
+            messenger.sendMessageWithKeyboard(chatId, messageFormatter.formatNeedStep1Currency(), keyboard);
 
         } catch (Exception e) {
-            log.error("Error skipping rating: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            log.error("Error in /need: {}", e.getMessage());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
+        }
+    }
+    private void handleMenuCallback(Long chatId, Long telegramUserId, String action) {
+        switch (action) {
+            case "need" -> handleNeedCommand(chatId, telegramUserId);
+            case "search" -> {
+                if (checkPhoneVerification(chatId, telegramUserId)) {
+                    search.handleSearchCommand(chatId, telegramUserId);
+                }
+            }
+            case "my_requests" -> handleMyRequestsCommand(chatId, telegramUserId);
+            case "profile" -> profile.handleProfileCommand(chatId, telegramUserId);
+            case "history" -> profile.handleDealsHistoryCommand(chatId, telegramUserId);
+            case "rates" -> handleRatesCommand(chatId);
+            case "help" -> handleHelpCommand(chatId);
+            default -> messenger.sendMessage(chatId, messageFormatter.formatUnknownCommand());
         }
     }
+    private void handleCurrencyCallback(Long chatId, Long telegramUserId, String currency) {
+        conversationStateService.setUserData(telegramUserId, "currency", currency);
+        conversationStateService.setState(telegramUserId, ConversationState.AWAITING_AMOUNT);
+        messenger.sendMessage(chatId, messageFormatter.formatNeedStep2Amount(currency));
+    }
+
+    private void handleTransferMethodCallback(Long chatId, Long telegramUserId, String method) {
+        conversationStateService.setUserData(telegramUserId, "method", method);
+        conversationStateService.setState(telegramUserId, ConversationState.AWAITING_COMMENT);
+
+        InlineKeyboardMarkup keyboard = TelegramKeyboards.SKIP_COMMENT;
+
+        String methodName = messageFormatter.getTransferMethodName(method);
+        String message = messageFormatter.formatNeedStep4Comment(methodName);
+
+        messenger.sendMessageWithKeyboard(chatId, message, keyboard);
+    }
 
     private void handleSkipCommentCallback(Long chatId, Long telegramUserId) {
         createExchangeRequestFromData(chatId, telegramUserId, null);
@@ -1000,7 +477,7 @@ public class TelegramBotService {
 
     private void handleCancelRequestCallback(Long chatId, Long telegramUserId) {
         conversationStateService.clearState(telegramUserId);
-        sendMessage(chatId, messageFormatter.formatRequestCancelled());
+        messenger.sendMessage(chatId, messageFormatter.formatRequestCancelled());
     }
 
     private void handleRequestConfirmation(Long chatId, Long telegramUserId) {
@@ -1019,25 +496,10 @@ public class TelegramBotService {
         log.info("Viewing request {} by user {}", requestId, telegramUserId);
         try {
             ExchangeRequest request = exchangeService.findById(requestId);
-            sendMessage(chatId, "Заявка #" + requestId + "\n" +
+            messenger.sendMessage(chatId, "Заявка #" + requestId + "\n" +
                     request.getAmountNeed() + " " + request.getCurrencyNeed());
         } catch (Exception e) {
-            sendMessage(chatId, "❌ Заявка не найдена");
-        }
-    }
-
-    private void handleCreateDeal(Long chatId, Long telegramUserId, Long requestId) {
-        log.info("Creating deal for request {} by user {}", requestId, telegramUserId);
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            ExchangeRequest request = exchangeService.findById(requestId);
-            Deal deal = dealService.createDealFromRequest(requestId, user.getId(), request.getAmountNeed());
-
-            sendMessage(chatId, "✅ Сделка создана! ID: " + deal.getId());
-        } catch (Exception e) {
-            sendMessage(chatId, "❌ Ошибка создания сделки");
+            messenger.sendMessage(chatId, "❌ Заявка не найдена");
         }
     }
 
@@ -1048,9 +510,9 @@ public class TelegramBotService {
                     .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
 
             exchangeService.cancelExchangeRequest(requestId, user.getId());
-            sendMessage(chatId, "✅ Заявка отменена");
+            messenger.sendMessage(chatId, "✅ Заявка отменена");
         } catch (Exception e) {
-            sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
+            messenger.sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
         }
     }
 
@@ -1065,11 +527,11 @@ public class TelegramBotService {
             case AWAITING_AMOUNT -> handleAmountInput(chatId, telegramUserId, text);
             case AWAITING_COMMENT -> handleCommentInput(chatId, telegramUserId, text);
             case EDITING_EXCHANGE_REQUEST_AMOUNT -> handleEditAmountInput(chatId, telegramUserId, text);
-            case AWAITING_DEAL_AMOUNT -> handleDealAmountInput(chatId, telegramUserId, text);
+            case AWAITING_DEAL_AMOUNT -> dealConfirmation.handleDealAmountInput(chatId, telegramUserId, text);
             default -> {
                 log.warn("Unexpected state: {} for user {}", state, telegramUserId);
                 conversationStateService.clearState(telegramUserId);
-                sendMessage(chatId, "❌ Что-то пошло не так. Используйте /menu для возврата в главное меню.");
+                messenger.sendMessage(chatId, "❌ Что-то пошло не так. Используйте /menu для возврата в главное меню.");
             }
         }
     }
@@ -1082,26 +544,22 @@ public class TelegramBotService {
             BigDecimal amount = new BigDecimal(readyText);
 
             if (amount.compareTo(MIN_EXCHANGE_AMOUNT) < 0) {
-                sendMessage(chatId, messageFormatter.formatAmountTooSmallError());
+                messenger.sendMessage(chatId, messageFormatter.formatAmountTooSmallError());
                 return;
             }
 
             conversationStateService.setUserData(telegramUserId, "amount", amount.toString());
             conversationStateService.setState(telegramUserId, ConversationState.AWAITING_TRANSFER_METHOD);
 
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("🏦 Банковский перевод", CALLBACK_METHOD + "BANK_TRANSFER")
-                    .newRow()
-                    .addButton("💵 Наличные", CALLBACK_METHOD + "CASH")
-                    .build();
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.TRANSFER_METHOD;
 
             String currency = conversationStateService.getUserData(telegramUserId, "currency");
             String message = messageFormatter.formatNeedStep3TransferMethod(amount, currency);
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
         } catch (NumberFormatException e) {
-            sendMessage(chatId, messageFormatter.formatInvalidAmountFormatError());
+            messenger.sendMessage(chatId, messageFormatter.formatInvalidAmountFormatError());
         }
     }
     /**
@@ -1118,36 +576,11 @@ public class TelegramBotService {
 
             String message = messageFormatter.formatUserStatus(user, activeRequests);
             InlineKeyboardMarkup keyboard = createStatusButtons(activeRequests.isEmpty(), activeRequests);
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
         } catch (Exception e) {
             log.error("Error in my_requests: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-    /**
-     * Показать МОЙ ПРОФИЛЬ (статистика как в /start)
-     */
-    private void handleProfileCommand(Long chatId, Long telegramUserId) {
-        log.info("Processing profile for user {}", telegramUserId);
-
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            BigDecimal currentRate = exchangeRateService.getCurrentPLNtoKZTRate();
-
-            String message = messageFormatter.formatUserProfile(user, currentRate);
-
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-        } catch (Exception e) {
-            log.error("Error in profile: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
     /**
@@ -1156,15 +589,9 @@ public class TelegramBotService {
     private void showRequestManagementOptions(Long chatId, Long telegramUserId) {
         log.info("Showing request management options for user {}", telegramUserId);
 
-        InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                .addButton("✏️ Редактировать заявку", CALLBACK_ACTION_EDIT_REQUEST)
-                .newRow()
-                .addButton("❌ Отменить заявку", CALLBACK_ACTION_CANCEL_REQUEST)
-                .newRow()
-                .addButton("◀️ Назад", CALLBACK_MENU + "my_requests")
-                .build();
+        InlineKeyboardMarkup keyboard = TelegramKeyboards.REQUEST_MANAGEMENT;
 
-        sendMessageWithKeyboard(chatId, "⚙️ <b>Управление заявками</b>\n\nВыберите действие:", keyboard);
+        messenger.sendMessageWithKeyboard(chatId, "⚙️ <b>Управление заявками</b>\n\nВыберите действие:", keyboard);
     }
 
     /**
@@ -1180,7 +607,7 @@ public class TelegramBotService {
             List<ExchangeRequest> activeRequests = exchangeService.getActiveByUserId(user.getId());
 
             if (activeRequests.isEmpty()) {
-                sendMessage(chatId, "У вас нет активных заявок");
+                messenger.sendMessage(chatId, "У вас нет активных заявок");
                 return;
             }
 
@@ -1205,11 +632,11 @@ public class TelegramBotService {
                     .addButton("◀️ Назад", CALLBACK_SHOW_REQUEST_MANAGEMENT)
                     .build();
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
         } catch (Exception e) {
             log.error("Error showing edit list: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
 
@@ -1220,7 +647,7 @@ public class TelegramBotService {
         try {
             String requestListStr = conversationStateService.getUserData(telegramUserId, "edit_request_list");
             if (requestListStr == null) {
-                sendMessage(chatId, "❌ Ошибка: список заявок не найден");
+                messenger.sendMessage(chatId, "❌ Ошибка: список заявок не найден");
                 return;
             }
 
@@ -1229,7 +656,7 @@ public class TelegramBotService {
                     .toList();
 
             if (index < 0 || index >= requestIds.size()) {
-                sendMessage(chatId, "❌ Ошибка: неверный номер заявки");
+                messenger.sendMessage(chatId, "❌ Ошибка: неверный номер заявки");
                 return;
             }
 
@@ -1239,12 +666,12 @@ public class TelegramBotService {
             conversationStateService.setState(telegramUserId, ConversationState.EDITING_EXCHANGE_REQUEST_AMOUNT);
             conversationStateService.setUserData(telegramUserId, "edit_request_id", requestId.toString());
 
-            sendMessage(chatId, messageFormatter.formatEditAmountMessage(request));
+            messenger.sendMessage(chatId, messageFormatter.formatEditAmountMessage(request));
 
 
         } catch (Exception e) {
             log.error("Error starting edit: {}", e.getMessage());
-            sendMessage(chatId, "❌ Ошибка: заявка не найдена");
+            messenger.sendMessage(chatId, "❌ Ошибка: заявка не найдена");
         }
     }
 
@@ -1259,7 +686,7 @@ public class TelegramBotService {
             BigDecimal newAmount = new BigDecimal(readyText);
 
             if (newAmount.compareTo(MIN_EXCHANGE_AMOUNT) < 0) {
-                sendMessage(chatId, messageFormatter.formatAmountTooSmallError());
+                messenger.sendMessage(chatId, messageFormatter.formatAmountTooSmallError());
                 return;
             }
 
@@ -1275,90 +702,18 @@ public class TelegramBotService {
 
             String message = messageFormatter.formatRequestUpdated(oldAmount, newAmount, currency);
 
-            InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                    .addButton("📊 Мои заявки", CALLBACK_MENU + "my_requests")
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
+            InlineKeyboardMarkup keyboard = TelegramKeyboards.MY_REQUESTS_OR_MENU;
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
             log.info("✅ Request {} updated: {} → {} {}", requestId, oldAmount, newAmount, currency);
 
         } catch (NumberFormatException e) {
-            sendMessage(chatId, messageFormatter.formatInvalidAmountFormatError());
+            messenger.sendMessage(chatId, messageFormatter.formatInvalidAmountFormatError());
         } catch (Exception e) {
             log.error("Error editing amount: {}", e.getMessage());
             conversationStateService.clearState(telegramUserId);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    /**
-     * Обработка ввода суммы для сделки (ручной ввод)
-     */
-    private void handleDealAmountInput(Long chatId, Long telegramUserId, String text) {
-        try {
-            // ⭐ УБИРАЕМ ПРОБЕЛЫ
-            BigDecimal dealAmount = new BigDecimal(text.replace(" ", "").replace(",", "."));
-
-            if (dealAmount.compareTo(MIN_EXCHANGE_AMOUNT) < 0) {
-                sendMessage(chatId, "❌ Минимальная сумма: 10");
-                return;
-            }
-
-            String requestIdStr = conversationStateService.getUserData(telegramUserId, "deal_request_id");
-            Long requestId = Long.parseLong(requestIdStr);
-
-            ExchangeRequest request = exchangeService.findByIdWithUser(requestId);
-
-            if (dealAmount.compareTo(request.getAmountNeed()) > 0) {
-                sendMessage(chatId, "❌ Сумма не может превышать " +
-                        messageFormatter.formatAmount(request.getAmountNeed()) + " " + request.getCurrencyNeed());
-                return;
-            }
-
-            User responder = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-            User author = request.getUser();
-
-            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ
-            ExchangeRequest.Currency requestCurrency = request.getCurrencyNeed();
-            ExchangeRequest.Currency oppositeCurrency = requestCurrency == ExchangeRequest.Currency.PLN
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            BigDecimal authorWillReceive = dealAmount;
-
-            BigDecimal rate;
-            BigDecimal authorWillGive;
-
-            if (requestCurrency == ExchangeRequest.Currency.KZT) {
-                rate = exchangeRateService.getCurrentKZTtoPLNRate();
-                authorWillGive = dealAmount.multiply(rate);
-            } else {
-                rate = exchangeRateService.getCurrentPLNtoKZTRate();
-                authorWillGive = dealAmount.multiply(rate);
-            }
-
-            conversationStateService.setUserData(author.getTelegramUserId(), "pending_deal_data",
-                    requestId + ":" + dealAmount + ":null");
-            conversationStateService.setUserData(author.getTelegramUserId(), "responder_user_id",
-                    telegramUserId.toString());
-            conversationStateService.setUserData(author.getTelegramUserId(), "responder_chat_id",
-                    chatId.toString());
-
-            conversationStateService.clearState(telegramUserId);
-
-            String notification = messageFormatter.formatNewOfferNotificationToAuthor(responder, authorWillReceive, requestCurrency, authorWillGive, oppositeCurrency);
-
-            confirmExchange(chatId, telegramUserId, requestId, dealAmount, request, author, requestCurrency, oppositeCurrency, authorWillReceive, authorWillGive, notification);
-
-        } catch (NumberFormatException e) {
-            sendMessage(chatId, "❌ Неверный формат суммы. Введите число, например: 10000, 10 000 или 500,50");
-        } catch (Exception e) {
-            log.error("Error processing deal amount: {}", e.getMessage());
-            conversationStateService.clearState(telegramUserId);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
 
@@ -1366,38 +721,6 @@ public class TelegramBotService {
         createExchangeRequestFromData(chatId, telegramUserId, text);
     }
 
-    /**
-     * Подтверждение завершённой сделки (после отклика)
-     */
-    private void handleConfirmCompletedDeal(Long chatId, Long telegramUserId, Long requestId) {
-        try {
-            User responder = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            String authorIdStr = conversationStateService.getUserData(telegramUserId, "pending_response_author_id");
-            if (authorIdStr == null) {
-                sendMessage(chatId, "❌ Ошибка: данные не найдены");
-                return;
-            }
-
-            Long authorTelegramId = Long.parseLong(authorIdStr);
-
-            // Показываем форму для ввода суммы
-            conversationStateService.setState(telegramUserId, ConversationState.AWAITING_DEAL_AMOUNT);
-            conversationStateService.setUserData(telegramUserId, "deal_request_id", requestId.toString());
-            conversationStateService.setUserData(telegramUserId, "deal_author_telegram_id", Long.toString(authorTelegramId));
-
-            ExchangeRequest request = exchangeService.findByIdWithUser(requestId);
-
-            String message = messageFormatter.formatConfirmDealAmountRequest(request);
-
-            sendMessage(chatId, message);
-
-        } catch (Exception e) {
-            log.error("Error confirming completed deal: {}", e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
     private void createExchangeRequestFromData(Long chatId, Long telegramUserId, String comment) {
         try {
             User user = userService.findByTelegramUserId(telegramUserId)
@@ -1437,9 +760,9 @@ public class TelegramBotService {
                     methodName,
                     comment);
 
-            sendMessage(chatId, successMessage);
+            messenger.sendMessage(chatId, successMessage);
 
-            showMatchingOffers(chatId, user, request);
+            search.showMatchingOffers(chatId, user, request);
 
             log.info("✅ Request created: ID={}, user={}, {} {}",
                     request.getId(), user.getTelegramUsername(), amount, currency);
@@ -1447,90 +770,11 @@ public class TelegramBotService {
         } catch (BusinessException e) {  // ⭐ ЛОВИМ BusinessException ОТДЕЛЬНО!
             log.error("Business error creating request: {}", e.getMessage());
             conversationStateService.clearState(telegramUserId);
-            sendMessage(chatId, "❌ " + e.getMessage());  // ⭐ ПОКАЗЫВАЕМ КОНКРЕТНУЮ ОШИБКУ!
+            messenger.sendMessage(chatId, "❌ " + e.getMessage());  // ⭐ ПОКАЗЫВАЕМ КОНКРЕТНУЮ ОШИБКУ!
         } catch (Exception e) {
             log.error("Error creating request: {}", e.getMessage(), e);
             conversationStateService.clearState(telegramUserId);
-            sendMessage(chatId, messageFormatter.formatRequestCreationError());
-        }
-    }
-
-    /**
-     * Показать подходящие предложения после создания заявки
-     */
-    private void showMatchingOffers(Long chatId, User user, ExchangeRequest request) {
-        try {
-            // ⭐ ПРАВИЛЬНАЯ ЛОГИКА:
-            // Если я создал "Нужно KZT" → ищу тех, кому "Нужно PLN"
-            ExchangeRequest.Currency myNeed = request.getCurrencyNeed();
-            ExchangeRequest.Currency theirNeed = myNeed.equals(ExchangeRequest.Currency.PLN)
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            // Ищем заявки с ПРОТИВОПОЛОЖНОЙ валютой
-            Pageable pageable = PageRequest.of(0, MAX_MATCHING_OFFERS);
-            Page<ExchangeRequest> matchesPage = exchangeService.getRequestsByCurrency(theirNeed, pageable);
-
-            List<ExchangeRequest> matches = matchesPage.getContent()
-                    .stream()
-                    .filter(req -> !req.getUser().getId().equals(user.getId()))
-                    .limit(MAX_MATCHING_OFFERS)
-                    .toList();
-
-            if (matches.isEmpty()) {
-                String message = messageFormatter.formatNoSearchResults();
-
-                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                        .addButton("🔍 Поиск", CALLBACK_MENU+"search")
-                        .newRow()
-                        .addButton("🏠 Меню", "show_menu")
-                        .build();
-
-                sendMessageWithKeyboard(chatId, message, keyboard);
-                return;
-            }
-
-            // Получаем курс для конвертации
-            BigDecimal rate;
-            if (myNeed.equals(ExchangeRequest.Currency.PLN)) {
-                rate = exchangeRateService.getCurrentKZTtoPLNRate();  // Их KZT → мой PLN
-            } else {
-                rate = exchangeRateService.getCurrentPLNtoKZTRate();  // Их PLN → мой KZT
-            }
-
-            String theyWantWithFlag = theirNeed.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
-            String whatTheyHaveWithFlag = myNeed.equals(ExchangeRequest.Currency.PLN) ? "🇵🇱 PLN" : "🇰🇿 KZT";
-
-            String message = messageFormatter.formatMatchingOffers(
-                    matches,
-                    theyWantWithFlag,
-                    whatTheyHaveWithFlag,
-                    myNeed,
-                    rate
-            );
-
-            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
-
-            for (int i = 0; i < matches.size(); i++) {
-                ExchangeRequest match = matches.get(i);
-                builder.addButton("📋 Предложение #" + (i + 1), CALLBACK_RESPOND + match.getId());
-
-                if ((i + 1) % 2 == 0 || i == matches.size() - 1) {
-                    builder.newRow();
-                }
-            }
-
-            InlineKeyboardMarkup keyboard = builder
-                    .addButton("📊 Мои заявки", CALLBACK_MENU+"my_requests")
-                    .addButton("🔍 Поиск", CALLBACK_MENU+"search")
-                    .newRow()
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-        } catch (Exception e) {
-            log.error("Error showing matching offers: {}", e.getMessage(), e);
+            messenger.sendMessage(chatId, messageFormatter.formatRequestCreationError());
         }
     }
 
@@ -1539,12 +783,12 @@ public class TelegramBotService {
             User user = userService.findByTelegramUserId(telegramUserId).orElse(null);
 
             if (user == null) {
-                sendMessage(chatId, messageFormatter.formatUserNotFoundError());
+                messenger.sendMessage(chatId, messageFormatter.formatUserNotFoundError());
                 return false;
             }
 
             if (!user.getIsPhoneVerified()) {
-                sendMessage(chatId, messageFormatter.formatVerificationRequired());
+                messenger.sendMessage(chatId, messageFormatter.formatVerificationRequired());
                 return false;
             }
 
@@ -1590,270 +834,9 @@ public class TelegramBotService {
             bot.execute(sendMessage);
         } catch (Exception e) {
             log.error("❌ Error processing contact: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatPhoneVerificationError());
-        }
-    }
-    private void handleDealsHistoryCommand(Long chatId, Long telegramUserId) {
-        handleDealsHistoryPage(chatId, telegramUserId, 0);  // Показываем первую страницу
-    }
-
-    private void handleDealsHistoryPage(Long chatId, Long telegramUserId, int page) {
-        log.info("Processing history page {} for user {}", page, telegramUserId);
-
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            Pageable pageable = PageRequest.of(page, HISTORY_PAGE_SIZE);
-            Page<Deal> dealsPage = dealService.getFinishedUserDealsWithUsers(user.getId(), pageable);
-            List<Deal> deals = dealsPage.getContent();
-
-            if (deals.isEmpty() && page == 0) {
-                String message = messageFormatter.formatNoHistory();
-
-                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                        .addButton("💰 Создать заявку", CALLBACK_MENU+"need")
-                        .addButton("🔍 Поиск", CALLBACK_MENU+"search")
-                        .newRow()
-                        .addButton("🏠 Меню", "show_menu")
-                        .build();
-
-                sendMessageWithKeyboard(chatId, message, keyboard);
-                return;
-            }
-
-            String message = messageFormatter.formatDealsHistoryPage(
-                    dealsPage,
-                    deals,
-                    user,
-                    page,
-                    ratingService
-            );
-
-            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
-
-            for (int i = 0; i < deals.size(); i++) {
-                Deal deal = deals.get(i);
-                builder.addButton("📋 Обмен #" + deal.getId(), CALLBACK_VIEW_DEAL + deal.getId());
-
-                if ((i + 1) % 2 == 0 || i == deals.size() - 1) {
-                    builder.newRow();
-                }
-            }
-
-            if (dealsPage.getTotalPages() > 1) {
-                if (page > 0) {
-                    builder.addButton("⬅️ Назад", CALLBACK_HISTORY_PAGE + (page - 1));
-                }
-
-                builder.addButton("📖 " + (page + 1) + "/" + dealsPage.getTotalPages(), "current_page");
-
-                if (page < dealsPage.getTotalPages() - 1) {
-                    builder.addButton("Вперёд ➡️", CALLBACK_HISTORY_PAGE + (page + 1));
-                }
-
-                builder.newRow();
-            }
-
-            InlineKeyboardMarkup keyboard = builder
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-        } catch (Exception e) {
-            log.error("Error in history page {}: {}", page, e.getMessage(), e);
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
-        }
-    }
-
-    private void handleViewDeal(Long chatId, Long telegramUserId, Long dealId) {
-        log.info("Viewing deal {} by user {}", dealId, telegramUserId);
-
-        try {
-            User user = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            Deal deal = dealService.findByIdWithUsers(dealId);
-
-            // Проверка доступа
-            if (!deal.getRequester().getId().equals(user.getId()) &&
-                    !deal.getProvider().getId().equals(user.getId())) {
-                sendMessage(chatId, "❌ У вас нет доступа к этому обмену");
-                return;
-            }
-
-            // Определяем роль
-            boolean isRequester = deal.getRequester().getId().equals(user.getId());
-            User counterparty = isRequester ? deal.getProvider() : deal.getRequester();
-
-            // Рассчитываем конвертацию
-            BigDecimal rate = deal.getCurrency() == ExchangeRequest.Currency.PLN
-                    ? exchangeRateService.getCurrentPLNtoKZTRate()
-                    : exchangeRateService.getCurrentKZTtoPLNRate();
-
-            ExchangeRequest.Currency oppositeCurrency = deal.getCurrency() == ExchangeRequest.Currency.PLN
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            BigDecimal received = deal.getAmount().multiply(rate);
-
-            // Проверяем оценку
-            boolean isRated = ratingService.existsByDealIdAndRaterId(dealId, user.getId());
-
-            String message = messageFormatter.formatDealDetails(
-                    deal,
-                    user,
-                    counterparty,
-                    received,
-                    oppositeCurrency,
-                    isRated);
-
-            TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
-
-            if (!isRated) {
-                for (int i = 1; i <= 5; i++) {
-                    builder.addButton(i + " ⭐", CALLBACK_RATE_DEAL + dealId + ":" + i);
-                }
-                builder.newRow();
-            }
-
-            InlineKeyboardMarkup keyboard = builder
-                    .addButton("◀️ Назад к истории", CALLBACK_MENU+"history")
-                    .addButton("🏠 Меню", "show_menu")
-                    .build();
-
-
-            sendMessageWithKeyboard(chatId, message, keyboard);
-
-        } catch (Exception e) {
-            log.error("Error viewing deal: {}", e.getMessage());
-            sendMessage(chatId, "❌ Обмен не найден");
-        }
-    }
-    /**
-     * Обработка отклика на заявку из поиска
-     */
-    @Transactional
-    private void handleRespondToRequest(Long chatId, Long telegramUserId, Long requestId) {
-        log.info("User {} responding to request {}", telegramUserId, requestId);
-
-        try {
-            User responder = userService.findByTelegramUserId(telegramUserId)
-                    .orElseThrow(() -> new UserNotFoundException(USER_NOT_FOUND));
-
-            log.info("Responder found: {}", responder.getTelegramUsername());
-
-            // ⭐ ИСПОЛЬЗУЕМ findByIdWithUser С JOIN FETCH
-            ExchangeRequest targetRequest = exchangeService.findByIdWithUser(requestId);
-            User author = targetRequest.getUser();
-
-            log.info("Target request found: ID={}, amount={}, currency={}, status={}",
-                    requestId, targetRequest.getAmountNeed(), targetRequest.getCurrencyNeed(), targetRequest.getStatus());
-
-            // ⭐ ПРОВЕРКА: АКТИВНА ЛИ ЗАЯВКА?
-            if (!targetRequest.isActive()) {
-                sendMessage(chatId, "❌ Эта заявка больше не активна");
-                log.warn("Request {} is not active", requestId);
-                return;
-            }
-
-            // ⭐ ПРОВЕРКА: НЕ СВОЯ ЛИ ЗАЯВКА?
-            if (author.getId().equals(responder.getId())) {
-                sendMessage(chatId, "❌ Вы не можете откликнуться на свою заявку");
-                log.warn("User {} tried to respond to own request {}", telegramUserId, requestId);
-                return;
-            }
-
-            // ⭐ ПРОВЕРЯЕМ: ЕСТЬ ЛИ У ОТКЛИКАЮЩЕГОСЯ АКТИВНАЯ ЗАЯВКА С ПРОТИВОПОЛОЖНОЙ ВАЛЮТОЙ
-            ExchangeRequest.Currency oppositeCurrency = targetRequest.getCurrencyNeed().equals(ExchangeRequest.Currency.PLN)
-                    ? ExchangeRequest.Currency.KZT
-                    : ExchangeRequest.Currency.PLN;
-
-            List<ExchangeRequest> responderRequests = exchangeService.getActiveByUserId(responder.getId())
-                    .stream()
-                    .filter(req -> req.getCurrencyNeed().equals(oppositeCurrency))
-                    .toList();
-
-            if (!responderRequests.isEmpty()) {
-                // ============================================
-                // ⭐ СЦЕНАРИЙ 1: ЕСТЬ АКТИВНАЯ ЗАЯВКА - АВТОМАТИЧЕСКИЙ РАСЧЁТ
-                // ============================================
-                ExchangeRequest responderRequest = responderRequests.get(0);
-
-                // ⭐ ПРАВИЛЬНАЯ ЛОГИКА КОНВЕРТАЦИИ:
-                ExchangeRequest.Currency myCurrency = responderRequest.getCurrencyNeed();
-                ExchangeRequest.Currency hisCurrency = targetRequest.getCurrencyNeed();
-
-                // Определяем правильный курс
-                BigDecimal rate;
-                if (myCurrency == ExchangeRequest.Currency.KZT && hisCurrency == ExchangeRequest.Currency.PLN) {
-                    rate = exchangeRateService.getCurrentKZTtoPLNRate();
-                } else if (myCurrency == ExchangeRequest.Currency.PLN && hisCurrency == ExchangeRequest.Currency.KZT) {
-                    rate = exchangeRateService.getCurrentPLNtoKZTRate();
-                } else {
-                    log.error("Same currency in automatic calculation!");
-                    sendMessage(chatId, "❌ Ошибка: валюты совпадают");
-                    return;
-                }
-
-                // Конвертируем МОЮ сумму в ЕГО валюту
-                BigDecimal calculatedAmount = responderRequest.getAmountNeed().multiply(rate);
-                BigDecimal maxAmount = targetRequest.getAmountNeed();
-                BigDecimal proposedAmount = calculatedAmount.min(maxAmount);
-
-                log.info("💡 Calculation: {} {} * {} = {} {} (max: {} {})",
-                        responderRequest.getAmountNeed(), myCurrency, rate,
-                        calculatedAmount, hisCurrency, maxAmount, hisCurrency);
-
-                conversationStateService.setState(telegramUserId, ConversationState.AWAITING_DEAL_CONFIRMATION);
-                conversationStateService.setUserData(telegramUserId, "deal_request_id", requestId.toString());
-                conversationStateService.setUserData(telegramUserId, "deal_amount", proposedAmount.toString());
-                conversationStateService.setUserData(telegramUserId, "responder_request_id", responderRequest.getId().toString());
-
-                String message = messageFormatter.formatExchangeOfferAutoCalculated(
-                        responderRequest,
-                        targetRequest,
-                        author,
-                        calculatedAmount,
-                        maxAmount,
-                        proposedAmount);
-
-                InlineKeyboardMarkup keyboard = TelegramKeyboardBuilder.create()
-                        .addButton("✅ Подтвердить", CALLBACK_CONFIRM_DEAL_AUTO)
-                        .addButton("❌ Отмена", CALLBACK_MENU + "search")
-                        .build();
-
-
-                sendMessageWithKeyboard(chatId, message, keyboard);
-
-                log.info("✅ [SCENARIO 1] Automatic calculation: user {} → {} {}",
-                        telegramUserId, proposedAmount, targetRequest.getCurrencyNeed());
-
-            } else {
-
-                // ⭐ СЦЕНАРИЙ 2: НЕТ АКТИВНОЙ ЗАЯВКИ - СРАЗУ ВВОД СУММЫ
-                conversationStateService.setState(telegramUserId, ConversationState.AWAITING_DEAL_AMOUNT);
-                conversationStateService.setUserData(telegramUserId, "deal_request_id", requestId.toString());
-                conversationStateService.setUserData(telegramUserId, "deal_author_telegram_id", author.getTelegramUserId().toString());
-
-                String message = messageFormatter.formatExchangeOfferManual(targetRequest, author);
-
-                sendMessage(chatId, message);
-
-                log.info("✅ [SCENARIO 2] Amount input requested: user {} → request {}",
-                        telegramUserId, requestId);
-            }
-
-        } catch (RuntimeException e) {
-            log.error("Error responding to request {}: {}", requestId, e.getMessage(), e);
-            sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
-        } catch (Exception e) {
-            log.error("Unexpected error responding to request {}: {}", requestId, e.getMessage(), e);
-            sendMessage(chatId, "❌ Ошибка: заявка не найдена");
+            messenger.sendMessage(chatId, messageFormatter.formatPhoneVerificationError());
         }
     }
-
     private InlineKeyboardMarkup createStatusButtons(boolean noRequests, List<ExchangeRequest> requests) {
 
         TelegramKeyboardBuilder builder = TelegramKeyboardBuilder.create();
@@ -1873,9 +856,7 @@ public class TelegramBotService {
     }
 
     private InlineKeyboardMarkup createMenuButton() {
-        return TelegramKeyboardBuilder.create()
-                .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
-                .build();
+        return TelegramKeyboards.MENU;
     }
 
     private ReplyKeyboardMarkup createMandatoryShareContactKeyboard() {
@@ -1910,7 +891,7 @@ public class TelegramBotService {
             List<ExchangeRequest> activeRequests = exchangeService.getActiveByUserId(user.getId());
 
             if (activeRequests.isEmpty()) {
-                sendMessage(chatId, "У вас нет активных заявок");
+                messenger.sendMessage(chatId, "У вас нет активных заявок");
                 return;
             }
 
@@ -1935,11 +916,11 @@ public class TelegramBotService {
                     .addButton("◀️ Назад", CALLBACK_SHOW_REQUEST_MANAGEMENT)
                     .build();
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
         } catch (Exception e) {
             log.error("Error showing request list: {}", e.getMessage());
-            sendMessage(chatId, messageFormatter.formatTechnicalError());
+            messenger.sendMessage(chatId, messageFormatter.formatTechnicalError());
         }
     }
     /**
@@ -1953,7 +934,7 @@ public class TelegramBotService {
             String requestListStr = conversationStateService.getUserData(telegramUserId, "cancel_request_list");
 
             if (requestListStr == null) {
-                sendMessage(chatId, "❌ Ошибка: список заявок не найден");
+                messenger.sendMessage(chatId, "❌ Ошибка: список заявок не найден");
                 return;
             }
 
@@ -1962,7 +943,7 @@ public class TelegramBotService {
                     .toList();
 
             if (index < 0 || index >= requestIds.size()) {
-                sendMessage(chatId, "❌ Ошибка: неверный номер заявки");
+                messenger.sendMessage(chatId, "❌ Ошибка: неверный номер заявки");
                 return;
             }
 
@@ -1987,40 +968,29 @@ public class TelegramBotService {
                     .addButton("🏠 Меню", "show_menu")
                     .build();
 
-            sendMessageWithKeyboard(chatId, message, keyboard);
+            messenger.sendMessageWithKeyboard(chatId, message, keyboard);
 
             log.info("✅ Request #{} (ID={}) cancelled by user {}", index + 1, requestId, user.getTelegramUsername());
 
         } catch (Exception e) {
             log.error("Error canceling by index: {}", e.getMessage());
-            sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
+            messenger.sendMessage(chatId, "❌ Ошибка: " + e.getMessage());
         }
     }
 
-    private void sendMessage(Long chatId, String text) {
-        try {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText(text);
-            message.setParseMode("HTML");
-            bot.execute(message);
-            log.debug("Message sent to {}", chatId);
-        } catch (Exception e) {
-            log.error("Error sending message: {}", e.getMessage());
+    /**
+     * Пользователь ушёл с показанного предложения (отмена, меню, другая кнопка или команда) —
+     * его неподтверждённый холд больше не нужен
+     */
+    private void releaseUnconfirmedHolds(Long telegramUserId) {
+        String responderId = conversationStateService.getUserData(telegramUserId, OFFER_RESPONDER_KEY);
+        if (responderId == null) {
+            return;
         }
-    }
-
-    private void sendMessageWithKeyboard(Long chatId, String text, InlineKeyboardMarkup keyboard) {
-        try {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText(text);
-            message.setParseMode("HTML");
-            message.setReplyMarkup(keyboard);
-            bot.execute(message);
-            log.debug("Keyboard message sent to {}", chatId);
-        } catch (Exception e) {
-            log.error("Error sending keyboard message: {}", e.getMessage());
+        conversationStateService.removeUserData(telegramUserId, OFFER_RESPONDER_KEY);
+        int released = reservationLedger.releaseUnconfirmed(Long.parseLong(responderId));
+        if (released > 0) {
+            log.debug("🔓 Released {} unconfirmed holds of user {}", released, telegramUserId);
         }
     }
 
@@ -15,6 +15,10 @@ public class TelegramConstants {
     public static final int BUTTONS_PER_ROW = 3;
     public static final int HISTORY_PAGE_SIZE = 10;
     public static final int MAX_MATCHING_OFFERS = 5;
+    public static final int INLINE_PAGE_SIZE = 20;
+
+    // Сколько отправленных/отредактированных сообщений помнить для no-op проверки при редактировании
+    public static final int RENDERED_MESSAGES_CACHE_SIZE = 10_000;
 
     // ============================================
     // CALLBACK DATA - Основные действия
@@ -58,9 +62,14 @@ public class TelegramConstants {
     // CALLBACK DATA - Сделки
     // ============================================
     public static final String CALLBACK_CREATE_DEAL = "create_deal:";
-    public static final String CALLBACK_CONFIRM_DEAL_AUTO = "confirm_deal_auto";
+    // Подписанные payload'ы (CallbackCodec): короткие префиксы, чтобы уложиться в 64 байта
+    public static final String CALLBACK_CONFIRM_DEAL_AUTO = "confirm_deal:";
     public static final String CALLBACK_CONFIRM_COMPLETED_DEAL = "confirm_completed_deal:";
-    public static final String CALLBACK_AUTHOR_CONFIRM = "author_confirm_deal:";
+    public static final String CALLBACK_AUTHOR_CONFIRM = "accept_deal:";
+    // Префиксы тех же кнопок до подписанных payload'ов: уже отправленные кнопки попадают в те же
+    // обработчики и получают ответ "Данные устарели" вместо молчания
+    public static final String LEGACY_CALLBACK_CONFIRM_DEAL_AUTO = "confirm_deal_auto";
+    public static final String LEGACY_CALLBACK_AUTHOR_CONFIRM = "author_confirm_deal:";
 
     // ============================================
     // CALLBACK DATA - Оценки
@@ -76,6 +85,9 @@ public class TelegramConstants {
 
     public static final String USER_NOT_FOUND = "User not found";
 
+    // users.id откликающегося с неподтверждённым холдом — чтобы снять холд при уходе с предложения
+    public static final String OFFER_RESPONDER_KEY = "offer_responder_id";
+
     public static final String PLN = "PLN";
     public static final String KZT = "KZT";
 
@@ -90,6 +102,13 @@ public class TelegramConstants {
     public static final String COMMAND_PROFILE = "/profile";
     public static final String COMMAND_RATES = "/rates";
     public static final String COMMAND_HELP = "/help";
+    public static final String COMMAND_STATS = "/stats";
+
+    // Окно /stats: сумма часовых агрегатов
+    public static final int STATS_WINDOW_HOURS = 24;
+
+    // Deep link из inline-карточки: t.me/<bot>?start=respond_<id>
+    public static final String START_PAYLOAD_RESPOND = "respond_";
 
     public static final String RATE_LIMIT_TELEGRAM_COMMAND = "telegram_command";
     public static final String RATE_LIMIT_API_CALL = "api_call";
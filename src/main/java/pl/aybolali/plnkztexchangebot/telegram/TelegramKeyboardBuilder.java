@@ -57,6 +57,16 @@ public class TelegramKeyboardBuilder {
         return keyboard;
     }
 
+    /**
+     * Собрать неизменяемую клавиатуру — для static final констант, общих для всех чатов
+     */
+    public InlineKeyboardMarkup buildShared() {
+        newRow();
+        InlineKeyboardMarkup keyboard = new InlineKeyboardMarkup();
+        keyboard.setKeyboard(rows.stream().map(List::copyOf).toList());
+        return keyboard;
+    }
+
     /**
      * Создать пустую клавиатуру (для начала построения)
      */
@@ -0,0 +1,88 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * ⌨️ Статические inline-клавиатуры
+ *
+ * Клавиатуры без данных пользователя собираются один раз при загрузке класса
+ * и переиспользуются во всех ответах. Ряды неизменяемые — см. {@link TelegramKeyboardBuilder#buildShared()}.
+ */
+final class TelegramKeyboards {
+
+    static final InlineKeyboardMarkup MENU = TelegramKeyboardBuilder.create()
+            .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup OPEN_MENU = TelegramKeyboardBuilder.create()
+            .addButton("🏠 Открыть меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup MAIN_MENU = TelegramKeyboardBuilder.create()
+            .addButton("💰 Создать запрос", CALLBACK_MENU + "need")
+            .addButton("🔍 Поиск", CALLBACK_MENU + "search")
+            .newRow()
+            .addButton("📋 Мои заявки", CALLBACK_MENU + "my_requests")
+            .addButton("👤 Мой профиль", CALLBACK_MENU + "profile")
+            .newRow()
+            .addButton("💹 Курсы", CALLBACK_MENU + "rates")
+            .addButton("❓ Справка", CALLBACK_MENU + "help")
+            .newRow()
+            .addButton("📜 История обменов", CALLBACK_MENU + "history")
+            .buildShared();
+
+    static final InlineKeyboardMarkup NEED_CURRENCY = TelegramKeyboardBuilder.create()
+            .addButton("🇵🇱 PLN (Злоты)", CALLBACK_CURRENCY + PLN)
+            .addButton("🇰🇿 KZT (Тенге)", CALLBACK_CURRENCY + KZT)
+            .newRow()
+            .addButton("🏠 Главное меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup SEARCH_CURRENCY = TelegramKeyboardBuilder.create()
+            .addButton("🇵🇱 Ищу PLN", CALLBACK_SEARCH_CURRENCY + PLN)
+            .addButton("🇰🇿 Ищу KZT", CALLBACK_SEARCH_CURRENCY + KZT)
+            .newRow()
+            .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup SKIP_COMMENT = TelegramKeyboardBuilder.create()
+            .addButton("⏭️ Пропустить", CALLBACK_SKIP_COMMENT)
+            .buildShared();
+
+    static final InlineKeyboardMarkup TRANSFER_METHOD = TelegramKeyboardBuilder.create()
+            .addButton("🏦 Банковский перевод", CALLBACK_METHOD + "BANK_TRANSFER")
+            .newRow()
+            .addButton("💵 Наличные", CALLBACK_METHOD + "CASH")
+            .buildShared();
+
+    static final InlineKeyboardMarkup REQUEST_MANAGEMENT = TelegramKeyboardBuilder.create()
+            .addButton("✏️ Редактировать заявку", CALLBACK_ACTION_EDIT_REQUEST)
+            .newRow()
+            .addButton("❌ Отменить заявку", CALLBACK_ACTION_CANCEL_REQUEST)
+            .newRow()
+            .addButton("◀️ Назад", CALLBACK_MENU + "my_requests")
+            .buildShared();
+
+    static final InlineKeyboardMarkup MY_REQUESTS_OR_MENU = TelegramKeyboardBuilder.create()
+            .addButton("📊 Мои заявки", CALLBACK_MENU + "my_requests")
+            .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup SEARCH_OR_MENU = TelegramKeyboardBuilder.create()
+            .addButton("🔍 Поиск", CALLBACK_MENU + "search")
+            .newRow()
+            .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    static final InlineKeyboardMarkup NEED_SEARCH_OR_MENU = TelegramKeyboardBuilder.create()
+            .addButton("💰 Создать заявку", CALLBACK_MENU + "need")
+            .addButton("🔍 Поиск", CALLBACK_MENU + "search")
+            .newRow()
+            .addButton("🏠 Меню", CALLBACK_SHOW_MENU)
+            .buildShared();
+
+    private TelegramKeyboards() {
+    }
+}
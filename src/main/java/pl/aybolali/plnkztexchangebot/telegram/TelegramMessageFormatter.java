@@ -4,21 +4,39 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
 import pl.aybolali.plnkztexchangebot.dto.ExchangeRateDTO;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
 import pl.aybolali.plnkztexchangebot.entity.Deal;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
 import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
 import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.service.RatingService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.function.Function;
 
 @Component
 @Slf4j
 public class TelegramMessageFormatter {
 
+    // DecimalFormat не потокобезопасен — по экземпляру на поток вместо нового на каждый вызов
+    private static final ThreadLocal<DecimalFormat> AMOUNT_FORMAT = ThreadLocal.withInitial(() -> {
+        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
+        symbols.setGroupingSeparator(' ');  // Пробел для тысяч
+        symbols.setDecimalSeparator('.');   // Точка для дробной части
+        return new DecimalFormat("#,##0.##", symbols);
+    });
+    private static final ThreadLocal<DecimalFormat> RATING_FORMAT = ThreadLocal.withInitial(() -> new DecimalFormat("0.0"));
+
+    // Буфер для списков (поиск, история, совпадения); отдельно от буфера MessageTemplate
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+    private static final ThreadLocal<StringBuilder> LIST_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(2048));
+
     public String formatUsernameRequired() {
         return """
                 ⚠️ <b>Требуется @username</b>
@@ -72,8 +90,7 @@ public class TelegramMessageFormatter {
                 """;
     }
 
-    public String formatVerifiedUserWelcome(User user, BigDecimal currentRate) {
-        return String.format("""
+    private static final MessageTemplate VERIFIED_USER_WELCOME = MessageTemplate.compile("""
                 👋 <b>Добро пожаловать, %s!</b>
                 
                 📊 <b>Ваша статистика:</b>
@@ -84,15 +101,17 @@ public class TelegramMessageFormatter {
                 1 PLN = %.2f KZT
                 
                 Используйте меню для списка команд
-                """,
+                """);
+
+    public String formatVerifiedUserWelcome(User user, BigDecimal currentRate) {
+        return VERIFIED_USER_WELCOME.render(
                 escapeHtml(user.getFullName()),
                 user.getTrustRating().doubleValue(),
                 user.getSuccessfulDeals(),
                 currentRate);
     }
 
-    public String formatMandatoryPhoneVerificationRequest(User user, BigDecimal currentRate) {
-        return String.format("""
+    private static final MessageTemplate MANDATORY_PHONE_VERIFICATION_REQUEST = MessageTemplate.compile("""
                 👋 <b>Добро пожаловать в PLN-KZT Exchange, %s!</b>
                 
                 🔒 <b>Требуется верификация номера телефона</b>
@@ -111,7 +130,10 @@ public class TelegramMessageFormatter {
                 Ваш номер телефона защищен. Он виден только активным встречным сторонам по сделкам во время координации обмена.
                 
                 👇 <b>Нажмите кнопку для верификации:</b>
-                """,
+                """);
+
+    public String formatMandatoryPhoneVerificationRequest(User user, BigDecimal currentRate) {
+        return MANDATORY_PHONE_VERIFICATION_REQUEST.render(
                 escapeHtml(user.getFirstName()),
                 currentRate);
     }
@@ -207,8 +229,8 @@ public class TelegramMessageFormatter {
 
         return sb.toString();
     }
-    public String formatVerificationSuccess(User user) {
-        return String.format("""
+
+    private static final MessageTemplate VERIFICATION_SUCCESS = MessageTemplate.compile("""
                 ✅ <b>Верификация успешна!</b>
                 
                 👤 %s
@@ -218,7 +240,10 @@ public class TelegramMessageFormatter {
                 
                 Используйте /menu для списка команд.
                 Для справок - /help 
-                """,
+                """);
+
+    public String formatVerificationSuccess(User user) {
+        return VERIFICATION_SUCCESS.render(
                 escapeHtml(user.getFullName()));
     }
 
@@ -237,8 +262,7 @@ public class TelegramMessageFormatter {
     // МЕНЮ
     // ========================================
 
-    public String formatMainMenu(User user) {
-        return String.format("""
+    private static final MessageTemplate MAIN_MENU = MessageTemplate.compile("""
                 🏠 <b>Главное меню</b>
                 
                 👤 %s
@@ -246,7 +270,10 @@ public class TelegramMessageFormatter {
                 💼 Обменов: %d
                 
                 Выберите действие:
-                """,
+                """);
+
+    public String formatMainMenu(User user) {
+        return MAIN_MENU.render(
                 escapeHtml(user.getFullName()),
                 user.getTrustRating().doubleValue(),
                 user.getSuccessfulDeals());
@@ -270,6 +297,7 @@ public class TelegramMessageFormatter {
             /history - История обменов
             /profile - Мой профиль
             /rates - Курсы валют
+            /stats - Статистика обменов
             /help - Эта справка
             
             <b>💰 Как это работает:</b>
@@ -322,8 +350,7 @@ public class TelegramMessageFormatter {
     // КУРСЫ ВАЛЮТ
     // ========================================
 
-    public String formatExchangeRates(ExchangeRateDTO rateDTO) {
-        return String.format("""
+    private static final MessageTemplate EXCHANGE_RATES = MessageTemplate.compile("""
                         💹 <b>Курсы валют</b>
                                     
                         🇵🇱→🇰🇿 1 PLN = %.2f KZT
@@ -334,7 +361,10 @@ public class TelegramMessageFormatter {
                                                                                                                                                               
                                     
                         💡 Официальный курс, обновляется ежедневно
-                        """,
+                        """);
+
+    public String formatExchangeRates(ExchangeRateDTO rateDTO) {
+        return EXCHANGE_RATES.render(
                 rateDTO.plnToKzt(),
                 rateDTO.kztToPln(),
                 rateDTO.date());
@@ -349,6 +379,53 @@ public class TelegramMessageFormatter {
                 """;
     }
 
+    // ========================================
+    // СТАТИСТИКА ТОРГОВЛИ (/stats)
+    // ========================================
+
+    public String formatTradeStats(List<TradeRollupDTO> summary, int hours) {
+        StringBuilder sb = listBuffer();
+        sb.append("📈 <b>Статистика за ").append(hours).append(" ч</b>\n\n");
+
+        for (TradeRollupDTO stats : summary) {
+            String currency = stats.currency().name();
+            sb.append("<b>").append(stats.currency() == ExchangeRequest.Currency.PLN ? "🇵🇱" : "🇰🇿")
+                    .append(" ").append(currency).append("</b>\n");
+            sb.append("   🤝 Сделок: <b>").append(stats.dealCount()).append("</b>");
+            if (stats.dealCount() > 0) {
+                sb.append(" на <b>").append(formatAmount(stats.volume())).append(" ").append(currency).append("</b>");
+            }
+            sb.append("\n");
+            if (stats.vwap() != null) {
+                sb.append("   💱 Средний курс: ").append(stats.vwap().stripTrailingZeros().toPlainString()).append("\n");
+            }
+            if (stats.avgFillSeconds() != null) {
+                sb.append("   ⏱ Заявка исполняется в среднем за ").append(formatFillTime(stats.avgFillSeconds()))
+                        .append(" (исполнено: ").append(stats.filledRequests()).append(")\n");
+            }
+            if (stats.openRequests() != null) {
+                sb.append("   📚 Активных заявок: ").append(stats.openRequests())
+                        .append(" на ").append(formatAmount(stats.openAmount())).append(" ").append(currency).append("\n");
+            }
+            sb.append("\n");
+        }
+
+        sb.append("💡 Курс — средневзвешенный по объёму сделок");
+        return release(sb);
+    }
+
+    private static String formatFillTime(long seconds) {
+        long minutes = Math.max(1, seconds / 60);
+        if (minutes < 60) {
+            return minutes + " мин";
+        }
+        long hours = minutes / 60;
+        if (hours < 48) {
+            return hours + " ч " + (minutes % 60) + " мин";
+        }
+        return (hours / 24) + " дн " + (hours % 24) + " ч";
+    }
+
     // ========================================
     // СОЗДАНИЕ ЗАЯВКИ (/need)
     // ========================================
@@ -365,8 +442,7 @@ public class TelegramMessageFormatter {
                 """;
     }
 
-    public String formatNeedStep2Amount(String currency) {
-        return String.format("""
+    private static final MessageTemplate NEED_STEP2_AMOUNT = MessageTemplate.compile("""
                 ✅ Валюта: <b>%s</b>
                 
                 <b>Шаг 2/4:</b> Введите сумму
@@ -374,31 +450,38 @@ public class TelegramMessageFormatter {
                 Например: <code>50000</code>, <code>50 000</code> или <code>1000.50</code>
                 
                 💡 Минимум: 10 %s
-                """,
+                """);
+
+    public String formatNeedStep2Amount(String currency) {
+        return NEED_STEP2_AMOUNT.render(
                 currency,
                 currency);
     }
-    public String formatEditAmountMessage(ExchangeRequest request) {
-        return String.format(
-                "✏️ <b>Изменение суммы</b>\n\n" +
+
+    private static final MessageTemplate EDIT_AMOUNT_MESSAGE = MessageTemplate.compile("✏️ <b>Изменение суммы</b>\n\n" +
                         "Текущая сумма: <b>%s %s</b>\n\n" +
-                        "Введите новую сумму:",
+                        "Введите новую сумму:");
+
+    public String formatEditAmountMessage(ExchangeRequest request) {
+        return EDIT_AMOUNT_MESSAGE.render(
                 formatAmount(request.getAmountNeed()),
                 request.getCurrencyNeed()
         );
     }
-    public String formatNeedStep3TransferMethod(BigDecimal amount, String currency) {
-        return String.format("""
+
+    private static final MessageTemplate NEED_STEP3_TRANSFER_METHOD = MessageTemplate.compile("""
                 ✅ Сумма: <b>%s %s</b>
                 
                 <b>Шаг 3/4:</b> Выберите способ перевода
-                """,
+                """);
+
+    public String formatNeedStep3TransferMethod(BigDecimal amount, String currency) {
+        return NEED_STEP3_TRANSFER_METHOD.render(
                 formatAmount(amount),
                 currency);
     }
 
-    public String formatNeedStep4Comment(String methodName) {
-        return String.format("""
+    private static final MessageTemplate NEED_STEP4_COMMENT = MessageTemplate.compile("""
                 ✅ Способ перевода: <b>%s</b>
                 
                 <b>Шаг 4/4:</b> Добавьте комментарий (необязательно)
@@ -409,19 +492,14 @@ public class TelegramMessageFormatter {
                 • "Предпочитаю Revolut"
                 
                 Или нажмите "Пропустить"
-                """,
+                """);
+
+    public String formatNeedStep4Comment(String methodName) {
+        return NEED_STEP4_COMMENT.render(
                 methodName);
     }
 
-    public String formatExchangeRequestCreated(
-            BigDecimal amount,
-            String currency,
-            BigDecimal equivalent,
-            String otherCurrency,
-            String methodName,
-            String comment) {
-
-        return String.format("""
+    private static final MessageTemplate EXCHANGE_REQUEST_CREATED = MessageTemplate.compile("""
                 ✅ <b>Заявка создана!</b> 
                 
                 💰 Сумма: %s %s (вам нужно)
@@ -431,7 +509,17 @@ public class TelegramMessageFormatter {
                 📝 Комментарий: %s
                 
                 🔍 Ваша заявка теперь видна другим пользователям.
-                """,
+                """);
+
+    public String formatExchangeRequestCreated(
+            BigDecimal amount,
+            String currency,
+            BigDecimal equivalent,
+            String otherCurrency,
+            String methodName,
+            String comment) {
+
+        return EXCHANGE_REQUEST_CREATED.render(
                 formatAmount(amount),
                 currency,
                 formatAmount(equivalent),
@@ -454,7 +542,7 @@ public class TelegramMessageFormatter {
             int page,
             RatingService ratingService) {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("📜 <b>История обменов</b>\n");
 
         if (dealsPage.getTotalPages() > 1) {
@@ -520,7 +608,7 @@ public class TelegramMessageFormatter {
 
         sb.append("💡 Нажмите на обмен для подробностей");
 
-        return sb.toString();
+        return release(sb);
     }
 
     private BigDecimal getPLNtoKZTRate(Deal deal) {
@@ -610,9 +698,10 @@ public class TelegramMessageFormatter {
             String theyWantWithFlag,
             String withFlag,
             ExchangeRequest.Currency iWant,
-            BigDecimal currentRate) {
+            BigDecimal currentRate,
+            Function<ExchangeRequest, BigDecimal> availableAmount) {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("🔍 <b>Найдено предложений: ").append(requests.size()).append("</b>\n\n");
         sb.append("Пользователи, которым нужен <b>").append(theyWantWithFlag).append("</b>\n");
         sb.append("(у них есть <b>").append(withFlag).append("</b>):\n\n");
@@ -620,13 +709,17 @@ public class TelegramMessageFormatter {
         for (int i = 0; i < Math.min(requests.size(), 10); i++) {  // ⭐ МАКСИМУМ 10
             ExchangeRequest req = requests.get(i);
 
-            // ⭐ КОНВЕРТИРУЕМ В МОЮ ВАЛЮТУ
-            BigDecimal theirAmount = req.getAmountNeed();
+            // ⭐ КОНВЕРТИРУЕМ В МОЮ ВАЛЮТУ (только свободную часть, без холдов других откликов)
+            BigDecimal theirAmount = availableAmount.apply(req);
             BigDecimal convertedAmount = theirAmount.multiply(currentRate);
 
             sb.append("<b>").append(i + 1).append(".</b> 👤 @").append(req.getUser().getTelegramUsername()).append("\n");
-            sb.append("   💰 <b>").append(formatAmount(req.getAmountNeed()))
-                    .append(" ").append(req.getCurrencyNeed()).append("</b>\n");
+            sb.append("   💰 <b>").append(formatAmount(theirAmount))
+                    .append(" ").append(req.getCurrencyNeed()).append("</b>");
+            if (theirAmount.compareTo(req.getAmountNeed()) < 0) {
+                sb.append(" из ").append(formatAmount(req.getAmountNeed()));
+            }
+            sb.append("\n");
             sb.append("   💱 Вы получите: ≈ <b>").append(formatAmount(convertedAmount))
                     .append(" ").append(iWant).append("</b>\n");
             sb.append("   🔄 ").append(getTransferMethodName(req.getTransferMethod().name())).append("\n");
@@ -641,18 +734,59 @@ public class TelegramMessageFormatter {
 
         sb.append("💡 Нажмите кнопку с номером для отклика");
 
+        return release(sb);
+    }
+
+    // ⭐ КАРТОЧКА ЗАЯВКИ ДЛЯ INLINE-РЕЖИМА (@bot 500 PLN) - отправляется в любой чат от имени пользователя
+    public String formatInlineOfferCard(
+            ActiveOffer offer,
+            UserPublicDTO author,
+            ExchangeRequest.Currency iWant,
+            BigDecimal currentRate) {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("💱 <b>Заявка на обмен</b>\n\n");
+        sb.append("👤 @").append(author != null ? author.telegramUsername() : "—").append("\n");
+        sb.append("💰 Нужно: <b>").append(formatAmount(offer.amountNeed()))
+                .append(" ").append(offer.currencyNeed()).append("</b>\n");
+        if (currentRate != null) {
+            sb.append("💱 Взамен: ≈ <b>").append(formatAmount(offer.amountNeed().multiply(currentRate)))
+                    .append(" ").append(iWant).append("</b>\n");
+        } else {
+            sb.append("💱 Взамен: ").append(iWant).append(" — курс недоступен\n");
+        }
+        sb.append("🔄 ").append(getTransferMethodName(offer.transferMethod().name())).append("\n");
+
+        if (offer.notes() != null && !offer.notes().isEmpty()) {
+            sb.append("📝 ").append(escapeHtml(offer.notes())).append("\n");
+        }
+
+        if (author != null) {
+            sb.append("⭐ Рейтинг: ").append(formatRating(author.trustRating()))
+                    .append(" | Обменов: ").append(author.successfulDeals()).append("\n");
+        }
+
         return sb.toString();
     }
 
+    // ⭐ КОРОТКОЕ ОПИСАНИЕ ЗАЯВКИ В СПИСКЕ INLINE-РЕЗУЛЬТАТОВ
+    public String formatInlineOfferDescription(ActiveOffer offer, UserPublicDTO author) {
+        return "@" + (author != null ? author.telegramUsername() : "—")
+                + " · " + getTransferMethodName(offer.transferMethod().name())
+                + " · ⭐ " + formatRating(author != null ? author.trustRating() : null);
+    }
+
     // ⭐ ПОВТОРНЫЙ ПОИСК ИЛИ ВЫБОР ДРУГОЙ ВАЛЮТЫ - Есть последний выбор - предлагаем повторить или выбрать заново
-    public String formatRepeatSearchOrChooseAnother(String lastSearchCurrency) {
-        return String.format("""
+    private static final MessageTemplate REPEAT_SEARCH_OR_CHOOSE_ANOTHER = MessageTemplate.compile("""
                 🔍 <b>Поиск заявок</b>
                 
                 💡 Последний поиск: <b>%s</b>
                 
                 Повторить поиск или выбрать другую валюту?
-                """,
+                """);
+
+    public String formatRepeatSearchOrChooseAnother(String lastSearchCurrency) {
+        return REPEAT_SEARCH_OR_CHOOSE_ANOTHER.render(
                 lastSearchCurrency);
     }
 
@@ -674,14 +808,7 @@ public class TelegramMessageFormatter {
     // ========================================
 
     // ⭐ УВЕДОМЛЕНИЕ АВТОРУ ЗАЯВКИ О НОВОМ ПРЕДЛОЖЕНИИ
-    public String formatNewOfferNotificationToAuthor(
-            User responder,
-            BigDecimal authorWillReceive,
-            ExchangeRequest.Currency requestCurrency,
-            BigDecimal authorWillGive,
-            ExchangeRequest.Currency oppositeCurrency) {
-
-        return String.format("""
+    private static final MessageTemplate NEW_OFFER_NOTIFICATION_TO_AUTHOR = MessageTemplate.compile("""
                 🔔 <b>Новое предложение обмена!</b>
                 
                  💰 <b>Детали обмена:</b>
@@ -693,7 +820,16 @@ public class TelegramMessageFormatter {
                 📱 Номер телефона: %s
                 
                 💬 <b>Подтвердите обмен после завершения сделки</b>
-                """,
+                """);
+
+    public String formatNewOfferNotificationToAuthor(
+            User responder,
+            BigDecimal authorWillReceive,
+            ExchangeRequest.Currency requestCurrency,
+            BigDecimal authorWillGive,
+            ExchangeRequest.Currency oppositeCurrency) {
+
+        return NEW_OFFER_NOTIFICATION_TO_AUTHOR.render(
 
                 formatAmount(authorWillReceive),
                 requestCurrency.toString(),
@@ -706,14 +842,7 @@ public class TelegramMessageFormatter {
     }
 
     // ⭐ ПОДТВЕРЖДЕНИЕ ОТКЛИКНУВШЕМУСЯ
-    public String formatOfferSentConfirmationToResponder(
-            User author,
-            BigDecimal authorWillGive,
-            ExchangeRequest.Currency oppositeCurrency,
-            BigDecimal authorWillReceive,
-            ExchangeRequest.Currency requestCurrency) {
-
-        return String.format("""
+    private static final MessageTemplate OFFER_SENT_CONFIRMATION_TO_RESPONDER = MessageTemplate.compile("""
                 ✅ <b>Предложение отправлено!</b>
                 
                 💰 <b>Детали обмена:</b>
@@ -725,7 +854,16 @@ public class TelegramMessageFormatter {
                 
                 💬 Автор заявки получил уведомление.
                 Ожидайте подтверждения обмена!
-                """,
+                """);
+
+    public String formatOfferSentConfirmationToResponder(
+            User author,
+            BigDecimal authorWillGive,
+            ExchangeRequest.Currency oppositeCurrency,
+            BigDecimal authorWillReceive,
+            ExchangeRequest.Currency requestCurrency) {
+
+        return OFFER_SENT_CONFIRMATION_TO_RESPONDER.render(
                 formatAmount(authorWillGive),
                 oppositeCurrency.toString(),
                 formatAmount(authorWillReceive),
@@ -790,12 +928,7 @@ public class TelegramMessageFormatter {
     // ========================================
 
     // ⭐ СПАСИБО ЗА ОЦЕНКУ
-    public String formatRatingThankYou(
-            String ratedUsername,
-            int ratingValue,
-            Long dealId) {
-
-        return String.format("""
+    private static final MessageTemplate RATING_THANK_YOU = MessageTemplate.compile("""
                 ⭐ <b>Спасибо за оценку!</b>
                 
                 Вы оценили <b>@%s</b>
@@ -804,7 +937,14 @@ public class TelegramMessageFormatter {
                 
                 💡 Ваши оценки помогают другим пользователям
                 принять решение о сотрудничестве
-                """,
+                """);
+
+    public String formatRatingThankYou(
+            String ratedUsername,
+            int ratingValue,
+            Long dealId) {
+
+        return RATING_THANK_YOU.render(
                 ratedUsername,
                 "⭐".repeat(ratingValue),
                 ratingValue,
@@ -827,8 +967,7 @@ public class TelegramMessageFormatter {
     // ========================================
 
     // ⭐ ПРОФИЛЬ ПОЛЬЗОВАТЕЛЯ
-    public String formatUserProfile(User user, BigDecimal currentRate) {
-        return String.format("""
+    private static final MessageTemplate USER_PROFILE = MessageTemplate.compile("""
                 👤 %s
                 @%s
                 
@@ -839,7 +978,10 @@ public class TelegramMessageFormatter {
                 
                 💹 <b>Текущий курс:</b>
                 1 PLN = %s KZT
-                """,
+                """);
+
+    public String formatUserProfile(User user, BigDecimal currentRate) {
+        return USER_PROFILE.render(
                 user.getFullName(),
                 user.getTelegramUsername(),
                 formatRating(user.getTrustRating()),
@@ -854,7 +996,7 @@ public class TelegramMessageFormatter {
 
     // ⭐ ВЫБОР ЗАЯВКИ ДЛЯ РЕДАКТИРОВАНИЯ
     public String formatSelectRequestToEdit(List<ExchangeRequest> requests) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("✏️ <b>Выберите заявку для редактирования:</b>\n\n");
 
         for (int i = 0; i < requests.size(); i++) {
@@ -865,16 +1007,11 @@ public class TelegramMessageFormatter {
             sb.append(getTransferMethodName(req.getTransferMethod().name())).append("\n");
         }
 
-        return sb.toString();
+        return release(sb);
     }
 
     // ⭐ ЗАЯВКА ОБНОВЛЕНА
-    public String formatRequestUpdated(
-            BigDecimal oldAmount,
-            BigDecimal newAmount,
-            String currency) {
-
-        return String.format("""
+    private static final MessageTemplate REQUEST_UPDATED = MessageTemplate.compile("""
                 ✅ <b>Заявка обновлена</b>
                 
                 📋 <b>Изменения:</b>
@@ -882,7 +1019,14 @@ public class TelegramMessageFormatter {
                 Стало: <b>%s %s</b>
                 
                 💡 Заявка обновлена и снова активна!
-                """,
+                """);
+
+    public String formatRequestUpdated(
+            BigDecimal oldAmount,
+            BigDecimal newAmount,
+            String currency) {
+
+        return REQUEST_UPDATED.render(
                 formatAmount(oldAmount),
                 currency,
                 formatAmount(newAmount),
@@ -891,7 +1035,7 @@ public class TelegramMessageFormatter {
 
     // ⭐ ВЫБОР ЗАЯВКИ ДЛЯ ОТМЕНЫ
     public String formatSelectRequestToCancel(List<ExchangeRequest> requests) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("❌ <b>Выберите заявку для отмены:</b>\n\n");
 
         for (int i = 0; i < requests.size(); i++) {
@@ -902,7 +1046,7 @@ public class TelegramMessageFormatter {
             sb.append(getTransferMethodName(req.getTransferMethod().name())).append("\n");
         }
 
-        return sb.toString();
+        return release(sb);
     }
 
     // ⭐ ЗАЯВКА ОТМЕНЕНА
@@ -926,20 +1070,66 @@ public class TelegramMessageFormatter {
         return sb.toString();
     }
 
+    // ⏳ СРОК ЗАЯВКИ СКОРО ИСТЕЧЁТ
+    public String formatRequestExpiryWarning(ExchangeRequest request, Duration remaining) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("⏳ <b>Заявка скоро истечёт</b>\n\n");
+        appendRequestSummary(sb, request);
+        sb.append("\n⏰ Будет автоматически отменена через <b>").append(formatDuration(remaining)).append("</b>\n");
+        sb.append("\n💡 Если обмен ещё актуален, после отмены создайте новую заявку.");
+
+        return sb.toString();
+    }
+
+    // ⌛ СРОК ЗАЯВКИ ИСТЁК
+    public String formatRequestExpired(ExchangeRequest request, Duration lifetime) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("⌛ <b>Срок заявки истёк</b>\n\n");
+        appendRequestSummary(sb, request);
+        sb.append("\nЗаявка была активна ").append(formatDuration(lifetime)).append(" и отменена автоматически.\n");
+        sb.append("\n💡 Вы можете создать новую заявку в любое время!");
+
+        return sb.toString();
+    }
+
+    private void appendRequestSummary(StringBuilder sb, ExchangeRequest request) {
+        sb.append("💰 <b>").append(formatAmount(request.getAmountNeed()))
+                .append(" ").append(request.getCurrencyNeed()).append("</b>\n");
+        sb.append("🔄 ").append(getTransferMethodName(request.getTransferMethod().name())).append("\n");
+    }
+
+    /**
+     * "2 дн. 5 ч", "3 ч", "15 мин" — с точностью до минуты
+     */
+    private static String formatDuration(Duration duration) {
+        long minutes = Math.max(1, duration.toMinutes());
+        long days = minutes / (24 * 60);
+        long hours = minutes % (24 * 60) / 60;
+        if (days > 0) {
+            return hours > 0 ? days + " дн. " + hours + " ч" : days + " дн.";
+        }
+        if (hours > 0) {
+            return hours + " ч";
+        }
+        return minutes + " мин";
+    }
+
     // ========================================
     // ПОДТВЕРЖДЕНИЕ СУММЫ ОБМЕНА
     // ========================================
 
     // ⭐ ЗАПРОС СУММЫ ДЛЯ ПОДТВЕРЖДЕНИЯ СДЕЛКИ
-    public String formatConfirmDealAmountRequest(ExchangeRequest request) {
-        return String.format("""
+    private static final MessageTemplate CONFIRM_DEAL_AMOUNT_REQUEST = MessageTemplate.compile("""
                 💰 <b>Подтверждение сделки</b>
                 
                 📋 Заявка: %s %s
                 
                 💡 <b>Введите сумму, которую вы обменяли:</b>
                 (Максимум: %s %s)
-                """,
+                """);
+
+    public String formatConfirmDealAmountRequest(ExchangeRequest request) {
+        return CONFIRM_DEAL_AMOUNT_REQUEST.render(
                 formatAmount(request.getAmountNeed()),
                 request.getCurrencyNeed(),
                 formatAmount(request.getAmountNeed()),
@@ -947,11 +1137,7 @@ public class TelegramMessageFormatter {
     }
 
     // ⭐ ПРЕДЛОЖЕНИЕ ОБМЕНА (БЕЗ АВТОЗАЯВКИ)
-    public String formatExchangeOfferManual(
-            ExchangeRequest targetRequest,
-            User author) {
-
-        return String.format("""
+    private static final MessageTemplate EXCHANGE_OFFER_MANUAL = MessageTemplate.compile("""
                 💰 <b>Предложение обмена</b>
                 
                 📋 <b>Заявка:</b>
@@ -962,7 +1148,13 @@ public class TelegramMessageFormatter {
                 
                 💡 <b>Введите сумму для обмена:</b>
                 (Максимум: %s %s)
-                """,
+                """);
+
+    public String formatExchangeOfferManual(
+            ExchangeRequest targetRequest,
+            User author) {
+
+        return EXCHANGE_OFFER_MANUAL.render(
                 formatAmount(targetRequest.getAmountNeed()),
                 targetRequest.getCurrencyNeed(),
                 author.getTelegramUsername(),
@@ -1032,7 +1224,7 @@ public class TelegramMessageFormatter {
             int page,
             User currentUser) {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("📜 <b>История обменов</b>\n");
 
         if (dealsPage.getTotalPages() > 1) {
@@ -1066,7 +1258,7 @@ public class TelegramMessageFormatter {
 
         sb.append("💡 Нажмите на обмен для подробностей");
 
-        return sb.toString();
+        return release(sb);
     }
 
     public String formatMatchingOffers(
@@ -1076,7 +1268,7 @@ public class TelegramMessageFormatter {
             ExchangeRequest.Currency myNeed,
             BigDecimal rate) {
 
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
         sb.append("🎯 <b>Подходящие предложения (").append(matches.size()).append("):</b>\n\n");
         sb.append("Пользователи, которым нужен <b>").append(theyWantWithFlag).append("</b>\n");
         sb.append("(у них есть <b>").append(whatTheyHaveWithFlag).append("</b>):\n\n");
@@ -1101,7 +1293,7 @@ public class TelegramMessageFormatter {
 
         sb.append("💡 Нажмите кнопку с номером для отклика");
 
-        return sb.toString();
+        return release(sb);
     }
 
 
@@ -1160,7 +1352,7 @@ public class TelegramMessageFormatter {
      * Форматирование статуса пользователя - ТОЛЬКО ЗАЯВКИ
      */
     public String formatUserStatus(User user, List<ExchangeRequest> activeRequests) {
-        StringBuilder sb = new StringBuilder();
+        StringBuilder sb = listBuffer();
 
         if (activeRequests.isEmpty()) {
             sb.append("📋 <b>У вас нет активных заявок</b>\n\n");
@@ -1180,7 +1372,7 @@ public class TelegramMessageFormatter {
             sb.append("💡 Используйте кнопки ниже для управления заявками");
         }
 
-        return sb.toString();
+        return release(sb);
     }
 
     // ========================================
@@ -1195,6 +1387,20 @@ public class TelegramMessageFormatter {
     // ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ
     // ========================================
 
+    private static StringBuilder listBuffer() {
+        StringBuilder sb = LIST_BUFFER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static String release(StringBuilder sb) {
+        String result = sb.toString();
+        if (sb.capacity() > MAX_RETAINED_BUFFER) {
+            LIST_BUFFER.remove();
+        }
+        return result;
+    }
+
     private String escapeHtml(String text) {
         if (text == null) return "";
         return text.replace("&", "&amp;")
@@ -1206,12 +1412,7 @@ public class TelegramMessageFormatter {
      * Форматирование суммы с разделителем тысяч (пробел) и точкой для дробной части
      */
     public String formatAmount(BigDecimal amount) {
-        DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.US);
-        symbols.setGroupingSeparator(' ');  // Пробел для тысяч
-        symbols.setDecimalSeparator('.');   // Точка для дробной части
-
-        DecimalFormat formatter = new DecimalFormat("#,##0.##", symbols);
-        return formatter.format(amount);
+        return AMOUNT_FORMAT.get().format(amount);
     }
 
     public String getTransferMethodName(String method) {
@@ -1226,8 +1427,25 @@ public class TelegramMessageFormatter {
         if (rating == null) {
             return "0,0";
         }
-        DecimalFormat df = new DecimalFormat("0.0");
-        return df.format(rating).replace(".", ",");
+        return RATING_FORMAT.get().format(rating).replace(".", ",");
+    }
+
+    /**
+     * Холд не выдан: лимит ожидающих предложений откликающегося или вся сумма уже зарезервирована
+     */
+    public String formatHoldRejected(boolean atResponderLimit) {
+        return atResponderLimit
+                ? "⏳ У вас уже есть несколько предложений, ожидающих ответа авторов. Дождитесь ответа или завершите сделку."
+                : formatRequestFullyReserved();
+    }
+
+    public String formatRequestFullyReserved() {
+        return """
+            ⏳ <b>Сумма заявки сейчас зарезервирована</b>
+            
+            Другие пользователи уже откликнулись на всю сумму и ждут подтверждения автора.
+            Попробуйте позже — если они не подтвердят, сумма снова станет доступной.
+            """;
     }
 
     public String formatStaleDataError() {
@@ -0,0 +1,124 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import pl.aybolali.plnkztexchangebot.entity.BotState;
+import pl.aybolali.plnkztexchangebot.repository.BotStateRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔁 ИДЕМПОТЕНТНОСТЬ ОБНОВЛЕНИЙ: повторно доставленный update не доходит до обработчиков
+ *
+ * - update_id — в скользящем окне {@link UpdateIdWindow}, callback_query.id — в ограниченном LRU;
+ *   обе проверки в памяти, до любой работы с БД
+ * - последний обработанный update_id сохраняется в bot_state (одно UPDATE в фоне, запись
+ *   схлопывается под нагрузкой); при старте Long Polling продолжает с него — см. {@link TelegramBotConfig}
+ */
+@Component
+@Slf4j
+public class UpdateDeduplicator {
+
+    static final String LAST_UPDATE_ID = "last_update_id";
+
+    private final BotStateRepository botStateRepository;
+    private final Executor executor;
+    private final UpdateIdWindow updateIds;
+    private final Map<String, Boolean> callbackIds;
+
+    private final AtomicLong lastProcessed = new AtomicLong();
+    private final AtomicLong lastPersisted = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public UpdateDeduplicator(
+            BotStateRepository botStateRepository,
+            @Qualifier("customTaskExecutor") Executor executor,
+            @Value("${telegram.bot.dedup.update-window:4096}") int updateWindow,
+            @Value("${telegram.bot.dedup.callback-ids:10000}") int callbackCapacity) {
+
+        this.botStateRepository = botStateRepository;
+        this.executor = executor;
+        this.updateIds = new UpdateIdWindow(updateWindow);
+        this.callbackIds = new LinkedHashMap<>(1024, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > callbackCapacity;
+            }
+        };
+    }
+
+    /**
+     * @return false — дубликат, обрабатывать не нужно
+     */
+    public boolean firstDelivery(Update update) {
+        if (update.getUpdateId() != null && !updateIds.markIfNew(update.getUpdateId())) {
+            return false;
+        }
+
+        if (update.hasCallbackQuery()) {
+            synchronized (callbackIds) {
+                return callbackIds.putIfAbsent(update.getCallbackQuery().getId(), Boolean.TRUE) == null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Отмечает update обработанным; offset сохраняется асинхронно
+     */
+    public void processed(Update update) {
+        if (update.getUpdateId() == null) {
+            return;
+        }
+        lastProcessed.accumulateAndGet(update.getUpdateId(), Math::max);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            executor.execute(this::flushOffset);
+        }
+    }
+
+    /**
+     * Offset, сохранённый до рестарта; всё до него включительно считается обработанным
+     */
+    public long restoreOffset() {
+        long offset = botStateRepository.findById(LAST_UPDATE_ID)
+                .map(BotState::getValue)
+                .orElse(0L);
+
+        if (offset > 0) {
+            updateIds.seed(offset);
+            lastProcessed.accumulateAndGet(offset, Math::max);
+            lastPersisted.accumulateAndGet(offset, Math::max);
+        }
+        return offset;
+    }
+
+    @PreDestroy
+    public synchronized void flushOffset() {
+        flushScheduled.set(false);
+
+        long offset = lastProcessed.get();
+        if (offset <= lastPersisted.get()) {
+            return;
+        }
+
+        try {
+            if (botStateRepository.advance(LAST_UPDATE_ID, offset, LocalDateTime.now()) == 0
+                    && !botStateRepository.existsById(LAST_UPDATE_ID)) {
+                botStateRepository.save(BotState.builder().key(LAST_UPDATE_ID).value(offset).build());
+            }
+            lastPersisted.accumulateAndGet(offset, Math::max);
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to persist last update_id {}: {}", offset, e.getMessage());
+        }
+    }
+}
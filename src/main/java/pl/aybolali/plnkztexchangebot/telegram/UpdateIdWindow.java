@@ -0,0 +1,66 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import java.util.Arrays;
+
+/**
+ * 🪟 Скользящее окно последних update_id: битовое кольцо на size идентификаторов.
+ *
+ * update_id у Telegram растут, поэтому достаточно помнить последние size штук:
+ * всё, что ниже highest - size (или ниже floor после рестарта), считается уже обработанным.
+ * Проверка и отметка — O(1); сдвиг окна очищает только освободившиеся биты.
+ */
+final class UpdateIdWindow {
+
+    private final int size;
+    private final long[] bits;
+    private long floor = Long.MIN_VALUE;
+    private long highest = Long.MIN_VALUE;
+
+    UpdateIdWindow(int size) {
+        if (Integer.bitCount(size) != 1 || size < 64) {
+            throw new IllegalArgumentException("Window size must be a power of two >= 64");
+        }
+        this.size = size;
+        this.bits = new long[size / 64];
+    }
+
+    /**
+     * Всё, что не больше floor, — уже обработано (offset, сохранённый до рестарта)
+     */
+    synchronized void seed(long floor) {
+        this.floor = Math.max(this.floor, floor);
+    }
+
+    /**
+     * @return true, если id встретился впервые (и теперь отмечен)
+     */
+    synchronized boolean markIfNew(long id) {
+        if (id <= floor || (highest != Long.MIN_VALUE && id <= highest - size)) {
+            return false;
+        }
+
+        if (id > highest) {
+            if (highest == Long.MIN_VALUE || id - highest >= size) {
+                Arrays.fill(bits, 0L);
+            } else {
+                for (long cleared = highest + 1; cleared <= id; cleared++) {
+                    clear(cleared);
+                }
+            }
+            highest = id;
+        }
+
+        int slot = (int) (id & (size - 1));
+        long mask = 1L << (slot & 63);
+        if ((bits[slot >>> 6] & mask) != 0) {
+            return false;
+        }
+        bits[slot >>> 6] |= mask;
+        return true;
+    }
+
+    private void clear(long id) {
+        int slot = (int) (id & (size - 1));
+        bits[slot >>> 6] &= ~(1L << (slot & 63));
+    }
+}
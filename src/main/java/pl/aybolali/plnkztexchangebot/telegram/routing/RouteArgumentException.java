@@ -0,0 +1,12 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+/**
+ * Аргументы callback / команды не соответствуют сигнатуре обработчика
+ * (чаще всего — кнопка из старой версии бота).
+ */
+public class RouteArgumentException extends RuntimeException {
+
+    public RouteArgumentException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,61 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+/**
+ * Аргументы после головы маршрута: у callback разделены ':', у команд — пробелами.
+ *
+ * Числовой аргумент, которого нет или который не разбирается, — {@link RouteArgumentException}
+ * (устаревшая кнопка, ручной ввод); отсутствующий строковый — пустая строка.
+ */
+public final class RouteArguments {
+
+    private final String raw;
+    private final String separator;
+
+    RouteArguments(String raw, String separator) {
+        this.raw = raw;
+        this.separator = separator;
+    }
+
+    public long getLong(int index) {
+        String value = required(index);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new RouteArgumentException("Invalid argument #" + (index + 1) + ": " + value);
+        }
+    }
+
+    public int getInt(int index) {
+        String value = required(index);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new RouteArgumentException("Invalid argument #" + (index + 1) + ": " + value);
+        }
+    }
+
+    public String getString(int index) {
+        String[] parts = split(0);
+        return index < parts.length ? parts[index] : "";
+    }
+
+    /**
+     * Аргумент index и всё после него одной строкой (payload, в котором может встретиться разделитель)
+     */
+    public String rest(int index) {
+        String[] parts = split(index + 1);
+        return index < parts.length ? parts[index] : "";
+    }
+
+    private String required(int index) {
+        String[] parts = split(0);
+        if (index >= parts.length) {
+            throw new RouteArgumentException("Missing argument #" + (index + 1));
+        }
+        return parts[index];
+    }
+
+    private String[] split(int limit) {
+        return raw.isEmpty() ? new String[0] : raw.split(separator, limit);
+    }
+}
@@ -0,0 +1,12 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+import org.telegram.telegrambots.meta.api.objects.User;
+
+/**
+ * Данные обновления, доступные обработчику по имени параметра:
+ * chatId, telegramUserId, telegramUser, messageId, data (callback data / текст целиком).
+ *
+ * messageId — сообщение с нажатой кнопкой (для редактирования на месте); у команд null.
+ */
+public record RouteContext(Long chatId, Long telegramUserId, User telegramUser, Integer messageId, String data) {
+}
@@ -0,0 +1,15 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+/**
+ * Группа маршрутов в отдельном бине (подтверждение сделок, поиск, профиль): при старте
+ * регистрирует свои команды и callback'и в таблицах {@link UpdateRouter}.
+ * Обработчики группы зависят только от сервисов и отправки ответов — их можно проверять без бота.
+ */
+public interface RouteGroup {
+
+    default void registerCommands(UpdateRouter commands) {
+    }
+
+    default void registerCallbacks(UpdateRouter callbacks) {
+    }
+}
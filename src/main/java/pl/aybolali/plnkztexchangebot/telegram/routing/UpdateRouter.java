@@ -0,0 +1,196 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 🧭 РОУТЕР: Таблица обработчиков команд / callback'ов, заполняемая явной регистрацией при старте
+ *
+ * Ключ маршрута — "голова" входной строки:
+ * - callback: всё до первого ':' включительно ("respond:123" → "respond:"), либо строка целиком ("show_menu")
+ * - команда: первое слово без @username ("/start@bot payload" → "/start")
+ * Поиск — один HashMap lookup, независимо от количества маршрутов.
+ *
+ * Обработчик получает {@link RouteContext} (chatId, telegramUserId, telegramUser, messageId, data)
+ * и {@link RouteArguments} — аргументы после головы (через ':' у callback, через пробел у команд).
+ * alias — прежнее значение того же маршрута (кнопки в уже отправленных сообщениях).
+ *
+ * Каждый маршрут пишет своё время выполнения в таймер telegram.route{type, route}.
+ */
+public class UpdateRouter {
+
+    private static final String METRIC_NAME = "telegram.route";
+    private static final String CALLBACK = "callback";
+    private static final String COMMAND = "command";
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(RouteContext context, RouteArguments arguments);
+    }
+
+    private final String type;
+    private final Map<String, Route> routes = new HashMap<>();
+
+    private UpdateRouter(String type) {
+        this.type = type;
+    }
+
+    public static UpdateRouter callbacks() {
+        return new UpdateRouter(CALLBACK);
+    }
+
+    public static UpdateRouter commands() {
+        return new UpdateRouter(COMMAND);
+    }
+
+    /**
+     * Callback без изменения данных или команда, доступная только после верификации телефона
+     */
+    public UpdateRouter on(String key, Handler handler) {
+        return register(key, type.equals(COMMAND), false, handler);
+    }
+
+    /**
+     * Callback, меняющий данные (сделки, заявки, оценки): такие нажатия в одном чате
+     * выполняются строго по одному (см. CallbackCoalescer)
+     */
+    public UpdateRouter onMutating(String key, Handler handler) {
+        requireType(CALLBACK, key);
+        return register(key, false, true, handler);
+    }
+
+    /**
+     * Команда, доступная без верификации телефона (/start, /help, /rates)
+     */
+    public UpdateRouter onPublic(String key, Handler handler) {
+        requireType(COMMAND, key);
+        return register(key, false, false, handler);
+    }
+
+    /**
+     * Ещё одна голова для уже зарегистрированного маршрута; метрики и route.key() — у исходного
+     */
+    public UpdateRouter alias(String alias, String key) {
+        Route route = routes.get(key);
+        if (route == null) {
+            throw new IllegalStateException("Alias " + alias + " for unknown " + type + " route: " + key);
+        }
+        return put(alias, new Route(route.key, alias, route.requiresVerification, route.mutating,
+                route.handler, route.timer));
+    }
+
+    /**
+     * @return маршрут для входной строки или null, если обработчика нет
+     */
+    public Route resolve(String input) {
+        return input == null ? null : routes.get(headOf(input));
+    }
+
+    public int size() {
+        return routes.size();
+    }
+
+    private UpdateRouter register(String key, boolean requiresVerification, boolean mutating, Handler handler) {
+        Timer timer = Timer.builder(METRIC_NAME)
+                .tag("type", type)
+                .tag("route", key)
+                .register(Metrics.globalRegistry);
+        return put(key, new Route(key, key, requiresVerification, mutating, handler, timer));
+    }
+
+    private UpdateRouter put(String head, Route route) {
+        if (type.equals(CALLBACK)) {
+            int colon = head.indexOf(':');
+            if (colon >= 0 && colon != head.length() - 1) {
+                throw new IllegalStateException("Callback route must end with its only ':' — " + head);
+            }
+        }
+        if (routes.putIfAbsent(head, route) != null) {
+            throw new IllegalStateException("Duplicate " + type + " route: " + head);
+        }
+        return this;
+    }
+
+    private void requireType(String expected, String key) {
+        if (!type.equals(expected)) {
+            throw new IllegalStateException("Route " + key + " is not a " + type + " option");
+        }
+    }
+
+    private String headOf(String input) {
+        if (type.equals(CALLBACK)) {
+            int colon = input.indexOf(':');
+            return colon < 0 ? input : input.substring(0, colon + 1);
+        }
+
+        int end = firstWordEnd(input);
+        int mention = input.indexOf('@');
+        return mention > 0 && mention < end ? input.substring(0, mention) : input.substring(0, end);
+    }
+
+    private RouteArguments argumentsOf(String input, String head) {
+        if (type.equals(CALLBACK)) {
+            return new RouteArguments(input.length() > head.length() ? input.substring(head.length()) : "", ":");
+        }
+        return new RouteArguments(input.substring(firstWordEnd(input)).trim(), "\\s+");
+    }
+
+    private static int firstWordEnd(String input) {
+        int end = 0;
+        while (end < input.length() && !Character.isWhitespace(input.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Зарегистрированный обработчик.
+     */
+    public final class Route {
+
+        private final String key;
+        private final String head;
+        private final boolean requiresVerification;
+        private final boolean mutating;
+        private final Handler handler;
+        private final Timer timer;
+
+        private Route(String key, String head, boolean requiresVerification, boolean mutating,
+                      Handler handler, Timer timer) {
+            this.key = key;
+            this.head = head;
+            this.requiresVerification = requiresVerification;
+            this.mutating = mutating;
+            this.handler = handler;
+            this.timer = timer;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public boolean requiresVerification() {
+            return requiresVerification;
+        }
+
+        public boolean mutating() {
+            return mutating;
+        }
+
+        /**
+         * @throws RouteArgumentException если аргументы не разобрались (устаревшая кнопка, ручной ввод)
+         */
+        public void invoke(RouteContext context) {
+            RouteArguments arguments = argumentsOf(context.data(), head);
+            Timer.Sample sample = Timer.start();
+            try {
+                handler.handle(context, arguments);
+            } finally {
+                sample.stop(timer);
+            }
+        }
+    }
+}
@@ -0,0 +1,500 @@
+package pl.aybolali.plnkztexchangebot.telegram.spool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 📮 OUTBOUND SPOOL: Исходящие сообщения, которые не удалось отправить сразу
+ *
+ * Вместо "залогировали и потеряли": сообщение дописывается в append-only сегмент на диске
+ * и отправляется повторно с экспоненциальной паузой, в том числе после рестарта.
+ * На диск пишутся только уведомления (сделка, предложение, истечение заявки). Ответ на нажатие
+ * ({@link #retryReply}) повторяется только из памяти и не дольше reply-max-age-seconds:
+ * через час устаревшая клавиатура только мешает.
+ * Повторы ограничены: app.outbound-spool.max-attempts попыток и max-age-minutes с постановки в очередь.
+ *
+ * Сегменты spool-<N>.log в app.outbound-spool.directory, записи:
+ * [int длина payload][byte тип][long id][payload][int CRC32(тип, id, payload)]
+ * - ENQUEUE: payload = [long время постановки, мс][SendMessage в JSON]
+ *   (записи до появления времени, тип LEGACY_ENQUEUE: только JSON — время берётся по файлу сегмента)
+ * - ACK: payload пустой — сообщение доставлено или отброшено окончательно (400/403, лимит попыток или возраста)
+ *
+ * Старт: все сегменты читаются по порядку (ENQUEUE добавляет, ACK убирает), недописанный хвост
+ * отбрасывается, запись продолжается в новый сегмент. Компакция переносит ещё не доставленные
+ * сообщения из старых сегментов в текущий и удаляет старые файлы.
+ *
+ * fsync: ALWAYS — force после каждой записи (запись идёт только при сбоях, так что это дёшево);
+ * INTERVAL — раз в app.outbound-spool.fsync-interval-ms.
+ */
+@Service
+@Slf4j
+public class OutboundSpool {
+
+    public enum FsyncPolicy {
+        ALWAYS,
+        INTERVAL
+    }
+
+    private static final String SEGMENT_PREFIX = "spool-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_OVERHEAD = 4 + 1 + 8 + 4;
+
+    private static final byte LEGACY_ENQUEUE = 1;
+    private static final byte ACK = 2;
+    private static final byte ENQUEUE = 3;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final PLNKZTExchangeBot bot;
+    private final Path directory;
+    private final long segmentSizeBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final int maxAttempts;
+    private final long maxAgeMs;
+    private final long replyMaxAgeMs;
+
+    private final Map<Long, PendingMessage> pending = new ConcurrentSkipListMap<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment active;
+    private long nextId = 1;
+    private boolean dirty;
+
+    public OutboundSpool(
+            @Lazy PLNKZTExchangeBot bot,
+            @Value("${app.outbound-spool.directory:./data/outbound-spool}") Path directory,
+            @Value("${app.outbound-spool.segment-size-mb:4}") int segmentSizeMb,
+            @Value("${app.outbound-spool.fsync:ALWAYS}") FsyncPolicy fsyncPolicy,
+            @Value("${app.outbound-spool.initial-backoff-ms:2000}") long initialBackoffMs,
+            @Value("${app.outbound-spool.max-backoff-ms:600000}") long maxBackoffMs,
+            @Value("${app.outbound-spool.max-attempts:20}") int maxAttempts,
+            @Value("${app.outbound-spool.max-age-minutes:360}") long maxAgeMinutes,
+            @Value("${app.outbound-spool.reply-max-age-seconds:30}") long replyMaxAgeSeconds) {
+
+        this.bot = bot;
+        this.directory = directory;
+        this.segmentSizeBytes = segmentSizeMb * 1024L * 1024L;
+        this.fsyncPolicy = fsyncPolicy;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.maxAgeMs = maxAgeMinutes * 60_000L;
+        this.replyMaxAgeMs = replyMaxAgeSeconds * 1000L;
+
+        Gauge.builder("telegram.spool.pending", pending, Map::size)
+                .description("Outbound messages waiting for redelivery")
+                .register(Metrics.globalRegistry);
+    }
+
+    // ========================================================================
+    // STARTUP
+    // ========================================================================
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(OutboundSpool::isSegment)
+                    .sorted((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)))
+                    .toList();
+        }
+
+        long lastSequence = 0;
+        for (Path file : files) {
+            Segment segment = new Segment(sequenceOf(file), file);
+            replay(segment);
+            segments.addLast(segment);
+            lastSequence = segment.sequence;
+        }
+        for (PendingMessage message : pending.values()) {
+            message.segment.live++;
+        }
+
+        active = openSegment(lastSequence + 1);
+        log.info("📮 Outbound spool opened: {} undelivered messages in {} segments", pending.size(), files.size());
+    }
+
+    private void replay(Segment segment) throws IOException {
+        byte[] content = Files.readAllBytes(segment.path);
+        long segmentTime = Files.getLastModifiedTime(segment.path).toMillis();
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+
+        while (buffer.remaining() >= RECORD_OVERHEAD) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < 0 || buffer.remaining() < 1 + 8 + length + 4) {
+                break;
+            }
+            byte type = buffer.get();
+            long id = buffer.getLong();
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (buffer.getInt() != crc(type, id, payload)) {
+                log.warn("⚠️ Spool segment {} has a torn record at {}, ignoring the rest", segment.path, start);
+                break;
+            }
+
+            nextId = Math.max(nextId, id + 1);
+            if (type == ENQUEUE || type == LEGACY_ENQUEUE) {
+                try {
+                    ByteBuffer record = ByteBuffer.wrap(payload);
+                    long enqueuedAt = type == ENQUEUE ? record.getLong() : segmentTime;
+                    SendMessage message = JSON.readValue(payload, record.position(), record.remaining(), SendMessage.class);
+                    pending.put(id, new PendingMessage(id, message, enqueuedAt, enqueuedAt + maxAgeMs, segment));
+                } catch (IOException | BufferUnderflowException e) {
+                    log.error("❌ Unreadable spooled message {}: {}", id, e.getMessage());
+                }
+            } else if (type == ACK) {
+                pending.remove(id);
+            }
+        }
+    }
+
+    // ========================================================================
+    // ENQUEUE / ACK
+    // ========================================================================
+
+    /**
+     * Сохранить уведомление для повторной отправки.
+     * @return false, если не удалось записать даже на диск
+     */
+    public boolean enqueue(SendMessage message) {
+        return spool(message, initialBackoffMs);
+    }
+
+    /**
+     * Отправить уведомление через spool: вызывающий поток (планировщик) только пишет запись на диск,
+     * сама отправка — на ближайшем проходе {@link #redeliverDue()}.
+     * @return false, если не удалось записать даже на диск
+     */
+    public boolean submit(SendMessage message) {
+        return spool(message, 0);
+    }
+
+    private synchronized boolean spool(SendMessage message, long firstAttemptDelayMs) {
+        long now = System.currentTimeMillis();
+        long id = nextId++;
+        try {
+            append(ENQUEUE, id, encode(message, now));
+        } catch (IOException e) {
+            log.error("❌ Failed to spool message for chat {}: {}", message.getChatId(), e.getMessage());
+            return false;
+        }
+
+        PendingMessage spooled = new PendingMessage(id, message, now, now + maxAgeMs, active);
+        spooled.nextAttemptAt = now + firstAttemptDelayMs;
+        active.live++;
+        pending.put(id, spooled);
+
+        log.info("📮 Message for chat {} spooled as #{}", message.getChatId(), id);
+        return true;
+    }
+
+    /**
+     * Ответ на нажатие / команду, не ушедший из-за 429 или сбоя сети: повтор после retry_after
+     * на ближайшем проходе {@link #redeliverDue()}. Только в памяти — на диск не пишется,
+     * после рестарта и через reply-max-age-seconds не доставляется.
+     */
+    public void retryReply(SendMessage message, Exception e) {
+        long now = System.currentTimeMillis();
+        PendingMessage reply;
+        synchronized (this) {
+            reply = new PendingMessage(nextId++, message, now, now + replyMaxAgeMs, null);
+        }
+        reply.nextAttemptAt = now + backoff(0, e);
+        pending.put(reply.id, reply);
+        log.debug("Reply for chat {} queued for retry as #{}", message.getChatId(), reply.id);
+    }
+
+    private static byte[] encode(SendMessage message, long enqueuedAt) throws IOException {
+        byte[] json = JSON.writeValueAsBytes(message);
+        return ByteBuffer.allocate(8 + json.length).putLong(enqueuedAt).put(json).array();
+    }
+
+    private synchronized void acknowledge(PendingMessage message) {
+        if (message.segment == null) {
+            // Ответ из памяти (retryReply): записи на диске нет
+            pending.remove(message.id);
+            return;
+        }
+        try {
+            append(ACK, message.id, new byte[0]);
+        } catch (IOException e) {
+            // ACK не записан — после рестарта сообщение уйдёт ещё раз
+            log.error("❌ Failed to write spool ACK #{}: {}", message.id, e.getMessage());
+        }
+        if (pending.remove(message.id) != null) {
+            message.segment.live--;
+        }
+    }
+
+    private void append(byte type, long id, byte[] payload) throws IOException {
+        if (active.size >= segmentSizeBytes) {
+            segments.addLast(active);
+            active.close();
+            active = openSegment(active.sequence + 1);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + payload.length);
+        record.putInt(payload.length);
+        record.put(type);
+        record.putLong(id);
+        record.put(payload);
+        record.putInt(crc(type, id, payload));
+        record.flip();
+
+        while (record.hasRemaining()) {
+            active.channel.write(record);
+        }
+        active.size += RECORD_OVERHEAD + payload.length;
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            active.channel.force(false);
+        } else {
+            dirty = true;
+        }
+    }
+
+    // ========================================================================
+    // REDELIVERY
+    // ========================================================================
+
+    /**
+     * Повторная отправка созревших сообщений. Порядок внутри чата сохраняется:
+     * если сообщение в чат не ушло, следующие в этот чат ждут следующего прохода.
+     */
+    @Scheduled(fixedDelayString = "${app.outbound-spool.retry-interval-ms:1000}")
+    public void redeliverDue() {
+        long now = System.currentTimeMillis();
+        Set<String> blockedChats = new HashSet<>();
+
+        for (PendingMessage message : List.copyOf(pending.values())) {
+            String chatId = message.message.getChatId();
+            if (blockedChats.contains(chatId)) {
+                continue;
+            }
+            if (now > message.expiresAt) {
+                // Уведомление устарело — доставлять его через столько часов хуже, чем не доставлять
+                log.warn("🗑️ Spooled message #{} to chat {} expired after {} retries, dropped",
+                        message.id, chatId, message.attempts);
+                drop(message, "expired");
+                continue;
+            }
+            if (message.nextAttemptAt > now) {
+                blockedChats.add(chatId);
+                continue;
+            }
+
+            try {
+                bot.execute(message.message);
+                acknowledge(message);
+                log.info("✅ Spooled message #{} delivered to chat {} after {} retries", message.id, chatId, message.attempts);
+            } catch (Exception e) {
+                if (!isRetriable(e)) {
+                    log.warn("🗑️ Spooled message #{} to chat {} dropped: {}", message.id, chatId, e.getMessage());
+                    drop(message, "rejected");
+                    continue;
+                }
+                message.attempts++;
+                if (message.attempts >= maxAttempts) {
+                    log.warn("🗑️ Spooled message #{} to chat {} dropped after {} attempts: {}",
+                            message.id, chatId, message.attempts, e.getMessage());
+                    drop(message, "attempts");
+                    continue;
+                }
+                message.nextAttemptAt = now + backoff(message.attempts, e);
+                blockedChats.add(chatId);
+                log.debug("Spooled message #{} retry {} failed: {}", message.id, message.attempts, e.getMessage());
+            }
+        }
+    }
+
+    private void drop(PendingMessage message, String reason) {
+        Metrics.counter("telegram.spool.dropped", "reason", reason).increment();
+        acknowledge(message);
+    }
+
+    /**
+     * 400 (чат не найден, неверный текст) и 403 (бот заблокирован) повтором не исправить
+     */
+    public static boolean isRetriable(Exception e) {
+        if (e instanceof TelegramApiRequestException request && request.getErrorCode() != null) {
+            int code = request.getErrorCode();
+            return code != 400 && code != 403;
+        }
+        return true;
+    }
+
+    private long backoff(int attempts, Exception e) {
+        if (e instanceof TelegramApiRequestException request && request.getParameters() != null
+                && request.getParameters().getRetryAfter() != null) {
+            return request.getParameters().getRetryAfter() * 1000L;
+        }
+        long delay = initialBackoffMs << Math.min(attempts, 20);
+        return Math.min(delay, maxBackoffMs);
+    }
+
+    // ========================================================================
+    // FSYNC / COMPACTION
+    // ========================================================================
+
+    @Scheduled(fixedDelayString = "${app.outbound-spool.fsync-interval-ms:200}")
+    public synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            active.channel.force(false);
+            dirty = false;
+        } catch (IOException e) {
+            log.error("❌ Failed to fsync outbound spool: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Недоставленные сообщения из закрытых сегментов переписываются в текущий, старые файлы удаляются
+     */
+    @Scheduled(fixedDelayString = "${app.outbound-spool.compaction-interval-ms:60000}")
+    public synchronized void compact() {
+        while (!segments.isEmpty()) {
+            Segment oldest = segments.peekFirst();
+            try {
+                if (oldest.live > 0) {
+                    for (PendingMessage message : new ArrayList<>(pending.values())) {
+                        if (message.segment == oldest) {
+                            append(ENQUEUE, message.id, encode(message.message, message.enqueuedAt));
+                            message.segment = active;
+                            oldest.live--;
+                            active.live++;
+                        }
+                    }
+                }
+                if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                    active.channel.force(false);
+                    dirty = false;
+                }
+                Files.deleteIfExists(oldest.path);
+                segments.removeFirst();
+                log.debug("Spool segment {} compacted", oldest.path.getFileName());
+            } catch (IOException e) {
+                log.error("❌ Failed to compact spool segment {}: {}", oldest.path, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (active != null) {
+            active.channel.force(false);
+            active.close();
+        }
+        log.info("📮 Outbound spool closed with {} undelivered messages", pending.size());
+    }
+
+    // ========================================================================
+    // SEGMENTS
+    // ========================================================================
+
+    private Segment openSegment(long sequence) throws IOException {
+        Segment segment = new Segment(sequence, directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX));
+        segment.channel = FileChannel.open(segment.path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segment.size = segment.channel.size();
+        return segment;
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long sequenceOf(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int crc(byte type, long id, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            crc.update((int) (id >>> shift));
+        }
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static final class Segment {
+        final long sequence;
+        final Path path;
+        FileChannel channel;
+        long size;
+        int live;
+
+        Segment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+
+        void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private static final class PendingMessage {
+        final long id;
+        final SendMessage message;
+        final long enqueuedAt;
+        final long expiresAt;
+        Segment segment;
+        int attempts;
+        long nextAttemptAt;
+
+        PendingMessage(long id, SendMessage message, long enqueuedAt, long expiresAt, Segment segment) {
+            this.id = id;
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+            this.expiresAt = expiresAt;
+            this.segment = segment;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package pl.aybolali.plnkztexchangebot.telegram.webhook;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.util.List;
+
+/**
+ * ⚙️ КОНФИГУРАЦИЯ TELEGRAM БОТА - Webhook Mode
+ *
+ * Вместо {@code TelegramBotConfig} (Long Polling): регистрирует webhook с secret_token,
+ * когда приложение уже готово принимать запросы. Polling в этом профиле не запускается.
+ */
+@Configuration
+@Profile("webhook")
+@Slf4j
+public class TelegramWebhookConfig {
+
+    private final PLNKZTExchangeBot bot;
+    private final String webhookUrl;
+    private final String secretToken;
+    private final int maxConnections;
+
+    public TelegramWebhookConfig(
+            PLNKZTExchangeBot bot,
+            @Value("${telegram.bot.webhook.url}") String webhookUrl,
+            @Value("${telegram.bot.webhook.secret-token}") String secretToken,
+            @Value("${telegram.bot.webhook.max-connections:40}") int maxConnections) {
+
+        this.bot = bot;
+        this.webhookUrl = webhookUrl;
+        this.secretToken = secretToken;
+        this.maxConnections = maxConnections;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void registerWebhook() {
+        SetWebhook setWebhook = SetWebhook.builder()
+                .url(webhookUrl)
+                .secretToken(secretToken)
+                .maxConnections(maxConnections)
+                .allowedUpdates(List.of("message", "callback_query", "inline_query"))
+                .build();
+
+        try {
+            bot.execute(setWebhook);
+            log.info("✅ Telegram webhook registered: {}", webhookUrl);
+            log.info("🔄 Mode: Webhook (no polling)");
+        } catch (TelegramApiException e) {
+            log.error("❌ FAILED TO REGISTER TELEGRAM WEBHOOK: {}", e.getMessage());
+            throw new IllegalStateException("Failed to register Telegram webhook", e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package pl.aybolali.plnkztexchangebot.telegram.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 🪝 WEBHOOK ENDPOINT: Telegram сам присылает обновления (профиль webhook)
+ *
+ * - Проверка заголовка X-Telegram-Bot-Api-Secret-Token (сравнение за постоянное время)
+ * - Update читается потоково из тела запроса, без промежуточной строки
+ * - Ответ 200 сразу после постановки в очередь — обработка идёт в {@link WebhookUpdateDispatcher}
+ *
+ * Локальная проверка записанным update:
+ * curl -X POST localhost:8080/telegram/webhook -H 'Content-Type: application/json' \
+ *      -H 'X-Telegram-Bot-Api-Secret-Token: $TELEGRAM_WEBHOOK_SECRET' -d @update.json
+ */
+@RestController
+@RequestMapping("/telegram/webhook")
+@Profile("webhook")
+@Slf4j
+public class TelegramWebhookController {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final WebhookUpdateDispatcher dispatcher;
+    private final ObjectReader updateReader;
+    private final byte[] secretToken;
+
+    public TelegramWebhookController(
+            WebhookUpdateDispatcher dispatcher,
+            ObjectMapper objectMapper,
+            @Value("${telegram.bot.webhook.secret-token}") String secretToken) {
+
+        this.dispatcher = dispatcher;
+        this.updateReader = objectMapper.readerFor(Update.class);
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping
+    public ResponseEntity<Void> receiveUpdate(
+            @RequestHeader(value = SECRET_HEADER, required = false) String providedToken,
+            HttpServletRequest request) {
+
+        if (providedToken == null
+                || !MessageDigest.isEqual(secretToken, providedToken.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("🚫 Webhook request with invalid secret token from {}", request.getRemoteAddr());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        Update update;
+        try (InputStream body = request.getInputStream()) {
+            update = updateReader.readValue(body);
+        } catch (IOException e) {
+            // Повтор не поможет — отвечаем 200, чтобы Telegram не слал этот update снова
+            log.error("❌ Invalid webhook payload: {}", e.getMessage());
+            return ResponseEntity.ok().build();
+        }
+
+        if (!dispatcher.dispatch(update)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
@@ -0,0 +1,87 @@
+package pl.aybolali.plnkztexchangebot.telegram.webhook;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 🚦 Передача webhook-обновлений в обработку (тот же onUpdateReceived, что и в Long Polling)
+ *
+ * Обновления раскладываются по однопоточным "полосам" по chat id: разные чаты обрабатываются
+ * параллельно, а внутри одного чата сохраняется порядок, как при последовательном polling.
+ * Очереди ограничены — при переполнении {@link #dispatch} возвращает false,
+ * контроллер отвечает 503 и Telegram сам повторит доставку.
+ */
+@Component
+@Profile("webhook")
+@Slf4j
+public class WebhookUpdateDispatcher {
+
+    private final PLNKZTExchangeBot bot;
+    private final ThreadPoolExecutor[] lanes;
+
+    public WebhookUpdateDispatcher(
+            PLNKZTExchangeBot bot,
+            @Value("${telegram.bot.webhook.lanes:4}") int laneCount,
+            @Value("${telegram.bot.webhook.queue-capacity:1000}") int queueCapacity) {
+
+        this.bot = bot;
+        this.lanes = new ThreadPoolExecutor[laneCount];
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "webhook-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    public boolean dispatch(Update update) {
+        int lane = Math.floorMod(Long.hashCode(chatKey(update)), lanes.length);
+        try {
+            lanes[lane].execute(() -> bot.onUpdateReceived(update));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Очередь webhook переполнена, update {} будет доставлен повторно", update.getUpdateId());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private static long chatKey(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasInlineQuery()) {
+            return update.getInlineQuery().getFrom().getId();
+        }
+        return update.getUpdateId() != null ? update.getUpdateId() : 0L;
+    }
+}
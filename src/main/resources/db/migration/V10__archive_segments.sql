@@ -0,0 +1,37 @@
+-- =====================================================
+-- Холодный слой: старые сделки и закрытые заявки переносятся из горячих таблиц
+-- в неизменяемые колоночные файлы-сегменты (ArchiveService); здесь — их индекс
+-- =====================================================
+
+CREATE TABLE archive_segments (
+                                  id BIGSERIAL PRIMARY KEY,
+                                  kind VARCHAR(16) NOT NULL CHECK (kind IN ('DEALS', 'REQUESTS')),
+                                  file_name VARCHAR(128) NOT NULL UNIQUE,
+                                  row_count INTEGER NOT NULL,
+                                  min_id BIGINT NOT NULL,
+                                  max_id BIGINT NOT NULL,
+                                  min_time TIMESTAMP,                -- Сделки: finished_at, заявки: created_at
+                                  max_time TIMESTAMP,
+                                  size_bytes BIGINT NOT NULL,
+                                  checksum BIGINT NOT NULL,          -- CRC32 файла, проверяется при открытии
+                                  created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_archive_segments_ids ON archive_segments(kind, min_id, max_id);
+CREATE INDEX idx_archive_segments_time ON archive_segments(kind, min_time, max_time);
+
+-- Какие пользователи есть в сегменте: история пользователя открывает только свои сегменты,
+-- а счётчики (сверка successful_deals, пагинация) считаются без чтения файлов
+CREATE TABLE archive_segment_users (
+                                       segment_id BIGINT NOT NULL REFERENCES archive_segments(id) ON DELETE CASCADE,
+                                       user_id BIGINT NOT NULL,
+                                       kind VARCHAR(16) NOT NULL,
+                                       row_count INTEGER NOT NULL,           -- Строк с участием пользователя
+                                       completed_count INTEGER NOT NULL,     -- Из них в статусе COMPLETED
+                                       PRIMARY KEY (segment_id, user_id)
+);
+
+CREATE INDEX idx_archive_segment_users_user ON archive_segment_users(user_id, kind, segment_id);
+
+-- Оценки остаются в горячей таблице и после архивации сделки: каскадное удаление их бы стёрло
+ALTER TABLE ratings DROP CONSTRAINT IF EXISTS ratings_deal_id_fkey;
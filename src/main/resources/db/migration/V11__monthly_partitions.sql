@@ -0,0 +1,126 @@
+-- =====================================================
+-- Помесячное секционирование deals и exchange_requests по created_at
+-- Очистка и архив освобождают месяц целиком: DETACH + DROP секции вместо DELETE по строкам
+-- (PartitionMaintenanceService); запросы с диапазоном по created_at читают только свои месяцы
+-- =====================================================
+
+-- Создаёт недостающие месячные секции parent_pYYYY_MM для месяцев [from_month, until_month].
+-- Строки, успевшие попасть в parent_default за этот месяц, переносятся в новую секцию.
+CREATE OR REPLACE FUNCTION ensure_monthly_partitions(parent TEXT, from_month DATE, until_month DATE)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    month_start DATE := date_trunc('month', from_month)::DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    WHILE month_start <= until_month LOOP
+        partition_name := format('%s_p%s', parent, to_char(month_start, 'YYYY_MM'));
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+
+        CONTINUE WHEN to_regclass(partition_name) IS NOT NULL;
+
+        EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)',
+                       partition_name, parent);
+        EXECUTE format('WITH moved AS (DELETE FROM %I WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                           || 'INSERT INTO %I SELECT * FROM moved',
+                       parent || '_default', month_start - INTERVAL '1 month', month_start, partition_name);
+        EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                       parent, partition_name, (month_start - INTERVAL '1 month')::DATE, month_start);
+        created := created + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- =====================================================
+-- exchange_requests
+-- =====================================================
+
+ALTER TABLE exchange_requests RENAME TO exchange_requests_legacy;
+ALTER SEQUENCE exchange_requests_id_seq OWNED BY NONE;
+
+CREATE TABLE exchange_requests (
+    LIKE exchange_requests_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, created_at),
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE exchange_requests_default PARTITION OF exchange_requests DEFAULT;
+
+-- Секции с месяца самой старой строки и на 3 месяца вперёд; дальше их создаёт PartitionMaintenanceService
+SELECT ensure_monthly_partitions('exchange_requests',
+                                 COALESCE((SELECT MIN(created_at) FROM exchange_requests_legacy), CURRENT_DATE)::DATE,
+                                 (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+INSERT INTO exchange_requests SELECT * FROM exchange_requests_legacy;
+DROP TABLE exchange_requests_legacy;
+ALTER SEQUENCE exchange_requests_id_seq OWNED BY exchange_requests.id;
+
+CREATE INDEX idx_exchange_requests_user_id ON exchange_requests(user_id);
+CREATE INDEX idx_exchange_requests_status ON exchange_requests(status);
+CREATE INDEX idx_exchange_requests_currency_status ON exchange_requests(currency_need, status);
+CREATE INDEX idx_exchange_requests_created_at ON exchange_requests(created_at DESC);
+
+-- =====================================================
+-- deals
+-- =====================================================
+
+ALTER TABLE deals RENAME TO deals_legacy;
+ALTER SEQUENCE deals_id_seq OWNED BY NONE;
+
+CREATE TABLE deals (
+    LIKE deals_legacy INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+    PRIMARY KEY (id, created_at),
+    FOREIGN KEY (requester_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (provider_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE deals_default PARTITION OF deals DEFAULT;
+
+-- Секции с месяца самой старой строки и на 3 месяца вперёд; дальше их создаёт PartitionMaintenanceService
+SELECT ensure_monthly_partitions('deals',
+                                 COALESCE((SELECT MIN(created_at) FROM deals_legacy), CURRENT_DATE)::DATE,
+                                 (CURRENT_DATE + INTERVAL '3 months')::DATE);
+
+-- Уникальный индекс секционированной таблицы обязан включать created_at, поэтому глобальная
+-- уникальность токена подтверждения держится отдельной таблицей, которую ведут триггеры
+CREATE TABLE deal_confirmation_tokens (
+                                          token BIGINT PRIMARY KEY,
+                                          deal_id BIGINT NOT NULL
+);
+
+INSERT INTO deal_confirmation_tokens (token, deal_id)
+SELECT confirmation_token, id FROM deals_legacy WHERE confirmation_token IS NOT NULL;
+
+INSERT INTO deals SELECT * FROM deals_legacy;
+DROP TABLE deals_legacy;
+ALTER SEQUENCE deals_id_seq OWNED BY deals.id;
+
+CREATE INDEX idx_deals_request_id ON deals(request_id);
+CREATE INDEX idx_deals_requester_id ON deals(requester_id);
+CREATE INDEX idx_deals_provider_id ON deals(provider_id);
+CREATE INDEX idx_deals_status ON deals(status);
+CREATE INDEX idx_deals_created_at ON deals(created_at DESC);
+CREATE INDEX idx_deals_finished_at ON deals(finished_at);
+CREATE INDEX idx_deals_confirmation_token ON deals(confirmation_token);
+
+-- Повторный токен → unique_violation в той же вставке (DataIntegrityViolationException, как раньше)
+CREATE OR REPLACE FUNCTION deals_claim_confirmation_token()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'INSERT' AND NEW.confirmation_token IS NOT NULL THEN
+        INSERT INTO deal_confirmation_tokens (token, deal_id) VALUES (NEW.confirmation_token, NEW.id);
+    ELSIF TG_OP = 'DELETE' AND OLD.confirmation_token IS NOT NULL THEN
+        DELETE FROM deal_confirmation_tokens WHERE token = OLD.confirmation_token;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_deals_confirmation_token
+    AFTER INSERT OR DELETE ON deals
+    FOR EACH ROW EXECUTE FUNCTION deals_claim_confirmation_token();
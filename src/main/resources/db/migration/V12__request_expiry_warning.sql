@@ -0,0 +1,7 @@
+-- =====================================================
+-- Истечение ACTIVE заявок по таймерам (RequestExpiryScheduler) вместо еженедельного cron
+-- expiry_warned_at: автор уже предупреждён о скором истечении — повторно не пишем
+-- (после рестарта или при срабатывании таймера на нескольких репликах)
+-- =====================================================
+
+ALTER TABLE exchange_requests ADD COLUMN expiry_warned_at TIMESTAMP;
@@ -0,0 +1,23 @@
+-- =====================================================
+-- Checkpoints пакетных задач обслуживания (BatchJobRunner)
+-- Строка на секцию запуска: диапазон ключей и курсор, сохраняемый в транзакции каждой пачки
+-- =====================================================
+
+CREATE TABLE batch_checkpoints (
+                                   id BIGSERIAL PRIMARY KEY,
+                                   job_name VARCHAR(64) NOT NULL,
+                                   partition_no INTEGER NOT NULL,
+                                   lower_key BIGINT NOT NULL,                       -- Диапазон секции (lower_key, upper_key]
+                                   upper_key BIGINT NOT NULL,
+                                   last_key BIGINT NOT NULL,                        -- Курсор: последний обработанный ключ
+                                   status VARCHAR(20) NOT NULL DEFAULT 'RUNNING' CHECK (status IN ('RUNNING', 'COMPLETED', 'FAILED')),
+                                   processed BIGINT NOT NULL DEFAULT 0,             -- Прочитано ключей
+                                   affected BIGINT NOT NULL DEFAULT 0,              -- Изменено строк
+                                   chunks INTEGER NOT NULL DEFAULT 0,
+                                   last_error VARCHAR(500),
+                                   version BIGINT NOT NULL DEFAULT 0,               -- Оптимистичная блокировка: одна реплика на секцию
+                                   started_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                   updated_at TIMESTAMP,
+                                   finished_at TIMESTAMP,
+                                   CONSTRAINT uk_batch_checkpoints_job_partition UNIQUE (job_name, partition_no)
+);
@@ -0,0 +1,12 @@
+-- =====================================================
+-- Подписанные payload'ы кнопок, не поместившиеся в 64 байта callback_data (CallbackCodec)
+-- В кнопку уходит только случайный ключ; поля читает любая реплика и после рестарта
+-- =====================================================
+
+CREATE TABLE callback_payloads (
+                                   payload_key VARCHAR(80) PRIMARY KEY,            -- route + случайный ключ
+                                   body BYTEA NOT NULL,
+                                   created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_callback_payloads_created_at ON callback_payloads (created_at);
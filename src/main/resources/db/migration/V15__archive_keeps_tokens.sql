@@ -0,0 +1,28 @@
+-- =====================================================
+-- Архивация сделок (ArchiveService) оставляет их токены подтверждения: повторное нажатие старой
+-- кнопки после переноса сделки в архив должно упираться в unique_violation, а не создавать дубль.
+-- ArchiveService включает app.keep_confirmation_tokens на свою транзакцию (set_config(..., true))
+-- =====================================================
+
+CREATE OR REPLACE FUNCTION deals_claim_confirmation_token()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'INSERT' AND NEW.confirmation_token IS NOT NULL THEN
+        INSERT INTO deal_confirmation_tokens (token, deal_id) VALUES (NEW.confirmation_token, NEW.id);
+    ELSIF TG_OP = 'DELETE' AND OLD.confirmation_token IS NOT NULL
+        AND COALESCE(current_setting('app.keep_confirmation_tokens', true), '') <> 'on' THEN
+        DELETE FROM deal_confirmation_tokens WHERE token = OLD.confirmation_token;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+-- Удаление аккаунта убирает и его строки индекса архива (горячие строки удаляет каскад users)
+DELETE FROM archive_segment_users asu
+WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.id = asu.user_id);
+
+ALTER TABLE archive_segment_users
+    ADD CONSTRAINT archive_segment_users_user_id_fkey
+        FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE;
@@ -0,0 +1,6 @@
+-- =====================================================
+-- Неудачные попытки текущей пачки секции (BatchJobRunner): после app.batch.max-chunk-attempts
+-- секция больше не продолжается, и следующий запуск задачи начинается заново
+-- =====================================================
+
+ALTER TABLE batch_checkpoints ADD COLUMN attempts INTEGER NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- =====================================================
+-- Outbox по обработчикам: событие пишется строкой на каждый обработчик,
+-- и у каждой строки своя транзакция, свои попытки и свой статус.
+-- Упавшая статистика больше не откатывает и не повторяет снятие холдов.
+-- NULL — строки, записанные до миграции: все обработчики в одной транзакции, как раньше
+-- =====================================================
+
+ALTER TABLE domain_outbox ADD COLUMN handler VARCHAR(64);
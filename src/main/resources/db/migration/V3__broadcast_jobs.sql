@@ -0,0 +1,19 @@
+-- =====================================================
+-- Рассылки всем активным пользователям
+-- =====================================================
+
+CREATE TABLE broadcast_jobs (
+                                id BIGSERIAL PRIMARY KEY,
+                                message_text TEXT NOT NULL,
+                                status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'CANCELLED')),
+                                last_user_id BIGINT NOT NULL DEFAULT 0,          -- Курсор: users.id последнего обработанного получателя
+                                delivered INTEGER NOT NULL DEFAULT 0,
+                                failed INTEGER NOT NULL DEFAULT 0,
+                                blocked INTEGER NOT NULL DEFAULT 0,              -- 403: пользователь заблокировал бота
+                                version BIGINT NOT NULL DEFAULT 0,               -- Оптимистичная блокировка: одна реплика на задачу
+                                created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                                started_at TIMESTAMP,
+                                finished_at TIMESTAMP
+);
+
+CREATE INDEX idx_broadcast_jobs_status ON broadcast_jobs(status);
@@ -0,0 +1,11 @@
+-- =====================================================
+-- Состояние бота между рестартами (последний обработанный update_id и т.п.)
+-- =====================================================
+
+CREATE TABLE bot_state (
+                           state_key VARCHAR(64) PRIMARY KEY,
+                           state_value BIGINT NOT NULL,
+                           updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+INSERT INTO bot_state (state_key, state_value) VALUES ('last_update_id', 0);
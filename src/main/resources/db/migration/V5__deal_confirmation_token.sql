@@ -0,0 +1,9 @@
+-- =====================================================
+-- Токен подтверждения сделки: повторное нажатие / повторная доставка
+-- возвращают уже созданную сделку вместо второй
+-- =====================================================
+
+ALTER TABLE deals ADD COLUMN confirmation_token BIGINT;
+
+-- NULL у старых сделок и сделок через REST не конфликтуют
+CREATE UNIQUE INDEX uk_deals_confirmation_token ON deals(confirmation_token);
@@ -0,0 +1,21 @@
+-- =====================================================
+-- Outbox доменных событий: пишутся в транзакции сделки/оценки,
+-- побочные эффекты (статистика, холды) применяет OutboxDispatcher
+-- =====================================================
+
+CREATE TABLE domain_outbox (
+                               id BIGSERIAL PRIMARY KEY,
+                               event_type VARCHAR(64) NOT NULL,
+                               aggregate_id BIGINT NOT NULL,
+                               payload TEXT NOT NULL,                           -- JSON записи события
+                               status VARCHAR(20) NOT NULL DEFAULT 'PENDING' CHECK (status IN ('PENDING', 'DONE', 'FAILED')),
+                               attempts INTEGER NOT NULL DEFAULT 0,
+                               next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               last_error VARCHAR(500),
+                               created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               processed_at TIMESTAMP
+);
+
+-- Диспетчер читает только ожидающие события по порядку
+CREATE INDEX idx_domain_outbox_pending ON domain_outbox(next_attempt_at, id) WHERE status = 'PENDING';
+CREATE INDEX idx_domain_outbox_processed ON domain_outbox(processed_at) WHERE status = 'DONE';
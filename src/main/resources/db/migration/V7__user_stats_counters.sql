@@ -0,0 +1,18 @@
+-- =====================================================
+-- Поддерживаемые счётчики статистики пользователя: сделка и оценка
+-- меняют их относительным UPDATE, без COUNT/AVG по deals и ratings
+-- =====================================================
+
+ALTER TABLE users ADD COLUMN rating_sum NUMERIC(12,1) NOT NULL DEFAULT 0;   -- Сумма полученных оценок
+ALTER TABLE users ADD COLUMN rating_count INTEGER NOT NULL DEFAULT 0;       -- Число полученных оценок
+
+-- Начальные значения из истории; successful_deals — счётчик завершённых сделок
+UPDATE users u SET
+    successful_deals = (SELECT COUNT(*) FROM deals d WHERE d.requester_id = u.id AND d.status = 'COMPLETED')
+                     + (SELECT COUNT(*) FROM deals d WHERE d.provider_id = u.id AND d.status = 'COMPLETED'),
+    rating_sum = COALESCE((SELECT SUM(r.rating) FROM ratings r WHERE r.rated_user_id = u.id), 0),
+    rating_count = (SELECT COUNT(*) FROM ratings r WHERE r.rated_user_id = u.id);
+
+UPDATE users SET trust_rating = ROUND(rating_sum / rating_count, 2) WHERE rating_count > 0;
+
+ALTER TABLE users ALTER COLUMN successful_deals SET NOT NULL;
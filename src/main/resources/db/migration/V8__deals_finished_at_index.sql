@@ -0,0 +1,5 @@
+-- =====================================================
+-- Выгрузка сделок за период идёт по finished_at в порядке индекса
+-- =====================================================
+
+CREATE INDEX idx_deals_finished_at ON deals(finished_at);
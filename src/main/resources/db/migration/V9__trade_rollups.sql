@@ -0,0 +1,44 @@
+-- =====================================================
+-- Агрегаты торговли по часам и дням: сделки, объём, VWAP, исполнение заявок, глубина книги.
+-- Потоки (сделки, исполнения) увеличиваются обработчиком outbox,
+-- глубина — периодический снимок книги предложений
+-- =====================================================
+
+CREATE TABLE trade_rollups (
+                               period VARCHAR(4) NOT NULL CHECK (period IN ('HOUR', 'DAY')),
+                               bucket_start TIMESTAMP NOT NULL,                  -- Начало часа / суток
+                               currency VARCHAR(3) NOT NULL CHECK (currency IN ('PLN', 'KZT')),
+                               deal_count INTEGER NOT NULL DEFAULT 0,
+                               volume DECIMAL(18,2) NOT NULL DEFAULT 0,          -- Σ amount
+                               rate_volume DECIMAL(30,8) NOT NULL DEFAULT 0,     -- Σ amount · exchange_rate (числитель VWAP)
+                               filled_requests INTEGER NOT NULL DEFAULT 0,
+                               fill_seconds_sum BIGINT NOT NULL DEFAULT 0,       -- Σ (finished_at − created_at) исполненных заявок
+                               fill_seconds_max BIGINT NOT NULL DEFAULT 0,
+                               open_requests INTEGER,                            -- Последний снимок глубины книги
+                               open_amount DECIMAL(18,2),
+                               updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                               PRIMARY KEY (period, bucket_start, currency)
+);
+
+-- Начальные значения из истории
+INSERT INTO trade_rollups (period, bucket_start, currency, deal_count, volume, rate_volume)
+SELECT p.period, date_trunc(lower(p.period), d.finished_at), d.currency,
+       COUNT(*), SUM(d.amount), SUM(d.amount * d.exchange_rate)
+FROM deals d
+CROSS JOIN (VALUES ('HOUR'), ('DAY')) AS p(period)
+WHERE d.status = 'COMPLETED' AND d.finished_at IS NOT NULL
+GROUP BY p.period, date_trunc(lower(p.period), d.finished_at), d.currency;
+
+INSERT INTO trade_rollups (period, bucket_start, currency, filled_requests, fill_seconds_sum, fill_seconds_max)
+SELECT p.period, date_trunc(lower(p.period), er.finished_at), er.currency_need,
+       COUNT(*),
+       SUM(EXTRACT(EPOCH FROM er.finished_at - er.created_at))::BIGINT,
+       MAX(EXTRACT(EPOCH FROM er.finished_at - er.created_at))::BIGINT
+FROM exchange_requests er
+CROSS JOIN (VALUES ('HOUR'), ('DAY')) AS p(period)
+WHERE er.status = 'COMPLETED' AND er.finished_at IS NOT NULL
+GROUP BY p.period, date_trunc(lower(p.period), er.finished_at), er.currency_need
+ON CONFLICT (period, bucket_start, currency) DO UPDATE SET
+    filled_requests = EXCLUDED.filled_requests,
+    fill_seconds_sum = EXCLUDED.fill_seconds_sum,
+    fill_seconds_max = EXCLUDED.fill_seconds_max;
@@ -0,0 +1,131 @@
+package pl.aybolali.plnkztexchangebot.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import pl.aybolali.plnkztexchangebot.controller.BatchJobAdminController;
+import pl.aybolali.plnkztexchangebot.controller.BroadcastAdminController;
+import pl.aybolali.plnkztexchangebot.controller.ExportAdminController;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.security.CustomUserDetailsService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.batch.BatchJobRunner;
+import pl.aybolali.plnkztexchangebot.service.batch.MaintenanceJobs;
+import pl.aybolali.plnkztexchangebot.service.broadcast.BroadcastService;
+import pl.aybolali.plnkztexchangebot.service.export.ExportService;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 🔐 /api/v1/admin/** доступен только пользователям из app.security.admin-usernames
+ */
+@WebMvcTest(controllers = {ExportAdminController.class, BroadcastAdminController.class, BatchJobAdminController.class})
+@Import({SecurityConfig.class, CustomUserDetailsService.class})
+@TestPropertySource(properties = "app.security.admin-usernames=boss")
+@DisplayName("Admin endpoint security Tests")
+class AdminEndpointSecurityTest {
+
+    private static final String DEALS_EXPORT = "/api/v1/admin/exports/deals?from=2025-01-01&to=2025-01-31";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserService userService;
+
+    @MockitoBean
+    private ExportService exportService;
+
+    @MockitoBean
+    private BroadcastService broadcastService;
+
+    @MockitoBean
+    private MaintenanceJobs maintenanceJobs;
+
+    @MockitoBean
+    private BatchJobRunner batchJobRunner;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.findByTelegramUsername("alice")).thenReturn(Optional.of(user(1L, "alice")));
+        when(userService.findByTelegramUsername("boss")).thenReturn(Optional.of(user(2L, "boss")));
+    }
+
+    @Test
+    @DisplayName("Самостоятельно зарегистрированный пользователь (ROLE_USER) получает 403 на выгрузку")
+    void regularUserCannotExport() throws Exception {
+        mockMvc.perform(get(DEALS_EXPORT).with(httpBasic("alice", "alice")))
+                .andExpect(status().isForbidden());
+
+        verify(exportService, never()).exportDeals(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Без аутентификации — 401")
+    void anonymousCannotExport() throws Exception {
+        mockMvc.perform(get(DEALS_EXPORT))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    @DisplayName("Администратор из app.security.admin-usernames получает выгрузку")
+    void adminCanExport() throws Exception {
+        mockMvc.perform(get(DEALS_EXPORT).with(httpBasic("boss", "boss")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("ROLE_USER не может запустить рассылку всем пользователям")
+    void regularUserCannotBroadcast() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/broadcasts")
+                        .with(httpBasic("alice", "alice"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\": \"spam\"}"))
+                .andExpect(status().isForbidden());
+
+        verify(broadcastService, never()).createBroadcast(anyString());
+    }
+
+    @Test
+    @DisplayName("ROLE_USER не может запустить пакетную задачу")
+    void regularUserCannotRunBatchJob() throws Exception {
+        mockMvc.perform(post("/api/v1/admin/batch-jobs/closed-request-purge/run").with(httpBasic("alice", "alice")))
+                .andExpect(status().isForbidden());
+
+        verify(maintenanceJobs, never()).start(anyString());
+    }
+
+    @Test
+    @DisplayName("Администратор запускает пакетную задачу")
+    void adminCanRunBatchJob() throws Exception {
+        when(maintenanceJobs.start("request-reconciliation")).thenReturn(true);
+
+        mockMvc.perform(post("/api/v1/admin/batch-jobs/request-reconciliation/run").with(httpBasic("boss", "boss")))
+                .andExpect(status().isAccepted());
+    }
+
+    private static User user(Long id, String username) {
+        return User.builder()
+                .id(id)
+                .telegramUserId(1000L + id)
+                .telegramUsername(username)
+                .build();
+    }
+}
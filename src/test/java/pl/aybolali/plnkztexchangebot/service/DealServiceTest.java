@@ -10,6 +10,8 @@ import pl.aybolali.plnkztexchangebot.entity.*;
 import pl.aybolali.plnkztexchangebot.repository.DealRepository;
 import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
 import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEvent;
+import pl.aybolali.plnkztexchangebot.service.outbox.DomainEventOutbox;
 
 import java.math.BigDecimal;
 import java.util.Optional;
@@ -29,6 +31,7 @@ class DealServiceTest {
     @Mock private ExchangeRequestService exchangeRequestService;
     @Mock private UserService userService;
     @Mock private ExchangeRateService exchangeRateService;
+    @Mock private DomainEventOutbox eventOutbox;
 
     @InjectMocks private DealService dealService;
 
@@ -73,6 +76,9 @@ class DealServiceTest {
         verify(exchangeRequestService).findById(requestId);
         verify(userRepository).findById(providerId);
         verify(dealRepository).save(any(Deal.class));
+        verify(eventOutbox).append(any(DomainEvent.DealCompleted.class));
+        verify(eventOutbox, atLeastOnce()).append(any(DomainEvent.RequestFilled.class));
+        verifyNoInteractions(userService);
     }
 
     @Test
@@ -96,6 +102,26 @@ class DealServiceTest {
         verify(dealRepository, never()).save(any());
     }
 
+    @Test
+    void createDealFromRequest_ShouldPersistConfirmationToken() {
+        Long requestId = 1L;
+        Long providerId = 2L;
+        long confirmationToken = DealService.newConfirmationToken();
+
+        User requester = createUser(1L, "requester");
+        User provider = createUser(2L, "provider");
+
+        when(exchangeRequestService.findById(requestId)).thenReturn(createExchangeRequest(requester));
+        when(userRepository.findById(providerId)).thenReturn(Optional.of(provider));
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("147.5"));
+        when(dealRepository.save(any(Deal.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Deal result = dealService.createDealFromRequest(requestId, providerId, new BigDecimal("500"), confirmationToken);
+
+        assertTrue(confirmationToken > 0);
+        assertEquals(confirmationToken, result.getConfirmationToken());
+    }
+
     private User createUser(Long id, String username) {
         return User.builder()
                 .id(id)
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -16,6 +17,7 @@ import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
 import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
 import pl.aybolali.plnkztexchangebot.entity.User;
 import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -42,6 +44,9 @@ class MatchingServiceTest {
     @Mock
     private ExchangeRateService exchangeRateService;
 
+    @Spy
+    private AmountReservationLedger reservationLedger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
     @InjectMocks
     private MatchingService matchingService;
 
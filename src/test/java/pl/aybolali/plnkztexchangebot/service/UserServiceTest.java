@@ -7,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.context.ActiveProfiles;
 import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
 import pl.aybolali.plnkztexchangebot.repository.DealRepository;
 import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
 import pl.aybolali.plnkztexchangebot.repository.UserRepository;
@@ -31,6 +32,9 @@ class UserServiceTest {
     @Mock
     private DealRepository dealRepository;
 
+    @Mock
+    private ArchiveSegmentUserRepository archiveSegmentUserRepository;
+
     @InjectMocks
     private UserService userService;
 
@@ -0,0 +1,91 @@
+package pl.aybolali.plnkztexchangebot.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.aybolali.plnkztexchangebot.dto.UserDealCount;
+import pl.aybolali.plnkztexchangebot.dto.UserRatingTotals;
+import pl.aybolali.plnkztexchangebot.dto.UserStatsSnapshot;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
+import pl.aybolali.plnkztexchangebot.repository.DealRepository;
+import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserStatsVerifier Tests")
+class UserStatsVerifierTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private DealRepository dealRepository;
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private ArchiveSegmentUserRepository archiveSegmentUserRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserStatsVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        verifier = new UserStatsVerifier(userRepository, dealRepository, ratingRepository,
+                archiveSegmentUserRepository, eventPublisher, transactionManager, 10);
+    }
+
+    @Test
+    @DisplayName("Дрейф исправляется по обеим ролям в сделках и по оценкам, верные счётчики не трогаются")
+    void correctsDriftedCounters() {
+        when(userRepository.findStatsAfter(eq(0L), any())).thenReturn(List.of(
+                new UserStatsSnapshot(1L, 3, new BigDecimal("9.0"), 2),
+                new UserStatsSnapshot(2L, 1, BigDecimal.ZERO, 0)));
+        when(dealRepository.countCompletedAsRequester(List.of(1L, 2L))).thenReturn(List.of(new UserDealCount(1L, 2L)));
+        when(dealRepository.countCompletedAsProvider(List.of(1L, 2L))).thenReturn(List.of(
+                new UserDealCount(1L, 1L), new UserDealCount(2L, 1L)));
+        when(ratingRepository.sumRatingsByUserIds(List.of(1L, 2L))).thenReturn(List.of(
+                new UserRatingTotals(1L, new BigDecimal("14.0"), 3L)));
+        when(userRepository.reconcileStats(eq(1L), anyInt(), any(), anyInt(), any(), anyInt(), anyInt())).thenReturn(1);
+        when(userRepository.findAllById(List.of(1L))).thenReturn(List.of(User.builder().id(1L).build()));
+
+        assertThat(verifier.verifyAll()).isEqualTo(1);
+
+        verify(userRepository).reconcileStats(1L, 3, new BigDecimal("14.0"), 3, new BigDecimal("4.67"), 3, 2);
+        verify(userRepository, never()).reconcileStats(eq(2L), anyInt(), any(), anyInt(), any(), anyInt(), anyInt());
+        verify(eventPublisher).publishEvent(any(OfferBookEvent.UserChanged.class));
+    }
+
+    @Test
+    @DisplayName("Пользователь, изменившийся во время сверки, не перезаписывается и не считается исправленным")
+    void skipsUsersChangedConcurrently() {
+        when(userRepository.findStatsAfter(eq(0L), any())).thenReturn(List.of(
+                new UserStatsSnapshot(1L, 0, BigDecimal.ZERO, 0)));
+        when(dealRepository.countCompletedAsRequester(any())).thenReturn(List.of(new UserDealCount(1L, 1L)));
+        when(userRepository.reconcileStats(eq(1L), anyInt(), any(), anyInt(), any(), anyInt(), anyInt())).thenReturn(0);
+
+        assertThat(verifier.verifyAll()).isZero();
+
+        verifyNoInteractions(eventPublisher);
+    }
+}
@@ -0,0 +1,194 @@
+package pl.aybolali.plnkztexchangebot.service.archive;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveKind;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegment;
+import pl.aybolali.plnkztexchangebot.entity.ArchiveSegmentUser;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.DealStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentRepository;
+import pl.aybolali.plnkztexchangebot.repository.ArchiveSegmentUserRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ArchiveReader Tests")
+class ArchiveReaderTest {
+
+    private static final Long ALICE = 1L;
+    private static final Long BOB = 2L;
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 10, 12, 0, 30);
+
+    @Mock
+    private ArchiveSegmentRepository segmentRepository;
+
+    @Mock
+    private ArchiveSegmentUserRepository segmentUserRepository;
+
+    @Mock
+    private ArchiveStore archiveStore;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ArchiveReader reader;
+
+    private final User alice = User.builder().id(ALICE).telegramUsername("alice").build();
+    private final User bob = User.builder().id(BOB).telegramUsername("bob").build();
+
+    @BeforeEach
+    void setUp() {
+        reader = new ArchiveReader(segmentRepository, segmentUserRepository, archiveStore, userRepository);
+    }
+
+    @Test
+    @DisplayName("Сделки переживают запись в сегмент и чтение: null, суммы, словарные строки, время")
+    void dealSegmentRoundTrip() {
+        Deal completed = deal(10L, DealStatus.COMPLETED, BASE);
+        Deal cancelled = deal(11L, DealStatus.CANCELLED, null);
+        cancelled.setExchangeRate(null);
+        cancelled.setConfirmationToken(null);
+
+        ColumnarSegment segment = ColumnarSegment.read(ArchivedRows.writeDeals(List.of(completed, cancelled)));
+
+        assertThat(segment.rowCount()).isEqualTo(2);
+        Deal first = ArchivedRows.readDeal(segment, 0, id -> User.builder().id(id).build());
+        Deal second = ArchivedRows.readDeal(segment, 1, id -> User.builder().id(id).build());
+
+        assertThat(first.getId()).isEqualTo(10L);
+        assertThat(first.getAmount()).isEqualByComparingTo("500.25");
+        assertThat(first.getAmount().scale()).isEqualTo(2);
+        assertThat(first.getExchangeRate()).isEqualByComparingTo("145.7350");
+        assertThat(first.getCurrency()).isEqualTo(ExchangeRequest.Currency.PLN);
+        assertThat(first.getTransferMethod()).isEqualTo(TransferMethod.BANK_TRANSFER);
+        assertThat(first.getFinishedAt()).isEqualTo(BASE);
+        assertThat(first.getConfirmationToken()).isEqualTo(987_654_321L);
+        assertThat(first.getRequester().getId()).isEqualTo(ALICE);
+        assertThat(first.getProvider().getId()).isEqualTo(BOB);
+
+        assertThat(second.getStatus()).isEqualTo(DealStatus.CANCELLED);
+        assertThat(second.getFinishedAt()).isNull();
+        assertThat(second.getExchangeRate()).isNull();
+        assertThat(second.getConfirmationToken()).isNull();
+    }
+
+    @Test
+    @DisplayName("Короткая горячая страница дополняется архивом; сегмент целиком до смещения не открывается")
+    void appendsArchivedDealsAfterHotPage() {
+        // Архив пользователя: новый сегмент 2 (2 сделки) и старый сегмент 1 (1 сделка)
+        ArchiveSegment newer = segment(2L);
+        ArchiveSegment older = segment(1L);
+        when(segmentUserRepository.findByUser(ALICE, ArchiveKind.DEALS)).thenReturn(List.of(
+                segmentUser(2L, 2), segmentUser(1L, 1)));
+        when(segmentRepository.findById(1L)).thenReturn(Optional.of(older));
+        when(archiveStore.open(older)).thenReturn(ColumnarSegment.read(ArchivedRows.writeDeals(List.of(
+                deal(5L, DealStatus.COMPLETED, BASE.minusDays(30))))));
+        when(userRepository.findAllById(any())).thenReturn(List.of(alice, bob));
+
+        // Страница 2 по 2: горячих сделок 3 → на странице 1 горячая, дальше архив со смещением 0
+        Pageable pageable = PageRequest.of(1, 2);
+        Deal hotDeal = deal(40L, DealStatus.COMPLETED, BASE.plusDays(200));
+        Page<Deal> hot = new PageImpl<>(List.of(hotDeal), pageable, 3);
+        when(segmentRepository.findById(2L)).thenReturn(Optional.of(newer));
+        when(archiveStore.open(newer)).thenReturn(ColumnarSegment.read(ArchivedRows.writeDeals(List.of(
+                deal(20L, DealStatus.COMPLETED, BASE.minusDays(2)),
+                deal(21L, DealStatus.COMPLETED, BASE.minusDays(1))))));
+
+        Page<Deal> page = reader.appendArchivedDeals(hot, ALICE, pageable, true);
+
+        assertThat(page.getTotalElements()).isEqualTo(6);
+        assertThat(page.getContent()).extracting(Deal::getId).containsExactly(40L, 21L);
+        assertThat(page.getContent().get(1).getRequester().getTelegramUsername()).isEqualTo("alice");
+
+        // Последняя строка (смещение 5, в архиве 2) — новый сегмент пропускается по счётчику
+        clearInvocations(archiveStore);
+        Pageable last = PageRequest.of(5, 1);
+        Page<Deal> tail = reader.appendArchivedDeals(new PageImpl<>(List.of(), last, 3), ALICE, last, true);
+
+        assertThat(tail.getContent()).extracting(Deal::getId).containsExactly(5L);
+        verify(archiveStore, never()).open(newer);
+    }
+
+    @Test
+    @DisplayName("Сделка ищется во всех сегментах, чей диапазон id её накрывает")
+    void findsDealInOverlappingSegments() {
+        ArchiveSegment first = segment(1L);
+        ArchiveSegment second = segment(2L);
+        when(segmentRepository.findCovering(ArchiveKind.DEALS, 15L)).thenReturn(List.of(first, second));
+        when(archiveStore.open(first)).thenReturn(ColumnarSegment.read(ArchivedRows.writeDeals(List.of(
+                deal(10L, DealStatus.COMPLETED, BASE), deal(20L, DealStatus.COMPLETED, BASE)))));
+        when(archiveStore.open(second)).thenReturn(ColumnarSegment.read(ArchivedRows.writeDeals(List.of(
+                deal(15L, DealStatus.COMPLETED, BASE)))));
+        when(userRepository.findAllById(any())).thenReturn(List.of(alice, bob));
+
+        assertThat(reader.findDeal(15L)).map(Deal::getId).contains(15L);
+    }
+
+    @Test
+    @DisplayName("Строки удалённого пользователя не отдаются — ни в истории, ни по id")
+    void dropsRowsOfDeletedUsers() {
+        ArchiveSegment archived = segment(1L);
+        when(segmentUserRepository.findByUser(ALICE, ArchiveKind.DEALS)).thenReturn(List.of(segmentUser(1L, 1)));
+        when(segmentRepository.findById(1L)).thenReturn(Optional.of(archived));
+        when(segmentRepository.findCovering(ArchiveKind.DEALS, 5L)).thenReturn(List.of(archived));
+        when(archiveStore.open(archived)).thenReturn(ColumnarSegment.read(ArchivedRows.writeDeals(List.of(
+                deal(5L, DealStatus.COMPLETED, BASE)))));
+        // bob удалил аккаунт
+        when(userRepository.findAllById(any())).thenReturn(List.of(alice));
+
+        Pageable pageable = PageRequest.of(0, 10);
+        Page<Deal> page = reader.appendArchivedDeals(new PageImpl<>(List.of(), pageable, 0), ALICE, pageable, true);
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(reader.findDeal(5L)).isEmpty();
+    }
+
+    private Deal deal(Long id, DealStatus status, LocalDateTime finishedAt) {
+        return Deal.builder()
+                .id(id)
+                .requester(alice)
+                .provider(bob)
+                .amount(new BigDecimal("500.25"))
+                .currency(ExchangeRequest.Currency.PLN)
+                .exchangeRate(new BigDecimal("145.7350"))
+                .transferMethod(TransferMethod.BANK_TRANSFER)
+                .status(status)
+                .createdAt(BASE.minusDays(3))
+                .finishedAt(finishedAt)
+                .confirmationToken(987_654_321L)
+                .build();
+    }
+
+    private static ArchiveSegment segment(Long id) {
+        return ArchiveSegment.builder().id(id).kind(ArchiveKind.DEALS).fileName("deals-" + id + ".seg").build();
+    }
+
+    private static ArchiveSegmentUser segmentUser(Long segmentId, int completed) {
+        return ArchiveSegmentUser.builder()
+                .id(new ArchiveSegmentUser.Key(segmentId, ALICE))
+                .kind(ArchiveKind.DEALS)
+                .rowCount(completed)
+                .completedCount(completed)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package pl.aybolali.plnkztexchangebot.service.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.aybolali.plnkztexchangebot.dto.KeyRange;
+import pl.aybolali.plnkztexchangebot.entity.BatchCheckpoint;
+import pl.aybolali.plnkztexchangebot.entity.BatchStatus;
+import pl.aybolali.plnkztexchangebot.repository.BatchCheckpointRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BatchJobRunner Tests")
+class BatchJobRunnerTest {
+
+    private static final String JOB = "test-job";
+
+    @Mock
+    private BatchCheckpointRepository checkpointRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BatchJobRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        runner = new BatchJobRunner(checkpointRepository, transactionManager, 3, 2, 3, 2);
+        when(checkpointRepository.save(any(BatchCheckpoint.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    @DisplayName("Новый запуск: диапазон делится на секции, каждый ключ обрабатывается ровно один раз")
+    void processesEveryKeyOnceAcrossPartitions() {
+        AtomicLong ids = new AtomicLong();
+        when(checkpointRepository.findByJobNameOrderByPartitionNoAsc(JOB)).thenReturn(List.of());
+        when(checkpointRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<BatchCheckpoint> checkpoints = invocation.getArgument(0);
+            checkpoints.forEach(checkpoint -> checkpoint.setId(ids.incrementAndGet()));
+            return checkpoints;
+        });
+        InMemoryJob job = new InMemoryJob(10, -1);
+
+        BatchRunResult result = runner.run(job);
+
+        assertThat(result.completed()).isTrue();
+        assertThat(result.partitions()).isEqualTo(3);
+        assertThat(result.processed()).isEqualTo(10);
+        assertThat(result.affected()).isEqualTo(5);
+        assertThat(job.processed).containsExactlyInAnyOrderElementsOf(LongStream.rangeClosed(1, 10).boxed().toList());
+        verify(checkpointRepository).deleteByJobName(JOB);
+    }
+
+    @Test
+    @DisplayName("Прерванный запуск продолжается с last_key: обработанные ключи не повторяются")
+    void resumesFromCheckpoint() {
+        BatchCheckpoint checkpoint = checkpoint(6);
+        when(checkpointRepository.findByJobNameOrderByPartitionNoAsc(JOB)).thenReturn(List.of(checkpoint));
+        InMemoryJob job = new InMemoryJob(10, -1);
+
+        BatchRunResult result = runner.run(job);
+
+        assertThat(result.completed()).isTrue();
+        assertThat(job.processed).containsExactly(7L, 8L, 9L, 10L);
+        assertThat(job.rangeRequested).isFalse();
+        assertThat(checkpoint.getStatus()).isEqualTo(BatchStatus.COMPLETED);
+        assertThat(checkpoint.getLastKey()).isEqualTo(10L);
+        verify(checkpointRepository, never()).deleteByJobName(any());
+    }
+
+    @Test
+    @DisplayName("Упавшая пачка помечает секцию FAILED и оставляет курсор на последней удачной пачке")
+    void failedChunkKeepsCursor() {
+        BatchCheckpoint checkpoint = checkpoint(2);
+        when(checkpointRepository.findByJobNameOrderByPartitionNoAsc(JOB)).thenReturn(List.of(checkpoint));
+        when(checkpointRepository.findById(7L)).thenReturn(Optional.of(checkpoint));
+        InMemoryJob job = new InMemoryJob(10, 5);
+
+        BatchRunResult result = runner.run(job);
+
+        assertThat(result.completed()).isFalse();
+        assertThat(result.processed()).isEqualTo(2);
+        assertThat(checkpoint.getStatus()).isEqualTo(BatchStatus.FAILED);
+        assertThat(checkpoint.getLastKey()).isEqualTo(4L);
+        assertThat(checkpoint.getLastError()).contains("key 5");
+        assertThat(checkpoint.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Секция с исчерпанными попытками не продолжается: запуск начинается заново по диапазону")
+    void restartsAfterExhaustedAttempts() {
+        BatchCheckpoint exhausted = checkpoint(4);
+        exhausted.fail("key 5");
+        exhausted.fail("key 5");
+        when(checkpointRepository.findByJobNameOrderByPartitionNoAsc(JOB)).thenReturn(List.of(exhausted));
+        when(checkpointRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        InMemoryJob job = new InMemoryJob(10, -1);
+
+        assertThat(runner.hasResumable(JOB)).isFalse();
+        BatchRunResult result = runner.run(job);
+
+        assertThat(result.completed()).isTrue();
+        assertThat(job.rangeRequested).isTrue();
+        assertThat(job.processed).hasSize(10);
+        verify(checkpointRepository).deleteByJobName(JOB);
+    }
+
+    private static BatchCheckpoint checkpoint(long lastKey) {
+        return BatchCheckpoint.builder()
+                .id(7L)
+                .jobName(JOB)
+                .partitionNo(0)
+                .lowerKey(0L)
+                .upperKey(10L)
+                .lastKey(lastKey)
+                .build();
+    }
+
+    /**
+     * Ключи 1..size; affected — чётные ключи; failOn — ключ, на котором пачка падает
+     */
+    private static final class InMemoryJob implements ChunkedJob {
+
+        private final long size;
+        private final long failOn;
+        private final List<Long> processed = new CopyOnWriteArrayList<>();
+        private volatile boolean rangeRequested;
+
+        private InMemoryJob(long size, long failOn) {
+            this.size = size;
+            this.failOn = failOn;
+        }
+
+        @Override
+        public String name() {
+            return JOB;
+        }
+
+        @Override
+        public KeyRange keyRange() {
+            rangeRequested = true;
+            return new KeyRange(1L, size);
+        }
+
+        @Override
+        public List<Long> readKeys(long afterKey, long upToKey, int limit) {
+            return LongStream.rangeClosed(afterKey + 1, Math.min(upToKey, size))
+                    .limit(limit)
+                    .boxed()
+                    .toList();
+        }
+
+        @Override
+        public int process(List<Long> keys) {
+            if (keys.contains(failOn)) {
+                throw new IllegalStateException("key " + failOn);
+            }
+            processed.addAll(keys);
+            return (int) keys.stream().filter(key -> key % 2 == 0).count();
+        }
+    }
+}
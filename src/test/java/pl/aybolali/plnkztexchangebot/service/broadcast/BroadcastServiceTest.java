@@ -0,0 +1,133 @@
+package pl.aybolali.plnkztexchangebot.service.broadcast;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import pl.aybolali.plnkztexchangebot.dto.BroadcastRecipient;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastJob;
+import pl.aybolali.plnkztexchangebot.entity.BroadcastStatus;
+import pl.aybolali.plnkztexchangebot.repository.BroadcastJobRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BroadcastService Tests")
+class BroadcastServiceTest {
+
+    @Mock
+    private PLNKZTExchangeBot bot;
+
+    @Mock
+    private BroadcastJobRepository jobRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private BroadcastService broadcastService;
+
+    @BeforeEach
+    void setUp() {
+        broadcastService = new BroadcastService(bot, jobRepository, userRepository, 1000, 2);
+        lenient().when(jobRepository.save(any(BroadcastJob.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(jobRepository.findStatusById(1L)).thenReturn(Optional.of(BroadcastStatus.RUNNING));
+    }
+
+    @Test
+    @DisplayName("Рассылка проходит всех получателей пачками и завершается")
+    void deliversToAllRecipientsInBatches() throws Exception {
+        BroadcastJob job = job(BroadcastStatus.PENDING, 0L);
+        when(jobRepository.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job), List.of());
+        when(userRepository.findActiveRecipientsAfter(eq(0L), any()))
+                .thenReturn(List.of(new BroadcastRecipient(1L, 101L), new BroadcastRecipient(2L, 102L)));
+        when(userRepository.findActiveRecipientsAfter(eq(2L), any()))
+                .thenReturn(List.of(new BroadcastRecipient(3L, 103L)));
+        when(userRepository.findActiveRecipientsAfter(eq(3L), any())).thenReturn(List.of());
+
+        broadcastService.drain();
+
+        verify(bot, times(3)).execute(any(SendMessage.class));
+        assertThat(job.getStatus()).isEqualTo(BroadcastStatus.COMPLETED);
+        assertThat(job.getDelivered()).isEqualTo(3);
+        assertThat(job.getLastUserId()).isEqualTo(3L);
+        assertThat(job.getStartedAt()).isNotNull();
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("403 считается как blocked, прочие ошибки — failed")
+    void countsBlockedAndFailedSeparately() throws Exception {
+        BroadcastJob job = job(BroadcastStatus.RUNNING, 0L);
+        when(jobRepository.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job), List.of());
+        when(userRepository.findActiveRecipientsAfter(eq(0L), any()))
+                .thenReturn(List.of(new BroadcastRecipient(1L, 101L), new BroadcastRecipient(2L, 102L)));
+        when(userRepository.findActiveRecipientsAfter(eq(2L), any())).thenReturn(List.of());
+
+        TelegramApiRequestException forbidden = mock(TelegramApiRequestException.class);
+        when(forbidden.getErrorCode()).thenReturn(403);
+        when(bot.execute(any(SendMessage.class)))
+                .thenThrow(forbidden)
+                .thenThrow(new TelegramApiException("connection reset"));
+
+        broadcastService.drain();
+
+        assertThat(job.getBlocked()).isEqualTo(1);
+        assertThat(job.getFailed()).isEqualTo(1);
+        assertThat(job.getDelivered()).isZero();
+        assertThat(job.getStatus()).isEqualTo(BroadcastStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Прерванная рассылка продолжается с сохранённого курсора")
+    void resumesFromCheckpoint() throws Exception {
+        BroadcastJob job = job(BroadcastStatus.RUNNING, 5L);
+        job.setDelivered(5);
+        when(jobRepository.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job), List.of());
+        when(userRepository.findActiveRecipientsAfter(eq(5L), any()))
+                .thenReturn(List.of(new BroadcastRecipient(6L, 106L)));
+        when(userRepository.findActiveRecipientsAfter(eq(6L), any())).thenReturn(List.of());
+
+        broadcastService.drain();
+
+        verify(userRepository, never()).findActiveRecipientsAfter(eq(0L), any());
+        assertThat(job.getDelivered()).isEqualTo(6);
+        assertThat(job.getStatus()).isEqualTo(BroadcastStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("Отмена останавливает рассылку перед следующей пачкой")
+    void stopsWhenCancelled() throws Exception {
+        BroadcastJob job = job(BroadcastStatus.RUNNING, 0L);
+        when(jobRepository.findByStatusInOrderByIdAsc(any())).thenReturn(List.of(job), List.of());
+        when(userRepository.findActiveRecipientsAfter(eq(0L), any()))
+                .thenReturn(List.of(new BroadcastRecipient(1L, 101L), new BroadcastRecipient(2L, 102L)));
+        when(jobRepository.findStatusById(1L)).thenReturn(Optional.of(BroadcastStatus.CANCELLED));
+
+        broadcastService.drain();
+
+        verify(userRepository, never()).findActiveRecipientsAfter(eq(2L), any());
+        assertThat(job.getStatus()).isNotEqualTo(BroadcastStatus.COMPLETED);
+    }
+
+    private BroadcastJob job(BroadcastStatus status, Long lastUserId) {
+        return BroadcastJob.builder()
+                .id(1L)
+                .messageText("🔧 Технические работы")
+                .status(status)
+                .lastUserId(lastUserId)
+                .build();
+    }
+}
@@ -0,0 +1,77 @@
+package pl.aybolali.plnkztexchangebot.service.cluster;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ChangeSequenceTracker Tests")
+class ChangeSequenceTrackerTest {
+
+    private static final long GRACE = 1_000;
+
+    private final ChangeSequenceTracker tracker = new ChangeSequenceTracker(GRACE, 60_000);
+
+    @Test
+    @DisplayName("Should tolerate out-of-order delivery within grace period")
+    void shouldTolerateReordering() {
+        tracker.onEvent("a", 1, 0);
+        tracker.onEvent("a", 3, 100);
+        assertThat(tracker.hasExpiredGap(500)).isFalse();
+
+        tracker.onEvent("a", 2, 600);
+        assertThat(tracker.hasExpiredGap(5_000)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should report gap not filled within grace period")
+    void shouldReportExpiredGap() {
+        tracker.onEvent("a", 1, 0);
+        tracker.onEvent("a", 3, 100);
+
+        assertThat(tracker.hasExpiredGap(100 + GRACE)).isTrue();
+
+        tracker.markResynced();
+        assertThat(tracker.hasExpiredGap(10_000)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should detect lost tail through heartbeat")
+    void shouldDetectLostTailThroughHeartbeat() {
+        tracker.onEvent("a", 5, 0);
+        tracker.onHeartbeat("a", 5, 100);
+        assertThat(tracker.hasExpiredGap(100 + GRACE)).isFalse();
+
+        tracker.onHeartbeat("a", 7, 200);
+        tracker.onEvent("a", 6, 300);
+        assertThat(tracker.hasExpiredGap(200 + GRACE)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should track nodes independently and forget silent ones")
+    void shouldTrackNodesIndependently() {
+        ChangeSequenceTracker shortMemory = new ChangeSequenceTracker(GRACE, 2_000);
+        shortMemory.onEvent("a", 1, 0);
+        shortMemory.onEvent("a", 3, 0);
+        shortMemory.onEvent("b", 10, 0);
+        shortMemory.onEvent("b", 11, 0);
+
+        assertThat(shortMemory.hasExpiredGap(GRACE)).isTrue();
+        assertThat(shortMemory.hasExpiredGap(2_500)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should encode and parse notifications")
+    void shouldRoundTripNotification() {
+        ChangeNotification rate = new ChangeNotification("n1", 42, ChangeNotification.Type.RATE, 0L,
+                1_700_000_000_000L, new BigDecimal("148.20").toPlainString());
+
+        assertThat(rate.encode()).isEqualTo("v1;n1;42;X;0;1700000000000;148.20");
+        assertThat(ChangeNotification.parse(rate.encode())).isEqualTo(rate);
+        assertThatThrownBy(() -> ChangeNotification.parse("v2;n1;1;R;1;1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,134 @@
+package pl.aybolali.plnkztexchangebot.service.expiry;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+import pl.aybolali.plnkztexchangebot.service.offerbook.OfferBookEvent;
+import pl.aybolali.plnkztexchangebot.telegram.TelegramMessageFormatter;
+import pl.aybolali.plnkztexchangebot.telegram.spool.OutboundSpool;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("RequestExpiryScheduler Tests")
+class RequestExpirySchedulerTest {
+
+    private static final Long REQUEST = 42L;
+    private static final long TICK_MS = 10;
+
+    @Mock
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Mock
+    private ActiveOfferBook offerBook;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private TelegramMessageFormatter messageFormatter;
+
+    @Mock
+    private OutboundSpool outboundSpool;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Просроченная заявка отменяется одним UPDATE пачки, убирается из книги, автор уведомлён")
+    void expiresOverdueRequestInBatch() throws Exception {
+        RequestExpiryScheduler scheduler = scheduler(1, 0);
+        ExchangeRequest request = request(LocalDateTime.now().minusMinutes(2));
+        when(exchangeRequestRepository.expireActive(eq(List.of(REQUEST)), any(), any(),
+                eq(ExchangeRequestStatus.CANCELLED))).thenReturn(1);
+        when(exchangeRequestRepository.findStampedWithUser(eq(List.of(REQUEST)),
+                eq(ExchangeRequestStatus.CANCELLED), any())).thenReturn(List.of(request));
+        when(messageFormatter.formatRequestExpired(eq(request), any())).thenReturn("expired");
+
+        scheduler.offerPut(offer(request), null);
+        Thread.sleep(3 * TICK_MS);
+        scheduler.tick();
+
+        verify(eventPublisher).publishEvent(new OfferBookEvent.OfferChanged(REQUEST, null, null));
+        verify(outboundSpool).submit(argThat((SendMessage message) -> "777".equals(message.getChatId())
+                && "expired".equals(message.getText())));
+        verify(exchangeRequestRepository, never()).markExpiryWarned(any(), any());
+    }
+
+    @Test
+    @DisplayName("Заявка, ушедшая из книги до срока, в БД не трогается")
+    void removedOfferIsNotExpired() throws Exception {
+        RequestExpiryScheduler scheduler = scheduler(1, 0);
+        ExchangeRequest request = request(LocalDateTime.now().minusMinutes(2));
+
+        scheduler.offerPut(offer(request), null);
+        scheduler.offerRemoved(REQUEST);
+        Thread.sleep(3 * TICK_MS);
+        scheduler.tick();
+
+        verifyNoInteractions(exchangeRequestRepository, outboundSpool);
+    }
+
+    @Test
+    @DisplayName("Перед сроком автор предупреждается один раз; уже предупреждённую заявку UPDATE пропускает")
+    void warnsOwnerBeforeExpiry() throws Exception {
+        RequestExpiryScheduler scheduler = scheduler(2, 1);
+        ExchangeRequest request = request(LocalDateTime.now().minusSeconds(90));
+        when(exchangeRequestRepository.markExpiryWarned(eq(List.of(REQUEST)), any())).thenReturn(1);
+        when(exchangeRequestRepository.findExpiryWarnedWithUser(eq(List.of(REQUEST)), any()))
+                .thenReturn(List.of(request));
+        when(messageFormatter.formatRequestExpiryWarning(eq(request), any())).thenReturn("soon");
+
+        scheduler.offerPut(offer(request), null);
+        // Тот же createdAt (изменилась сумма) — таймеры не переставляются
+        scheduler.offerPut(offer(request), null);
+        Thread.sleep(3 * TICK_MS);
+        scheduler.tick();
+        scheduler.tick();
+
+        verify(exchangeRequestRepository, times(1)).markExpiryWarned(any(), any());
+        verify(outboundSpool, times(1)).submit(any(SendMessage.class));
+        verify(exchangeRequestRepository, never()).expireActive(any(), any(), any(), any());
+        assertThat(request.getStatus()).isEqualTo(ExchangeRequestStatus.ACTIVE);
+    }
+
+    private RequestExpiryScheduler scheduler(int lifetimeMinutes, int warnBeforeMinutes) {
+        return new RequestExpiryScheduler(exchangeRequestRepository, offerBook, eventPublisher, messageFormatter,
+                outboundSpool, transactionManager, 0, lifetimeMinutes, warnBeforeMinutes, TICK_MS, 64, 100);
+    }
+
+    private static ExchangeRequest request(LocalDateTime createdAt) {
+        return ExchangeRequest.builder()
+                .id(REQUEST)
+                .user(User.builder().id(1L).telegramUserId(777L).telegramUsername("alice").build())
+                .currencyNeed(ExchangeRequest.Currency.PLN)
+                .amountNeed(new BigDecimal("500.00"))
+                .transferMethod(TransferMethod.BANK_TRANSFER)
+                .createdAt(createdAt)
+                .updatedAt(createdAt)
+                .build();
+    }
+
+    private static ActiveOffer offer(ExchangeRequest request) {
+        return ActiveOffer.of(request);
+    }
+}
@@ -0,0 +1,66 @@
+package pl.aybolali.plnkztexchangebot.service.export;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Export RowWriter Tests")
+class RowWriterTest {
+
+    private static final String[] COLUMNS = {"id", "finished_at", "amount", "notes"};
+    private static final Timestamp FINISHED = Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 12, 30));
+
+    @Test
+    @DisplayName("CSV: заголовок, CRLF, экранирование кавычек, запятых и переводов строк, null — пустое поле")
+    void writesCsv() throws IOException {
+        String csv = write(ExportFormat.CSV,
+                new Object[]{1L, FINISHED, new BigDecimal("500.00"), "наличные, \"быстро\""},
+                new Object[]{2L, null, new BigDecimal("1E+2"), "две\nстроки"});
+
+        assertThat(csv).isEqualTo("id,finished_at,amount,notes\r\n"
+                + "1,2025-03-01T12:30,500.00,\"наличные, \"\"быстро\"\"\"\r\n"
+                + "2,,100,\"две\nстроки\"\r\n");
+    }
+
+    @Test
+    @DisplayName("NDJSON: объект на строку, числа без кавычек, null как null")
+    void writesNdjson() throws IOException {
+        String ndjson = write(ExportFormat.NDJSON,
+                new Object[]{1L, FINISHED, new BigDecimal("500.00"), "a\"b"},
+                new Object[]{2L, null, new BigDecimal("7.5"), null});
+
+        assertThat(ndjson).isEqualTo("""
+                {"id":1,"finished_at":"2025-03-01T12:30","amount":500.00,"notes":"a\\"b"}
+                {"id":2,"finished_at":null,"amount":7.5,"notes":null}
+                """);
+    }
+
+    @Test
+    @DisplayName("Формат выбирается без учёта регистра, неизвестный — ошибка")
+    void parsesFormat() {
+        assertThat(ExportFormat.parse("NDJSON")).isEqualTo(ExportFormat.NDJSON);
+        assertThat(ExportFormat.parse("csv")).isEqualTo(ExportFormat.CSV);
+        assertThatThrownBy(() -> ExportFormat.parse("xlsx")).isInstanceOf(BusinessException.class);
+    }
+
+    private static String write(ExportFormat format, Object[]... rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RowWriter writer = format.open(out)) {
+            writer.header(COLUMNS);
+            for (Object[] row : rows) {
+                writer.row(row);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
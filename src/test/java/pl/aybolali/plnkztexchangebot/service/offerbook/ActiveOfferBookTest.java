@@ -0,0 +1,140 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ActiveOfferBook Unit Tests")
+class ActiveOfferBookTest {
+
+    @Mock
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private ActiveOfferBook offerBook;
+
+    private UserPublicDTO alice, bob;
+
+    @BeforeEach
+    void setUp() {
+        alice = new UserPublicDTO(1L, "alice_smith", "Alice", new BigDecimal("4.80"), 12, null);
+        bob = new UserPublicDTO(2L, "bob_johnson", "Bob", new BigDecimal("3.20"), 1, null);
+
+        offerBook.put(offer(10L, 1L, ExchangeRequest.Currency.PLN, "500", TransferMethod.BANK_TRANSFER,
+                "Нужны PLN, Варшава центр", 1), alice);
+        offerBook.put(offer(11L, 1L, ExchangeRequest.Currency.KZT, "73750", TransferMethod.CASH,
+                "Алматы, наличные", 30), alice);
+        offerBook.put(offer(12L, 2L, ExchangeRequest.Currency.PLN, "1200", TransferMethod.BANK_TRANSFER,
+                "Warszawa, Revolut", 2), bob);
+    }
+
+    @Test
+    @DisplayName("Should combine currency, amount range and method facets")
+    void shouldCombineFacets() {
+        OfferSearchCriteria criteria = new OfferSearchCriteria(ExchangeRequest.Currency.PLN,
+                new BigDecimal("400"), new BigDecimal("1000"), TransferMethod.BANK_TRANSFER,
+                null, null, null, null, null);
+
+        assertThat(ids(criteria)).containsExactly(10L);
+    }
+
+    @Test
+    @DisplayName("Should apply exact boundaries inside coarse buckets")
+    void shouldApplyExactBoundaries() {
+        // 500 и 1200 попадают в соседние бакеты, граница 500.01 должна отсечь первую заявку
+        OfferSearchCriteria criteria = new OfferSearchCriteria(ExchangeRequest.Currency.PLN,
+                new BigDecimal("500.01"), null, null, null, null, null, null, null);
+
+        assertThat(ids(criteria)).containsExactly(12L);
+    }
+
+    @Test
+    @DisplayName("Should filter by rating, deals, age and keywords")
+    void shouldFilterByUserFacetsAndKeywords() {
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                new BigDecimal("4.5"), null, null, null, null))).containsExactlyInAnyOrder(10L, 11L);
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, 10, 24, null, null))).containsExactly(10L);
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, null, null, List.of("Варшава"), null))).containsExactly(10L);
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, null, null, List.of("Варшава", "Revolut"), null))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should return newest first and exclude own offers")
+    void shouldSortAndExcludeUser() {
+        assertThat(ids(OfferSearchCriteria.forCurrency(null))).containsExactly(10L, 12L, 11L);
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, null, null, null, 1L))).containsExactly(12L);
+    }
+
+    @Test
+    @DisplayName("Should maintain indexes incrementally on update, removal and rating change")
+    void shouldMaintainIncrementally() {
+        offerBook.put(offer(12L, 2L, ExchangeRequest.Currency.PLN, "300", TransferMethod.CASH,
+                "Kraków", 2), bob);
+        offerBook.remove(11L);
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, TransferMethod.BANK_TRANSFER,
+                null, null, null, null, null))).containsExactly(10L);
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, null, null, List.of("revolut"), null))).isEmpty();
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                null, null, null, List.of("kraków"), null))).containsExactly(12L);
+
+        offerBook.updateUser(new UserPublicDTO(2L, "bob_johnson", "Bob", new BigDecimal("5.00"), 3, null));
+
+        assertThat(ids(new OfferSearchCriteria(null, null, null, null,
+                new BigDecimal("4.9"), null, null, null, null))).containsExactly(12L);
+        assertThat(offerBook.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should page results")
+    void shouldPageResults() {
+        Page<ActiveOfferBook.OfferBookEntry> page = offerBook.search(
+                OfferSearchCriteria.forCurrency(null), PageRequest.of(1, 2));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(entry -> entry.offer().id()).containsExactly(11L);
+        assertThat(page.getContent().get(0).user().telegramUsername()).isEqualTo("alice_smith");
+    }
+
+    private List<Long> ids(OfferSearchCriteria criteria) {
+        return offerBook.search(criteria, PageRequest.of(0, 50)).getContent().stream()
+                .map(entry -> entry.offer().id())
+                .toList();
+    }
+
+    private static ActiveOffer offer(Long id, Long userId, ExchangeRequest.Currency currency, String amount,
+                                     TransferMethod method, String notes, int hoursAgo) {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(hoursAgo);
+        return new ActiveOffer(id, userId, currency, new BigDecimal(amount), method, notes, createdAt, createdAt);
+    }
+}
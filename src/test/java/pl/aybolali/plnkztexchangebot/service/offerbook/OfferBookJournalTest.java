@@ -0,0 +1,164 @@
+package pl.aybolali.plnkztexchangebot.service.offerbook;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OfferBookJournal Tests")
+class OfferBookJournalTest {
+
+    @Mock
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    @TempDir
+    Path directory;
+
+    private final UserPublicDTO alice = new UserPublicDTO(1L, "alice_smith", "Alice", new BigDecimal("4.80"), 12, null);
+    private final LocalDateTime createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+    private OfferBookJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(exchangeRateService.getLastGoodRate()).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay journal tail after crash without snapshot")
+    void shouldReplayJournalTail() throws IOException {
+        ActiveOfferBook book = newBook();
+        journal = openJournal(book);
+
+        book.put(offer(10L, "500"), alice);
+        book.put(offer(11L, "73750"), alice);
+        book.remove(11L);
+        book.updateUser(new UserPublicDTO(1L, "alice_smith", "Alice", new BigDecimal("5.00"), 13, null));
+        journal = null; // "Падение" процесса: ни снимка, ни close()
+
+        ActiveOfferBook restored = newBook();
+        journal = openJournal(restored);
+
+        assertThat(restored.size()).isEqualTo(1);
+        ActiveOfferBook.OfferBookEntry entry = restored.get(10L).orElseThrow();
+        assertThat(entry.offer()).isEqualTo(offer(10L, "500"));
+        assertThat(entry.user().successfulDeals()).isEqualTo(13);
+    }
+
+    @Test
+    @DisplayName("Should restore offers and last good rate from snapshot written on shutdown")
+    void shouldRestoreFromSnapshot() throws IOException {
+        ExchangeRateService.LastGoodRate rate = new ExchangeRateService.LastGoodRate(new BigDecimal("148.20"),
+                Instant.ofEpochMilli(1_700_000_000_000L));
+        when(exchangeRateService.getLastGoodRate()).thenReturn(Optional.of(rate));
+
+        ActiveOfferBook book = newBook();
+        journal = openJournal(book);
+        book.put(offer(10L, "500"), alice);
+        journal.compact();
+        book.put(offer(12L, "900"), alice);
+        journal.close();
+        journal = null;
+
+        ActiveOfferBook restored = newBook();
+        journal = openJournal(restored);
+
+        assertThat(restored.size()).isEqualTo(2);
+        verify(exchangeRateService).restoreLastGoodRate(rate);
+    }
+
+    @Test
+    @DisplayName("Should stop replay at torn record")
+    void shouldStopAtTornRecord() throws IOException {
+        ActiveOfferBook book = newBook();
+        journal = openJournal(book);
+        book.put(offer(10L, "500"), alice);
+        book.put(offer(11L, "600"), alice);
+        journal = null;
+
+        // Портим последний байт payload второй записи
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("offer-book.journal").toFile(), "rw")) {
+            long position = 16;
+            file.seek(position);
+            int firstLength = file.readInt();
+            position += 4 + 1 + firstLength + 4;
+            file.seek(position);
+            int secondLength = file.readInt();
+            file.seek(position + 4 + 1 + secondLength - 1);
+            file.write(0x7F);
+        }
+
+        ActiveOfferBook restored = newBook();
+        journal = openJournal(restored);
+
+        assertThat(restored.size()).isEqualTo(1);
+        assertThat(restored.get(10L)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Cold start should not mark book warm")
+    void coldStartShouldNotBeWarm() throws IOException {
+        ActiveOfferBook book = newBook();
+        journal = openJournal(book);
+
+        journal.reconcileInBackground();
+
+        verify(exchangeRequestRepository, never()).findAllActiveWithUser();
+        verify(exchangeRateService, never()).restoreLastGoodRate(any());
+    }
+
+    private ActiveOfferBook newBook() {
+        return new ActiveOfferBook(exchangeRequestRepository, userRepository);
+    }
+
+    private OfferBookJournal openJournal(ActiveOfferBook book) throws IOException {
+        OfferBookJournal opened = new OfferBookJournal(book, exchangeRateService, Runnable::run, directory, 1);
+        opened.open();
+        return opened;
+    }
+
+    private ActiveOffer offer(Long id, String amount) {
+        return new ActiveOffer(id, 1L, ExchangeRequest.Currency.PLN, new BigDecimal(amount),
+                TransferMethod.BANK_TRANSFER, "Варшава", createdAt, createdAt);
+    }
+}
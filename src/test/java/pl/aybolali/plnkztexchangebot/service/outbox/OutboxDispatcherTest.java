@@ -0,0 +1,177 @@
+package pl.aybolali.plnkztexchangebot.service.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.OutboxEvent;
+import pl.aybolali.plnkztexchangebot.entity.OutboxStatus;
+import pl.aybolali.plnkztexchangebot.repository.OutboxEventRepository;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboxDispatcher Tests")
+class OutboxDispatcherTest {
+
+    private static final DomainEvent DEAL = new DomainEvent.DealCompleted(
+            7L, 1L, 2L, new BigDecimal("500.00"), ExchangeRequest.Currency.PLN);
+
+    @Mock
+    private OutboxEventRepository outboxRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private DomainEventHandler handler;
+
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(handler.name()).thenReturn("TradeStatsRollup");
+        dispatcher = new OutboxDispatcher(outboxRepository, List.of(handler), transactionManager,
+                2, 3, 1000, 60_000, 7, "async");
+    }
+
+    @Test
+    @DisplayName("Захваченное событие читается из JSON и передаётся обработчикам")
+    void dispatchesClaimedEvent() {
+        when(outboxRepository.findDueIds(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(1L));
+        when(outboxRepository.claim(eq(1L), eq(OutboxStatus.PENDING), eq(OutboxStatus.DONE), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(record(1L, 0)));
+
+        assertThat(dispatcher.drain()).isEqualTo(1);
+
+        verify(handler).handle(DEAL);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    @DisplayName("Событие, захваченное другой репликой, не обрабатывается повторно")
+    void skipsEventClaimedElsewhere() {
+        when(outboxRepository.claim(eq(1L), any(), any(), any())).thenReturn(0);
+
+        assertThat(dispatcher.dispatch(1L)).isFalse();
+
+        verify(handler, never()).handle(any());
+        verify(outboxRepository, never()).recordFailure(any(), any(), any(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Ошибка обработчика откатывает захват и планирует повтор, последняя попытка — FAILED")
+    void retriesWithBackoffThenFails() {
+        when(outboxRepository.claim(eq(1L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(record(1L, 0)), Optional.of(record(1L, 0)),
+                Optional.of(record(1L, 2)), Optional.of(record(1L, 2)));
+        doThrow(new IllegalStateException("db down")).when(handler).handle(any());
+
+        assertThat(dispatcher.dispatch(1L)).isFalse();
+        verify(transactionManager).rollback(any());
+        verify(outboxRepository).recordFailure(eq(1L), eq(OutboxStatus.PENDING), eq(OutboxStatus.PENDING),
+                any(), eq("IllegalStateException: db down"));
+
+        assertThat(dispatcher.dispatch(1L)).isFalse();
+        verify(outboxRepository).recordFailure(eq(1L), eq(OutboxStatus.PENDING), eq(OutboxStatus.FAILED),
+                any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Ошибка одного обработчика не откатывает и не повторяет другие обработчики события")
+    void failingHandlerDoesNotAffectOthers() {
+        DomainEventHandler stats = mock(DomainEventHandler.class);
+        DomainEventHandler holds = mock(DomainEventHandler.class);
+        when(stats.name()).thenReturn("TradeStatsRollup");
+        when(holds.name()).thenReturn("FilledRequestHoldsRelease");
+        dispatcher = new OutboxDispatcher(outboxRepository, List.of(stats, holds), transactionManager,
+                10, 3, 1000, 60_000, 7, "async");
+
+        TransactionStatus statsTx = mock(TransactionStatus.class);
+        TransactionStatus holdsTx = mock(TransactionStatus.class);
+        TransactionStatus failureTx = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(statsTx, holdsTx, failureTx);
+
+        when(outboxRepository.findDueIds(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(1L, 2L));
+        when(outboxRepository.claim(any(), eq(OutboxStatus.PENDING), eq(OutboxStatus.DONE), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(record(1L, 0, "TradeStatsRollup")));
+        when(outboxRepository.findById(2L)).thenReturn(Optional.of(record(2L, 0, "FilledRequestHoldsRelease")));
+        doThrow(new IllegalStateException("db down")).when(stats).handle(any());
+
+        assertThat(dispatcher.drain()).isEqualTo(1);
+
+        verify(stats).handle(DEAL);
+        verify(holds).handle(DEAL);
+        verify(transactionManager).rollback(statsTx);
+        verify(transactionManager).commit(holdsTx);
+        verify(outboxRepository).recordFailure(eq(1L), eq(OutboxStatus.PENDING), eq(OutboxStatus.PENDING),
+                any(), eq("IllegalStateException: db down"));
+        verify(outboxRepository, never()).recordFailure(eq(2L), any(), any(), any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Запись для неизвестного обработчика не выполняется и уходит в повтор")
+    void unknownHandlerIsRetried() {
+        when(outboxRepository.claim(eq(1L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(record(1L, 0, "RemovedHandler")));
+
+        assertThat(dispatcher.dispatch(1L)).isFalse();
+
+        verify(handler, never()).handle(any());
+        verify(outboxRepository).recordFailure(eq(1L), eq(OutboxStatus.PENDING), eq(OutboxStatus.PENDING),
+                any(), eq("IllegalStateException: Unknown outbox handler: RemovedHandler"));
+    }
+
+    @Test
+    @DisplayName("Запись до разделения по обработчикам выполняет все обработчики")
+    void legacyRecordRunsAllHandlers() {
+        DomainEventHandler holds = mock(DomainEventHandler.class);
+        when(holds.name()).thenReturn("FilledRequestHoldsRelease");
+        dispatcher = new OutboxDispatcher(outboxRepository, List.of(handler, holds), transactionManager,
+                2, 3, 1000, 60_000, 7, "async");
+        when(outboxRepository.claim(eq(1L), any(), any(), any())).thenReturn(1);
+        when(outboxRepository.findById(1L)).thenReturn(Optional.of(record(1L, 0, null)));
+
+        assertThat(dispatcher.dispatch(1L)).isTrue();
+
+        verify(handler).handle(DEAL);
+        verify(holds).handle(DEAL);
+    }
+
+    @Test
+    @DisplayName("Задержка повтора растёт вдвое и ограничена сверху")
+    void backoffDoublesUpToLimit() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(dispatcher.backoff(4)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(dispatcher.backoff(40)).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    private static OutboxEvent record(Long id, int attempts) {
+        return record(id, attempts, "TradeStatsRollup");
+    }
+
+    private static OutboxEvent record(Long id, int attempts, String handler) {
+        return OutboxEvent.builder()
+                .id(id)
+                .eventType(DEAL.getClass().getSimpleName())
+                .aggregateId(DEAL.aggregateId())
+                .handler(handler)
+                .payload(DomainEventOutbox.write(DEAL))
+                .attempts(attempts)
+                .build();
+    }
+}
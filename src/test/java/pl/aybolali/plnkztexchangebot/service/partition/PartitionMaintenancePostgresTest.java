@@ -0,0 +1,172 @@
+package pl.aybolali.plnkztexchangebot.service.partition;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 🐘 Миграции V1..Vn и PartitionMaintenanceService на настоящем PostgreSQL:
+ * plpgsql (ensure_monthly_partitions, триггер токенов, DEFAULT) на H2 не исполняется.
+ * Без Docker тест пропускается.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DisplayName("PartitionMaintenanceService on PostgreSQL")
+class PartitionMaintenancePostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDateTime JANUARY_2024 = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    private JdbcTemplate jdbc;
+    private PartitionMaintenanceService service;
+    private long requester;
+    private long provider;
+
+    @BeforeEach
+    void migrate() {
+        DataSource dataSource = new DriverManagerDataSource(
+                POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway flyway = Flyway.configure().dataSource(dataSource).cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+
+        jdbc = new JdbcTemplate(dataSource);
+        service = new PartitionMaintenanceService(jdbc, new DataSourceTransactionManager(dataSource), 3, 5000);
+        requester = user(1001L, "alice");
+        provider = user(1002L, "bob");
+    }
+
+    @Test
+    @DisplayName("V11: секции текущего месяца и вперёд; повторный токен подтверждения отклоняется, DELETE освобождает токен")
+    void migrationCreatesPartitionsAndGuardsTokens() {
+        assertThat(service.isPartitioned(PartitionMaintenanceService.DEALS)).isTrue();
+        assertThat(service.isPartitioned(PartitionMaintenanceService.REQUESTS)).isTrue();
+        assertThat(exists("deals_p" + month(YearMonth.now()))).isTrue();
+        assertThat(exists("exchange_requests_p" + month(YearMonth.now().plusMonths(3)))).isTrue();
+
+        long deal = deal(LocalDateTime.now(), 77L);
+        assertThatThrownBy(() -> deal(LocalDateTime.now(), 77L))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        jdbc.update("DELETE FROM deals WHERE id = ?", deal);
+        assertThat(tokens()).isZero();
+    }
+
+    @Test
+    @DisplayName("V15: DELETE при архивации оставляет токен занятым — повтор подтверждения отклоняется")
+    void archivalDeleteKeepsToken() {
+        long deal = deal(LocalDateTime.now(), 78L);
+
+        new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())).executeWithoutResult(status -> {
+            service.keepConfirmationTokens();
+            jdbc.update("DELETE FROM deals WHERE id = ?", deal);
+        });
+
+        assertThat(tokens()).isEqualTo(1);
+        assertThatThrownBy(() -> deal(LocalDateTime.now(), 78L))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    @DisplayName("Строка, попавшая в DEFAULT, переносится в воссозданную секцию своего месяца")
+    void rehomesDefaultRows() {
+        deal(JANUARY_2024, 5L);
+        assertThat(count("deals_default")).isEqualTo(1);
+
+        service.ensureFuturePartitions();
+
+        assertThat(count("deals_default")).isZero();
+        assertThat(count("deals_p2024_01")).isEqualTo(1);
+        assertThat(tokens()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Прошедший месяц удаляется только пустым, токены его сделок не остаются")
+    void dropsEmptyDealPartitions() {
+        long deal = deal(JANUARY_2024, 5L);
+        service.ensureFuturePartitions();
+
+        assertThat(service.dropEmptyPartitions(PartitionMaintenanceService.DEALS)).isZero();
+        assertThat(exists("deals_p2024_01")).isTrue();
+
+        jdbc.update("DELETE FROM deals WHERE id = ?", deal);
+        assertThat(service.dropEmptyPartitions(PartitionMaintenanceService.DEALS)).isEqualTo(1);
+
+        assertThat(exists("deals_p2024_01")).isFalse();
+        assertThat(exists("deals_p" + month(YearMonth.now()))).isTrue();
+        assertThat(tokens()).isZero();
+    }
+
+    @Test
+    @DisplayName("Очистка заявок секциями: месяц с ACTIVE заявкой остаётся, месяц только со старыми закрытыми удаляется")
+    void dropsExpiredRequestPartitions() {
+        request("CANCELLED", JANUARY_2024);
+        request("COMPLETED", JANUARY_2024.plusDays(3));
+        request("ACTIVE", JANUARY_2024.plusMonths(1));
+        service.ensureFuturePartitions();
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        int deleted = service.dropExpiredRequestPartitions(cutoff, cutoff);
+
+        assertThat(deleted).isEqualTo(2);
+        assertThat(exists("exchange_requests_p2024_01")).isFalse();
+        assertThat(exists("exchange_requests_p2024_02")).isTrue();
+        assertThat(count("exchange_requests")).isEqualTo(1);
+    }
+
+    private long user(long telegramUserId, String username) {
+        return jdbc.queryForObject("INSERT INTO users (telegram_user_id, telegram_username) VALUES (?, ?) RETURNING id",
+                Long.class, telegramUserId, username);
+    }
+
+    private long deal(LocalDateTime createdAt, Long confirmationToken) {
+        return jdbc.queryForObject("""
+                INSERT INTO deals (requester_id, provider_id, amount, currency, exchange_rate, transfer_method,
+                                   status, created_at, finished_at, confirmation_token)
+                VALUES (?, ?, 100.00, 'PLN', 150.00, 'CASH', 'COMPLETED', ?, ?, ?)
+                RETURNING id
+                """, Long.class, requester, provider, createdAt, createdAt, confirmationToken);
+    }
+
+    private void request(String status, LocalDateTime createdAt) {
+        jdbc.update("""
+                INSERT INTO exchange_requests (user_id, currency_need, amount_need, status, transfer_method,
+                                               created_at, updated_at)
+                VALUES (?, 'PLN', 100.00, ?, 'CASH', ?, ?)
+                """, requester, status, createdAt, createdAt);
+    }
+
+    private boolean exists(String table) {
+        return Boolean.TRUE.equals(jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private int tokens() {
+        return count("deal_confirmation_tokens");
+    }
+
+    private static String month(YearMonth month) {
+        return month.format(DateTimeFormatter.ofPattern("yyyy_MM"));
+    }
+}
@@ -0,0 +1,111 @@
+package pl.aybolali.plnkztexchangebot.service.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PartitionMaintenanceService Tests")
+class PartitionMaintenanceServiceTest {
+
+    private static final String OLD = "exchange_requests_p2024_01";
+    private static final String RECENT = "exchange_requests_p2024_02";
+    private static final String CURRENT = "exchange_requests_p"
+            + YearMonth.now().format(DateTimeFormatter.ofPattern("yyyy_MM"));
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PartitionMaintenanceService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PartitionMaintenanceService(jdbcTemplate, transactionManager, 3, 5000);
+    }
+
+    @Test
+    @DisplayName("Удаляется только прошедший месяц без оставшихся заявок; текущий и DEFAULT не трогаются")
+    void dropsExpiredPastPartitionsOnly() {
+        givenPartitionedPostgres();
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("exchange_requests")))
+                .thenReturn(List.of(OLD, RECENT, CURRENT, "exchange_requests_default"));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS (SELECT 1 FROM " + OLD + " "),
+                eq(Boolean.class), any(), any())).thenReturn(false);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT EXISTS (SELECT 1 FROM " + RECENT + " "),
+                eq(Boolean.class), any(), any())).thenReturn(true);
+        when(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + OLD, Integer.class)).thenReturn(42);
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        int deleted = service.dropExpiredRequestPartitions(cutoff, cutoff);
+
+        assertThat(deleted).isEqualTo(42);
+        verify(jdbcTemplate).execute("LOCK TABLE exchange_requests IN ACCESS EXCLUSIVE MODE");
+        verify(jdbcTemplate).execute("ALTER TABLE exchange_requests DETACH PARTITION " + OLD);
+        verify(jdbcTemplate).execute("DROP TABLE " + OLD);
+        verify(jdbcTemplate, never()).execute("DROP TABLE " + RECENT);
+        verify(jdbcTemplate, never()).queryForObject(contains(CURRENT), eq(Boolean.class), any(), any());
+    }
+
+    @Test
+    @DisplayName("Строки в DEFAULT переносятся в воссозданную секцию своего месяца")
+    void rehomesRowsFromDefaultPartition() {
+        givenPartitionedPostgres();
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), eq("deals")))
+                .thenReturn(true);
+        LocalDate month = YearMonth.now().atDay(1);
+        LocalDate stray = LocalDate.of(2024, 1, 1);
+        when(jdbcTemplate.queryForList(startsWith("SELECT DISTINCT"), eq(Date.class)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.queryForList(endsWith("FROM deals_default"), eq(Date.class)))
+                .thenReturn(List.of(Date.valueOf(stray)));
+        when(jdbcTemplate.queryForObject(eq("SELECT ensure_monthly_partitions(?, ?, ?)"), eq(Integer.class),
+                any(), any(), any())).thenReturn(0);
+        when(jdbcTemplate.queryForObject("SELECT ensure_monthly_partitions(?, ?, ?)", Integer.class,
+                "deals", stray, stray)).thenReturn(1);
+
+        assertThat(service.ensureFuturePartitions()).isEqualTo(1);
+
+        verify(jdbcTemplate).queryForObject("SELECT ensure_monthly_partitions(?, ?, ?)", Integer.class,
+                "deals", month, month.plusMonths(3));
+    }
+
+    @Test
+    @DisplayName("На H2 секций нет — очистка остаётся построчной")
+    void skipsNonPostgres() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        assertThat(service.isPartitioned(PartitionMaintenanceService.REQUESTS)).isFalse();
+        assertThat(service.ensureFuturePartitions()).isZero();
+        assertThat(service.dropEmptyPartitions(PartitionMaintenanceService.DEALS)).isZero();
+
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Boolean.class), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenPartitionedPostgres() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+        when(jdbcTemplate.queryForObject(contains("pg_partitioned_table"), eq(Boolean.class), eq("exchange_requests")))
+                .thenReturn(true);
+    }
+}
@@ -0,0 +1,171 @@
+package pl.aybolali.plnkztexchangebot.service.reservation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AmountReservationLedger Tests")
+class AmountReservationLedgerTest {
+
+    private static final Long REQUEST = 10L;
+    private static final BigDecimal AMOUNT_NEED = new BigDecimal("1000.00");
+
+    @Test
+    @DisplayName("Холды уменьшают доступную сумму, лишний резерв отклоняется")
+    void holdsReduceAvailability() {
+        AmountReservationLedger ledger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
+        assertThat(ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("600"))).isTrue();
+        assertThat(ledger.available(REQUEST, AMOUNT_NEED)).isEqualByComparingTo("400");
+
+        assertThat(ledger.reserve(REQUEST, AMOUNT_NEED, 2L, new BigDecimal("500"))).isFalse();
+        assertThat(ledger.reserve(REQUEST, AMOUNT_NEED, 2L, new BigDecimal("400"))).isTrue();
+        assertThat(ledger.available(REQUEST, AMOUNT_NEED)).isEqualByComparingTo("0");
+
+        ledger.release(REQUEST, 1L);
+        assertThat(ledger.available(REQUEST, AMOUNT_NEED)).isEqualByComparingTo("600");
+    }
+
+    @Test
+    @DisplayName("Повторный отклик того же пользователя заменяет его холд")
+    void replacesOwnHold() {
+        AmountReservationLedger ledger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
+        ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("800"));
+        assertThat(ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("900"))).isTrue();
+
+        assertThat(ledger.held(REQUEST)).isEqualByComparingTo("900");
+    }
+
+    @Test
+    @DisplayName("Истёкший холд освобождает сумму")
+    void expiresHolds() throws Exception {
+        AmountReservationLedger ledger = new AmountReservationLedger(1, 900, 3, 10, 16);
+
+        ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("300"));
+        ledger.expireHolds();
+        assertThat(ledger.held(REQUEST)).isEqualByComparingTo("300");
+
+        Thread.sleep(1_100);
+        ledger.expireHolds();
+        assertThat(ledger.held(REQUEST)).isEqualByComparingTo("0");
+        assertThat(ledger.available(REQUEST, AMOUNT_NEED)).isEqualByComparingTo(AMOUNT_NEED);
+    }
+
+    @Test
+    @DisplayName("Неподтверждённый холд истекает быстро, подтверждённый держится hold-ttl")
+    void confirmedHoldOutlivesPendingTtl() throws Exception {
+        AmountReservationLedger ledger = new AmountReservationLedger(1, 900, 3, 10, 16);
+
+        ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("300"));
+        ledger.reserve(REQUEST, AMOUNT_NEED, 2L, new BigDecimal("200"));
+        assertThat(ledger.confirm(REQUEST, 1L)).isTrue();
+
+        Thread.sleep(1_100);
+        ledger.expireHolds();
+
+        assertThat(ledger.held(REQUEST)).isEqualByComparingTo("300");
+        assertThat(ledger.confirm(REQUEST, 2L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Уход с предложения снимает только неподтверждённые холды откликающегося")
+    void releasesUnconfirmedHoldsOnly() {
+        AmountReservationLedger ledger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
+        ledger.reserve(REQUEST, AMOUNT_NEED, 1L, new BigDecimal("300"));
+        ledger.confirm(REQUEST, 1L);
+        ledger.reserve(11L, AMOUNT_NEED, 1L, new BigDecimal("400"));
+        ledger.reserve(11L, AMOUNT_NEED, 2L, new BigDecimal("100"));
+
+        assertThat(ledger.releaseUnconfirmed(1L)).isEqualTo(1);
+
+        assertThat(ledger.held(REQUEST)).isEqualByComparingTo("300");
+        assertThat(ledger.held(11L)).isEqualByComparingTo("100");
+    }
+
+    @Test
+    @DisplayName("Откликающийся не держит больше max-holds-per-responder заявок")
+    void capsHoldsPerResponder() {
+        AmountReservationLedger ledger = new AmountReservationLedger(900, 900, 2, 1000, 64);
+
+        assertThat(ledger.reserve(1L, AMOUNT_NEED, 7L, new BigDecimal("100"))).isTrue();
+        assertThat(ledger.reserve(2L, AMOUNT_NEED, 7L, new BigDecimal("100"))).isTrue();
+        assertThat(ledger.reserve(3L, AMOUNT_NEED, 7L, new BigDecimal("100"))).isFalse();
+        assertThat(ledger.atResponderLimit(3L, 7L)).isTrue();
+
+        // Замена своего холда на той же заявке лимитом не ограничена
+        assertThat(ledger.reserve(2L, AMOUNT_NEED, 7L, new BigDecimal("150"))).isTrue();
+        assertThat(ledger.held(2L)).isEqualByComparingTo("150");
+    }
+
+    @Test
+    @DisplayName("Параллельные отклики не резервируют больше amountNeed")
+    void concurrentReservationsNeverOversell() {
+        AmountReservationLedger ledger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+        AtomicInteger granted = new AtomicInteger();
+
+        List<CompletableFuture<Void>> responders = IntStream.rangeClosed(1, 50)
+                .mapToObj(responder -> CompletableFuture.runAsync(() -> {
+                    if (ledger.reserve(REQUEST, AMOUNT_NEED, (long) responder, new BigDecimal("100"))) {
+                        granted.incrementAndGet();
+                    }
+                }))
+                .toList();
+        CompletableFuture.allOf(responders.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(granted).hasValue(10);
+        assertThat(ledger.available(REQUEST, AMOUNT_NEED)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("Колесо отдаёт элементы после дедлайна, в том числе через несколько оборотов")
+    void timingWheelExpiresAcrossRotations() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("soon", 25);
+        wheel.schedule("later", 95);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 25);
+        cancelled.cancel();
+
+        assertThat(wheel.advance(20)).isEmpty();
+        assertThat(wheel.advance(30)).containsExactly("soon");
+        assertThat(wheel.advance(90)).isEmpty();
+        assertThat(wheel.advance(100)).containsExactly("later");
+    }
+
+    @Test
+    @DisplayName("Дальние дедлайны спускаются по уровням колеса и истекают в свой тик")
+    void hierarchicalWheelCascadesFarDeadlines() {
+        // Уровни по 40 / 160 / 640 мс; 1000 мс — дальше всей иерархии
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        wheel.schedule("level1", 75);
+        wheel.schedule("level2", 555);
+        wheel.schedule("overflow", 1000);
+
+        Map<String, Long> firedAt = new HashMap<>();
+        for (long now = 10; now <= 1100; now += 10) {
+            long tick = now;
+            wheel.advance(now).forEach(item -> firedAt.put(item, tick));
+        }
+
+        assertThat(firedAt).containsEntry("level1", 80L)
+                .containsEntry("level2", 560L)
+                .containsEntry("overflow", 1000L);
+
+        // Планировщик проспал: всё просроченное отдаётся одним advance
+        TimingWheel<String> idle = new TimingWheel<>(10, 4, 0);
+        idle.schedule("a", 75);
+        idle.schedule("b", 5000);
+        assertThat(idle.advance(4990)).containsExactly("a");
+        assertThat(idle.advance(5000)).containsExactly("b");
+    }
+}
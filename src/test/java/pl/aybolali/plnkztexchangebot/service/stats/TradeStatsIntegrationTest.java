@@ -0,0 +1,86 @@
+package pl.aybolali.plnkztexchangebot.service.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.TradeRollupRepository;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * 📈 Сделки через DealService → outbox (after-commit: inline) → TradeStatsRollup → trade_rollups на H2
+ */
+@SpringBootTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:tradestats;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@ActiveProfiles("test")
+@DisplayName("Trade rollups (H2)")
+class TradeStatsIntegrationTest {
+
+    @Autowired private UserService userService;
+    @Autowired private ExchangeRequestService exchangeRequestService;
+    @Autowired private DealService dealService;
+    @Autowired private TradeRollupRepository rollupRepository;
+
+    @MockitoBean private PLNKZTExchangeBot telegramBot;
+    @MockitoBean private ExchangeRateService exchangeRateService;
+
+    @BeforeEach
+    void setUp() {
+        rollupRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Сделки увеличивают часовой и суточный бакет: количество, объём, VWAP, исполнение заявки")
+    void completedDealsUpdateHourAndDayBuckets() {
+        User author = userService.registerUser(810001L, "rollup_author", "Author", null);
+        User provider = userService.registerUser(810002L, "rollup_provider", "Provider", null);
+        ExchangeRequest request = exchangeRequestService.createExchangeRequest(
+                author.getId(), "PLN", new BigDecimal("1000.00"), TransferMethod.BANK_TRANSFER, null);
+
+        deal(request, provider, "100.00", "150.00");
+        deal(request, provider, "300.00", "145.00");
+        Deal last = deal(request, provider, "600.00", "146.00");
+
+        for (RollupPeriod period : RollupPeriod.values()) {
+            LocalDateTime bucketStart = period.bucketStart(last.getFinishedAt());
+            List<TradeRollupDTO> rows = rollupRepository.findRange(period, bucketStart, bucketStart.plusSeconds(1)).stream()
+                    .map(TradeRollupDTO::from)
+                    .toList();
+
+            assertThat(rows).as(period.name()).singleElement().satisfies(pln -> {
+                assertThat(pln.currency()).isEqualTo(ExchangeRequest.Currency.PLN);
+                assertThat(pln.dealCount()).isEqualTo(3);
+                assertThat(pln.volume()).isEqualByComparingTo("1000.00");
+                // (100·150 + 300·145 + 600·146) / 1000
+                assertThat(pln.vwap()).isEqualByComparingTo("146.1");
+                assertThat(pln.filledRequests()).isEqualTo(1);
+            });
+        }
+    }
+
+    private Deal deal(ExchangeRequest request, User provider, String amount, String rate) {
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal(rate));
+        return dealService.createDealFromRequest(request.getId(), provider.getId(), new BigDecimal(amount));
+    }
+}
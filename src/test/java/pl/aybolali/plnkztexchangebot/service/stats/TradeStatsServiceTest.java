@@ -0,0 +1,127 @@
+package pl.aybolali.plnkztexchangebot.service.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import pl.aybolali.plnkztexchangebot.dto.TradeRollupDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.RollupPeriod;
+import pl.aybolali.plnkztexchangebot.entity.TradeRollup;
+import pl.aybolali.plnkztexchangebot.repository.TradeRollupRepository;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TradeStatsService Tests")
+class TradeStatsServiceTest {
+
+    private static final LocalDateTime FINISHED_AT = LocalDateTime.of(2025, 3, 1, 14, 35, 10);
+
+    @Mock
+    private TradeRollupRepository rollupRepository;
+
+    @Mock
+    private ActiveOfferBook offerBook;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TradeStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TradeStatsService(rollupRepository, offerBook, transactionManager, jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Сделка попадает в часовой и суточный бакет её завершения: бакет создаётся, затем увеличивается")
+    void recordsDealIntoHourAndDayBuckets() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("PostgreSQL");
+
+        service.recordDeal(ExchangeRequest.Currency.PLN, new BigDecimal("500.00"), new BigDecimal("145.5"), FINISHED_AT);
+
+        InOrder inOrder = inOrder(rollupRepository);
+        inOrder.verify(rollupRepository).insertBucketIfAbsent(eq("HOUR"), eq(LocalDateTime.of(2025, 3, 1, 14, 0)), eq("PLN"), any());
+        inOrder.verify(rollupRepository).addDeal(eq("HOUR"), eq(LocalDateTime.of(2025, 3, 1, 14, 0)), eq("PLN"),
+                eq(new BigDecimal("500.00")), eq(new BigDecimal("72750.000")), any());
+        inOrder.verify(rollupRepository).insertBucketIfAbsent(eq("DAY"), eq(LocalDateTime.of(2025, 3, 1, 0, 0)), eq("PLN"), any());
+        inOrder.verify(rollupRepository).addDeal(eq("DAY"), eq(LocalDateTime.of(2025, 3, 1, 0, 0)), eq("PLN"),
+                eq(new BigDecimal("500.00")), eq(new BigDecimal("72750.000")), any());
+        verify(rollupRepository, never()).saveAndFlush(any());
+        verify(rollupRepository, never()).mergeBucketIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Не PostgreSQL: пустой бакет создаётся через MERGE вместо ON CONFLICT")
+    void createsBucketWithMergeOutsidePostgres() {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn("H2");
+
+        service.recordFill(ExchangeRequest.Currency.KZT, FINISHED_AT.minusMinutes(10), FINISHED_AT);
+
+        verify(rollupRepository).mergeBucketIfAbsent(eq("HOUR"), eq(LocalDateTime.of(2025, 3, 1, 14, 0)), eq("KZT"), any());
+        verify(rollupRepository).addFill(eq("HOUR"), eq(LocalDateTime.of(2025, 3, 1, 14, 0)), eq("KZT"), eq(600L), any());
+        verify(rollupRepository, never()).insertBucketIfAbsent(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Итог за окно: суммы бакетов, VWAP по объёму, последний снимок глубины")
+    void summarizesHourlyBuckets() {
+        LocalDateTime now = LocalDateTime.now();
+        when(rollupRepository.findRange(eq(RollupPeriod.HOUR), any(), any())).thenReturn(List.of(
+                rollup(now.minusHours(2), 2, "300", "43500", 1, 3600, 5, "2000"),
+                rollup(now.minusHours(1), 1, "100", "14700", 1, 600, 4, "1500")));
+
+        List<TradeRollupDTO> summary = service.getSummary(Duration.ofHours(24));
+
+        assertThat(summary).extracting(TradeRollupDTO::currency)
+                .containsExactly(ExchangeRequest.Currency.PLN, ExchangeRequest.Currency.KZT);
+
+        TradeRollupDTO pln = summary.get(0);
+        assertThat(pln.dealCount()).isEqualTo(3);
+        assertThat(pln.volume()).isEqualByComparingTo("400");
+        assertThat(pln.vwap()).isEqualByComparingTo("145.5");
+        assertThat(pln.avgFillSeconds()).isEqualTo(2100L);
+        assertThat(pln.maxFillSeconds()).isEqualTo(3600L);
+        assertThat(pln.openRequests()).isEqualTo(4);
+        assertThat(pln.openAmount()).isEqualByComparingTo("1500");
+
+        TradeRollupDTO kzt = summary.get(1);
+        assertThat(kzt.dealCount()).isZero();
+        assertThat(kzt.vwap()).isNull();
+        assertThat(kzt.avgFillSeconds()).isNull();
+    }
+
+    private static TradeRollup rollup(LocalDateTime at, int deals, String volume, String rateVolume,
+                                      int fills, long fillSeconds, int openRequests, String openAmount) {
+        return TradeRollup.builder()
+                .id(new TradeRollup.Key(RollupPeriod.HOUR, RollupPeriod.HOUR.bucketStart(at), ExchangeRequest.Currency.PLN))
+                .dealCount(deals)
+                .volume(new BigDecimal(volume))
+                .rateVolume(new BigDecimal(rateVolume))
+                .filledRequests(fills)
+                .fillSecondsSum(fillSeconds)
+                .fillSecondsMax(fillSeconds)
+                .openRequests(openRequests)
+                .openAmount(new BigDecimal(openAmount))
+                .build();
+    }
+}
@@ -0,0 +1,269 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import pl.aybolali.plnkztexchangebot.simulation.FakeTelegramApi.BotMessage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * Сквозной нагрузочный прогон: виртуальные пользователи пишут боту через {@link FakeTelegramApi},
+ * настоящий PLNKZTExchangeBot забирает update long polling'ом и отвечает через ту же заглушку.
+ *
+ * Сценарии:
+ * - автор: /start → контакт → /need → KZT → сумма → способ → без комментария → ждёт отклик → подтверждает
+ * - откликающийся: /start → контакт → /search → PLN → отклик на случайную заявку из выдачи → сумма
+ *
+ * Сначала авторы публикуют заявки, затем приходят откликающиеся; пользователи прибывают с заданной
+ * интенсивностью и ждут ответа на каждый шаг (без пауз на "раздумья").
+ *
+ * Латентность шага — от постановки update в очередь getUpdates до ответа бота в этот чат,
+ * включая повторную доставку после 429 через OutboundSpool. SQL-запросы считаются по статистике
+ * Hibernate за весь прогон (нужен hibernate.generate_statistics=true), включая фоновые задачи.
+ */
+@Slf4j
+public class BotLoadGenerator {
+
+    private static final long TELEGRAM_ID_BASE = 700_000_000L;
+    private static final String AUTHOR_AMOUNT = "50000";
+    private static final String RESPONDER_AMOUNT = "1000";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final FakeTelegramApi api;
+    private final Statistics statistics;
+    private final Random random;
+    private final long stepTimeoutMillis;
+    private final long settleMillis;
+
+    private final AtomicLong callbackIds = new AtomicLong();
+    private BotLoadReport report;
+
+    public BotLoadGenerator(FakeTelegramApi api, EntityManagerFactory entityManagerFactory, long seed,
+                            Duration stepTimeout, Duration settle) {
+        this.api = api;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        this.random = new Random(seed);
+        this.stepTimeoutMillis = stepTimeout.toMillis();
+        this.settleMillis = settle.toMillis();
+    }
+
+    public BotLoadReport run(int authors, int responders, int arrivalsPerSecond) {
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("hibernate.generate_statistics must be enabled for bot load");
+        }
+
+        report = new BotLoadReport();
+        long queriesBefore = statistics.getPrepareStatementCount();
+        long updatesBefore = api.servedUpdates();
+        long started = System.nanoTime();
+
+        log.info("🧪 Bot load started: {} authors, {} responders, {} arrivals/s", authors, responders, arrivalsPerSecond);
+
+        // Фаза 1: авторы публикуют заявки и начинают ждать откликов
+        List<CompletableFuture<CompletableFuture<BotMessage>>> published = new ArrayList<>();
+        for (int i = 0; i < authors; i++) {
+            VirtualUser author = new VirtualUser(i);
+            published.add(arrive(i, arrivalsPerSecond).thenCompose(ignored -> publishRequest(author)));
+        }
+        List<CompletableFuture<BotMessage>> proposals = published.stream()
+                .map(future -> future.exceptionally(e -> CompletableFuture.completedFuture(null)).join())
+                .toList();
+
+        // Фаза 2: откликающиеся ищут заявки и предлагают сделку
+        List<CompletableFuture<Void>> responses = new ArrayList<>();
+        for (int i = 0; i < responders; i++) {
+            VirtualUser responder = new VirtualUser(authors + i);
+            responses.add(arrive(i, arrivalsPerSecond).thenCompose(ignored -> respond(responder)));
+        }
+        awaitQuietly(responses);
+
+        // Авторы подтверждают полученные отклики; оставшиеся без отклика ждут не дольше settle
+        List<CompletableFuture<Void>> confirmations = new ArrayList<>();
+        for (int i = 0; i < authors; i++) {
+            VirtualUser author = new VirtualUser(i);
+            confirmations.add(proposals.get(i)
+                    .completeOnTimeout(null, settleMillis, TimeUnit.MILLISECONDS)
+                    .thenCompose(proposal -> confirm(author, proposal)));
+        }
+        awaitQuietly(confirmations);
+
+        report.finish(authors + responders,
+                api.servedUpdates() - updatesBefore,
+                statistics.getPrepareStatementCount() - queriesBefore,
+                System.nanoTime() - started,
+                api.sendRate());
+
+        log.info("🧪 Bot load finished: {} deals, {} timeouts", report.deals(), report.timeouts());
+        return report;
+    }
+
+    private CompletableFuture<Void> arrive(int index, int arrivalsPerSecond) {
+        long delayMillis = arrivalsPerSecond <= 0 ? 0 : index * 1000L / arrivalsPerSecond;
+        Executor delayed = CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS);
+        return CompletableFuture.runAsync(() -> { }, delayed);
+    }
+
+    /**
+     * @return ожидание отклика, зарегистрированное сразу после создания заявки
+     */
+    private CompletableFuture<CompletableFuture<BotMessage>> publishRequest(VirtualUser author) {
+        return register(author)
+                .thenCompose(m -> step(author, "need", author.text(COMMAND_NEED), button(CALLBACK_CURRENCY)))
+                .thenCompose(m -> step(author, "currency", author.press(m, CALLBACK_CURRENCY + KZT), any()))
+                .thenCompose(m -> step(author, "amount", author.text(AUTHOR_AMOUNT), button(CALLBACK_METHOD)))
+                .thenCompose(m -> step(author, "method", author.press(m, m.buttons(CALLBACK_METHOD).get(0)),
+                        button(CALLBACK_SKIP_COMMENT)))
+                .thenCompose(m -> step(author, "create", author.press(m, CALLBACK_SKIP_COMMENT), any()))
+                .thenApply(m -> api.expect(author.id, button(CALLBACK_AUTHOR_CONFIRM)));
+    }
+
+    private CompletableFuture<Void> respond(VirtualUser responder) {
+        return register(responder)
+                .thenCompose(m -> step(responder, "search", responder.text(COMMAND_SEARCH), button(CALLBACK_SEARCH_CURRENCY)))
+                .thenCompose(m -> step(responder, "results", responder.press(m, CALLBACK_SEARCH_CURRENCY + PLN), any()))
+                .thenCompose(results -> {
+                    List<String> offers = results.buttons(CALLBACK_RESPOND);
+                    if (offers.isEmpty()) {
+                        report.recordNoOffers();
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    String offer = offers.get(nextInt(offers.size()));
+                    return step(responder, "respond", responder.press(results, offer), any())
+                            .thenCompose(m -> step(responder, "propose", responder.text(RESPONDER_AMOUNT), any()))
+                            .thenAccept(m -> report.recordProposal());
+                });
+    }
+
+    private CompletableFuture<Void> confirm(VirtualUser author, BotMessage proposal) {
+        if (proposal == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String confirmation = proposal.buttons(CALLBACK_AUTHOR_CONFIRM).get(0);
+        return step(author, "confirm", author.press(proposal, confirmation), button(CALLBACK_RATE_DEAL))
+                .thenAccept(m -> report.recordDeal());
+    }
+
+    private CompletableFuture<BotMessage> register(VirtualUser user) {
+        return step(user, "start", user.text(COMMAND_START), any())
+                .thenCompose(m -> step(user, "contact", user.contact(), any()));
+    }
+
+    /**
+     * Отправляет update и ждёт ответа бота в чат пользователя
+     */
+    private CompletableFuture<BotMessage> step(VirtualUser user, String name, ObjectNode update,
+                                               Predicate<BotMessage> expected) {
+        CompletableFuture<BotMessage> reply = api.expect(user.id, expected);
+        long sent = System.nanoTime();
+        api.enqueue(update);
+
+        return reply.orTimeout(stepTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((message, error) -> {
+                    if (error == null) {
+                        report.recordStep(name, message.receivedNanos() - sent);
+                    } else {
+                        report.recordTimeout(name);
+                    }
+                });
+    }
+
+    private int nextInt(int bound) {
+        synchronized (random) {
+            return random.nextInt(bound);
+        }
+    }
+
+    private static Predicate<BotMessage> any() {
+        return message -> true;
+    }
+
+    private static Predicate<BotMessage> button(String prefix) {
+        return message -> message.hasButton(prefix);
+    }
+
+    private static void awaitQuietly(List<CompletableFuture<Void>> futures) {
+        CompletableFuture.allOf(futures.stream()
+                        .map(future -> future.exceptionally(e -> null))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+    }
+
+    /**
+     * Пользователь в личном чате с ботом (chat_id = user_id)
+     */
+    private final class VirtualUser {
+
+        private final long id;
+        private final int index;
+
+        VirtualUser(int index) {
+            this.index = index;
+            this.id = TELEGRAM_ID_BASE + index;
+        }
+
+        ObjectNode text(String text) {
+            ObjectNode update = MAPPER.createObjectNode();
+            ObjectNode message = message(update.putObject("message"), api.nextMessageId());
+            from(message.putObject("from"));
+            message.put("text", text);
+            return update;
+        }
+
+        ObjectNode contact() {
+            ObjectNode update = MAPPER.createObjectNode();
+            ObjectNode message = message(update.putObject("message"), api.nextMessageId());
+            from(message.putObject("from"));
+            message.putObject("contact")
+                    .put("phone_number", "+4860" + String.format("%07d", index))
+                    .put("first_name", "Load")
+                    .put("user_id", id);
+            return update;
+        }
+
+        /**
+         * Нажатие кнопки под сообщением бота; prefix — callback_data или её начало
+         */
+        ObjectNode press(BotMessage on, String prefix) {
+            String data = on.callbackData().contains(prefix) ? prefix : on.buttons(prefix).get(0);
+
+            ObjectNode update = MAPPER.createObjectNode();
+            ObjectNode callback = update.putObject("callback_query");
+            callback.put("id", "load-" + callbackIds.incrementAndGet());
+            from(callback.putObject("from"));
+            message(callback.putObject("message"), on.messageId()).put("text", on.text());
+            callback.put("chat_instance", String.valueOf(id));
+            callback.put("data", data);
+            return update;
+        }
+
+        private ObjectNode message(ObjectNode message, int messageId) {
+            message.put("message_id", messageId);
+            message.put("date", System.currentTimeMillis() / 1000);
+            message.putObject("chat").put("id", id).put("type", "private");
+            return message;
+        }
+
+        private void from(ObjectNode from) {
+            from.put("id", id)
+                    .put("is_bot", false)
+                    .put("first_name", "Load")
+                    .put("last_name", String.valueOf(index))
+                    .put("username", "load_user_" + index);
+        }
+    }
+}
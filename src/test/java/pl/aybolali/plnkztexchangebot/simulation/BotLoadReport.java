@@ -0,0 +1,102 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Итоги нагрузочного прогона бота: сквозная латентность по шагам сценариев, SQL-запросы на update
+ * и соблюдение лимитов отправки Telegram.
+ */
+public class BotLoadReport {
+
+    private final Map<String, SimulationReport.OperationStats> steps = new LinkedHashMap<>();
+    private final SimulationReport.OperationStats allSteps = new SimulationReport.OperationStats();
+    private final Map<String, Integer> timeouts = new LinkedHashMap<>();
+
+    private int users;
+    private int proposals;
+    private int deals;
+    private int noOffers;
+    private long updates;
+    private long queries;
+    private long durationNanos;
+    private FakeTelegramApi.SendRate sendRate;
+
+    synchronized void recordStep(String step, long nanos) {
+        steps.computeIfAbsent(step, k -> new SimulationReport.OperationStats()).add(nanos, 0);
+        allSteps.add(nanos, 0);
+    }
+
+    synchronized void recordTimeout(String step) {
+        timeouts.merge(step, 1, Integer::sum);
+    }
+
+    synchronized void recordProposal() { proposals++; }
+    synchronized void recordDeal() { deals++; }
+    synchronized void recordNoOffers() { noOffers++; }
+
+    synchronized void finish(int users, long updates, long queries, long durationNanos, FakeTelegramApi.SendRate sendRate) {
+        this.users = users;
+        this.updates = updates;
+        this.queries = queries;
+        this.durationNanos = durationNanos;
+        this.sendRate = sendRate;
+    }
+
+    public synchronized int users() { return users; }
+    public synchronized int proposals() { return proposals; }
+    public synchronized int deals() { return deals; }
+    public synchronized int noOffers() { return noOffers; }
+    public synchronized long updates() { return updates; }
+    public synchronized FakeTelegramApi.SendRate sendRate() { return sendRate; }
+
+    public synchronized SimulationReport.OperationStats step(String name) {
+        return steps.get(name);
+    }
+
+    public synchronized SimulationReport.OperationStats allSteps() {
+        return allSteps;
+    }
+
+    public synchronized int timeouts() {
+        return timeouts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /** SQL-запросы (Hibernate statistics) за прогон, делённые на число update */
+    public synchronized double queriesPerUpdate() {
+        return updates == 0 ? 0.0 : (double) queries / updates;
+    }
+
+    public synchronized double updatesPerSecond() {
+        return durationNanos == 0 ? 0.0 : updates * 1_000_000_000.0 / durationNanos;
+    }
+
+    public synchronized String format() {
+        StringBuilder report = new StringBuilder();
+        report.append("📊 Bot load report\n");
+        report.append(String.format("users=%d updates=%d (%.1f/s), proposals=%d, deals=%d, no-offers=%d, timeouts=%d %s%n",
+                users, updates, updatesPerSecond(), proposals, deals, noOffers, timeouts(), timeouts));
+        report.append(String.format("db queries/update: %.1f%n", queriesPerUpdate()));
+
+        report.append(String.format("%-10s %7s %10s %10s %10s%n", "step", "count", "p50 ms", "p99 ms", "max ms"));
+        steps.forEach((name, stats) -> appendStep(report, name, stats));
+        appendStep(report, "all", allSteps);
+
+        if (sendRate != null) {
+            report.append(String.format("sends=%d peak=%d/s, over %d/s: %d (%.2f%% compliant), over %d/s per chat: %d (%.2f%% compliant), 429=%d%n",
+                    sendRate.sends(), sendRate.peakPerSecond(),
+                    FakeTelegramApi.GLOBAL_SENDS_PER_SECOND, sendRate.overGlobal(), sendRate.globalCompliance() * 100,
+                    FakeTelegramApi.CHAT_SENDS_PER_SECOND, sendRate.overChat(), sendRate.chatCompliance() * 100,
+                    sendRate.rateLimited()));
+        }
+        return report.toString();
+    }
+
+    private static void appendStep(StringBuilder report, String name, SimulationReport.OperationStats stats) {
+        report.append(String.format("%-10s %7d %10.2f %10.2f %10.2f%n",
+                name, stats.count(),
+                stats.latencyPercentileNanos(50) / 1_000_000.0,
+                stats.latencyPercentileNanos(99) / 1_000_000.0,
+                stats.latencyPercentileNanos(100) / 1_000_000.0));
+    }
+}
@@ -0,0 +1,140 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * 🧪 Нагрузочный прогон настоящего бота против {@link FakeTelegramApi} на H2.
+ *
+ * Масштаб и поведение заглушки задаются системными свойствами, например:
+ * В обычный прогон не входит (тег load), запускается профилем load:
+ * <pre>
+ * mvn test -Pload -Dtest=BotLoadTest -Dbotload.users=2000 -Dbotload.arrivals-per-second=100
+ * mvn test -Pload -Dtest=BotLoadTest -Dbotload.latency-ms=50 -Dbotload.failure-rate=0.1 -Dbotload.send-limit=30
+ * </pre>
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:botload;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.outbound-spool.retry-interval-ms=100",
+        "app.outbound-spool.initial-backoff-ms=200",
+        "logging.level.pl.aybolali.plnkztexchangebot=WARN",
+        "logging.level.pl.aybolali.plnkztexchangebot.simulation=INFO",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@ActiveProfiles("test")
+@Tag("load")
+@Slf4j
+@DisplayName("Bot load (fake Telegram API)")
+class BotLoadTest {
+
+    private static final int USERS = Integer.getInteger("botload.users", 40);
+    private static final int ARRIVALS_PER_SECOND = Integer.getInteger("botload.arrivals-per-second", 200);
+    private static final long LATENCY_MS = Long.getLong("botload.latency-ms", 5);
+    private static final double FAILURE_RATE = Double.parseDouble(System.getProperty("botload.failure-rate", "0.05"));
+    private static final int SEND_LIMIT = Integer.getInteger("botload.send-limit", 0);
+    private static final long SEED = Long.getLong("botload.seed", 42L);
+
+    private static final FakeTelegramApi API = FakeTelegramApi.start(SEED);
+
+    @Autowired private PLNKZTExchangeBot bot;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean private ExchangeRateService exchangeRateService;
+
+    private BotSession session;
+
+    @DynamicPropertySource
+    static void telegramApi(DynamicPropertyRegistry registry) {
+        registry.add("telegram.bot.api-url", API::baseUrl);
+        registry.add("app.outbound-spool.directory", () -> {
+            try {
+                return Files.createTempDirectory("botload-spool").toString();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("147.50"));
+        when(exchangeRateService.getCurrentKZTtoPLNRate()).thenReturn(new BigDecimal("0.006780"));
+
+        API.setLatencyMillis(LATENCY_MS);
+        API.setFailureRate(FAILURE_RATE);
+        API.setSendLimitPerSecond(SEND_LIMIT);
+
+        session = new TelegramBotsApi(DefaultBotSession.class).registerBot(bot);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (session != null && session.isRunning()) {
+            session.stop();
+        }
+    }
+
+    @AfterAll
+    static void closeApi() {
+        API.close();
+    }
+
+    @Test
+    @DisplayName("Start / need / search / respond / confirm flows complete despite injected 429")
+    void flowsCompleteUnderLoad() {
+        int authors = USERS / 2;
+        BotLoadGenerator generator = new BotLoadGenerator(API, entityManagerFactory, SEED,
+                Duration.ofSeconds(30), Duration.ofSeconds(1));
+
+        BotLoadReport report = generator.run(authors, USERS - authors, ARRIVALS_PER_SECOND);
+        log.info("🧪 Bot load report:\n{}", report.format());
+
+        assertThat(report.timeouts()).isZero();
+        assertThat(report.step("start").count()).isEqualTo(USERS);
+        assertThat(report.step("create").count()).isEqualTo(authors);
+        assertThat(report.noOffers()).isZero();
+        assertThat(report.proposals()).isEqualTo(USERS - authors);
+        assertThat(report.deals()).isPositive();
+
+        SimulationReport.OperationStats all = report.allSteps();
+        assertThat(all.latencyPercentileNanos(50)).isLessThanOrEqualTo(all.latencyPercentileNanos(99));
+        assertThat(report.updates()).isGreaterThanOrEqualTo(all.count());
+        assertThat(report.queriesPerUpdate()).isPositive();
+
+        FakeTelegramApi.SendRate sendRate = report.sendRate();
+        assertThat(sendRate.sends()).isPositive();
+        assertThat(sendRate.peakPerSecond()).isPositive();
+        if (FAILURE_RATE > 0) {
+            assertThat(sendRate.rateLimited()).isPositive();
+        }
+    }
+}
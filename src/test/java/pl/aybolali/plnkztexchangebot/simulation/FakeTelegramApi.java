@@ -0,0 +1,488 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 🧪 Локальная заглушка Telegram Bot API для нагрузочных прогонов бота.
+ *
+ * Реализует getUpdates (long polling), sendMessage, editMessageText, editMessageReplyMarkup
+ * и answerCallbackQuery; остальные методы (deleteWebhook и т.п.) отвечают ok=true.
+ * Бот подключается через telegram.bot.api-url = {@link #baseUrl()}.
+ *
+ * Поведение настраивается на лету:
+ * - latencyMillis — задержка каждого ответа (сетевой RTT до Telegram)
+ * - failureRate — доля отправок, получающих 429 с retry_after
+ * - sendLimitPerSecond — глобальный лимит отправок в секунду, превышение → 429 (0 — без лимита)
+ *
+ * Все принятые отправки журналируются для оценки соблюдения лимитов Telegram — см. {@link #sendRate()}.
+ */
+@Slf4j
+public class FakeTelegramApi implements AutoCloseable {
+
+    // Лимиты Bot API: ~30 сообщений в секунду на бота, ~1 сообщение в секунду в один чат
+    public static final int GLOBAL_SENDS_PER_SECOND = 30;
+    public static final int CHAT_SENDS_PER_SECOND = 1;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Set<String> SEND_METHODS = Set.of("sendmessage", "editmessagetext", "editmessagereplymarkup");
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+
+    // Очередь getUpdates: всё с update_id < offset подтверждено ботом и удаляется
+    private final ArrayDeque<ObjectNode> pendingUpdates = new ArrayDeque<>();
+    private int nextUpdateId = 1;
+    private long servedUpdates;
+    private boolean closed;
+
+    private final Map<Long, Chat> chats = new ConcurrentHashMap<>();
+    private final AtomicInteger nextMessageId = new AtomicInteger(1);
+
+    private final List<long[]> sends = Collections.synchronizedList(new ArrayList<>());
+    private final ArrayDeque<Long> sendWindow = new ArrayDeque<>();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final Random random;
+
+    private volatile long latencyMillis;
+    private volatile double failureRate;
+    private volatile int retryAfterSeconds = 1;
+    private volatile int sendLimitPerSecond;
+
+    static {
+        // Без TCP_NODELAY заголовки и тело ответа упираются в Nagle + delayed ACK (~40 мс на вызов)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private FakeTelegramApi(long seed) throws IOException {
+        this.random = new Random(seed);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-telegram-api");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    public static FakeTelegramApi start(long seed) {
+        try {
+            return new FakeTelegramApi(seed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Значение для telegram.bot.api-url; бот дописывает токен и имя метода
+     */
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/bot";
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public void setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public void setSendLimitPerSecond(int sendLimitPerSecond) {
+        this.sendLimitPerSecond = sendLimitPerSecond;
+    }
+
+    public int nextMessageId() {
+        return nextMessageId.getAndIncrement();
+    }
+
+    /**
+     * Ставит update в очередь getUpdates
+     *
+     * @return присвоенный update_id
+     */
+    public int enqueue(ObjectNode update) {
+        synchronized (pendingUpdates) {
+            int updateId = nextUpdateId++;
+            update.put("update_id", updateId);
+            pendingUpdates.addLast(update);
+            pendingUpdates.notifyAll();
+            return updateId;
+        }
+    }
+
+    /**
+     * Ожидание ответа бота в чат: первое отправленное или отредактированное сообщение,
+     * подходящее под условие. Регистрировать до постановки update в очередь.
+     */
+    public CompletableFuture<BotMessage> expect(long chatId, Predicate<BotMessage> condition) {
+        return chat(chatId).expect(condition);
+    }
+
+    /** Сколько update бот забрал через getUpdates */
+    public long servedUpdates() {
+        synchronized (pendingUpdates) {
+            return servedUpdates;
+        }
+    }
+
+    /** Сколько отправок получили 429 (случайные и по лимиту) */
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    /**
+     * Соблюдение лимитов по журналу принятых отправок: пик в скользящем окне 1 с и число отправок,
+     * которые Telegram отклонил бы по глобальному и по поканальному лимиту.
+     */
+    public SendRate sendRate() {
+        List<long[]> log;
+        synchronized (sends) {
+            log = new ArrayList<>(sends);
+        }
+        log.sort(Comparator.comparingLong(send -> send[0]));
+
+        long[] global = log.stream().mapToLong(send -> send[0]).toArray();
+        int peak = peakPerSecond(global);
+        long overGlobal = overLimit(global, GLOBAL_SENDS_PER_SECOND);
+
+        Map<Long, List<Long>> byChat = new HashMap<>();
+        log.forEach(send -> byChat.computeIfAbsent(send[1], k -> new ArrayList<>()).add(send[0]));
+        long overChat = byChat.values().stream()
+                .mapToLong(times -> overLimit(times.stream().mapToLong(Long::longValue).toArray(), CHAT_SENDS_PER_SECOND))
+                .sum();
+
+        return new SendRate(global.length, peak, overGlobal, overChat, rateLimited.get());
+    }
+
+    @Override
+    public void close() {
+        synchronized (pendingUpdates) {
+            closed = true;
+            pendingUpdates.notifyAll();
+        }
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+            JsonNode request = readBody(exchange);
+
+            sleep(latencyMillis);
+
+            if (SEND_METHODS.contains(method)) {
+                Integer retryAfter = admitSend(request.path("chat_id").asLong());
+                if (retryAfter != null) {
+                    write(exchange, 429, tooManyRequests(retryAfter));
+                    return;
+                }
+            }
+
+            JsonNode response = switch (method) {
+                case "getupdates" -> ok(getUpdates(request));
+                case "sendmessage" -> ok(sendMessage(request));
+                case "editmessagetext", "editmessagereplymarkup" -> editMessage(request);
+                default -> ok(MAPPER.getNodeFactory().booleanNode(true));
+            };
+            write(exchange, response.path("ok").asBoolean() ? 200 : 400, response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Fake Telegram API failed on {}: {}", exchange.getRequestURI(), e.getMessage());
+        }
+    }
+
+    private JsonNode getUpdates(JsonNode request) throws InterruptedException {
+        long offset = request.path("offset").asLong(0);
+        int limit = request.path("limit").asInt(100);
+        long deadline = System.currentTimeMillis() + request.path("timeout").asLong(0) * 1000;
+
+        ArrayNode result = MAPPER.createArrayNode();
+        synchronized (pendingUpdates) {
+            while (!pendingUpdates.isEmpty() && pendingUpdates.peekFirst().path("update_id").asLong() < offset) {
+                pendingUpdates.pollFirst();
+            }
+
+            long remaining;
+            while (pendingUpdates.isEmpty() && !closed && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                pendingUpdates.wait(remaining);
+            }
+
+            Iterator<ObjectNode> updates = pendingUpdates.iterator();
+            while (updates.hasNext() && result.size() < limit) {
+                ObjectNode update = updates.next();
+                if (update.path("update_id").asLong() >= offset) {
+                    result.add(update);
+                }
+            }
+            servedUpdates += result.size();
+        }
+        return result;
+    }
+
+    private JsonNode sendMessage(JsonNode request) {
+        long chatId = request.path("chat_id").asLong();
+        BotMessage message = new BotMessage(chatId, nextMessageId(), request.path("text").asText(),
+                callbackData(request.path("reply_markup")), System.nanoTime());
+        chat(chatId).deliver(message);
+        return messageJson(message);
+    }
+
+    private JsonNode editMessage(JsonNode request) {
+        long chatId = request.path("chat_id").asLong();
+        int messageId = request.path("message_id").asInt();
+
+        Optional<BotMessage> previous = chat(chatId).find(messageId);
+        if (previous.isEmpty()) {
+            return error(400, "Bad Request: message to edit not found");
+        }
+
+        String text = request.has("text") ? request.path("text").asText() : previous.get().text();
+        BotMessage edited = new BotMessage(chatId, messageId, text,
+                callbackData(request.path("reply_markup")), System.nanoTime());
+        chat(chatId).deliver(edited);
+        return ok(messageJson(edited));
+    }
+
+    /**
+     * @return retry_after, если отправка отклонена; null — принята
+     */
+    private Integer admitSend(long chatId) {
+        long now = System.nanoTime();
+
+        double rate = failureRate;
+        if (rate > 0) {
+            boolean fail;
+            synchronized (random) {
+                fail = random.nextDouble() < rate;
+            }
+            if (fail) {
+                rateLimited.incrementAndGet();
+                return retryAfterSeconds;
+            }
+        }
+
+        int limit = sendLimitPerSecond;
+        if (limit > 0) {
+            synchronized (sendWindow) {
+                while (!sendWindow.isEmpty() && now - sendWindow.peekFirst() >= SECOND_NANOS) {
+                    sendWindow.pollFirst();
+                }
+                if (sendWindow.size() >= limit) {
+                    rateLimited.incrementAndGet();
+                    return 1;
+                }
+                sendWindow.addLast(now);
+            }
+        }
+
+        sends.add(new long[]{now, chatId});
+        return null;
+    }
+
+    private Chat chat(long chatId) {
+        return chats.computeIfAbsent(chatId, id -> new Chat());
+    }
+
+    private static List<String> callbackData(JsonNode markup) {
+        List<String> data = new ArrayList<>();
+        markup.path("inline_keyboard").forEach(row -> row.forEach(button -> {
+            if (button.hasNonNull("callback_data")) {
+                data.add(button.path("callback_data").asText());
+            }
+        }));
+        return List.copyOf(data);
+    }
+
+    private static ObjectNode messageJson(BotMessage message) {
+        ObjectNode json = MAPPER.createObjectNode();
+        json.put("message_id", message.messageId());
+        json.put("date", System.currentTimeMillis() / 1000);
+        json.putObject("chat").put("id", message.chatId()).put("type", "private");
+        json.put("text", message.text());
+        return json;
+    }
+
+    private static ObjectNode ok(JsonNode result) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("ok", true);
+        response.set("result", result);
+        return response;
+    }
+
+    private static ObjectNode error(int code, String description) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("ok", false);
+        response.put("error_code", code);
+        response.put("description", description);
+        return response;
+    }
+
+    private static ObjectNode tooManyRequests(int retryAfter) {
+        ObjectNode response = error(429, "Too Many Requests: retry after " + retryAfter);
+        response.putObject("parameters").put("retry_after", retryAfter);
+        return response;
+    }
+
+    private static JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readAllBytes();
+            return bytes.length == 0 ? MAPPER.createObjectNode() : MAPPER.readTree(bytes);
+        }
+    }
+
+    private static void write(HttpExchange exchange, int status, JsonNode response) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    static int peakPerSecond(long[] sortedNanos) {
+        int peak = 0;
+        for (int start = 0, end = 0; end < sortedNanos.length; end++) {
+            while (sortedNanos[end] - sortedNanos[start] >= SECOND_NANOS) {
+                start++;
+            }
+            peak = Math.max(peak, end - start + 1);
+        }
+        return peak;
+    }
+
+    static long overLimit(long[] sortedNanos, int limit) {
+        long over = 0;
+        for (int start = 0, end = 0; end < sortedNanos.length; end++) {
+            while (sortedNanos[end] - sortedNanos[start] >= SECOND_NANOS) {
+                start++;
+            }
+            if (end - start + 1 > limit) {
+                over++;
+            }
+        }
+        return over;
+    }
+
+    /**
+     * Сообщение бота в чате (отправленное или последняя редакция)
+     */
+    public record BotMessage(long chatId, int messageId, String text, List<String> callbackData, long receivedNanos) {
+
+        public boolean hasButton(String prefix) {
+            return callbackData.stream().anyMatch(data -> data.startsWith(prefix));
+        }
+
+        public List<String> buttons(String prefix) {
+            return callbackData.stream().filter(data -> data.startsWith(prefix)).toList();
+        }
+    }
+
+    /**
+     * @param sends          принятые отправки
+     * @param peakPerSecond  максимум отправок в скользящем окне 1 с
+     * @param overGlobal     отправки сверх {@value #GLOBAL_SENDS_PER_SECOND}/с
+     * @param overChat       отправки сверх {@value #CHAT_SENDS_PER_SECOND}/с в один чат
+     * @param rateLimited    отправки, получившие 429
+     */
+    public record SendRate(long sends, int peakPerSecond, long overGlobal, long overChat, long rateLimited) {
+
+        public double globalCompliance() {
+            return sends == 0 ? 1.0 : 1.0 - (double) overGlobal / sends;
+        }
+
+        public double chatCompliance() {
+            return sends == 0 ? 1.0 : 1.0 - (double) overChat / sends;
+        }
+    }
+
+    private static final class Chat {
+
+        private final Map<Integer, BotMessage> messages = new HashMap<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        synchronized CompletableFuture<BotMessage> expect(Predicate<BotMessage> condition) {
+            Waiter waiter = new Waiter(condition, new CompletableFuture<>());
+            waiters.add(waiter);
+            return waiter.reply();
+        }
+
+        synchronized Optional<BotMessage> find(int messageId) {
+            return Optional.ofNullable(messages.get(messageId));
+        }
+
+        void deliver(BotMessage message) {
+            Waiter matched = null;
+            synchronized (this) {
+                messages.put(message.messageId(), message);
+
+                Iterator<Waiter> pending = waiters.iterator();
+                while (pending.hasNext()) {
+                    Waiter waiter = pending.next();
+                    if (waiter.reply().isDone()) {
+                        pending.remove();
+                    } else if (waiter.condition().test(message)) {
+                        pending.remove();
+                        matched = waiter;
+                        break;
+                    }
+                }
+            }
+            // Продолжение сценария выполняется вне блокировки чата
+            if (matched != null) {
+                matched.reply().complete(message);
+            }
+        }
+    }
+
+    private record Waiter(Predicate<BotMessage> condition, CompletableFuture<BotMessage> reply) {
+    }
+}
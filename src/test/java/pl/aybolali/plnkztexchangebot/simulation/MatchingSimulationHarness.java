@@ -0,0 +1,232 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.exception.BusinessException;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.MatchingService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Прогоняет поток событий через настоящие ExchangeRequestService, MatchingService и DealService
+ * на встроенной БД и собирает {@link SimulationReport}.
+ *
+ * DEAL-событие моделирует поведение бота: пользователь ищет встречные предложения
+ * (по своей активной заявке, иначе по любой валюте), берёт лучшее и закрывает сделку на
+ * максимально возможную сумму.
+ *
+ * Число SQL-запросов считается по статистике Hibernate (нужен hibernate.generate_statistics=true),
+ * поэтому прогон должен быть однопоточным.
+ */
+@Slf4j
+public class MatchingSimulationHarness {
+
+    private static final int MATCH_LIMIT = 5;
+    private static final long TELEGRAM_ID_BASE = 900_000_000L;
+
+    private final ExchangeRequestService exchangeRequestService;
+    private final MatchingService matchingService;
+    private final DealService dealService;
+    private final ExchangeRateService exchangeRateService;
+    private final UserRepository userRepository;
+    private final Statistics statistics;
+
+    // ID заявки → виртуальная минута создания (только ещё не закрытые)
+    private final Map<Long, Long> openRequests = new HashMap<>();
+
+    public MatchingSimulationHarness(ExchangeRequestService exchangeRequestService,
+                                     MatchingService matchingService,
+                                     DealService dealService,
+                                     ExchangeRateService exchangeRateService,
+                                     UserRepository userRepository,
+                                     EntityManagerFactory entityManagerFactory) {
+        this.exchangeRequestService = exchangeRequestService;
+        this.matchingService = matchingService;
+        this.dealService = dealService;
+        this.exchangeRateService = exchangeRateService;
+        this.userRepository = userRepository;
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    public static List<SimulationEvent> readRecorded(InputStream input) throws IOException {
+        List<SimulationEvent> events = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("minute")) {
+                    continue;
+                }
+                events.add(SimulationEvent.parse(line));
+            }
+        }
+        return events;
+    }
+
+    public SimulationReport run(List<SimulationEvent> events, int users) {
+        if (!statistics.isStatisticsEnabled()) {
+            throw new IllegalStateException("hibernate.generate_statistics must be enabled for simulation");
+        }
+
+        openRequests.clear();
+        List<Long> userIds = createUsers(users);
+        SimulationReport report = new SimulationReport();
+
+        log.info("🧪 Simulation started: {} events, {} users", events.size(), users);
+
+        for (SimulationEvent event : events) {
+            Long userId = userIds.get(event.user() % userIds.size());
+
+            switch (event.type()) {
+                case CREATE -> create(event, userId, report);
+                case UPDATE -> update(event, userId, report);
+                case CANCEL -> cancel(userId, report);
+                case DEAL -> deal(event, userId, report);
+            }
+        }
+
+        log.info("🧪 Simulation finished: {} deals, fill rate {}", report.deals(), report.fillRate());
+        return report;
+    }
+
+    private List<Long> createUsers(int users) {
+        List<Long> ids = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            User user = userRepository.save(User.builder()
+                    .telegramUserId(TELEGRAM_ID_BASE + i)
+                    .telegramUsername("sim_user_" + i)
+                    .firstName("Sim" + i)
+                    .isPhoneVerified(true)
+                    .build());
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    private void create(SimulationEvent event, Long userId, SimulationReport report) {
+        try {
+            ExchangeRequest request = measure(report, "create", () -> exchangeRequestService.createExchangeRequest(
+                    userId, event.currency().name(), event.amount(), event.method(), null));
+            openRequests.put(request.getId(), event.minute());
+            report.recordCreated();
+        } catch (BusinessException e) {
+            report.recordRejected();
+        }
+    }
+
+    private void update(SimulationEvent event, Long userId, SimulationReport report) {
+        List<ExchangeRequest> active = exchangeRequestService.getActiveByUserId(userId);
+        if (active.isEmpty()) {
+            return;
+        }
+
+        ExchangeRequest request = active.get(0);
+        BigDecimal newAmount = request.getAmountNeed()
+                .multiply(event.amount())
+                .setScale(2, RoundingMode.HALF_UP)
+                .max(BigDecimal.TEN);
+
+        measure(report, "update", () -> exchangeRequestService.updateExchangeRequest(request.getId(), newAmount, null));
+    }
+
+    private void cancel(Long userId, SimulationReport report) {
+        List<ExchangeRequest> active = exchangeRequestService.getActiveByUserId(userId);
+        if (active.isEmpty()) {
+            return;
+        }
+
+        ExchangeRequest request = active.get(active.size() - 1);
+        measure(report, "cancel", () -> exchangeRequestService.cancelExchangeRequest(request.getId(), userId));
+        openRequests.remove(request.getId());
+    }
+
+    private void deal(SimulationEvent event, Long userId, SimulationReport report) {
+        List<ExchangeRequest> own = exchangeRequestService.getActiveByUserId(userId);
+        ExchangeRequest ownRequest = own.isEmpty() ? null : own.get(0);
+
+        // Если своей заявки нет — пользователь отдаёт валюту наугад (по чётности минуты)
+        ExchangeRequest.Currency searchCurrency = ownRequest != null
+                ? opposite(ownRequest.getCurrencyNeed())
+                : (event.minute() % 2 == 0 ? ExchangeRequest.Currency.PLN : ExchangeRequest.Currency.KZT);
+        BigDecimal targetAmount = ownRequest != null ? convert(ownRequest.getAmountNeed(), searchCurrency) : null;
+
+        List<ExchangeRequest> offers = measure(report, "match",
+                () -> matchingService.findMatchingOffers(userId, searchCurrency, MATCH_LIMIT, targetAmount));
+
+        if (offers.isEmpty()) {
+            report.recordNoMatch();
+            return;
+        }
+
+        ExchangeRequest offer = offers.get(0);
+        BigDecimal dealAmount = targetAmount != null ? offer.getAmountNeed().min(targetAmount) : offer.getAmountNeed();
+        if (dealAmount.compareTo(BigDecimal.TEN) < 0) {
+            report.recordNoMatch();
+            return;
+        }
+
+        measure(report, "deal", () -> dealService.createDealFromRequest(offer.getId(), userId, dealAmount));
+        report.recordDeal();
+
+        // DealService мог закрыть и встречную заявку провайдера
+        checkCompleted(offer.getId(), event.minute(), report);
+        own.stream()
+                .filter(request -> request.getCurrencyNeed() == opposite(offer.getCurrencyNeed()))
+                .forEach(request -> checkCompleted(request.getId(), event.minute(), report));
+    }
+
+    private void checkCompleted(Long requestId, long minute, SimulationReport report) {
+        Long createdMinute = openRequests.get(requestId);
+        if (createdMinute == null) {
+            return;
+        }
+
+        ExchangeRequest request = exchangeRequestService.findById(requestId);
+        if (request.getStatus() == ExchangeRequestStatus.COMPLETED) {
+            openRequests.remove(requestId);
+            report.recordCompleted(minute - createdMinute);
+        }
+    }
+
+    private BigDecimal convert(BigDecimal amount, ExchangeRequest.Currency to) {
+        BigDecimal rate = to == ExchangeRequest.Currency.KZT
+                ? exchangeRateService.getCurrentPLNtoKZTRate()
+                : exchangeRateService.getCurrentKZTtoPLNRate();
+        return amount.multiply(rate).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private static ExchangeRequest.Currency opposite(ExchangeRequest.Currency currency) {
+        return currency == ExchangeRequest.Currency.PLN ? ExchangeRequest.Currency.KZT : ExchangeRequest.Currency.PLN;
+    }
+
+    private <T> T measure(SimulationReport report, String operation, Supplier<T> action) {
+        long queriesBefore = statistics.getPrepareStatementCount();
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            report.recordOperation(operation, System.nanoTime() - start,
+                    statistics.getPrepareStatementCount() - queriesBefore);
+        }
+    }
+}
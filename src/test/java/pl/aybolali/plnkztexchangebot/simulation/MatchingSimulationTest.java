@@ -0,0 +1,142 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.repository.DealRepository;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.RatingRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.MatchingService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * 🧪 Реплей потока заявок через сервисы на H2.
+ *
+ * Масштаб задаётся системными свойствами, например:
+ * <pre>
+ * mvn test -Dtest=MatchingSimulationTest -Dsimulation.users=500 -Dsimulation.events=20000
+ * mvn test -Dtest=MatchingSimulationTest -Dsimulation.stream=/path/to/stream.csv
+ * </pre>
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:simulation;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.pl.aybolali.plnkztexchangebot.service=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@ActiveProfiles("test")
+@Slf4j
+@DisplayName("Matching simulation")
+class MatchingSimulationTest {
+
+    private static final int USERS = Integer.getInteger("simulation.users", 40);
+    private static final int EVENTS = Integer.getInteger("simulation.events", 400);
+    private static final long SEED = Long.getLong("simulation.seed", 42L);
+
+    @Autowired private ExchangeRequestService exchangeRequestService;
+    @Autowired private MatchingService matchingService;
+    @Autowired private DealService dealService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ExchangeRequestRepository exchangeRequestRepository;
+    @Autowired private DealRepository dealRepository;
+    @Autowired private RatingRepository ratingRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private ActiveOfferBook activeOfferBook;
+
+    @MockitoBean private PLNKZTExchangeBot telegramBot;
+    @MockitoBean private ExchangeRateService exchangeRateService;
+
+    private MatchingSimulationHarness harness;
+
+    @BeforeEach
+    void setUp() {
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("147.50"));
+        when(exchangeRateService.getCurrentKZTtoPLNRate()).thenReturn(new BigDecimal("0.006780"));
+
+        ratingRepository.deleteAll();
+        dealRepository.deleteAll();
+        exchangeRequestRepository.deleteAll();
+        userRepository.deleteAll();
+
+        harness = new MatchingSimulationHarness(exchangeRequestService, matchingService, dealService,
+                exchangeRateService, userRepository, entityManagerFactory);
+    }
+
+    @Test
+    @DisplayName("Synthetic stream: report is consistent")
+    void syntheticStream() {
+        List<SimulationEvent> events = SimulationEvent.synthetic(SEED, USERS, EVENTS);
+
+        SimulationReport report = harness.run(events, USERS);
+        log.info("🧪 Synthetic stream report:\n{}", report.format());
+
+        assertThat(report.created()).isPositive();
+        assertThat(report.deals()).isPositive();
+        assertThat(report.completed()).isLessThanOrEqualTo(report.created());
+        assertThat((long) activeOfferBook.size())
+                .isEqualTo(exchangeRequestRepository.countByStatus(ExchangeRequestStatus.ACTIVE));
+        assertThat(report.fillRate()).isBetween(0.0, 1.0);
+        assertThat(report.minutesToMatchPercentile(50)).isLessThanOrEqualTo(report.minutesToMatchPercentile(99));
+
+        SimulationReport.OperationStats match = report.operation("match");
+        assertThat(match.count()).isEqualTo(report.deals() + report.noMatch());
+        assertThat(match.latencyPercentileNanos(50)).isLessThanOrEqualTo(match.latencyPercentileNanos(99));
+        assertThat(match.queriesPerOperation()).isPositive();
+        assertThat(report.operation("deal").queriesPerOperation()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Recorded stream: replay matches requests")
+    void recordedStream() throws IOException {
+        List<SimulationEvent> events;
+        String external = System.getProperty("simulation.stream");
+        try (InputStream input = external != null
+                ? Files.newInputStream(Path.of(external))
+                : getClass().getResourceAsStream("/simulation/recorded-stream.csv")) {
+            events = MatchingSimulationHarness.readRecorded(input);
+        }
+
+        int users = events.stream().mapToInt(SimulationEvent::user).max().orElse(0) + 1;
+        SimulationReport report = harness.run(events, users);
+        log.info("🧪 Recorded stream report:\n{}", report.format());
+
+        assertThat(report.created()).isPositive();
+        assertThat(report.deals()).isPositive();
+        assertThat(report.completed()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Synthetic stream is reproducible for the same seed")
+    void syntheticStreamIsDeterministic() {
+        List<SimulationEvent> first = SimulationEvent.synthetic(7, 10, 50);
+        List<SimulationEvent> second = SimulationEvent.synthetic(7, 10, 50);
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first).allSatisfy(event ->
+                assertThat(SimulationEvent.parse(event.toLine())).isEqualTo(event));
+    }
+}
@@ -0,0 +1,96 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Одно событие потока для реплея через сервисы.
+ *
+ * Формат записанного потока (CSV, строки с # игнорируются):
+ * <pre>
+ * minute,type,user,currency,amount,method
+ * 0,CREATE,3,PLN,500,BANK_TRANSFER
+ * 4,DEAL,7,,,
+ * 9,UPDATE,3,,0.90,
+ * 15,CANCEL,3,,,
+ * </pre>
+ */
+public record SimulationEvent(
+        long minute,                       // Виртуальное время события (минуты от старта)
+        Type type,
+        int user,                          // Индекс пользователя в симуляции (0..users-1)
+        ExchangeRequest.Currency currency, // Только для CREATE
+        BigDecimal amount,                 // CREATE: сумма, UPDATE: множитель к текущей сумме
+        TransferMethod method              // Только для CREATE
+) {
+
+    public enum Type { CREATE, UPDATE, CANCEL, DEAL }
+
+    public static SimulationEvent parse(String line) {
+        String[] parts = line.split(",", -1);
+        if (parts.length < 3) {
+            throw new IllegalArgumentException("Invalid simulation event: " + line);
+        }
+
+        return new SimulationEvent(
+                Long.parseLong(parts[0].trim()),
+                Type.valueOf(parts[1].trim()),
+                Integer.parseInt(parts[2].trim()),
+                column(parts, 3).isEmpty() ? null : ExchangeRequest.Currency.valueOf(column(parts, 3)),
+                column(parts, 4).isEmpty() ? null : new BigDecimal(column(parts, 4)),
+                column(parts, 5).isEmpty() ? null : TransferMethod.valueOf(column(parts, 5))
+        );
+    }
+
+    public String toLine() {
+        return minute + "," + type + "," + user + ","
+                + (currency != null ? currency : "") + ","
+                + (amount != null ? amount.toPlainString() : "") + ","
+                + (method != null ? method : "");
+    }
+
+    /**
+     * Синтетический поток: на каждые 10 событий примерно 5 CREATE, 3 DEAL, 1 UPDATE, 1 CANCEL.
+     * Суммы распределены как в проде: PLN 50-2000, KZT 7 000-300 000.
+     */
+    public static List<SimulationEvent> synthetic(long seed, int users, int events) {
+        Random random = new Random(seed);
+        List<SimulationEvent> stream = new ArrayList<>(events);
+        long minute = 0;
+
+        for (int i = 0; i < events; i++) {
+            minute += random.nextInt(5);
+            int user = random.nextInt(users);
+            int roll = random.nextInt(10);
+
+            if (roll < 5) {
+                ExchangeRequest.Currency currency = random.nextBoolean()
+                        ? ExchangeRequest.Currency.PLN
+                        : ExchangeRequest.Currency.KZT;
+                long amount = currency == ExchangeRequest.Currency.PLN
+                        ? 50 + random.nextInt(1950)
+                        : 7_000 + random.nextInt(293_000);
+                TransferMethod method = random.nextInt(4) == 0 ? TransferMethod.CASH : TransferMethod.BANK_TRANSFER;
+                stream.add(new SimulationEvent(minute, Type.CREATE, user, currency, BigDecimal.valueOf(amount), method));
+            } else if (roll < 8) {
+                stream.add(new SimulationEvent(minute, Type.DEAL, user, null, null, null));
+            } else if (roll < 9) {
+                BigDecimal factor = BigDecimal.valueOf(80 + random.nextInt(40)).movePointLeft(2);
+                stream.add(new SimulationEvent(minute, Type.UPDATE, user, null, factor, null));
+            } else {
+                stream.add(new SimulationEvent(minute, Type.CANCEL, user, null, null, null));
+            }
+        }
+
+        return stream;
+    }
+
+    private static String column(String[] parts, int index) {
+        return index < parts.length ? parts[index].trim() : "";
+    }
+}
@@ -0,0 +1,117 @@
+package pl.aybolali.plnkztexchangebot.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Итоги прогона симуляции: заполняемость, время до сделки, латентность и число SQL-запросов по операциям.
+ */
+public class SimulationReport {
+
+    private final Map<String, OperationStats> operations = new LinkedHashMap<>();
+    private final List<Long> minutesToMatch = new ArrayList<>();
+
+    private int created;
+    private int rejected;
+    private int completed;
+    private int deals;
+    private int noMatch;
+
+    void recordOperation(String operation, long nanos, long queries) {
+        operations.computeIfAbsent(operation, k -> new OperationStats()).add(nanos, queries);
+    }
+
+    void recordCreated() { created++; }
+    void recordRejected() { rejected++; }
+    void recordDeal() { deals++; }
+    void recordNoMatch() { noMatch++; }
+
+    void recordCompleted(long minutes) {
+        completed++;
+        minutesToMatch.add(minutes);
+    }
+
+    public int created() { return created; }
+    public int rejected() { return rejected; }
+    public int completed() { return completed; }
+    public int deals() { return deals; }
+    public int noMatch() { return noMatch; }
+
+    /** Доля созданных заявок, которые были полностью закрыты сделками */
+    public double fillRate() {
+        return created == 0 ? 0.0 : (double) completed / created;
+    }
+
+    /** Перцентиль времени до полного закрытия заявки (виртуальные минуты) */
+    public long minutesToMatchPercentile(double percentile) {
+        return percentile(minutesToMatch.stream().mapToLong(Long::longValue).toArray(), percentile);
+    }
+
+    public OperationStats operation(String name) {
+        return operations.get(name);
+    }
+
+    public Map<String, OperationStats> operations() {
+        return operations;
+    }
+
+    public String format() {
+        StringBuilder report = new StringBuilder();
+        report.append("📊 Simulation report\n");
+        report.append(String.format("requests: created=%d rejected=%d completed=%d, deals=%d, no-match=%d%n",
+                created, rejected, completed, deals, noMatch));
+        report.append(String.format("fill rate: %.1f%%%n", fillRate() * 100));
+        report.append(String.format("time-to-match (virtual min): p50=%d p99=%d%n",
+                minutesToMatchPercentile(50), minutesToMatchPercentile(99)));
+
+        report.append(String.format("%-8s %7s %10s %10s %10s %12s%n",
+                "op", "count", "p50 ms", "p99 ms", "max ms", "queries/op"));
+        operations.forEach((name, stats) -> report.append(String.format("%-8s %7d %10.2f %10.2f %10.2f %12.1f%n",
+                name, stats.count(),
+                stats.latencyPercentileNanos(50) / 1_000_000.0,
+                stats.latencyPercentileNanos(99) / 1_000_000.0,
+                stats.latencyPercentileNanos(100) / 1_000_000.0,
+                stats.queriesPerOperation())));
+
+        return report.toString();
+    }
+
+    static long percentile(long[] values, double percentile) {
+        if (values.length == 0) {
+            return 0;
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)];
+    }
+
+    public static class OperationStats {
+        private long[] latencies = new long[64];
+        private int count;
+        private long totalQueries;
+
+        void add(long nanos, long queries) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            totalQueries += queries;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public long latencyPercentileNanos(double percentile) {
+            return percentile(Arrays.copyOf(latencies, count), percentile);
+        }
+
+        public double queriesPerOperation() {
+            return count == 0 ? 0.0 : (double) totalQueries / count;
+        }
+    }
+}
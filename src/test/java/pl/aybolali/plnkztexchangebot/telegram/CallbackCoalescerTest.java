@@ -0,0 +1,147 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("CallbackCoalescer Tests")
+class CallbackCoalescerTest {
+
+    private static final long CHAT = 123L;
+
+    @Test
+    @DisplayName("Повторное нажатие в окне переиспользует результат")
+    void reusesResultWithinWindow() {
+        CallbackCoalescer coalescer = new CallbackCoalescer(60_000);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThat(coalescer.execute(CHAT, 42, "author_confirm_deal:7", true, runs::incrementAndGet))
+                .isEqualTo(CallbackCoalescer.Outcome.EXECUTED);
+        assertThat(coalescer.execute(CHAT, 42, "author_confirm_deal:7", true, runs::incrementAndGet))
+                .isEqualTo(CallbackCoalescer.Outcome.REUSED);
+
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Другая кнопка между нажатиями или другое сообщение — выполняется заново")
+    void executesAgainAfterOtherCallback() {
+        CallbackCoalescer coalescer = new CallbackCoalescer(60_000);
+        AtomicInteger runs = new AtomicInteger();
+
+        coalescer.execute(CHAT, 42, "history_page:1", false, runs::incrementAndGet);
+        coalescer.execute(CHAT, 42, "history_page:2", false, runs::incrementAndGet);
+        coalescer.execute(CHAT, 42, "history_page:1", false, runs::incrementAndGet);
+        coalescer.execute(CHAT, 43, "history_page:1", false, runs::incrementAndGet);
+        coalescer.execute(CHAT + 1, 43, "history_page:1", false, runs::incrementAndGet);
+
+        assertThat(runs).hasValue(5);
+    }
+
+    @Test
+    @DisplayName("Неудачное выполнение не переиспользуется")
+    void doesNotReuseFailure() {
+        CallbackCoalescer coalescer = new CallbackCoalescer(60_000);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThatThrownBy(() -> coalescer.execute(CHAT, 42, "rate_deal:1:5", true, () -> {
+            runs.incrementAndGet();
+            throw new IllegalStateException("db down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(coalescer.execute(CHAT, 42, "rate_deal:1:5", true, runs::incrementAndGet))
+                .isEqualTo(CallbackCoalescer.Outcome.EXECUTED);
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Error в обработчике завершает выполнение — повторное нажатие не ждёт таймаут")
+    void completesExecutionOnError() {
+        CallbackCoalescer coalescer = new CallbackCoalescer(60_000);
+        AtomicInteger runs = new AtomicInteger();
+
+        assertThatThrownBy(() -> coalescer.execute(CHAT, 42, "rate_deal:1:5", true, () -> {
+            runs.incrementAndGet();
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        CompletableFuture<CallbackCoalescer.Outcome> repeated = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(CHAT, 42, "rate_deal:1:5", true, runs::incrementAndGet));
+
+        assertThat(repeated).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(CallbackCoalescer.Outcome.EXECUTED);
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Нажатие во время выполнения присоединяется к нему")
+    void joinsInFlightExecution() throws Exception {
+        CallbackCoalescer coalescer = new CallbackCoalescer(0);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<CallbackCoalescer.Outcome> first = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(CHAT, 42, "search_currency:PLN", false, () -> {
+                    runs.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<CallbackCoalescer.Outcome> second = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(CHAT, 42, "search_currency:PLN", false, runs::incrementAndGet));
+        Thread.sleep(100);
+        assertThat(second).isNotDone();
+
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(CallbackCoalescer.Outcome.EXECUTED);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(CallbackCoalescer.Outcome.JOINED);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Изменяющие нажатия в одном чате выполняются по одному")
+    void serialisesMutatingCallbacks() throws Exception {
+        CallbackCoalescer coalescer = new CallbackCoalescer(0);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        Runnable handler = () -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            sleep(50);
+            active.decrementAndGet();
+        };
+
+        CompletableFuture<?> first = CompletableFuture.runAsync(() ->
+                coalescer.execute(CHAT, 42, "rate_deal:1:5", true, handler));
+        CompletableFuture<?> second = CompletableFuture.runAsync(() ->
+                coalescer.execute(CHAT, 43, "author_confirm_deal:9", true, handler));
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        assertThat(maxActive).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.aybolali.plnkztexchangebot.entity.CallbackPayload;
+import pl.aybolali.plnkztexchangebot.repository.CallbackPayloadRepository;
+import pl.aybolali.plnkztexchangebot.telegram.routing.RouteArgumentException;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.CALLBACK_AUTHOR_CONFIRM;
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.CALLBACK_CONFIRM_DEAL_AUTO;
+
+@DisplayName("CallbackCodec Tests")
+class CallbackCodecTest {
+
+    private final Map<String, CallbackPayload> table = new HashMap<>();
+    private final CallbackPayloadRepository payloadRepository = payloadRepository(table);
+    private final CallbackCodec codec = new CallbackCodec("test-secret", payloadRepository, 7);
+
+    @Test
+    @DisplayName("Поля подтверждения сделки укладываются в 64 байта и читаются обратно")
+    void roundTripsAuthorConfirmation() {
+        String data = codec.encode(CALLBACK_AUTHOR_CONFIRM, fields -> fields
+                .putLong(123_456L)
+                .putAmount(new BigDecimal("339.00000000"))
+                .putId(null)
+                .putLong(7_000_000_123L)
+                .putLong(0L));
+
+        assertThat(data).startsWith(CALLBACK_AUTHOR_CONFIRM);
+        assertThat(data.getBytes(StandardCharsets.UTF_8).length)
+                .isLessThanOrEqualTo(CallbackCodec.MAX_CALLBACK_DATA_BYTES);
+
+        CallbackCodec.Reader fields = codec.decode(CALLBACK_AUTHOR_CONFIRM, payload(data, CALLBACK_AUTHOR_CONFIRM));
+        assertThat(fields.getLong()).isEqualTo(123_456L);
+        assertThat(fields.getAmount()).isEqualByComparingTo("339");
+        assertThat(fields.getId()).isNull();
+        assertThat(fields.getLong()).isEqualTo(7_000_000_123L);
+        assertThat(fields.getLong()).isZero();
+    }
+
+    @Test
+    @DisplayName("Отрицательные числа и дробные суммы сохраняются")
+    void roundTripsNegativeAndFractional() {
+        String data = codec.encode(CALLBACK_CONFIRM_DEAL_AUTO, fields -> fields
+                .putLong(-1001234567890L)
+                .putAmount(new BigDecimal("500.50")));
+
+        CallbackCodec.Reader fields = codec.decode(CALLBACK_CONFIRM_DEAL_AUTO, payload(data, CALLBACK_CONFIRM_DEAL_AUTO));
+        assertThat(fields.getLong()).isEqualTo(-1001234567890L);
+        assertThat(fields.getAmount()).isEqualByComparingTo("500.50");
+    }
+
+    @Test
+    @DisplayName("Изменённый payload, чужой ключ или чужой маршрут отклоняются")
+    void rejectsTamperedPayload() {
+        String data = codec.encode(CALLBACK_AUTHOR_CONFIRM, fields -> fields.putLong(1L).putAmount(BigDecimal.TEN));
+        String payload = payload(data, CALLBACK_AUTHOR_CONFIRM);
+        char flipped = payload.charAt(2) == 'A' ? 'B' : 'A';
+        String tampered = payload.substring(0, 2) + flipped + payload.substring(3);
+
+        assertThatThrownBy(() -> codec.decode(CALLBACK_AUTHOR_CONFIRM, tampered))
+                .isInstanceOf(RouteArgumentException.class);
+        assertThatThrownBy(() -> new CallbackCodec("other-secret", payloadRepository, 7).decode(CALLBACK_AUTHOR_CONFIRM, payload))
+                .isInstanceOf(RouteArgumentException.class);
+        assertThatThrownBy(() -> codec.decode(CALLBACK_CONFIRM_DEAL_AUTO, payload))
+                .isInstanceOf(RouteArgumentException.class);
+        assertThatThrownBy(() -> codec.decode(CALLBACK_AUTHOR_CONFIRM, "42"))
+                .isInstanceOf(RouteArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Слишком длинный payload хранится в БД и читается другой репликой; без строки — отклоняется")
+    void storesOversizedPayloadServerSide() {
+        String data = codec.encode(CALLBACK_AUTHOR_CONFIRM, fields -> {
+            for (int i = 0; i < 10; i++) {
+                fields.putLong(Long.MAX_VALUE - i);
+            }
+        });
+
+        assertThat(data).startsWith(CALLBACK_AUTHOR_CONFIRM + "~");
+        assertThat(data.getBytes(StandardCharsets.UTF_8).length)
+                .isLessThanOrEqualTo(CallbackCodec.MAX_CALLBACK_DATA_BYTES);
+
+        CallbackCodec.Reader fields = codec.decode(CALLBACK_AUTHOR_CONFIRM, payload(data, CALLBACK_AUTHOR_CONFIRM));
+        assertThat(fields.getLong()).isEqualTo(Long.MAX_VALUE);
+
+        assertThat(new CallbackCodec("test-secret", payloadRepository, 7)
+                .decode(CALLBACK_AUTHOR_CONFIRM, payload(data, CALLBACK_AUTHOR_CONFIRM))
+                .getLong()).isEqualTo(Long.MAX_VALUE);
+
+        table.clear();
+        assertThatThrownBy(() -> codec.decode(CALLBACK_AUTHOR_CONFIRM, payload(data, CALLBACK_AUTHOR_CONFIRM)))
+                .isInstanceOf(RouteArgumentException.class);
+    }
+
+    /**
+     * Таблица callback_payloads в памяти
+     */
+    private static CallbackPayloadRepository payloadRepository(Map<String, CallbackPayload> table) {
+        CallbackPayloadRepository repository = mock(CallbackPayloadRepository.class);
+        when(repository.save(any(CallbackPayload.class))).thenAnswer(invocation -> {
+            CallbackPayload row = invocation.getArgument(0);
+            table.put(row.getKey(), row);
+            return row;
+        });
+        when(repository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(table.get(invocation.<String>getArgument(0))));
+        return repository;
+    }
+
+    private static String payload(String data, String route) {
+        return data.substring(route.length());
+    }
+}
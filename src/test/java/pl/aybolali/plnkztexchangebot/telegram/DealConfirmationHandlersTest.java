@@ -0,0 +1,237 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.CallbackPayloadRepository;
+import pl.aybolali.plnkztexchangebot.service.ConversationStateService;
+import pl.aybolali.plnkztexchangebot.service.DealService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRequestService;
+import pl.aybolali.plnkztexchangebot.service.UserService;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static pl.aybolali.plnkztexchangebot.telegram.TelegramConstants.*;
+
+/**
+ * Обработчики подтверждения сделок без TelegramBotService и бота: ответы проверяются на BotMessenger
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DealConfirmationHandlers Tests")
+class DealConfirmationHandlersTest {
+
+    private static final long AUTHOR_TG = 999L;
+    private static final long RESPONDER_TG = 555L;
+    private static final long TOKEN = 77L;
+
+    @Mock private UserService userService;
+    @Mock private ExchangeRequestService exchangeService;
+    @Mock private DealService dealService;
+    @Mock private ExchangeRateService exchangeRateService;
+    @Mock private TelegramMessageFormatter messageFormatter;
+    @Mock private ConversationStateService conversationStateService;
+    @Mock private BotMessenger messenger;
+
+    private final CallbackCodec callbackCodec = new CallbackCodec("test-secret", mock(CallbackPayloadRepository.class), 7);
+    private final AmountReservationLedger reservationLedger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
+    private DealConfirmationHandlers handlers;
+
+    private final User author = User.builder().id(2L).telegramUserId(AUTHOR_TG).telegramUsername("author").build();
+    private final User responder = User.builder().id(3L).telegramUserId(RESPONDER_TG).telegramUsername("responder").build();
+
+    @BeforeEach
+    void setUp() {
+        handlers = new DealConfirmationHandlers(userService, exchangeService, dealService, exchangeRateService,
+                messageFormatter, conversationStateService, callbackCodec, reservationLedger, messenger);
+    }
+
+    @Test
+    @DisplayName("Подтверждение откликнувшегося: холд подтверждается заново, автору уходит подписанная кнопка")
+    void automaticConfirmationSendsSignedButtonToAuthor() {
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("150"));
+        when(messageFormatter.formatNewDealProposalNotification(any(), any(), any(), any(), any())).thenReturn("Proposal");
+        when(messageFormatter.formatOfferSentConfirmationToResponder(any(), any(), any(), any(), any())).thenReturn("Sent");
+
+        // Холд, выданный при показе предложения, уже истёк
+        handlers.handleConfirmDealAutomatic(RESPONDER_TG, RESPONDER_TG, autoConfirmation(5L, "300", 9L));
+
+        assertThat(reservationLedger.held(5L)).isEqualByComparingTo("300");
+        ArgumentCaptor<InlineKeyboardMarkup> keyboard = ArgumentCaptor.forClass(InlineKeyboardMarkup.class);
+        verify(messenger).sendNotification(eq(AUTHOR_TG), eq("Proposal"), keyboard.capture());
+        verify(messenger).sendMessageWithKeyboard(eq(RESPONDER_TG), eq("Sent"), any());
+
+        String data = keyboard.getValue().getKeyboard().get(0).get(0).getCallbackData();
+        assertThat(data).startsWith(CALLBACK_AUTHOR_CONFIRM);
+        CallbackCodec.Reader fields = callbackCodec.decode(CALLBACK_AUTHOR_CONFIRM,
+                data.substring(CALLBACK_AUTHOR_CONFIRM.length()));
+        assertThat(fields.getLong()).isEqualTo(5L);
+        assertThat(fields.getAmount()).isEqualByComparingTo("300");
+        assertThat(fields.getId()).isEqualTo(9L);
+        assertThat(fields.getLong()).isEqualTo(RESPONDER_TG);
+        // Личный чат: chat_id совпадает с user_id и не кодируется
+        assertThat(fields.getLong()).isZero();
+        assertThat(fields.getLong()).isEqualTo(TOKEN);
+    }
+
+    @Test
+    @DisplayName("Подтверждение откликнувшегося: сумма занята другими — предложение автору не уходит")
+    void automaticConfirmationRejectedWhenFullyReserved() {
+        reservationLedger.reserve(5L, new BigDecimal("1000.00"), 4L, new BigDecimal("1000.00"));
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(messageFormatter.formatHoldRejected(false)).thenReturn("Reserved");
+
+        handlers.handleConfirmDealAutomatic(RESPONDER_TG, RESPONDER_TG, autoConfirmation(5L, "300", 9L));
+
+        verify(messenger).sendMessage(RESPONDER_TG, "Reserved");
+        verify(messenger, never()).sendNotification(anyLong(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Автор подтверждает: сделка создаётся, холд снимается, обе стороны получают итог с оценкой")
+    void authorConfirmationCreatesDealAndNotifiesBothSides() {
+        reservationLedger.reserve(5L, new BigDecimal("1000.00"), 3L, new BigDecimal("300"));
+        reservationLedger.confirm(5L, 3L);
+        Deal deal = Deal.builder().id(10L).confirmationToken(TOKEN).build();
+        when(dealService.findByConfirmationToken(TOKEN)).thenReturn(Optional.empty());
+        when(userService.findByTelegramUserId(AUTHOR_TG)).thenReturn(Optional.of(author));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+        when(dealService.createDealFromRequest(eq(5L), eq(3L), any(), eq(TOKEN))).thenReturn(deal);
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("150"));
+        when(messageFormatter.formatDealCompletionForAuthor(any(), any(), any(), any(), any(), any())).thenReturn("Author");
+        when(messageFormatter.formatDealCompletionForResponder(any(), any(), any(), any(), any(), any())).thenReturn("Responder");
+
+        handlers.handleAuthorConfirmDeal(AUTHOR_TG, AUTHOR_TG, authorConfirmation(5L, RESPONDER_TG));
+
+        assertThat(reservationLedger.held(5L).signum()).isZero();
+        ArgumentCaptor<InlineKeyboardMarkup> keyboard = ArgumentCaptor.forClass(InlineKeyboardMarkup.class);
+        verify(messenger).sendNotification(eq(AUTHOR_TG), eq("Author"), keyboard.capture());
+        verify(messenger).sendNotification(eq(RESPONDER_TG), eq("Responder"), any());
+        assertThat(keyboard.getValue().getKeyboard().get(0).get(0).getCallbackData())
+                .isEqualTo(CALLBACK_RATE_DEAL + "10:1");
+        verify(conversationStateService).clearState(AUTHOR_TG);
+    }
+
+    @Test
+    @DisplayName("Кнопку автора нажимает другой пользователь — сделка не создаётся")
+    void authorConfirmationRejectsNonAuthor() {
+        User stranger = User.builder().id(1L).telegramUserId(123L).telegramUsername("stranger").build();
+        when(dealService.findByConfirmationToken(TOKEN)).thenReturn(Optional.empty());
+        when(userService.findByTelegramUserId(123L)).thenReturn(Optional.of(stranger));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+
+        handlers.handleAuthorConfirmDeal(123L, 123L, authorConfirmation(5L, RESPONDER_TG));
+
+        verify(dealService, never()).createDealFromRequest(anyLong(), anyLong(), any(), any());
+        verify(messenger).sendMessage(123L, "❌ Подтвердить обмен может только автор заявки");
+        verify(messenger, never()).sendNotification(anyLong(), anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Сделка по токену уже есть — повторное нажатие получает ссылку на неё")
+    void authorConfirmationReusesExistingDeal() {
+        when(dealService.findByConfirmationToken(TOKEN)).thenReturn(Optional.of(Deal.builder().id(10L).build()));
+
+        handlers.handleAuthorConfirmDeal(AUTHOR_TG, AUTHOR_TG, authorConfirmation(5L, RESPONDER_TG));
+
+        verify(messenger).sendMessage(AUTHOR_TG, "✅ Сделка #10 уже завершена ранее");
+        verifyNoInteractions(userService, exchangeService);
+        verify(dealService, never()).createDealFromRequest(anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Оба нажатия прошли проверку токена до коммита — второе упирается в уникальный индекс")
+    void duplicateAuthorConfirmationDoesNotCreateSecondDeal() {
+        Deal deal = Deal.builder().id(10L).confirmationToken(TOKEN).build();
+        when(dealService.findByConfirmationToken(TOKEN))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(deal));
+        when(dealService.createDealFromRequest(eq(5L), eq(3L), any(), eq(TOKEN)))
+                .thenReturn(deal)
+                .thenThrow(new DataIntegrityViolationException("deals_confirmation_token_key"));
+        when(userService.findByTelegramUserId(AUTHOR_TG)).thenReturn(Optional.of(author));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+        when(exchangeRateService.getCurrentPLNtoKZTRate()).thenReturn(new BigDecimal("150"));
+        when(messageFormatter.formatDealCompletionForAuthor(any(), any(), any(), any(), any(), any())).thenReturn("Author");
+        when(messageFormatter.formatDealCompletionForResponder(any(), any(), any(), any(), any(), any())).thenReturn("Responder");
+
+        handlers.handleAuthorConfirmDeal(AUTHOR_TG, AUTHOR_TG, authorConfirmation(5L, RESPONDER_TG));
+        handlers.handleAuthorConfirmDeal(AUTHOR_TG, AUTHOR_TG, authorConfirmation(5L, RESPONDER_TG));
+
+        verify(messenger, times(1)).sendNotification(eq(AUTHOR_TG), eq("Author"), any());
+        verify(messenger).sendMessage(AUTHOR_TG, "✅ Сделка #10 уже завершена ранее");
+        verify(messageFormatter, never()).formatTechnicalError();
+    }
+
+    @Test
+    @DisplayName("Ручной ввод суммы больше свободной — отказ с доступной суммой, автору ничего не уходит")
+    void dealAmountInputAboveAvailableIsRejected() {
+        reservationLedger.reserve(5L, new BigDecimal("1000.00"), 4L, new BigDecimal("800.00"));
+        when(conversationStateService.getUserData(RESPONDER_TG, "deal_request_id")).thenReturn("5");
+        when(exchangeService.findByIdWithUser(5L)).thenReturn(request(5L, author));
+        when(userService.findByTelegramUserId(RESPONDER_TG)).thenReturn(Optional.of(responder));
+        when(messageFormatter.formatAmount(any())).thenReturn("200");
+
+        handlers.handleDealAmountInput(RESPONDER_TG, RESPONDER_TG, "300");
+
+        verify(messenger).sendMessage(RESPONDER_TG, "❌ Сумма не может превышать 200 PLN");
+        verify(messenger, never()).sendNotification(anyLong(), anyString(), any());
+        assertThat(reservationLedger.held(5L)).isEqualByComparingTo("800.00");
+    }
+
+    private String autoConfirmation(Long requestId, String amount, Long responderRequestId) {
+        return callbackCodec.encode(CALLBACK_CONFIRM_DEAL_AUTO, fields -> fields
+                        .putLong(requestId)
+                        .putAmount(new BigDecimal(amount))
+                        .putId(responderRequestId)
+                        .putLong(TOKEN))
+                .substring(CALLBACK_CONFIRM_DEAL_AUTO.length());
+    }
+
+    private String authorConfirmation(Long requestId, long responderTelegramId) {
+        return callbackCodec.encode(CALLBACK_AUTHOR_CONFIRM, fields -> fields
+                        .putLong(requestId)
+                        .putAmount(new BigDecimal("300"))
+                        .putId(null)
+                        .putLong(responderTelegramId)
+                        .putLong(0L)
+                        .putLong(TOKEN))
+                .substring(CALLBACK_AUTHOR_CONFIRM.length());
+    }
+
+    private static ExchangeRequest request(Long id, User owner) {
+        return ExchangeRequest.builder()
+                .id(id)
+                .user(owner)
+                .currencyNeed(ExchangeRequest.Currency.PLN)
+                .amountNeed(new BigDecimal("1000.00"))
+                .status(ExchangeRequestStatus.ACTIVE)
+                .transferMethod(TransferMethod.BANK_TRANSFER)
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+import pl.aybolali.plnkztexchangebot.dto.UserPublicDTO;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
+import pl.aybolali.plnkztexchangebot.repository.ExchangeRequestRepository;
+import pl.aybolali.plnkztexchangebot.repository.UserRepository;
+import pl.aybolali.plnkztexchangebot.service.ExchangeRateService;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOffer;
+import pl.aybolali.plnkztexchangebot.service.offerbook.ActiveOfferBook;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InlineQueryService Tests")
+class InlineQueryServiceTest {
+
+    @Mock
+    private PLNKZTExchangeBot bot;
+
+    @Mock
+    private ExchangeRequestRepository exchangeRequestRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ExchangeRateService exchangeRateService;
+
+    private final UserPublicDTO alice = new UserPublicDTO(1L, "alice_smith", "Alice", new BigDecimal("4.80"), 12, null);
+    private final LocalDateTime createdAt = LocalDateTime.now();
+
+    private ActiveOfferBook offerBook;
+
+    @BeforeEach
+    void setUp() {
+        offerBook = new ActiveOfferBook(exchangeRequestRepository, userRepository);
+        lenient().when(exchangeRateService.getLastGoodRate()).thenReturn(
+                Optional.of(new ExchangeRateService.LastGoodRate(new BigDecimal("150"), Instant.now())));
+
+        offerBook.put(offer(1L, ExchangeRequest.Currency.KZT, "30000"), alice);
+        offerBook.put(offer(2L, ExchangeRequest.Currency.KZT, "75000"), alice);
+        offerBook.put(offer(3L, ExchangeRequest.Currency.KZT, "200000"), alice);
+        offerBook.put(offer(4L, ExchangeRequest.Currency.PLN, "500"), alice);
+    }
+
+    @Test
+    @DisplayName("Should normalize query regardless of word order and case")
+    void shouldNormalizeQuery() {
+        InlineQueryService.InlineSearch first = InlineQueryService.InlineSearch.parse("500 pln");
+        InlineQueryService.InlineSearch second = InlineQueryService.InlineSearch.parse("  PLN   500,00 ");
+
+        assertThat(first.key()).isEqualTo(second.key());
+        assertThat(first.iWant()).isEqualTo(ExchangeRequest.Currency.PLN);
+        assertThat(InlineQueryService.InlineSearch.parse("kzt нал").transferMethod()).isEqualTo(TransferMethod.CASH);
+    }
+
+    @Test
+    @DisplayName("Should rank offers by closeness to requested amount")
+    void shouldRankByAmount() {
+        InlineQueryService service = newService(30);
+
+        // Ищу 500 PLN ≈ 75 000 KZT → заявки тех, кому нужен KZT
+        List<InlineQueryResult> results = service.findResults(InlineQueryService.InlineSearch.parse("500 PLN"));
+
+        assertThat(results).extracting(result -> ((InlineQueryResultArticle) result).getId())
+                .containsExactly("offer-2", "offer-1", "offer-3");
+    }
+
+    @Test
+    @DisplayName("Should serve repeated query from cache")
+    void shouldServeRepeatedQueryFromCache() {
+        InlineQueryService service = newService(30);
+        InlineQueryService.InlineSearch search = InlineQueryService.InlineSearch.parse("KZT");
+
+        List<InlineQueryResult> first = service.findResults(search);
+        offerBook.put(offer(5L, ExchangeRequest.Currency.PLN, "100"), alice);
+
+        assertThat(service.findResults(search)).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("Should reuse result cards until offer changes")
+    void shouldReuseCardsUntilOfferChanges() {
+        InlineQueryService service = newService(0);
+        InlineQueryService.InlineSearch search = InlineQueryService.InlineSearch.parse("PLN");
+
+        InlineQueryResult before = service.findResults(search).get(0);
+        InlineQueryResult unchanged = service.findResults(search).get(0);
+        offerBook.put(offer(3L, ExchangeRequest.Currency.KZT, "210000"), alice);
+        List<InlineQueryResult> after = service.findResults(search);
+
+        assertThat(unchanged).isSameAs(before);
+        InlineQueryResultArticle changed = after.stream()
+                .map(InlineQueryResultArticle.class::cast)
+                .filter(result -> result.getId().equals("offer-3")).findFirst().orElseThrow();
+        assertThat(changed.getTitle()).contains("210 000 KZT");
+    }
+
+    @Test
+    @DisplayName("Should answer with cache_time and deep link to respond")
+    void shouldAnswerInlineQuery() throws Exception {
+        InlineQueryService service = newService(30);
+        InlineQuery inlineQuery = new InlineQuery();
+        inlineQuery.setId("q1");
+        inlineQuery.setQuery("500 PLN");
+        inlineQuery.setOffset("");
+
+        service.handleInlineQuery(inlineQuery);
+
+        ArgumentCaptor<AnswerInlineQuery> captor = ArgumentCaptor.forClass(AnswerInlineQuery.class);
+        verify(bot).execute(captor.capture());
+        AnswerInlineQuery answer = captor.getValue();
+        assertThat(answer.getCacheTime()).isEqualTo(30);
+        assertThat(answer.getIsPersonal()).isFalse();
+        assertThat(answer.getNextOffset()).isEmpty();
+        assertThat(((InlineQueryResultArticle) answer.getResults().get(0)).getReplyMarkup()
+                .getKeyboard().get(0).get(0).getUrl())
+                .isEqualTo("https://t.me/test_bot?start=respond_2");
+    }
+
+    @Test
+    @DisplayName("Should not call rate API and show rate unavailable without cached rate")
+    void shouldShowRateUnavailableWithoutCachedRate() {
+        when(exchangeRateService.getLastGoodRate()).thenReturn(Optional.empty());
+        InlineQueryService service = newService(0);
+
+        List<InlineQueryResult> results = service.findResults(InlineQueryService.InlineSearch.parse("500 PLN"));
+
+        InlineQueryResultArticle card = (InlineQueryResultArticle) results.get(0);
+        assertThat(results).hasSize(3);
+        assertThat(card.getTitle()).contains("курс недоступен");
+        assertThat(((InputTextMessageContent) card.getInputMessageContent()).getMessageText())
+                .contains("курс недоступен");
+        verify(exchangeRateService, never()).getCurrentPLNtoKZTRate();
+    }
+
+    private InlineQueryService newService(int cacheSeconds) {
+        InlineQueryService service = new InlineQueryService(bot, offerBook, exchangeRateService,
+                new TelegramMessageFormatter(), "test_bot", cacheSeconds);
+        service.registerListener();
+        return service;
+    }
+
+    private ActiveOffer offer(Long id, ExchangeRequest.Currency currency, String amount) {
+        return new ActiveOffer(id, 1L, currency, new BigDecimal(amount), TransferMethod.BANK_TRANSFER,
+                null, createdAt, createdAt.plusSeconds(id));
+    }
+}
@@ -0,0 +1,51 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("MessageTemplate Tests")
+class MessageTemplateTest {
+
+    @Test
+    @DisplayName("Вывод совпадает с String.format для %s, %d и %%")
+    void rendersLikeStringFormat() {
+        String pattern = """
+                👤 <b>%s</b>
+                💼 Обменов: %d (100%%)
+                """;
+
+        assertThat(MessageTemplate.compile(pattern).render("Айбол", 7))
+                .isEqualTo(String.format(pattern, "Айбол", 7));
+    }
+
+    @Test
+    @DisplayName("%.Nf округляет так же, как String.format (HALF_UP)")
+    void rendersFixedPrecisionLikeStringFormat() {
+        String pattern = "1 PLN = %.2f KZT, рейтинг %.1f, курс %.6f";
+        Object[] args = {new BigDecimal("146.125"), 4.25, new BigDecimal("0.0068123456")};
+
+        assertThat(MessageTemplate.compile(pattern).render(args))
+                .isEqualTo(String.format(pattern, args));
+    }
+
+    @Test
+    @DisplayName("Неподдерживаемый спецификатор отклоняется при компиляции")
+    void rejectsUnsupportedSpecifier() {
+        assertThatThrownBy(() -> MessageTemplate.compile("Сумма: %,.2f"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Неверное число аргументов — ошибка")
+    void rejectsArgumentCountMismatch() {
+        MessageTemplate template = MessageTemplate.compile("%s и %s");
+
+        assertThatThrownBy(() -> template.render("один"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
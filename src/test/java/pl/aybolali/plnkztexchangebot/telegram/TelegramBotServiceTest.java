@@ -3,20 +3,35 @@ package pl.aybolali.plnkztexchangebot.telegram;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Chat;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import pl.aybolali.plnkztexchangebot.entity.Deal;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequest;
+import pl.aybolali.plnkztexchangebot.entity.ExchangeRequestStatus;
+import pl.aybolali.plnkztexchangebot.entity.TransferMethod;
 import pl.aybolali.plnkztexchangebot.entity.User;
+import pl.aybolali.plnkztexchangebot.repository.CallbackPayloadRepository;
 import pl.aybolali.plnkztexchangebot.service.*;
+import pl.aybolali.plnkztexchangebot.service.reservation.AmountReservationLedger;
+import pl.aybolali.plnkztexchangebot.service.stats.TradeStatsService;
+import pl.aybolali.plnkztexchangebot.telegram.spool.OutboundSpool;
 
 import java.math.BigDecimal;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -50,7 +65,25 @@ class TelegramBotServiceTest {
     @Mock
     private ConversationStateService conversationStateService;  // ⭐ ДОБАВЛЕНО!
 
-    @InjectMocks
+    @Mock
+    private RatingService ratingService;
+
+    @Mock
+    private TradeStatsService tradeStatsService;
+
+    @Mock
+    private OutboundSpool outboundSpool;
+
+    // Окно 0: повторные нажатия выполняются заново, как без схлопывания
+    @Spy
+    private CallbackCoalescer callbackCoalescer = new CallbackCoalescer(0);
+
+    @Spy
+    private CallbackCodec callbackCodec = new CallbackCodec("test-secret", mock(CallbackPayloadRepository.class), 7);
+
+    @Spy
+    private AmountReservationLedger reservationLedger = new AmountReservationLedger(900, 900, 3, 1000, 64);
+
     private TelegramBotService telegramBotService;
 
     private User testUser;
@@ -60,6 +93,16 @@ class TelegramBotServiceTest {
 
     @BeforeEach
     void setUp() throws TelegramApiException {
+        BotMessenger messenger = new BotMessenger(bot, outboundSpool);
+        telegramBotService = new TelegramBotService(bot, userService, exchangeRequestService, exchangeRateService,
+                messageFormatter, rateLimitService, conversationStateService, callbackCoalescer, reservationLedger,
+                tradeStatsService, messenger,
+                new SearchHandlers(userService, exchangeRequestService, exchangeRateService, messageFormatter,
+                        conversationStateService, callbackCodec, reservationLedger, messenger),
+                new ProfileHandlers(userService, dealService, exchangeRateService, ratingService, messageFormatter, messenger),
+                new DealConfirmationHandlers(userService, exchangeRequestService, dealService, exchangeRateService,
+                        messageFormatter, conversationStateService, callbackCodec, reservationLedger, messenger));
+
         // Mock telegram user
         telegramUser = mock(org.telegram.telegrambots.meta.api.objects.User.class);
         lenient().when(telegramUser.getId()).thenReturn(123456789L);
@@ -244,4 +287,156 @@ class TelegramBotServiceTest {
         // Then
         verify(bot, atLeastOnce()).execute(any(SendMessage.class));
     }
+
+    @Test
+    void testHistoryPageCallback_EditsOriginatingMessage() throws TelegramApiException {
+        // Given
+        CallbackQuery callbackQuery = historyPageCallback();
+        when(userService.findByTelegramUserId(123456789L)).thenReturn(Optional.of(testUser));
+        when(dealService.getFinishedUserDealsWithUsers(eq(1L), any())).thenReturn(Page.empty());
+        when(messageFormatter.formatNoHistory()).thenReturn("No history");
+
+        // When
+        telegramBotService.handleCallbackQuery(callbackQuery);
+
+        // Then
+        ArgumentCaptor<EditMessageText> edit = ArgumentCaptor.forClass(EditMessageText.class);
+        verify(bot).execute(edit.capture());
+        assertEquals(42, edit.getValue().getMessageId());
+        assertEquals("No history", edit.getValue().getText());
+        verify(bot, never()).execute(any(SendMessage.class));
+    }
+
+    @Test
+    void testHistoryPageCallback_UnchangedContentSkipsEdit() throws TelegramApiException {
+        // Given
+        CallbackQuery callbackQuery = historyPageCallback();
+        when(userService.findByTelegramUserId(123456789L)).thenReturn(Optional.of(testUser));
+        when(dealService.getFinishedUserDealsWithUsers(eq(1L), any())).thenReturn(Page.empty());
+        when(messageFormatter.formatNoHistory()).thenReturn("No history");
+
+        // When
+        telegramBotService.handleCallbackQuery(callbackQuery);
+        telegramBotService.handleCallbackQuery(callbackQuery);
+
+        // Then
+        verify(bot, times(1)).execute(any(EditMessageText.class));
+        verify(bot, never()).execute(any(EditMessageReplyMarkup.class));
+    }
+
+    @Test
+    void testCancelOfferCallback_ReleasesUnconfirmedHold() throws TelegramApiException {
+        // Given: предложение показано, сумма удерживается за откликающимся
+        reservationLedger.reserve(5L, new BigDecimal("1000.00"), 1L, new BigDecimal("300"));
+        when(conversationStateService.getUserData(123456789L, "offer_responder_id")).thenReturn("1");
+        lenient().when(userService.findByTelegramUserId(123456789L)).thenReturn(Optional.of(testUser));
+
+        // When: «❌ Отмена»
+        telegramBotService.handleCallbackQuery(callback(TelegramConstants.CALLBACK_MENU + "search"));
+
+        // Then
+        assertEquals(0, reservationLedger.held(5L).signum());
+        verify(conversationStateService).removeUserData(123456789L, "offer_responder_id");
+    }
+
+    @Test
+    void testAuthorConfirmCallback_RejectsNonAuthor() throws TelegramApiException {
+        // Given: кнопку автора нажимает другой пользователь
+        User owner = User.builder().id(2L).telegramUserId(999L).telegramUsername("owner").build();
+        User responder = User.builder().id(3L).telegramUserId(555L).telegramUsername("responder").build();
+        when(dealService.findByConfirmationToken(77L)).thenReturn(Optional.empty());
+        when(userService.findByTelegramUserId(123456789L)).thenReturn(Optional.of(testUser));
+        when(userService.findByTelegramUserId(555L)).thenReturn(Optional.of(responder));
+        when(exchangeRequestService.findByIdWithUser(5L)).thenReturn(request(5L, owner));
+
+        // When
+        telegramBotService.handleCallbackQuery(callback(authorConfirmation(5L, 555L, 77L)));
+
+        // Then
+        verify(dealService, never()).createDealFromRequest(anyLong(), anyLong(), any(), any());
+        ArgumentCaptor<SendMessage> sent = ArgumentCaptor.forClass(SendMessage.class);
+        verify(bot).execute(sent.capture());
+        assertEquals("❌ Подтвердить обмен может только автор заявки", sent.getValue().getText());
+    }
+
+    @Test
+    void testAuthorConfirmCallback_DuplicateClickDoesNotCreateSecondDeal() throws TelegramApiException {
+        // Given: оба нажатия прошли проверку токена до коммита первой сделки
+        User responder = User.builder().id(3L).telegramUserId(555L).telegramUsername("responder").build();
+        Deal deal = Deal.builder().id(10L).confirmationToken(77L).build();
+        when(dealService.findByConfirmationToken(77L))
+                .thenReturn(Optional.empty(), Optional.empty(), Optional.of(deal));
+        when(dealService.createDealFromRequest(eq(5L), eq(3L), any(), eq(77L)))
+                .thenReturn(deal)
+                .thenThrow(new DataIntegrityViolationException("deals_confirmation_token_key"));
+        when(userService.findByTelegramUserId(123456789L)).thenReturn(Optional.of(testUser));
+        when(userService.findByTelegramUserId(555L)).thenReturn(Optional.of(responder));
+        when(exchangeRequestService.findByIdWithUser(5L)).thenReturn(request(5L, testUser));
+        when(messageFormatter.formatDealCompletionForAuthor(any(), any(), any(), any(), any(), any())).thenReturn("Author");
+        when(messageFormatter.formatDealCompletionForResponder(any(), any(), any(), any(), any(), any())).thenReturn("Responder");
+
+        // When: второе нажатие упирается в уникальный индекс токена
+        telegramBotService.handleCallbackQuery(callback(authorConfirmation(5L, 555L, 77L)));
+        telegramBotService.handleCallbackQuery(callback(authorConfirmation(5L, 555L, 77L)));
+
+        // Then: уведомления о сделке отправлены один раз, второе нажатие получает ссылку на первую сделку
+        verify(messageFormatter, times(1)).formatDealCompletionForAuthor(any(), any(), any(), any(), any(), any());
+        verify(messageFormatter, never()).formatTechnicalError();
+        ArgumentCaptor<SendMessage> sent = ArgumentCaptor.forClass(SendMessage.class);
+        verify(bot, times(3)).execute(sent.capture());
+        assertEquals("✅ Сделка #10 уже завершена ранее", sent.getAllValues().get(2).getText());
+    }
+
+    @Test
+    void testLegacyAuthorConfirmPrefix_AnswersStaleData() throws TelegramApiException {
+        // Given: кнопка, отправленная до подписанных payload'ов
+        when(messageFormatter.formatStaleDataError()).thenReturn("Stale");
+
+        // When
+        telegramBotService.handleCallbackQuery(callback(TelegramConstants.LEGACY_CALLBACK_AUTHOR_CONFIRM + "555"));
+
+        // Then
+        ArgumentCaptor<SendMessage> sent = ArgumentCaptor.forClass(SendMessage.class);
+        verify(bot).execute(sent.capture());
+        assertEquals("Stale", sent.getValue().getText());
+        verifyNoInteractions(dealService);
+    }
+
+    private String authorConfirmation(Long requestId, Long responderTelegramId, long confirmationToken) {
+        return callbackCodec.encode(TelegramConstants.CALLBACK_AUTHOR_CONFIRM, fields -> fields
+                .putLong(requestId)
+                .putAmount(new BigDecimal("100"))
+                .putId(null)
+                .putLong(responderTelegramId)
+                .putLong(0L)
+                .putLong(confirmationToken));
+    }
+
+    private static ExchangeRequest request(Long id, User owner) {
+        return ExchangeRequest.builder()
+                .id(id)
+                .user(owner)
+                .currencyNeed(ExchangeRequest.Currency.PLN)
+                .amountNeed(new BigDecimal("500.00"))
+                .status(ExchangeRequestStatus.ACTIVE)
+                .transferMethod(TransferMethod.BANK_TRANSFER)
+                .build();
+    }
+
+    private CallbackQuery historyPageCallback() {
+        return callback(TelegramConstants.CALLBACK_HISTORY_PAGE + "0");
+    }
+
+    private CallbackQuery callback(String data) {
+        Message callbackMessage = mock(Message.class);
+        lenient().when(callbackMessage.getChatId()).thenReturn(123456789L);
+        lenient().when(callbackMessage.getMessageId()).thenReturn(42);
+
+        CallbackQuery callbackQuery = mock(CallbackQuery.class);
+        lenient().when(callbackQuery.getId()).thenReturn("cb-1");
+        lenient().when(callbackQuery.getData()).thenReturn(data);
+        lenient().when(callbackQuery.getFrom()).thenReturn(telegramUser);
+        lenient().when(callbackQuery.getMessage()).thenReturn(callbackMessage);
+        return callbackQuery;
+    }
 }
\ No newline at end of file
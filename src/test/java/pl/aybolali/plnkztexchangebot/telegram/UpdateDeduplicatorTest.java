@@ -0,0 +1,105 @@
+package pl.aybolali.plnkztexchangebot.telegram;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import pl.aybolali.plnkztexchangebot.entity.BotState;
+import pl.aybolali.plnkztexchangebot.repository.BotStateRepository;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UpdateDeduplicator Tests")
+class UpdateDeduplicatorTest {
+
+    @Mock
+    private BotStateRepository botStateRepository;
+
+    private UpdateDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new UpdateDeduplicator(botStateRepository, Runnable::run, 64, 2);
+    }
+
+    @Test
+    @DisplayName("Повторный update_id отбрасывается, в том числе не по порядку")
+    void dropsRepeatedUpdateIds() {
+        assertThat(deduplicator.firstDelivery(update(10))).isTrue();
+        assertThat(deduplicator.firstDelivery(update(12))).isTrue();
+        assertThat(deduplicator.firstDelivery(update(11))).isTrue();
+
+        assertThat(deduplicator.firstDelivery(update(10))).isFalse();
+        assertThat(deduplicator.firstDelivery(update(12))).isFalse();
+    }
+
+    @Test
+    @DisplayName("update_id старше окна считается обработанным")
+    void treatsIdsBelowWindowAsSeen() {
+        deduplicator.firstDelivery(update(1000));
+
+        assertThat(deduplicator.firstDelivery(update(1000 - 64))).isFalse();
+        assertThat(deduplicator.firstDelivery(update(1000 - 63))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Повторный callback_query.id отбрасывается, LRU ограничен")
+    void dropsRepeatedCallbackIds() {
+        assertThat(deduplicator.firstDelivery(callback(1, "cb-a"))).isTrue();
+        assertThat(deduplicator.firstDelivery(callback(2, "cb-a"))).isFalse();
+
+        deduplicator.firstDelivery(callback(3, "cb-b"));
+        deduplicator.firstDelivery(callback(4, "cb-c"));
+
+        assertThat(deduplicator.firstDelivery(callback(5, "cb-a"))).isTrue();
+    }
+
+    @Test
+    @DisplayName("После рестарта всё до сохранённого offset отбрасывается")
+    void restoresPersistedOffset() {
+        when(botStateRepository.findById(UpdateDeduplicator.LAST_UPDATE_ID))
+                .thenReturn(Optional.of(BotState.builder().key(UpdateDeduplicator.LAST_UPDATE_ID).value(500L).build()));
+
+        assertThat(deduplicator.restoreOffset()).isEqualTo(500L);
+        assertThat(deduplicator.firstDelivery(update(500))).isFalse();
+        assertThat(deduplicator.firstDelivery(update(501))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Offset сохраняется монотонно одним UPDATE")
+    void persistsHighestProcessedOffset() {
+        when(botStateRepository.advance(eq(UpdateDeduplicator.LAST_UPDATE_ID), any(), any())).thenReturn(1);
+
+        deduplicator.processed(update(7));
+        deduplicator.processed(update(5));
+
+        verify(botStateRepository).advance(eq(UpdateDeduplicator.LAST_UPDATE_ID), eq(7L), any());
+        verify(botStateRepository, never()).advance(eq(UpdateDeduplicator.LAST_UPDATE_ID), eq(5L), any());
+        verify(botStateRepository, never()).save(any());
+    }
+
+    private Update update(int id) {
+        Update update = new Update();
+        update.setUpdateId(id);
+        return update;
+    }
+
+    private Update callback(int id, String callbackId) {
+        CallbackQuery callbackQuery = new CallbackQuery();
+        callbackQuery.setId(callbackId);
+
+        Update update = update(id);
+        update.setCallbackQuery(callbackQuery);
+        return update;
+    }
+}
@@ -0,0 +1,121 @@
+package pl.aybolali.plnkztexchangebot.telegram.routing;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("UpdateRouter Tests")
+class UpdateRouterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> calls = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Metrics.addRegistry(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Metrics.removeRegistry(registry);
+    }
+
+    @Test
+    @DisplayName("Should route callbacks by exact value and by prefix with typed arguments")
+    void shouldRouteCallbacks() {
+        UpdateRouter router = callbacks();
+
+        router.resolve("show_menu").invoke(context("show_menu"));
+        router.resolve("rate_deal:42:5").invoke(context("rate_deal:42:5"));
+        router.resolve("note:a:b:c").invoke(context("note:a:b:c"));
+
+        router.resolve("rate:43:4").invoke(context("rate:43:4"));
+
+        assertThat(calls).containsExactly("menu 1/7", "rate 42=5", "note a:b:c", "rate 43=4");
+        assertThat(router.resolve("rate_deal:42:5").mutating()).isTrue();
+        assertThat(router.resolve("rate:43:4").mutating()).isTrue();
+        assertThat(router.resolve("rate:43:4").key()).isEqualTo("rate_deal:");
+        assertThat(router.resolve("show_menu").mutating()).isFalse();
+        assertThat(router.resolve("unknown:1")).isNull();
+        assertThat(router.resolve("show_menu_extra")).isNull();
+    }
+
+    @Test
+    @DisplayName("Should reject malformed callback arguments")
+    void shouldRejectMalformedArguments() {
+        UpdateRouter router = callbacks();
+
+        assertThatThrownBy(() -> router.resolve("rate_deal:x:5").invoke(context("rate_deal:x:5")))
+                .isInstanceOf(RouteArgumentException.class);
+        assertThatThrownBy(() -> router.resolve("rate_deal:").invoke(context("rate_deal:")))
+                .isInstanceOf(RouteArgumentException.class);
+        assertThat(calls).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should route commands by first word ignoring bot mention")
+    void shouldRouteCommands() {
+        UpdateRouter router = commands();
+
+        UpdateRouter.Route start = router.resolve("/start@test_bot respond_15");
+        start.invoke(context("/start@test_bot respond_15"));
+        router.resolve("/help").invoke(context("/help"));
+
+        assertThat(start.requiresVerification()).isFalse();
+        assertThat(router.resolve("/menu").requiresVerification()).isTrue();
+        assertThat(calls).containsExactly("start respond_15", "help 1");
+    }
+
+    @Test
+    @DisplayName("Should record latency per route")
+    void shouldRecordLatencyPerRoute() {
+        UpdateRouter router = callbacks();
+
+        router.resolve("show_menu").invoke(context("show_menu"));
+        router.resolve("show_menu").invoke(context("show_menu"));
+
+        assertThat(registry.get("telegram.route").tag("type", "callback").tag("route", "show_menu")
+                .timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should fail fast on duplicate routes")
+    void shouldFailOnDuplicateRoutes() {
+        assertThatThrownBy(() -> UpdateRouter.callbacks()
+                .on("same:", (context, args) -> calls.add("first"))
+                .onMutating("same:", (context, args) -> calls.add("second")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("same:");
+        assertThatThrownBy(() -> callbacks().alias("rate_deal:", "note:"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("rate_deal:");
+    }
+
+    private static RouteContext context(String data) {
+        return new RouteContext(1L, 7L, null, null, data);
+    }
+
+    private UpdateRouter callbacks() {
+        return UpdateRouter.callbacks()
+                .on("show_menu", (context, args) -> calls.add("menu " + context.chatId() + "/" + context.telegramUserId()))
+                .onMutating("rate_deal:", (context, args) -> calls.add("rate " + args.getLong(0) + "=" + args.getInt(1)))
+                .alias("rate:", "rate_deal:")
+                .on("note:", (context, args) -> calls.add("note " + args.rest(0)));
+    }
+
+    private UpdateRouter commands() {
+        return UpdateRouter.commands()
+                .on("/menu", (context, args) -> calls.add("menu " + context.chatId() + "/" + context.telegramUserId()))
+                .onPublic("/start", (context, args) -> calls.add("start " + args.rest(0)))
+                .onPublic("/help", (context, args) -> calls.add("help " + context.chatId()));
+    }
+}
@@ -0,0 +1,193 @@
+package pl.aybolali.plnkztexchangebot.telegram.spool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+import pl.aybolali.plnkztexchangebot.telegram.PLNKZTExchangeBot;
+import pl.aybolali.plnkztexchangebot.telegram.TelegramKeyboardBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OutboundSpool Tests")
+class OutboundSpoolTest {
+
+    @Mock
+    private PLNKZTExchangeBot bot;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Недоставленное сообщение переживает рестарт вместе с клавиатурой")
+    void survivesRestart() throws Exception {
+        OutboundSpool spool = open();
+        spool.enqueue(message("123", "⭐ Оцените сделку"));
+        spool.close();
+
+        OutboundSpool reopened = open();
+        assertThat(reopened.pendingCount()).isEqualTo(1);
+
+        reopened.redeliverDue();
+
+        ArgumentCaptor<SendMessage> sent = ArgumentCaptor.forClass(SendMessage.class);
+        verify(bot).execute(sent.capture());
+        assertThat(sent.getValue().getChatId()).isEqualTo("123");
+        assertThat(sent.getValue().getText()).isEqualTo("⭐ Оцените сделку");
+        assertThat(((InlineKeyboardMarkup) sent.getValue().getReplyMarkup()).getKeyboard().get(0).get(0).getCallbackData())
+                .isEqualTo("rate_deal:1:5");
+        assertThat(reopened.pendingCount()).isZero();
+        reopened.close();
+
+        assertThat(open().pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Временная ошибка оставляет сообщение в очереди, 403 — убирает")
+    void retriesTransientAndDropsPermanentFailures() throws Exception {
+        OutboundSpool spool = open();
+        spool.enqueue(message("1", "first"));
+        spool.enqueue(message("2", "second"));
+
+        TelegramApiRequestException forbidden = mock(TelegramApiRequestException.class);
+        when(forbidden.getErrorCode()).thenReturn(403);
+        when(bot.execute(any(SendMessage.class)))
+                .thenThrow(new TelegramApiException("timeout"))
+                .thenThrow(forbidden);
+
+        spool.redeliverDue();
+
+        assertThat(spool.pendingCount()).isEqualTo(1);
+        spool.close();
+    }
+
+    @Test
+    @DisplayName("После max-attempts неудачных попыток сообщение отбрасывается")
+    void dropsAfterMaxAttempts() throws Exception {
+        OutboundSpool spool = open(2, 360);
+        spool.enqueue(message("1", "poison"));
+        when(bot.execute(any(SendMessage.class))).thenThrow(new TelegramApiException("timeout"));
+
+        spool.redeliverDue();
+        assertThat(spool.pendingCount()).isEqualTo(1);
+        Thread.sleep(5);
+        spool.redeliverDue();
+
+        assertThat(spool.pendingCount()).isZero();
+        verify(bot, times(2)).execute(any(SendMessage.class));
+        spool.close();
+
+        assertThat(open().pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Сообщение старше max-age-minutes не доставляется, в том числе после рестарта")
+    void dropsExpiredMessages() throws Exception {
+        OutboundSpool spool = open();
+        spool.enqueue(message("1", "stale"));
+        spool.close();
+
+        OutboundSpool reopened = open(20, 0);
+        Thread.sleep(5);
+        reopened.redeliverDue();
+
+        assertThat(reopened.pendingCount()).isZero();
+        verify(bot, never()).execute(any(SendMessage.class));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Ответ на нажатие повторяется из памяти и на диск не попадает")
+    void retriesRepliesInMemoryOnly() throws Exception {
+        OutboundSpool spool = open();
+        spool.retryReply(message("1", "reply"), new TelegramApiException("timeout"));
+
+        assertThat(spool.pendingCount()).isEqualTo(1);
+        assertThat(segmentCount()).isZero();
+
+        spool.redeliverDue();
+
+        verify(bot).execute(any(SendMessage.class));
+        assertThat(spool.pendingCount()).isZero();
+        spool.close();
+    }
+
+    @Test
+    @DisplayName("Компакция удаляет старые сегменты, сохраняя недоставленное")
+    void compactionRemovesOldSegments() throws Exception {
+        OutboundSpool first = open();
+        first.enqueue(message("1", "delivered later"));
+        first.enqueue(message("2", "still pending"));
+        first.close();
+
+        OutboundSpool second = open();
+        when(bot.execute(any(SendMessage.class)))
+                .thenReturn(null)
+                .thenThrow(new TelegramApiException("timeout"));
+        second.redeliverDue();
+        second.compact();
+        second.close();
+
+        assertThat(segmentCount()).isEqualTo(1);
+        assertThat(open().pendingCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Недописанный хвост сегмента игнорируется")
+    void ignoresTornTail() throws Exception {
+        OutboundSpool spool = open();
+        spool.enqueue(message("1", "complete"));
+        spool.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Path segment = files.filter(path -> path.toFile().length() > 0).findFirst().orElseThrow();
+            Files.write(segment, new byte[]{0, 0, 0, 42, 1, 0, 0}, StandardOpenOption.APPEND);
+        }
+
+        assertThat(open().pendingCount()).isEqualTo(1);
+    }
+
+    private OutboundSpool open() throws IOException {
+        return open(20, 360);
+    }
+
+    private OutboundSpool open(int maxAttempts, long maxAgeMinutes) throws IOException {
+        OutboundSpool spool = new OutboundSpool(bot, directory, 1, OutboundSpool.FsyncPolicy.ALWAYS, 0, 1000,
+                maxAttempts, maxAgeMinutes, 30);
+        spool.open();
+        return spool;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toFile().length() > 0).count();
+        }
+    }
+
+    private SendMessage message(String chatId, String text) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+        message.setParseMode("HTML");
+        message.setReplyMarkup(TelegramKeyboardBuilder.create()
+                .addButton("5⭐", "rate_deal:1:5")
+                .build());
+        return message;
+    }
+}
@@ -0,0 +1,108 @@
+package pl.aybolali.plnkztexchangebot.telegram.webhook;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("TelegramWebhookController Tests")
+class TelegramWebhookControllerTest {
+
+    private static final String SECRET = "test-secret_123";
+
+    @Mock
+    private WebhookUpdateDispatcher dispatcher;
+
+    private MockMvc mockMvc;
+    private byte[] recordedUpdate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        TelegramWebhookController controller = new TelegramWebhookController(dispatcher, new ObjectMapper(), SECRET);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        try (InputStream in = getClass().getResourceAsStream("/telegram/update-message.json")) {
+            recordedUpdate = in.readAllBytes();
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject update without valid secret token")
+    void shouldRejectInvalidSecret() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TelegramWebhookController.SECRET_HEADER, "wrong")
+                        .content(recordedUpdate))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(recordedUpdate))
+                .andExpect(status().isUnauthorized());
+
+        verify(dispatcher, never()).dispatch(any());
+    }
+
+    @Test
+    @DisplayName("Should parse recorded update and hand it off")
+    void shouldDispatchRecordedUpdate() throws Exception {
+        when(dispatcher.dispatch(any())).thenReturn(true);
+
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                        .content(recordedUpdate))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        verify(dispatcher).dispatch(captor.capture());
+        Update update = captor.getValue();
+        assertThat(update.getUpdateId()).isEqualTo(815234001);
+        assertThat(update.getMessage().getText()).isEqualTo("/search");
+        assertThat(update.getMessage().getChatId()).isEqualTo(123456789L);
+    }
+
+    @Test
+    @DisplayName("Should ask Telegram to retry when processing queue is full")
+    void shouldReturnServiceUnavailableWhenQueueFull() throws Exception {
+        when(dispatcher.dispatch(any())).thenReturn(false);
+
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                        .content(recordedUpdate))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    @DisplayName("Should acknowledge malformed payload without dispatching")
+    void shouldAcknowledgeMalformedPayload() throws Exception {
+        mockMvc.perform(post("/telegram/webhook")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(TelegramWebhookController.SECRET_HEADER, SECRET)
+                        .content("{\"update_id\": "))
+                .andExpect(status().isOk());
+
+        verify(dispatcher, never()).dispatch(any());
+    }
+}